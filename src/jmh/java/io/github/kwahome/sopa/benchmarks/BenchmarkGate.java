@@ -0,0 +1,318 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonWriter;
+import javax.json.stream.JsonGenerator;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.RunnerException;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Runs the renderer and logger benchmarks and compares their throughput and bytes allocated per
+ * operation to a checked-in baseline, failing when either regressed by more than a tolerance.
+ *
+ * The suite runs the benchmarks with 8 fields of 16 characters. A benchmark regressed when its
+ * throughput dropped by more than {@code sopa.benchmark.tolerance}, 10% by default, or its allocation
+ * grew by more than {@code sopa.benchmark.allocTolerance}, 5% by default, and a byte. Benchmarks missing
+ * from the baseline are reported as new and never fail the gate, while baseline benchmarks selected by
+ * the run but missing from its results, e.g. renamed or removed, fail it.
+ *
+ * Allocation depends on the Java version, e.g. strings take a byte per Latin-1 character from Java 9 on
+ * and two before, so the baseline file holds a baseline per Java specification version and only the one
+ * of the running version is compared; without one a warning is printed and nothing is compared.
+ * Throughput depends on the machine as well, so each baseline records the JVM and number of processors
+ * it was measured on and a warning is printed when they differ.
+ *
+ * Configured with system properties:
+ *
+ * <pre>
+ *      sopa.benchmark.baseline        path of the baseline JSON file
+ *      sopa.benchmark.include         regex of the benchmarks to run, the renderer and logger ones by default
+ *      sopa.benchmark.threads         comma separated thread counts, 1 by default
+ *      sopa.benchmark.tolerance       share of throughput that may be lost, 0.1 by default
+ *      sopa.benchmark.allocTolerance  share of bytes per operation that may be added, 0.05 by default
+ *      sopa.benchmark.updateBaseline  when true, writes the results as the new baseline instead
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class BenchmarkGate {
+    private static final String SUITE = "RendererBenchmark|StructLoggerBenchmark";
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private static final String BASELINES = "baselines";
+
+    private static final double ALLOCATION_SLACK = 1;
+
+    private static final String ROW = "%-10s %12s %12s %7s %10s %10s %7s  %s%n";
+
+    /**
+     * Runs the suite and compares it to the baseline.
+     *
+     * @param args {@link String}[] ignored
+     * @throws RunnerException if a benchmark fails
+     * @throws IOException if the baseline cannot be read or written
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path baseline = Paths.get(System.getProperty("sopa.benchmark.baseline", "config/benchmarks/baseline.json"));
+        Map<String, String> params = new HashMap<>();
+        params.put("fieldCount", "8");
+        params.put("valueLength", "16");
+        String include = System.getProperty("sopa.benchmark.include", SUITE);
+        String threads = System.getProperty("sopa.benchmark.threads", "1");
+        Map<String, Score> scores = new TreeMap<>();
+        for (RunResult result : BenchmarkRunner.run(include, threads, false, params)) {
+            scores.put(key(result.getParams()), score(result));
+        }
+        JsonObject baselines = read(baseline);
+        if (Boolean.getBoolean("sopa.benchmark.updateBaseline")) {
+            write(baseline, baselines, scores);
+            System.out.printf("%d benchmarks written to %s for Java %s%n", scores.size(), baseline, javaVersion());
+            return;
+        }
+        JsonObject measured = baselines.getJsonObject(javaVersion());
+        if (measured == null) {
+            System.out.printf("WARNING: %s holds no baseline for Java %s, nothing compared%n", baseline,
+                    javaVersion());
+            return;
+        }
+        int regressions = compare(measured, scores,
+                Double.parseDouble(System.getProperty("sopa.benchmark.tolerance", "0.1")),
+                Double.parseDouble(System.getProperty("sopa.benchmark.allocTolerance", "0.05")),
+                selected(include, threads));
+        if (regressions > 0) {
+            throw new IllegalStateException(String.format("%d benchmarks regressed against or missing from %s.",
+                    regressions, baseline));
+        }
+    }
+
+    /**
+     * Compares results to the baseline, printing a row per benchmark.
+     *
+     * @param baseline {@link JsonObject} baseline of the running Java version
+     * @param scores {@link Map} of results by benchmark
+     * @param tolerance double share of throughput that may be lost
+     * @param allocTolerance double share of bytes per operation that may be added
+     * @param selected {@link Predicate} whether a benchmark of the baseline was selected by the run
+     * @return int number of benchmarks that regressed or are missing from the results
+     */
+    static int compare(JsonObject baseline, Map<String, Score> scores, double tolerance, double allocTolerance,
+                       Predicate<String> selected) {
+        if (!environment().equals(baseline.getJsonObject("environment"))) {
+            System.out.printf("WARNING: baseline measured on %s, running on %s, throughput is not comparable%n",
+                    baseline.getJsonObject("environment"), environment());
+        }
+        JsonObject benchmarks = baseline.getJsonObject("benchmarks");
+        System.out.printf(ROW, "status", "base ops/s", "ops/s", "change", "base B/op", "B/op", "change", "benchmark");
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            Score score = entry.getValue();
+            JsonObject expected = benchmarks.getJsonObject(entry.getKey());
+            if (expected == null) {
+                System.out.printf(ROW, "new", "", format(score.opsPerSecond), "", "", format(score.bytesPerOp), "",
+                        entry.getKey());
+                continue;
+            }
+            double baseOps = expected.getJsonNumber("opsPerSecond").doubleValue();
+            double baseBytes = expected.containsKey("bytesPerOp")
+                    ? expected.getJsonNumber("bytesPerOp").doubleValue() : Double.NaN;
+            boolean slower = score.opsPerSecond < baseOps * (1 - tolerance);
+            boolean allocating = score.bytesPerOp > baseBytes * (1 + allocTolerance) + ALLOCATION_SLACK;
+            boolean faster = score.opsPerSecond > baseOps * (1 + tolerance);
+            String status = slower || allocating ? "REGRESSED" : faster ? "improved" : "ok";
+            if (slower || allocating) {
+                regressions++;
+            }
+            System.out.printf(ROW, status, format(baseOps), format(score.opsPerSecond),
+                    change(baseOps, score.opsPerSecond), format(baseBytes), format(score.bytesPerOp),
+                    change(baseBytes, score.bytesPerOp), entry.getKey());
+        }
+        for (String key : benchmarks.keySet()) {
+            if (!scores.containsKey(key) && selected.test(key)) {
+                System.out.printf(ROW, "MISSING", "", "", "", "", "", "", key);
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Tells the benchmarks of the baseline a run selects by name and thread count.
+     *
+     * @param include {@link String} regex of the benchmarks run
+     * @param threads {@link String} comma separated thread counts run
+     * @return {@link Predicate} of benchmark keys
+     */
+    static Predicate<String> selected(String include, String threads) {
+        Pattern included = Pattern.compile(BenchmarkRunner.includePattern(include));
+        Set<String> threadCounts = Arrays.stream(threads.split(",")).map(String::trim).collect(Collectors.toSet());
+        String prefix = BenchmarkGate.class.getPackage().getName() + ".";
+        return key -> included.matcher(prefix + key.substring(0, key.indexOf(' '))).find()
+                && threadCounts.contains(key.substring(key.lastIndexOf('=') + 1));
+    }
+
+    /**
+     * Identifies a benchmark run by its name, params and thread count.
+     *
+     * @param params {@link BenchmarkParams}
+     * @return {@link String} e.g. `RendererBenchmark.render fieldCount=8,renderer=json,valueLength=16 threads=1`
+     */
+    static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark()
+                .substring(BenchmarkGate.class.getPackage().getName().length() + 1));
+        String separator = " ";
+        for (String name : params.getParamsKeys()) {
+            key.append(separator).append(name).append('=').append(params.getParam(name));
+            separator = ",";
+        }
+        return key.append(" threads=").append(params.getThreads()).toString();
+    }
+
+    private static Score score(RunResult result) {
+        double bytesPerOp = Double.NaN;
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            if (secondary.getKey().endsWith(ALLOCATION)) {
+                bytesPerOp = secondary.getValue().getScore();
+            }
+        }
+        return new Score(result.getPrimaryResult().getScore(), bytesPerOp);
+    }
+
+    private static String javaVersion() {
+        return System.getProperty("java.specification.version");
+    }
+
+    private static JsonObject environment() {
+        return Json.createObjectBuilder()
+                .add("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+                .add("processors", Runtime.getRuntime().availableProcessors())
+                .build();
+    }
+
+    /**
+     * Reads the baselines of a baseline file.
+     *
+     * @param path {@link Path} of the file
+     * @return {@link JsonObject} of baselines by Java version, empty if there is no file yet
+     * @throws IOException if the file cannot be read
+     */
+    private static JsonObject read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return Json.createObjectBuilder().build();
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             JsonReader jsonReader = Json.createReader(reader)) {
+            JsonObject baselines = jsonReader.readObject().getJsonObject(BASELINES);
+            return baselines == null ? Json.createObjectBuilder().build() : baselines;
+        }
+    }
+
+    /**
+     * Writes results as the baseline of the running Java version, keeping those of other versions.
+     */
+    private static void write(Path path, JsonObject baselines, Map<String, Score> scores) throws IOException {
+        JsonObjectBuilder benchmarks = Json.createObjectBuilder();
+        scores.forEach((key, score) -> {
+            JsonObjectBuilder benchmark = Json.createObjectBuilder().add("opsPerSecond", round(score.opsPerSecond));
+            if (!Double.isNaN(score.bytesPerOp)) {
+                benchmark.add("bytesPerOp", round(score.bytesPerOp));
+            }
+            benchmarks.add(key, benchmark);
+        });
+        Map<String, JsonObject> byVersion = new TreeMap<>();
+        baselines.forEach((version, measured) -> byVersion.put(version, (JsonObject) measured));
+        byVersion.put(javaVersion(), Json.createObjectBuilder()
+                .add("environment", environment())
+                .add("benchmarks", benchmarks)
+                .build());
+        JsonObjectBuilder updated = Json.createObjectBuilder();
+        byVersion.forEach(updated::add);
+        StringWriter json = new StringWriter();
+        try (JsonWriter jsonWriter = Json.createWriterFactory(
+                Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true)).createWriter(json)) {
+            jsonWriter.writeObject(Json.createObjectBuilder().add(BASELINES, updated).build());
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        // the pretty printer starts with a line break and ends without one
+        Files.write(path, (json.toString().trim() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "" : String.format("%.1f", value);
+    }
+
+    private static String change(double baseline, double value) {
+        if (Double.isNaN(baseline) || Double.isNaN(value) || baseline == 0) {
+            return "";
+        }
+        return String.format("%+.1f%%", (value - baseline) * 100 / baseline);
+    }
+
+    /**
+     * Throughput and allocation of a benchmark.
+     */
+    static final class Score {
+        private final double opsPerSecond;
+
+        private final double bytesPerOp;
+
+        Score(double opsPerSecond, double bytesPerOp) {
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+}
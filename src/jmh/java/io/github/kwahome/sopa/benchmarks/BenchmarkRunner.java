@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Runs the benchmarks once per thread count with the GC profiler, which reports the bytes allocated
+ * per operation as `gc.alloc.rate.norm`, and writes all the results to one JSON file. Each benchmark
+ * runs in one fork, 3 warmup and 5 measurement iterations of a second.
+ *
+ * Configured with system properties:
+ *
+ * <pre>
+ *      sopa.benchmark.include  regex of the benchmarks to run, all by default
+ *      sopa.benchmark.threads  comma separated thread counts, 1 by default
+ *      sopa.benchmark.result   path of the JSON results file, none by default
+ *      sopa.benchmark.quick    when true, runs one short iteration to check the benchmarks work
+ *      sopa.benchmark.corpus   corpus file the {@link CorpusBenchmark} replays, generated by default
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class BenchmarkRunner {
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args {@link String}[] ignored
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        String result = System.getProperty("sopa.benchmark.result");
+        String corpus = System.getProperty("sopa.benchmark.corpus");
+        List<RunResult> results = run(System.getProperty("sopa.benchmark.include", ".*"),
+                System.getProperty("sopa.benchmark.threads", "1"), Boolean.getBoolean("sopa.benchmark.quick"),
+                corpus == null ? Collections.emptyMap() : Collections.singletonMap("corpus", corpus));
+        if (result != null) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, result).writeOut(results);
+        }
+    }
+
+    /**
+     * Runs benchmarks once per thread count.
+     *
+     * @param include {@link String} regex of the benchmarks to run
+     * @param threads {@link String} comma separated thread counts
+     * @param quick boolean whether to run one short iteration only
+     * @param params {@link Map} of benchmark params overriding the values the benchmarks declare
+     * @return {@link List} of results
+     * @throws RunnerException if a benchmark fails
+     */
+    static List<RunResult> run(String include, String threads, boolean quick, Map<String, String> params)
+            throws RunnerException {
+        List<RunResult> results = new ArrayList<>();
+        for (String threadCount : threads.split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(includePattern(include))
+                    .threads(Integer.parseInt(threadCount.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .forks(1)
+                    // a benchmark that throws fails the run rather than leaving a gap in the results
+                    .shouldFailOnError(true)
+                    .warmupIterations(quick ? 1 : 3)
+                    .warmupTime(quick ? TimeValue.milliseconds(200) : TimeValue.seconds(1))
+                    .measurementIterations(quick ? 1 : 5)
+                    .measurementTime(quick ? TimeValue.milliseconds(200) : TimeValue.seconds(1));
+            params.forEach(options::param);
+            results.addAll(new Runner(options.build()).run());
+        }
+        return results;
+    }
+
+    /**
+     * Regex of the benchmarks of this package to run, found in their fully qualified names.
+     *
+     * @param include {@link String} regex of the benchmarks to run
+     * @return {@link String}
+     */
+    static String includePattern(String include) {
+        return BenchmarkRunner.class.getPackage().getName() + "\\..*(" + include + ").*";
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.github.kwahome.sopa.Context;
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.Logger;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+
+/**
+ * Cost of binding context to a logger and of logging with bound and scoped context. The bound context
+ * belongs to the logger instance, so every thread gets its own.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Thread)
+public class ContextBenchmark {
+    @Param({"1", "8"})
+    private int fieldCount;
+
+    private Logger logger;
+
+    private Logger boundLogger;
+
+    private Object[] keyValues;
+
+    /**
+     * Sets up the loggers and payload.
+     */
+    @Setup
+    public void setUp() {
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        keyValues = Fields.generate(fieldCount, 16);
+        logger = LoggerFactory.getLogger(ContextBenchmark.class);
+        boundLogger = LoggerFactory.getLogger(ContextBenchmark.class);
+        boundLogger.bind(keyValues);
+    }
+
+    /**
+     * Clears the bound context.
+     */
+    @TearDown
+    public void tearDown() {
+        boundLogger.newBind();
+    }
+
+    /**
+     * Binds and unbinds the pairs.
+     */
+    @Benchmark
+    public void bindUnbind() {
+        logger.bind(keyValues);
+        logger.unbind(keyValues);
+    }
+
+    /**
+     * Logs an event with the pairs bound to the logger.
+     */
+    @Benchmark
+    public void infoBound() {
+        boundLogger.info("request handled");
+    }
+
+    /**
+     * Pushes the pairs onto the thread's context and logs an event within the scope.
+     */
+    @Benchmark
+    public void infoScoped() {
+        try (Context.Scope ignored = Context.push(keyValues)) {
+            logger.info("request handled");
+        }
+    }
+}
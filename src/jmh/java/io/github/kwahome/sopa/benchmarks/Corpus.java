@@ -0,0 +1,410 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.json.Json;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+
+import lombok.Getter;
+
+/**
+ * Events to replay through renderers and loggers, generated from a {@link CorpusSpec} so that their
+ * shapes match real traffic rather than a few short strings, and kept in JSON lines files so that a
+ * corpus can be shared and replayed again.
+ *
+ * Each line holds one event:
+ *
+ * <pre>
+ *      {"message":"payment captured","fields":{"orderId":"a81f","amount":12.5},
+ *              "exception":{"class":"java.lang.IllegalStateException","message":"declined","depth":24}}
+ * </pre>
+ *
+ * Exceptions are stored as their class, message, the class of their cause, if any, and the number of
+ * nested calls they were created in, and are created again on reading in as many, so that their stack
+ * traces are as long as the original ones.
+ *
+ * @author Kelvin Wahome
+ */
+public final class Corpus {
+    private static final String[] MESSAGES = {"request handled", "payment captured", "cache miss", "retrying call",
+        "user signed in", "order shipped", "job completed", "connection reset"};
+
+    private static final String[] KEYS = {"requestId", "userId", "orderId", "tenantId", "sessionId", "traceId",
+        "spanId", "method", "path", "status", "durationMillis", "bytes", "clientIp", "userAgent", "region", "host",
+        "service", "version", "attempt", "queue", "topic", "partition", "offset", "sku", "amount", "currency",
+        "country", "locale", "referrer", "query", "reason", "outcome"};
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_./:";
+
+    // accented latin, CJK and emoji, the latter outside the BMP
+    private static final String[] UNICODE = {"\u00e9", "\u00fc", "\u00f1", "\u00df", "\u00e7", "\u00f8",
+        "\u65e5", "\u672c", "\u8a9e", "\u4e2d", "\u6587", "\ud55c", "\uad6d",
+        "\ud83d\ude00", "\ud83d\ude80", "\u2705"};
+
+    private static final String[] EXCEPTIONS = {IllegalStateException.class.getName(),
+        IllegalArgumentException.class.getName(), IOException.class.getName(), RuntimeException.class.getName()};
+
+    private final List<Event> events;
+
+    private Corpus(List<Event> events) {
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Generates a corpus.
+     *
+     * @param spec {@link CorpusSpec} distributions of the events
+     * @param size int number of events
+     * @return {@link Corpus}
+     */
+    public static Corpus generate(CorpusSpec spec, int size) {
+        Random random = new Random(spec.getSeed());
+        List<Event> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int fields = spec.getMinFields() + random.nextInt(spec.getMaxFields() - spec.getMinFields() + 1);
+            String[] keys = keys(random, fields);
+            Object[] keyValues = new Object[fields * 2];
+            for (int field = 0; field < fields; field++) {
+                keyValues[field * 2] = keys[field];
+                keyValues[field * 2 + 1] = value(spec, random);
+            }
+            Throwable exception = null;
+            int depth = 0;
+            if (random.nextDouble() < spec.getExceptionRate()) {
+                depth = 8 + random.nextInt(56);
+                exception = exception(EXCEPTIONS[random.nextInt(EXCEPTIONS.length)], string(spec, random),
+                        random.nextInt(3) == 0 ? EXCEPTIONS[random.nextInt(EXCEPTIONS.length)] : null, depth);
+            }
+            events.add(new Event(MESSAGES[random.nextInt(MESSAGES.length)], keyValues, exception, depth));
+        }
+        return new Corpus(events);
+    }
+
+    /**
+     * Reads a corpus from a JSON lines file.
+     *
+     * @param file {@link Path}
+     * @return {@link Corpus}
+     * @throws IOException if the file cannot be read
+     */
+    public static Corpus read(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().isEmpty()) {
+                    events.add(parse(line));
+                }
+            }
+        }
+        return new Corpus(events);
+    }
+
+    /**
+     * Writes the corpus to a JSON lines file.
+     *
+     * @param file {@link Path}
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Event event : events) {
+                StringWriter line = new StringWriter();
+                try (JsonWriter jsonWriter = Json.createWriter(line)) {
+                    jsonWriter.writeObject(event.toJson());
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Number of events.
+     *
+     * @return int
+     */
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * Looks up an event.
+     *
+     * @param index int
+     * @return {@link Event}
+     */
+    public Event get(int index) {
+        return events.get(index);
+    }
+
+    /**
+     * Describes the shapes the events actually have, to check them against the spec.
+     *
+     * @return {@link String}
+     */
+    public String summary() {
+        long fields = 0;
+        long numbers = 0;
+        long strings = 0;
+        long chars = 0;
+        long unicode = 0;
+        long quotes = 0;
+        long spaces = 0;
+        long exceptions = 0;
+        for (Event event : events) {
+            fields += event.keyValues.length / 2;
+            exceptions += event.exception == null ? 0 : 1;
+            for (int i = 1; i < event.keyValues.length; i = i + 2) {
+                if (!(event.keyValues[i] instanceof String)) {
+                    numbers++;
+                    continue;
+                }
+                String value = (String) event.keyValues[i];
+                strings++;
+                chars += value.length();
+                for (int c = 0; c < value.length(); c++) {
+                    char character = value.charAt(c);
+                    unicode += character > 127 && !Character.isLowSurrogate(character) ? 1 : 0;
+                    quotes += character == '"' ? 1 : 0;
+                    spaces += character == ' ' ? 1 : 0;
+                }
+            }
+        }
+        return String.format("%d events, %.1f fields per event, %.1f chars per string, unicode %.3f, quotes %.3f, " +
+                "spaces %.3f, numeric %.2f, exceptions %.3f", events.size(), ratio(fields, events.size()),
+                ratio(chars, strings), ratio(unicode, chars), ratio(quotes, chars), ratio(spaces, chars),
+                ratio(numbers, numbers + strings), ratio(exceptions, events.size()));
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    private static String[] keys(Random random, int count) {
+        String[] keys = new String[Math.max(count, KEYS.length)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < KEYS.length ? KEYS[i] : "field" + i;
+        }
+        // partial shuffle, the first keys are distinct and in random order
+        for (int i = 0; i < count; i++) {
+            int swap = i + random.nextInt(keys.length - i);
+            String key = keys[swap];
+            keys[swap] = keys[i];
+            keys[i] = key;
+        }
+        return keys;
+    }
+
+    private static Object value(CorpusSpec spec, Random random) {
+        if (random.nextDouble() >= spec.getNumericShare()) {
+            return string(spec, random);
+        }
+        switch (random.nextInt(4)) {
+            case 0:
+                // e.g. a timestamp, beyond the range of an int
+                return 1_500_000_000_000L + (long) (random.nextDouble() * 100_000_000_000L);
+            case 1:
+                return random.nextDouble() * 1000;
+            default:
+                return random.nextInt(100_000);
+        }
+    }
+
+    private static String string(CorpusSpec spec, Random random) {
+        double exponential = -Math.log(1 - random.nextDouble()) * spec.getMeanValueLength();
+        int length = (int) Math.max(1, Math.min(spec.getMaxValueLength(), Math.round(exponential)));
+        StringBuilder value = new StringBuilder(length + 1);
+        while (value.length() < length) {
+            double character = random.nextDouble();
+            if (character < spec.getQuoteRate()) {
+                value.append('"');
+            } else if (character < spec.getQuoteRate() + spec.getSpaceRate()) {
+                value.append(' ');
+            } else if (character < spec.getQuoteRate() + spec.getSpaceRate() + spec.getUnicodeShare()) {
+                value.append(UNICODE[random.nextInt(UNICODE.length)]);
+            } else {
+                value.append(ASCII.charAt(random.nextInt(ASCII.length())));
+            }
+        }
+        return value.toString();
+    }
+
+    private static Throwable exception(String className, String message, String causeClassName, int depth) {
+        Throwable exception = depth > 1 ? exception(className, message, causeClassName, depth - 1)
+                : instantiate(className, message);
+        if (depth == 1 && causeClassName != null) {
+            exception.initCause(instantiate(causeClassName, null));
+        }
+        return exception;
+    }
+
+    private static Throwable instantiate(String className, String message) {
+        try {
+            return (Throwable) Class.forName(className).getConstructor(String.class).newInstance(message);
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            return new RuntimeException(message);
+        }
+    }
+
+    private static Event parse(String line) {
+        JsonObject json;
+        try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+            json = jsonReader.readObject();
+        }
+        JsonObject fields = json.getJsonObject("fields");
+        Object[] keyValues = new Object[fields.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, JsonValue> field : fields.entrySet()) {
+            keyValues[i++] = field.getKey();
+            keyValues[i++] = toObject(field.getValue());
+        }
+        Throwable exception = null;
+        int depth = 0;
+        JsonObject encoded = json.getJsonObject("exception");
+        if (encoded != null) {
+            depth = Math.max(1, encoded.getInt("depth", 1));
+            exception = exception(encoded.getString("class"), encoded.getString("message", null),
+                    encoded.getString("cause", null), depth);
+        }
+        return new Event(json.getString("message"), keyValues, exception, depth);
+    }
+
+    private static Object toObject(JsonValue value) {
+        switch (value.getValueType()) {
+            case NUMBER:
+                JsonNumber number = (JsonNumber) value;
+                if (!number.isIntegral()) {
+                    return number.doubleValue();
+                }
+                long integral = number.longValue();
+                return integral == (int) integral ? (Object) (int) integral : (Object) integral;
+            case STRING:
+                return ((JsonString) value).getString();
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case NULL:
+                return null;
+            default:
+                return value.toString();
+        }
+    }
+
+    /**
+     * An event of the corpus.
+     */
+    public static final class Event {
+        /**
+         * Message of the event.
+         */
+        @Getter
+        private final String message;
+
+        /**
+         * Keys and values at alternate indices, not to be modified.
+         */
+        @Getter
+        private final Object[] keyValues;
+
+        /**
+         * Exception logged with the event, null if none.
+         */
+        @Getter
+        private final Throwable exception;
+
+        /**
+         * Params to log the event with: the key-value pairs followed by the exception, if any.
+         */
+        @Getter
+        private final Object[] params;
+
+        private final int exceptionDepth;
+
+        Event(String message, Object[] keyValues, Throwable exception, int exceptionDepth) {
+            this.message = message;
+            this.keyValues = keyValues;
+            this.exception = exception;
+            this.exceptionDepth = exceptionDepth;
+            if (exception == null) {
+                this.params = keyValues;
+            } else {
+                this.params = new Object[keyValues.length + 1];
+                System.arraycopy(keyValues, 0, params, 0, keyValues.length);
+                params[keyValues.length] = exception;
+            }
+        }
+
+        private JsonObject toJson() {
+            JsonObjectBuilder fields = Json.createObjectBuilder();
+            for (int i = 0; i < keyValues.length; i = i + 2) {
+                Object value = keyValues[i + 1];
+                if (value instanceof Integer) {
+                    fields.add((String) keyValues[i], (int) value);
+                } else if (value instanceof Long) {
+                    fields.add((String) keyValues[i], (long) value);
+                } else if (value instanceof Double) {
+                    fields.add((String) keyValues[i], (double) value);
+                } else {
+                    fields.add((String) keyValues[i], String.valueOf(value));
+                }
+            }
+            JsonObjectBuilder json = Json.createObjectBuilder().add("message", message).add("fields", fields);
+            if (exception != null) {
+                JsonObjectBuilder encoded = Json.createObjectBuilder()
+                        .add("class", exception.getClass().getName())
+                        .add("depth", exceptionDepth);
+                if (exception.getMessage() != null) {
+                    encoded.add("message", exception.getMessage());
+                }
+                if (exception.getCause() != null) {
+                    encoded.add("cause", exception.getCause().getClass().getName());
+                }
+                json.add("exception", encoded);
+            }
+            return json.build();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.Logger;
+
+/**
+ * Cost of rendering and logging the events of a {@link Corpus}, one event per operation in turn, so
+ * that escaping and encoding are measured on realistic values. The corpus is read from the file passed
+ * as the `corpus` param or generated with the default {@link CorpusSpec}.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Thread)
+public class CorpusBenchmark {
+    @Param({"keyValue", "json", "yaml"})
+    private String renderer;
+
+    @Param({""})
+    private String corpus;
+
+    private Corpus events;
+
+    private LogRenderer<Object> logRenderer;
+
+    private org.slf4j.Logger slf4jLogger;
+
+    private Logger logger;
+
+    private int next;
+
+    /**
+     * Reads or generates the corpus and configures the renderer.
+     *
+     * @throws IOException if the corpus cannot be read
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        events = corpus.isEmpty() ? Corpus.generate(CorpusSpec.builder().build(), 4096)
+                : Corpus.read(Paths.get(corpus));
+        logRenderer = (LogRenderer<Object>) Fields.renderer(renderer);
+        StructLoggerConfig.setLogRenderer(logRenderer);
+        StructLoggerConfig.setLevel(Level.INFO);
+        slf4jLogger = org.slf4j.LoggerFactory.getLogger(CorpusBenchmark.class);
+        logger = LoggerFactory.getLogger(CorpusBenchmark.class);
+    }
+
+    /**
+     * Renders the next event.
+     *
+     * @return {@link String} rendered event
+     */
+    @Benchmark
+    public String render() {
+        Corpus.Event event = nextEvent();
+        Object builder = logRenderer.start(slf4jLogger);
+        logRenderer.addMessage(slf4jLogger, builder, event.getMessage());
+        Object[] keyValues = event.getKeyValues();
+        for (int i = 0; i < keyValues.length; i = i + 2) {
+            logRenderer.addKeyValue(slf4jLogger, builder, (String) keyValues[i], keyValues[i + 1]);
+        }
+        return logRenderer.end(slf4jLogger, builder);
+    }
+
+    /**
+     * Logs the next event, at ERROR if it carries an exception.
+     */
+    @Benchmark
+    public void log() {
+        Corpus.Event event = nextEvent();
+        if (event.getException() == null) {
+            logger.info(event.getMessage(), event.getParams());
+        } else {
+            logger.error(event.getMessage(), event.getParams());
+        }
+    }
+
+    private Corpus.Event nextEvent() {
+        Corpus.Event event = events.get(next);
+        next = next + 1 == events.size() ? 0 : next + 1;
+        return event;
+    }
+}
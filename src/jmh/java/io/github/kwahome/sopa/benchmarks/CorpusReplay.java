@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.ConfigFileWatcher;
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.Logger;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Replays a {@link Corpus} through renderers, on their own and through a {@link Logger}, reporting the
+ * throughput, the bytes allocated per event and, for renderers on their own, the UTF-8 bytes rendered
+ * per event. Exceptions are only logged through the logger since renderers do not take them.
+ *
+ * The corpus is read from a file or generated from a {@link CorpusSpec} read from the `sopa.corpus.`
+ * system properties, e.g. `sopa.corpus.unicodeShare`. A configuration file, in the format
+ * {@link ConfigFileWatcher#load(java.nio.file.Path)} reads, configures the loggers, e.g. with sampling,
+ * redaction or exception encoding, and is loaded again before each renderer is replayed. Configured with
+ * system properties:
+ *
+ * <pre>
+ *      sopa.corpus.file           corpus to read, generated if not set
+ *      sopa.corpus.events         number of events generated, 10000 by default
+ *      sopa.corpus.write          file to write the generated corpus to
+ *      sopa.replay.config         configuration file of the loggers
+ *      sopa.replay.renderers      comma separated renderers, `keyValue,json,yaml` by default
+ *      sopa.replay.warmupPasses   passes over the corpus before measuring, 10 by default
+ *      sopa.replay.passes         passes over the corpus measured, 10 by default
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class CorpusReplay {
+    private static final String ROW = "%-9s %-8s %12s %10s %10s %12s%n";
+
+    /**
+     * Replays the corpus.
+     *
+     * @param args {@link String}[] ignored
+     * @throws IOException if the corpus or configuration cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Corpus corpus = corpus();
+        System.out.println(corpus.summary());
+        String config = System.getProperty("sopa.replay.config");
+        int warmupPasses = Integer.getInteger("sopa.replay.warmupPasses", 10);
+        int passes = Integer.getInteger("sopa.replay.passes", 10);
+        System.out.printf(ROW, "renderer", "path", "events/s", "ns/event", "B/event", "out B/event");
+        for (String renderer : System.getProperty("sopa.replay.renderers", "keyValue,json,yaml").split(",")) {
+            if (config != null) {
+                ConfigFileWatcher.load(Paths.get(config));
+            } else {
+                StructLoggerConfig.setLevel(Level.INFO);
+            }
+            LogRenderer<?> logRenderer = Fields.renderer(renderer.trim());
+            StructLoggerConfig.setLogRenderer(logRenderer);
+            org.slf4j.Logger slf4jLogger = org.slf4j.LoggerFactory.getLogger(CorpusReplay.class);
+            Logger logger = LoggerFactory.getLogger(CorpusReplay.class);
+            replay(renderer.trim(), "renderer", corpus, warmupPasses, passes,
+                    events -> render(logRenderer, slf4jLogger, events));
+            replay(renderer.trim(), "logger", corpus, warmupPasses, passes, events -> log(logger, events));
+        }
+    }
+
+    /**
+     * Reads or generates the corpus as configured.
+     *
+     * @return {@link Corpus}
+     * @throws IOException if the corpus cannot be read or written
+     */
+    static Corpus corpus() throws IOException {
+        String file = System.getProperty("sopa.corpus.file");
+        if (file != null) {
+            return Corpus.read(Paths.get(file));
+        }
+        CorpusSpec spec = CorpusSpec.from(System.getProperties(), "sopa.corpus.");
+        System.out.println(spec);
+        Corpus corpus = Corpus.generate(spec, Integer.getInteger("sopa.corpus.events", 10_000));
+        String write = System.getProperty("sopa.corpus.write");
+        if (write != null) {
+            corpus.write(Paths.get(write));
+        }
+        return corpus;
+    }
+
+    private static void replay(String renderer, String path, Corpus corpus, int warmupPasses, int passes,
+                               ToLongFunction<Corpus> pass) {
+        for (int i = 0; i < warmupPasses; i++) {
+            pass.applyAsLong(corpus);
+        }
+        long allocatedAtStart = LoadHarness.allocatedBytes();
+        long start = System.nanoTime();
+        long output = 0;
+        for (int i = 0; i < passes; i++) {
+            output += pass.applyAsLong(corpus);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = LoadHarness.allocatedBytes() - allocatedAtStart;
+        long events = (long) corpus.size() * passes;
+        System.out.printf(ROW, renderer, path, String.format("%.0f", events * 1e9 / nanos),
+                String.format("%.0f", (double) nanos / events), String.format("%.0f", (double) allocated / events),
+                output == 0 ? "" : String.format("%.1f", (double) output / events));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long render(LogRenderer<?> logRenderer, org.slf4j.Logger slf4jLogger, Corpus corpus) {
+        LogRenderer<Object> renderer = (LogRenderer<Object>) logRenderer;
+        long bytes = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            Corpus.Event event = corpus.get(i);
+            Object builder = renderer.start(slf4jLogger);
+            renderer.addMessage(slf4jLogger, builder, event.getMessage());
+            Object[] keyValues = event.getKeyValues();
+            for (int j = 0; j < keyValues.length; j = j + 2) {
+                renderer.addKeyValue(slf4jLogger, builder, (String) keyValues[j], keyValues[j + 1]);
+            }
+            bytes += utf8Length(renderer.end(slf4jLogger, builder));
+        }
+        return bytes;
+    }
+
+    private static long log(Logger logger, Corpus corpus) {
+        for (int i = 0; i < corpus.size(); i++) {
+            Corpus.Event event = corpus.get(i);
+            if (event.getException() == null) {
+                logger.info(event.getMessage(), event.getParams());
+            } else {
+                logger.error(event.getMessage(), event.getParams());
+            }
+        }
+        return 0;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character < 0x80) {
+                length++;
+            } else if (character < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(character)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
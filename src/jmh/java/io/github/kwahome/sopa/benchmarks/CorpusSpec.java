@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.util.Properties;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Distributions a {@link Corpus} of events is generated from.
+ *
+ * <pre>
+ *      CorpusSpec.builder()
+ *              .minFields(4)
+ *              .maxFields(24)
+ *              .meanValueLength(40)
+ *              .unicodeShare(0.05)
+ *              .quoteRate(0.02)
+ *              .exceptionRate(0.01)
+ *              .build();
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class CorpusSpec {
+    /**
+     * Fewest key-value pairs per event.
+     */
+    @Getter
+    private final int minFields;
+
+    /**
+     * Most key-value pairs per event, the count is uniform between the two.
+     */
+    @Getter
+    private final int maxFields;
+
+    /**
+     * Mean length of string values, exponentially distributed so that most are short and a few long.
+     */
+    @Getter
+    private final int meanValueLength;
+
+    /**
+     * Length string values are cut at.
+     */
+    @Getter
+    private final int maxValueLength;
+
+    /**
+     * Share of the characters of string values outside ASCII: accented letters, CJK and emoji.
+     */
+    @Getter
+    private final double unicodeShare;
+
+    /**
+     * Share of the characters of string values that are double quotes.
+     */
+    @Getter
+    private final double quoteRate;
+
+    /**
+     * Share of the characters of string values that are spaces.
+     */
+    @Getter
+    private final double spaceRate;
+
+    /**
+     * Share of values that are numbers rather than strings: ints, longs and doubles.
+     */
+    @Getter
+    private final double numericShare;
+
+    /**
+     * Share of events logged with an exception.
+     */
+    @Getter
+    private final double exceptionRate;
+
+    /**
+     * Seed of the generator, the same spec and seed always generating the same corpus.
+     */
+    @Getter
+    private final long seed;
+
+    /**
+     * Constructor
+     *
+     * @param minFields int fewest key-value pairs per event, 2 by default
+     * @param maxFields int most key-value pairs per event, 16 by default
+     * @param meanValueLength int mean length of string values, 24 by default
+     * @param maxValueLength int length string values are cut at, 1024 by default
+     * @param unicodeShare {@link Double} share of characters outside ASCII, 0.02 by default
+     * @param quoteRate {@link Double} share of characters that are double quotes, 0.01 by default
+     * @param spaceRate {@link Double} share of characters that are spaces, 0.1 by default
+     * @param numericShare {@link Double} share of values that are numbers, 0.3 by default
+     * @param exceptionRate {@link Double} share of events logged with an exception, 0.01 by default
+     * @param seed long seed of the generator
+     */
+    @Builder
+    public CorpusSpec(int minFields, int maxFields, int meanValueLength, int maxValueLength, Double unicodeShare,
+                      Double quoteRate, Double spaceRate, Double numericShare, Double exceptionRate, long seed) {
+        this.minFields = minFields > 0 ? minFields : 2;
+        this.maxFields = Math.max(this.minFields, maxFields > 0 ? maxFields : 16);
+        this.meanValueLength = meanValueLength > 0 ? meanValueLength : 24;
+        this.maxValueLength = maxValueLength > 0 ? maxValueLength : 1024;
+        this.unicodeShare = unicodeShare != null ? unicodeShare : 0.02;
+        this.quoteRate = quoteRate != null ? quoteRate : 0.01;
+        this.spaceRate = spaceRate != null ? spaceRate : 0.1;
+        this.numericShare = numericShare != null ? numericShare : 0.3;
+        this.exceptionRate = exceptionRate != null ? exceptionRate : 0.01;
+        this.seed = seed;
+        if (this.unicodeShare + this.quoteRate + this.spaceRate > 1) {
+            throw new IllegalArgumentException("unicodeShare, quoteRate and spaceRate add up to more than 1.");
+        }
+    }
+
+    /**
+     * Reads a spec from properties, e.g. the system properties, named `prefix` followed by the name of
+     * the builder method, defaults applying to those missing.
+     *
+     * @param properties {@link Properties}
+     * @param prefix {@link String} e.g. `sopa.corpus.`
+     * @return {@link CorpusSpec}
+     */
+    public static CorpusSpec from(Properties properties, String prefix) {
+        CorpusSpecBuilder builder = builder()
+                .minFields(Integer.parseInt(properties.getProperty(prefix + "minFields", "0")))
+                .maxFields(Integer.parseInt(properties.getProperty(prefix + "maxFields", "0")))
+                .meanValueLength(Integer.parseInt(properties.getProperty(prefix + "meanValueLength", "0")))
+                .maxValueLength(Integer.parseInt(properties.getProperty(prefix + "maxValueLength", "0")))
+                .seed(Long.parseLong(properties.getProperty(prefix + "seed", "0")));
+        String[] shares = {"unicodeShare", "quoteRate", "spaceRate", "numericShare", "exceptionRate"};
+        Double[] values = new Double[shares.length];
+        for (int i = 0; i < shares.length; i++) {
+            String value = properties.getProperty(prefix + shares[i]);
+            values[i] = value == null ? null : Double.valueOf(value);
+        }
+        return builder.unicodeShare(values[0]).quoteRate(values[1]).spaceRate(values[2]).numericShare(values[3])
+                .exceptionRate(values[4]).build();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("fields %d-%d, value length mean %d max %d, unicode %.3f, quotes %.3f, spaces %.3f, " +
+                "numeric %.2f, exceptions %.3f, seed %d", minFields, maxFields, meanValueLength, maxValueLength,
+                unicodeShare, quoteRate, spaceRate, numericShare, exceptionRate, seed);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import org.slf4j.helpers.MarkerIgnoringBase;
+
+/**
+ * slf4j logger bound while benchmarking: every level is enabled so that sopa does all of its work, and
+ * every message is discarded so that no backend cost is measured.
+ *
+ * The last message is kept in a volatile field so that the JIT cannot elide rendering it.
+ *
+ * @author Kelvin Wahome
+ */
+public final class DiscardingLogger extends MarkerIgnoringBase {
+    private static final long serialVersionUID = 1L;
+
+    private static volatile Object last;
+
+    /**
+     * Constructor
+     *
+     * @param name {@link String} logger name
+     */
+    public DiscardingLogger(String name) {
+        this.name = name;
+    }
+
+    private static void discard(Object message) {
+        last = message;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return true;
+    }
+
+    @Override
+    public void trace(String msg) {
+        discard(msg);
+    }
+
+    @Override
+    public void trace(String format, Object arg) {
+        discard(format);
+    }
+
+    @Override
+    public void trace(String format, Object arg1, Object arg2) {
+        discard(format);
+    }
+
+    @Override
+    public void trace(String format, Object... arguments) {
+        discard(format);
+    }
+
+    @Override
+    public void trace(String msg, Throwable t) {
+        discard(msg);
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return true;
+    }
+
+    @Override
+    public void debug(String msg) {
+        discard(msg);
+    }
+
+    @Override
+    public void debug(String format, Object arg) {
+        discard(format);
+    }
+
+    @Override
+    public void debug(String format, Object arg1, Object arg2) {
+        discard(format);
+    }
+
+    @Override
+    public void debug(String format, Object... arguments) {
+        discard(format);
+    }
+
+    @Override
+    public void debug(String msg, Throwable t) {
+        discard(msg);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return true;
+    }
+
+    @Override
+    public void info(String msg) {
+        discard(msg);
+    }
+
+    @Override
+    public void info(String format, Object arg) {
+        discard(format);
+    }
+
+    @Override
+    public void info(String format, Object arg1, Object arg2) {
+        discard(format);
+    }
+
+    @Override
+    public void info(String format, Object... arguments) {
+        discard(format);
+    }
+
+    @Override
+    public void info(String msg, Throwable t) {
+        discard(msg);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return true;
+    }
+
+    @Override
+    public void warn(String msg) {
+        discard(msg);
+    }
+
+    @Override
+    public void warn(String format, Object arg) {
+        discard(format);
+    }
+
+    @Override
+    public void warn(String format, Object arg1, Object arg2) {
+        discard(format);
+    }
+
+    @Override
+    public void warn(String format, Object... arguments) {
+        discard(format);
+    }
+
+    @Override
+    public void warn(String msg, Throwable t) {
+        discard(msg);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return true;
+    }
+
+    @Override
+    public void error(String msg) {
+        discard(msg);
+    }
+
+    @Override
+    public void error(String format, Object arg) {
+        discard(format);
+    }
+
+    @Override
+    public void error(String format, Object arg1, Object arg2) {
+        discard(format);
+    }
+
+    @Override
+    public void error(String format, Object... arguments) {
+        discard(format);
+    }
+
+    @Override
+    public void error(String msg, Throwable t) {
+        discard(msg);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Shapes of logged events modelled on real traffic, mixing strings with spaces and quotes, numbers and
+ * booleans, from which the load harness generates its events.
+ *
+ * @author Kelvin Wahome
+ */
+public enum FieldMix {
+    /**
+     * A handful of short fields, e.g. an audit event.
+     */
+    SMALL {
+        @Override
+        Object[] next(Random random) {
+            return new Object[]{
+                "userId", random.nextInt(1_000_000),
+                "action", pick(random, ACTIONS),
+                "status", pick(random, STATUSES)};
+        }
+    },
+
+    /**
+     * An access log event: paths, a user agent with spaces, a query with quotes, timings and sizes.
+     */
+    REQUEST {
+        @Override
+        Object[] next(Random random) {
+            return new Object[]{
+                "requestId", Long.toHexString(random.nextLong()),
+                "method", random.nextInt(4) == 0 ? "POST" : "GET",
+                "path", "/api/v1/orders/" + random.nextInt(100_000) + "/items",
+                "query", random.nextInt(3) == 0 ? "q=\"red shoes\"&size=42" : "page=" + random.nextInt(50),
+                "status", random.nextInt(20) == 0 ? 503 : 200,
+                "durationMillis", random.nextDouble() * 250,
+                "responseBytes", (long) random.nextInt(1 << 20),
+                "cached", random.nextBoolean(),
+                "clientIp", "10.0." + random.nextInt(256) + "." + random.nextInt(256),
+                "userAgent", pick(random, USER_AGENTS)};
+        }
+    },
+
+    /**
+     * A wide event of a few dozen fields accumulated over a unit of work.
+     */
+    WIDE {
+        @Override
+        Object[] next(Random random) {
+            Object[] request = REQUEST.next(random);
+            Object[] keyValues = new Object[60];
+            System.arraycopy(request, 0, keyValues, 0, request.length);
+            for (int i = request.length; i < keyValues.length; i = i + 2) {
+                keyValues[i] = "step" + i / 2;
+                switch (i % 3) {
+                    case 0:
+                        keyValues[i + 1] = random.nextInt(10_000);
+                        break;
+                    case 1:
+                        keyValues[i + 1] = pick(random, STATUSES);
+                        break;
+                    default:
+                        keyValues[i + 1] = "completed " + pick(random, ACTIONS) + " in " + random.nextInt(90) + "ms";
+                }
+            }
+            return keyValues;
+        }
+    };
+
+    private static final String[] ACTIONS = {"login", "logout", "checkout", "refund", "update profile"};
+
+    private static final String[] STATUSES = {"ok", "ok", "ok", "retry", "failed"};
+
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/70.0 Safari/537.36",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 12_1 like Mac OS X) AppleWebKit/605.1.15 Mobile/15E148",
+        "okhttp/3.12.0",
+        "curl/7.61.1"};
+
+    /**
+     * Generates the key-value pairs of an event.
+     *
+     * @param random {@link Random}
+     * @return {@link Object}[] keys and values at alternate indices
+     */
+    abstract Object[] next(Random random);
+
+    /**
+     * Generates events up front so that generating them is not part of what is measured.
+     *
+     * @param count int number of events, a power of two
+     * @param seed long seed of the values
+     * @return {@link Object}[][] key-value pairs of each event
+     */
+    Object[][] generate(int count, long seed) {
+        Random random = new Random(seed);
+        Object[][] events = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            events[i] = next(random);
+        }
+        return events;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.renderers.YAMLRenderer;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Payloads and renderers shared by the benchmarks.
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class Fields {
+    private static final String TEXT = "the quick brown fox jumps over the lazy dog ";
+
+    /**
+     * Generates key-value pairs with string values of text, spaces included.
+     *
+     * @param count int number of pairs
+     * @param valueLength int length of each value
+     * @return {@link Object}[] keys and values at alternate indices
+     */
+    public static Object[] generate(int count, int valueLength) {
+        StringBuilder value = new StringBuilder(valueLength);
+        while (value.length() < valueLength) {
+            value.append(TEXT);
+        }
+        Object[] keyValues = new Object[count * 2];
+        for (int i = 0; i < count; i++) {
+            keyValues[i * 2] = "field" + i;
+            keyValues[i * 2 + 1] = value.substring(0, valueLength);
+        }
+        return keyValues;
+    }
+
+    /**
+     * Looks up a renderer by name.
+     *
+     * @param name {@link String} `keyValue`, `json` or `yaml`
+     * @return {@link LogRenderer}
+     */
+    public static LogRenderer<?> renderer(String name) {
+        switch (name) {
+            case "keyValue":
+                return KeyValueRenderer.getInstance();
+            case "json":
+                return JSONRenderer.getInstance();
+            case "yaml":
+                return YAMLRenderer.getInstance();
+            default:
+                throw new IllegalArgumentException(String.format("unknown renderer `%s`.", name));
+        }
+    }
+}
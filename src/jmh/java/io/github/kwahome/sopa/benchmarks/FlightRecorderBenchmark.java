@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.FlightRecorder;
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.Logger;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+
+/**
+ * Cost of a DEBUG call below the configured level, skipped outright without a {@link FlightRecorder}
+ * and captured into its buffer with one.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Benchmark)
+public class FlightRecorderBenchmark {
+    @Param({"true", "false"})
+    private boolean recording;
+
+    @Param({"1", "8"})
+    private int fieldCount;
+
+    private Logger logger;
+
+    private Object[] keyValues;
+
+    /**
+     * Configures the level and recorder and sets up the payload.
+     */
+    @Setup
+    public void setUp() {
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        StructLoggerConfig.setLevel(Level.INFO);
+        if (recording) {
+            StructLoggerConfig.setFlightRecorder(FlightRecorder.builder().level(Level.DEBUG).build());
+        } else {
+            StructLoggerConfig.clearFlightRecorder();
+        }
+        logger = LoggerFactory.getLogger(FlightRecorderBenchmark.class);
+        keyValues = Fields.generate(fieldCount, 16);
+    }
+
+    /**
+     * Logs an event at DEBUG.
+     */
+    @Benchmark
+    public void debug() {
+        logger.debug("cache lookup", keyValues);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.github.kwahome.sopa.utils.Helpers;
+
+/**
+ * Cost of the conversions {@link Helpers} makes between key-value arrays and maps.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Benchmark)
+public class HelpersBenchmark {
+    @Param({"2", "8", "32"})
+    private int fieldCount;
+
+    private Object[] keyValues;
+
+    private Object[] otherKeyValues;
+
+    private Map<String, Object> map;
+
+    /**
+     * Sets up the payloads.
+     */
+    @Setup
+    public void setUp() {
+        keyValues = Fields.generate(fieldCount, 16);
+        otherKeyValues = Fields.generate(fieldCount, 32);
+        map = Helpers.objectArrayToMap(keyValues);
+    }
+
+    /**
+     * Converts key-value pairs to a map.
+     *
+     * @return {@link Map}
+     */
+    @Benchmark
+    public Map<String, Object> objectArrayToMap() {
+        return Helpers.objectArrayToMap(keyValues);
+    }
+
+    /**
+     * Converts a map to key-value pairs.
+     *
+     * @return {@link Object}[]
+     */
+    @Benchmark
+    public Object[] mapToObjectArray() {
+        return Helpers.mapToObjectArray(map);
+    }
+
+    /**
+     * Merges two arrays of key-value pairs.
+     *
+     * @return {@link Object}[]
+     */
+    @Benchmark
+    public Object[] mergeObjectArrays() {
+        return Helpers.mergeObjectArrays(keyValues, otherKeyValues);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.LogHistogram;
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import io.github.kwahome.sopa.interfaces.Logger;
+import io.github.kwahome.sopa.sinks.OutputStreamSink;
+import io.github.kwahome.sopa.sinks.Slf4jSink;
+import io.github.kwahome.sopa.sinks.TCPSink;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Drives threads logging through a shared {@link Logger}, from the call through the renderer to the
+ * sink, at a target rate, to measure what microbenchmarks miss: contention on the shared configuration
+ * and sinks and the latency callers see under load.
+ *
+ * Each thread logs on a fixed schedule and the latency of an event is measured from the time it was
+ * scheduled rather than from the time the call was made. A call that stalls delays the events behind
+ * it, and their latency includes the wait, so a stall shows up in the percentiles as it would to a
+ * caller instead of being hidden by the events the stalled thread did not get to make: the
+ * coordinated omission correction. Every event scheduled within the run is logged, so a run whose
+ * target rate is above what the threads sustain takes longer than its duration. The service time, the
+ * duration of the call alone, is reported alongside for comparison. Allocation is measured per caller
+ * thread, so the allocation of a sink's own threads is not included.
+ *
+ * Every combination of renderer, dispatch mode and field mix is run in turn and reported as a row of
+ * throughput, caller latency percentiles in microseconds, the p99 service time and the bytes allocated
+ * per event. Configured with system properties:
+ *
+ * <pre>
+ *      sopa.load.threads        logging threads, 4 by default
+ *      sopa.load.rate           target events per second across all threads, 0 for as fast as possible,
+ *                               100000 by default
+ *      sopa.load.seconds        duration measured, 10 by default
+ *      sopa.load.warmupSeconds  duration run before measuring, 3 by default
+ *      sopa.load.renderers      comma separated renderers, `keyValue,json,yaml` by default
+ *      sopa.load.dispatch       comma separated {@link Dispatch} modes, `slf4j,stream,tcp` by default
+ *      sopa.load.mixes          comma separated {@link FieldMix} names, `small,request,wide` by default
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class LoadHarness {
+    private static final String MESSAGE = "request handled";
+
+    private static final int EVENTS_PER_THREAD = 1024;
+
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final String ROW = "%-9s %-7s %-8s %12s %9s %9s %9s %9s %9s %9s %9s%n";
+
+    /**
+     * Runs the load.
+     *
+     * @param args {@link String}[] ignored
+     * @throws Exception if a sink fails to open or close
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("sopa.load.threads", 4);
+        long rate = Long.getLong("sopa.load.rate", 100_000L);
+        long seconds = Long.getLong("sopa.load.seconds", 10L);
+        long warmupSeconds = Long.getLong("sopa.load.warmupSeconds", 3L);
+        System.out.printf("%d threads, target %s events/s, %ds measured after %ds warmup%n", threads,
+                rate > 0 ? rate : "unlimited", seconds, warmupSeconds);
+        System.out.printf(ROW, "renderer", "sink", "fields", "events/s", "p50", "p99", "p99.9", "max",
+                "svc p99", "B/event", "dropped");
+        for (String renderer : list("sopa.load.renderers", "keyValue,json,yaml")) {
+            for (String dispatch : list("sopa.load.dispatch", "slf4j,stream,tcp")) {
+                for (String mix : list("sopa.load.mixes", "small,request,wide")) {
+                    run(renderer, Dispatch.valueOf(dispatch.toUpperCase(Locale.ROOT)),
+                            FieldMix.valueOf(mix.toUpperCase(Locale.ROOT)), threads, rate,
+                            TimeUnit.SECONDS.toNanos(warmupSeconds), TimeUnit.SECONDS.toNanos(seconds));
+                }
+            }
+        }
+    }
+
+    private static void run(String renderer, Dispatch dispatch, FieldMix mix, int threads, long rate,
+                            long warmupNanos, long durationNanos) throws IOException, InterruptedException {
+        List<Closeable> resources = new ArrayList<>();
+        LogSink sink = dispatch.open(resources);
+        StructLoggerConfig.setLogRenderer((LogRenderer) Fields.renderer(renderer));
+        StructLoggerConfig.setLevel(Level.INFO);
+        StructLoggerConfig.setLogSink(sink);
+        try {
+            Result result = load(LoggerFactory.getLogger(LoadHarness.class), mix, threads, rate, warmupNanos,
+                    durationNanos);
+            long dropped = sink instanceof TCPSink ? ((TCPSink) sink).getDroppedEvents() : 0;
+            System.out.printf(ROW, renderer, dispatch.name().toLowerCase(Locale.ROOT),
+                    mix.name().toLowerCase(Locale.ROOT), String.format("%.0f", result.getThroughput()),
+                    micros(result.latency.getValueAtPercentile(50)), micros(result.latency.getValueAtPercentile(99)),
+                    micros(result.latency.getValueAtPercentile(99.9)), micros(result.latency.getMax()),
+                    micros(result.serviceTime.getValueAtPercentile(99)),
+                    String.format("%.0f", result.getAllocatedPerEvent()), dropped);
+        } finally {
+            StructLoggerConfig.setLogSink(Slf4jSink.getInstance());
+            Collections.reverse(resources);
+            for (Closeable resource : resources) {
+                resource.close();
+            }
+        }
+    }
+
+    /**
+     * Logs from a number of threads and collects what they measured.
+     *
+     * @param logger {@link Logger} shared by the threads
+     * @param mix {@link FieldMix} of the events
+     * @param threads int number of threads
+     * @param rate long target events per second across the threads, 0 for as fast as possible
+     * @param warmupNanos long duration run before measuring
+     * @param durationNanos long duration measured
+     * @return {@link Result}
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    static Result load(Logger logger, FieldMix mix, int threads, long rate, long warmupNanos, long durationNanos)
+            throws InterruptedException {
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(threads) / rate : 0;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmupNanos;
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(logger, mix.generate(EVENTS_PER_THREAD, i), interval, start, measureFrom,
+                    measureFrom + durationNanos);
+            worker.setName("load-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        Result result = new Result();
+        long lastDone = measureFrom;
+        for (Worker worker : workers) {
+            worker.join();
+            result.latency.add(worker.latency);
+            result.serviceTime.add(worker.serviceTime);
+            result.events += worker.events;
+            result.allocatedBytes += worker.allocatedBytes;
+            lastDone = Math.max(lastDone, worker.lastDone);
+        }
+        result.nanos = lastDone - measureFrom;
+        return result;
+    }
+
+    private static List<String> list(String property, String defaults) {
+        List<String> values = new ArrayList<>();
+        for (String value : System.getProperty(property, defaults).split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    private static long waitUntil(long deadline) {
+        long now = System.nanoTime();
+        while (now < deadline) {
+            // parking overshoots, so the last stretch is spun
+            if (deadline - now > SPIN_NANOS) {
+                LockSupport.parkNanos(deadline - now - SPIN_NANOS);
+            }
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * How events are handed on once rendered.
+     */
+    public enum Dispatch {
+        /**
+         * To the slf4j logger, through the {@link Slf4jSink}.
+         */
+        SLF4J {
+            @Override
+            LogSink open(List<Closeable> resources) {
+                return Slf4jSink.getInstance();
+            }
+        },
+
+        /**
+         * To an {@link OutputStreamSink}, synchronized across threads, writing to a stream that discards.
+         */
+        STREAM {
+            @Override
+            LogSink open(List<Closeable> resources) {
+                return new OutputStreamSink(new DiscardingOutputStream());
+            }
+        },
+
+        /**
+         * To a {@link TCPSink}, buffered and sent on its own thread to a local collector that discards.
+         */
+        TCP {
+            @Override
+            LogSink open(List<Closeable> resources) throws IOException {
+                Collector collector = new Collector();
+                resources.add(collector);
+                TCPSink sink = TCPSink.builder().host("localhost").port(collector.getPort()).build();
+                resources.add(sink);
+                return sink;
+            }
+        };
+
+        /**
+         * Opens the sink.
+         *
+         * @param resources {@link List} to add what is to be closed after the run to
+         * @return {@link LogSink}
+         * @throws IOException if the sink cannot be opened
+         */
+        abstract LogSink open(List<Closeable> resources) throws IOException;
+    }
+
+    /**
+     * What the threads of a run measured.
+     */
+    static final class Result {
+        private final LogHistogram latency = new LogHistogram();
+
+        private final LogHistogram serviceTime = new LogHistogram();
+
+        private long events;
+
+        private long allocatedBytes;
+
+        private long nanos;
+
+        double getThroughput() {
+            return nanos == 0 ? 0 : events * 1e9 / nanos;
+        }
+
+        double getAllocatedPerEvent() {
+            return events == 0 ? 0 : (double) allocatedBytes / events;
+        }
+    }
+
+    /**
+     * A logging thread.
+     */
+    private static final class Worker extends Thread {
+        private final Logger logger;
+
+        private final Object[][] keyValues;
+
+        private final long interval;
+
+        private final long start;
+
+        private final long measureFrom;
+
+        private final long end;
+
+        private final LogHistogram latency = new LogHistogram();
+
+        private final LogHistogram serviceTime = new LogHistogram();
+
+        private long events;
+
+        private long allocatedBytes;
+
+        private long lastDone;
+
+        Worker(Logger logger, Object[][] keyValues, long interval, long start, long measureFrom, long end) {
+            this.logger = logger;
+            this.keyValues = keyValues;
+            this.interval = interval;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            long allocatedAtStart = -1;
+            long sent = 0;
+            long now = waitUntil(start);
+            long next = start;
+            while (true) {
+                if (interval > 0) {
+                    now = waitUntil(next);
+                } else {
+                    now = System.nanoTime();
+                    next = now;
+                }
+                if (next >= end) {
+                    break;
+                }
+                if (next >= measureFrom && allocatedAtStart < 0) {
+                    allocatedAtStart = allocatedBytes();
+                }
+                logger.info(MESSAGE, keyValues[(int) (sent++ & (keyValues.length - 1))]);
+                long done = System.nanoTime();
+                if (next >= measureFrom) {
+                    latency.record(done - next);
+                    serviceTime.record(done - now);
+                    lastDone = done;
+                }
+                next = next + interval;
+            }
+            events = latency.getCount();
+            allocatedBytes = allocatedAtStart < 0 ? 0 : allocatedBytes() - allocatedAtStart;
+        }
+    }
+
+    /**
+     * Stream discarding everything written to it.
+     */
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            // discarded
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discarded
+        }
+    }
+
+    /**
+     * Local TCP server reading and discarding whatever connections send.
+     */
+    private static final class Collector implements Closeable, Runnable {
+        private final ServerSocketChannel server;
+
+        private final Thread thread;
+
+        Collector() throws IOException {
+            server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+            thread = new Thread(this, "load-collector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() throws IOException {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            try {
+                while (server.isOpen()) {
+                    try (SocketChannel channel = server.accept()) {
+                        while (channel.read(buffer) >= 0) {
+                            buffer.clear();
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                // closed
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            thread.interrupt();
+        }
+    }
+}
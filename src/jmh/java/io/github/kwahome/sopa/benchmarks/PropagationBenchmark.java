@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.github.kwahome.sopa.Context;
+import io.github.kwahome.sopa.ContextPropagation;
+
+/**
+ * Overhead {@link ContextPropagation} adds to handing a task to an executor, capturing the submitting
+ * thread's context and attaching it on the worker.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Benchmark)
+public class PropagationBenchmark {
+    private ExecutorService plain;
+
+    private ExecutorService wrapped;
+
+    /**
+     * Starts the executors.
+     */
+    @Setup
+    public void setUp() {
+        plain = Executors.newSingleThreadExecutor();
+        wrapped = ContextPropagation.wrap(Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * Stops the executors.
+     */
+    @TearDown
+    public void tearDown() {
+        plain.shutdownNow();
+        wrapped.shutdownNow();
+    }
+
+    /**
+     * Runs a task on the unwrapped executor.
+     *
+     * @return {@link Object} value the task read
+     * @throws ExecutionException if the task fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Benchmark
+    public Object plain() throws ExecutionException, InterruptedException {
+        try (Context.Scope ignored = Context.push("requestId", "r-1")) {
+            return plain.submit(() -> Context.get("requestId")).get();
+        }
+    }
+
+    /**
+     * Runs a task on the wrapped executor.
+     *
+     * @return {@link Object} value the task read
+     * @throws ExecutionException if the task fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Benchmark
+    public Object wrapped() throws ExecutionException, InterruptedException {
+        try (Context.Scope ignored = Context.push("requestId", "r-1")) {
+            return wrapped.submit(() -> Context.get("requestId")).get();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+
+/**
+ * Cost of rendering an event with each {@link LogRenderer}, apart from the rest of the pipeline.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Benchmark)
+public class RendererBenchmark {
+    @Param({"keyValue", "json", "yaml"})
+    private String renderer;
+
+    @Param({"1", "8", "32"})
+    private int fieldCount;
+
+    @Param({"16", "256"})
+    private int valueLength;
+
+    private LogRenderer<Object> logRenderer;
+
+    private Logger logger;
+
+    private Object[] keyValues;
+
+    /**
+     * Sets up the renderer and payload.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        logRenderer = (LogRenderer<Object>) Fields.renderer(renderer);
+        logger = LoggerFactory.getLogger(RendererBenchmark.class);
+        keyValues = Fields.generate(fieldCount, valueLength);
+    }
+
+    /**
+     * Renders an event.
+     *
+     * @return {@link String} rendered event
+     */
+    @Benchmark
+    public String render() {
+        Object builder = logRenderer.start(logger);
+        logRenderer.addMessage(logger, builder, "request handled");
+        for (int i = 0; i < keyValues.length; i = i + 2) {
+            logRenderer.addKeyValue(logger, builder, (String) keyValues[i], keyValues[i + 1]);
+        }
+        return logRenderer.end(logger, builder);
+    }
+}
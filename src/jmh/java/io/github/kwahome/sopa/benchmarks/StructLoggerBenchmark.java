@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.LoggerFactory;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.Logger;
+
+/**
+ * Cost of a {@link Logger} call end to end, from the params to the slf4j call, at an enabled level and
+ * at a level below the configured one.
+ *
+ * @author Kelvin Wahome
+ */
+@State(Scope.Benchmark)
+public class StructLoggerBenchmark {
+    @Param({"keyValue", "json", "yaml"})
+    private String renderer;
+
+    @Param({"1", "8", "32"})
+    private int fieldCount;
+
+    @Param({"16", "256"})
+    private int valueLength;
+
+    @Param({"true", "false"})
+    private boolean enabled;
+
+    private Logger logger;
+
+    private Object[] keyValues;
+
+    /**
+     * Configures the renderer and level and sets up the payload.
+     */
+    @Setup
+    public void setUp() {
+        StructLoggerConfig.setLogRenderer((LogRenderer) Fields.renderer(renderer));
+        StructLoggerConfig.setLevel(enabled ? Level.INFO : Level.WARN);
+        logger = LoggerFactory.getLogger(StructLoggerBenchmark.class);
+        keyValues = Fields.generate(fieldCount, valueLength);
+    }
+
+    /**
+     * Logs an event at INFO.
+     */
+    @Benchmark
+    public void info() {
+        logger.info("request handled", keyValues);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.slf4j.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggerFactoryBinder;
+
+import io.github.kwahome.sopa.benchmarks.DiscardingLogger;
+
+/**
+ * slf4j 1.7 binding of the benchmarks, handing out {@link DiscardingLogger}s so that only sopa's own
+ * cost is measured.
+ *
+ * @author Kelvin Wahome
+ */
+public final class StaticLoggerBinder implements LoggerFactoryBinder {
+    /**
+     * Version of the slf4j API the binding is compiled against.
+     */
+    public static final String REQUESTED_API_VERSION = "1.7.25";
+
+    private static final StaticLoggerBinder SINGLETON = new StaticLoggerBinder();
+
+    private final ILoggerFactory loggerFactory = new DiscardingLoggerFactory();
+
+    private StaticLoggerBinder() {
+    }
+
+    /**
+     * Returns the binding, looked up by slf4j.
+     *
+     * @return {@link StaticLoggerBinder}
+     */
+    public static StaticLoggerBinder getSingleton() {
+        return SINGLETON;
+    }
+
+    @Override
+    public ILoggerFactory getLoggerFactory() {
+        return loggerFactory;
+    }
+
+    @Override
+    public String getLoggerFactoryClassStr() {
+        return DiscardingLoggerFactory.class.getName();
+    }
+
+    /**
+     * Hands out one {@link DiscardingLogger} per name.
+     */
+    private static final class DiscardingLoggerFactory implements ILoggerFactory {
+        private final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+
+        @Override
+        public Logger getLogger(String name) {
+            return loggers.computeIfAbsent(name, DiscardingLogger::new);
+        }
+    }
+}
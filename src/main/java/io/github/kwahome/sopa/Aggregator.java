@@ -0,0 +1,303 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.event.Level;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+/**
+ * Aggregates numeric fields of logged events into in-process metrics, so that percentiles do not
+ * have to be computed downstream from every per-request line shipped and indexed.
+ *
+ * Each rule is `field by key1,key2`, or just `field`, e.g. `durationMs by route,status`: events holding
+ * a numeric value for the field, in their params or any of their contexts, record it into a
+ * {@link LogHistogram} per combination of values of the keys. Rules are applied before sampling,
+ * deduplication and rate limiting so that the per-request lines can be sampled or dropped while the
+ * counts and sums stay exact: no value recorded concurrently with a report is lost, it is counted in
+ * that report or the next. Percentiles are kept to within the histogram's bucket precision of 12.5%
+ * and values to thousandths.
+ *
+ * Every {@link #getReportIntervalMillis()} an INFO event is logged per group that saw events since the
+ * last report, holding the `metric`, the values of the keys, `count`, `sum`, `mean`, `p50`, `p90`, `p99`
+ * and `max`. Groups are held in a bounded map per rule; once it is full, new combinations are counted
+ * under an `&lt;overflow&gt;` group.
+ *
+ * <pre>
+ *      StructLoggerConfig.setAggregator(Aggregator.builder()
+ *              .rule("durationMs by route,status")
+ *              .reportIntervalMillis(60_000)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class Aggregator {
+    static final String SUMMARY_MESSAGE = "log metrics";
+
+    static final String METRIC = "metric";
+
+    static final String NONE = "<none>";
+
+    private static final String OVERFLOW = "<overflow>";
+
+    private static final Pattern RULE = Pattern.compile("^\\s*([^\\s,]+)(?:\\s+by\\s+(\\S.*?))?\\s*$");
+
+    private static final double SCALE = 1000d;
+
+    private static final int DEFAULT_MAX_GROUPS = 1000;
+
+    private static final long DEFAULT_REPORT_INTERVAL_MILLIS = 60_000;
+
+    private final Rule[] rules;
+
+    /**
+     * Milliseconds between reports.
+     */
+    @Getter
+    private final long reportIntervalMillis;
+
+    /**
+     * Most groups kept per rule.
+     */
+    @Getter
+    private final int maxGroups;
+
+    /**
+     * Constructor
+     *
+     * @param rules {@link List} rules, each `field by key1,key2` or `field`
+     * @param reportIntervalMillis long interval the metrics are logged at, 60000 by default
+     * @param maxGroups int most groups kept per rule, 1000 by default
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    @Builder
+    public Aggregator(@Singular List<String> rules, long reportIntervalMillis, int maxGroups) {
+        this.rules = new Rule[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            Matcher matcher = RULE.matcher(rules.get(i));
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format("invalid aggregation rule `%s`.", rules.get(i)));
+            }
+            String[] keys = matcher.group(2) == null ? new String[0] : matcher.group(2).trim().split("\\s*,\\s*");
+            this.rules[i] = new Rule(matcher.group(1), keys);
+        }
+        this.reportIntervalMillis = reportIntervalMillis > 0 ? reportIntervalMillis : DEFAULT_REPORT_INTERVAL_MILLIS;
+        this.maxGroups = maxGroups > 0 ? maxGroups : DEFAULT_MAX_GROUPS;
+        BackgroundTasks.scheduleWeakly(this, this.reportIntervalMillis, Aggregator::report);
+    }
+
+    /**
+     * Rules, as `field by key1,key2`.
+     *
+     * @return {@link List}
+     */
+    public List<String> getRules() {
+        List<String> described = new ArrayList<>(rules.length);
+        for (Rule rule : rules) {
+            described.add(rule.keys.length == 0 ? rule.field : rule.field + " by " + String.join(",", rule.keys));
+        }
+        return Collections.unmodifiableList(described);
+    }
+
+    /**
+     * Records the fields of an event the rules aggregate.
+     *
+     * @param logger {@link StructLogger} logging the event, reports are logged through the last one seen
+     * @param values {@link Function} looking up the values of keys in the event
+     */
+    void aggregate(StructLogger logger, Function<String, Object> values) {
+        for (Rule rule : rules) {
+            double value = toDouble(values.apply(rule.field));
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            String[] groupValues = new String[rule.keys.length];
+            for (int i = 0; i < groupValues.length; i++) {
+                Object groupValue = values.apply(rule.keys[i]);
+                groupValues[i] = groupValue == null ? NONE : logger.renderValue(groupValue);
+            }
+            List<String> key = Arrays.asList(groupValues);
+            long scaled = Math.round(value * SCALE);
+            Group group = group(rule.groups, key);
+            while (!group.record(logger, scaled)) {
+                // retired by a report as idle, it is dropped here too in case the report has not yet
+                rule.groups.remove(group.key, group);
+                group = group(rule.groups, key);
+            }
+        }
+    }
+
+    private Group group(ConcurrentMap<List<String>, Group> groups, List<String> groupValues) {
+        Group group = groups.get(groupValues);
+        if (group == null) {
+            List<String> mapKey = groups.size() < maxGroups ? groupValues
+                    : Collections.nCopies(groupValues.size(), OVERFLOW);
+            group = groups.computeIfAbsent(mapKey, Group::new);
+        }
+        return group;
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof CharSequence) {
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (NumberFormatException ex) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Logs the metrics of every group that saw events since the last report and drops the others.
+     */
+    void report() {
+        for (Rule rule : rules) {
+            for (Map.Entry<List<String>, Group> entry : rule.groups.entrySet()) {
+                Group group = entry.getValue();
+                LogHistogram histogram = group.swap();
+                if (histogram == null) {
+                    // idle for a whole interval and retired, a new group behaves the same
+                    rule.groups.remove(entry.getKey(), group);
+                    continue;
+                }
+                LogEvent event = new LogEvent(Level.INFO, SUMMARY_MESSAGE).add(METRIC, rule.field);
+                for (int i = 0; i < rule.keys.length; i++) {
+                    // the group values come from logged events, they are masked as they were in them
+                    group.logger.addRedacted(event, rule.keys[i], entry.getKey().get(i));
+                }
+                group.logger.dispatch(event.add("count", histogram.getCount())
+                        .add("sum", histogram.getSum() / SCALE)
+                        .add("mean", histogram.getMean() / SCALE)
+                        .add("p50", histogram.getValueAtPercentile(50) / SCALE)
+                        .add("p90", histogram.getValueAtPercentile(90) / SCALE)
+                        .add("p99", histogram.getValueAtPercentile(99) / SCALE)
+                        .add("max", histogram.getMax() / SCALE));
+            }
+        }
+    }
+
+    /**
+     * A field aggregated by the values of some keys.
+     */
+    private static final class Rule {
+        private final String field;
+
+        private final String[] keys;
+
+        private final ConcurrentMap<List<String>, Group> groups = new ConcurrentHashMap<>();
+
+        Rule(String field, String[] keys) {
+            this.field = field;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Values of a field recorded since the last report for one combination of key values.
+     *
+     * Values are recorded under the read lock, so recording threads do not block each other, and the
+     * histogram is swapped under the write lock, so no value lands in one already reported. A group
+     * found idle at a report is retired for good and recording threads move on to a new one.
+     */
+    private static final class Group {
+        private final List<String> key;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private LogHistogram histogram = new LogHistogram();
+
+        private boolean retired;
+
+        private volatile StructLogger logger;
+
+        Group(List<String> key) {
+            this.key = key;
+        }
+
+        /**
+         * Records a value unless the group was retired.
+         *
+         * @param logger {@link StructLogger} logging the event
+         * @param value long value scaled to thousandths
+         * @return boolean whether the value was recorded
+         */
+        boolean record(StructLogger logger, long value) {
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                if (retired) {
+                    return false;
+                }
+                this.logger = logger;
+                histogram.record(value);
+                return true;
+            } finally {
+                read.unlock();
+            }
+        }
+
+        /**
+         * Swaps the histogram for an empty one, or retires the group if it recorded nothing.
+         *
+         * @return {@link LogHistogram} values recorded since the last swap, null once retired
+         */
+        LogHistogram swap() {
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                if (histogram.getCount() == 0) {
+                    retired = true;
+                    return null;
+                }
+                LogHistogram swapped = histogram;
+                histogram = new LogHistogram();
+                return swapped;
+            } finally {
+                write.unlock();
+            }
+        }
+    }
+}
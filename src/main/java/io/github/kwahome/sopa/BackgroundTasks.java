@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Single daemon thread running the periodic housekeeping of pipeline stages e.g. logging
+ * deduplication summaries.
+ *
+ * Tasks hold their target weakly, so that stages of replaced configuration can be garbage
+ * collected, and cancel themselves once it is.
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+class BackgroundTasks {
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sopa-background");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs a task on the target every period for as long as the target is reachable.
+     *
+     * @param target target of the task, held weakly
+     * @param periodMillis long period in milliseconds
+     * @param task {@link Consumer} run with the target, must not reference the target itself
+     * @param <T> target type
+     */
+    static <T> void scheduleWeakly(T target, long periodMillis, Consumer<T> task) {
+        WeakTask<T> weakTask = new WeakTask<>(target, task);
+        weakTask.future = EXECUTOR.scheduleWithFixedDelay(weakTask, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Periodic task holding its target weakly.
+     *
+     * @param <T> target type
+     */
+    private static final class WeakTask<T> implements Runnable {
+        private final WeakReference<T> target;
+
+        private final Consumer<T> task;
+
+        private volatile ScheduledFuture<?> future;
+
+        WeakTask(T target, Consumer<T> task) {
+            this.target = new WeakReference<>(target);
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            T current = target.get();
+            if (current != null) {
+                task.accept(current);
+            } else if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.event.Level;
+
+import lombok.Getter;
+
+/**
+ * Accounts the events, rendered bytes and render time of each call site, i.e. log statement, to find
+ * the noisiest ones. Call sites are keyed by message, which is the template of a structured log
+ * statement, or by logger name and message.
+ *
+ * Only the heaviest call sites are tracked, in a Space-Saving sketch of bounded capacity: once it is
+ * full, an untracked call site takes the place of the one with the fewest events and inherits its count,
+ * which is kept as the error bound of the new count. Any call site producing more than 1/capacity of all
+ * events is guaranteed to be tracked. Bytes and render time are counted from when a call site was last
+ * taken in. Each thread counts its events in a buffer of its own that is applied to the sketch every 64
+ * events and whenever the sketch is read, so threads only contend for it once per batch. Accounting is
+ * off by default and costs a volatile read per event while off.
+ *
+ * The sketch is published as an MXBean while accounting and can be dumped on demand or, with a report
+ * interval, logged periodically as one INFO event per call site, most events first, after which the
+ * sketch starts over.
+ *
+ * <pre>
+ *      CallSiteAccounting.getInstance().enable(100, true, 60_000);
+ *      ...
+ *      LOGGER.info(CallSiteAccounting.getInstance().dump());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class CallSiteAccounting implements CallSiteAccountingMXBean {
+    static final String REPORT_MESSAGE = "log call site";
+
+    private static final CallSiteAccounting INSTANCE = new CallSiteAccounting();
+
+    private static final int REPORTED_CALL_SITES = 10;
+
+    private static final double NANOS_PER_MICRO = 1000d;
+
+    private volatile Sketch sketch;
+
+    private StructLogger reportLogger;
+
+    private CallSiteAccounting() {
+    }
+
+    /**
+     * Returns the accounting shared by all loggers.
+     *
+     * @return {@link CallSiteAccounting}
+     */
+    public static CallSiteAccounting getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts accounting, from scratch, and registers the MXBean.
+     *
+     * @param capacity int most call sites tracked at once
+     * @param byLogger boolean whether call sites are keyed by logger name as well as message
+     * @param reportIntervalMillis long interval the noisiest call sites are logged at, 0 for never
+     */
+    public synchronized void enable(int capacity, boolean byLogger, long reportIntervalMillis) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        if (sketch == null) {
+            PipelineMetrics.register(PipelineMetrics.name("type=CallSiteAccounting"), this);
+        }
+        Sketch enabled = new Sketch(capacity, byLogger);
+        if (reportIntervalMillis > 0) {
+            if (reportLogger == null) {
+                reportLogger = new StructLogger(CallSiteAccounting.class);
+            }
+            // cancelled once the sketch is replaced or accounting is turned off
+            BackgroundTasks.scheduleWeakly(enabled, reportIntervalMillis, INSTANCE::report);
+        }
+        sketch = enabled;
+    }
+
+    /**
+     * Stops accounting and unregisters the MXBean.
+     */
+    public synchronized void disable() {
+        if (sketch != null) {
+            sketch = null;
+            PipelineMetrics.unregister(PipelineMetrics.name("type=CallSiteAccounting"));
+        }
+    }
+
+    /**
+     * Whether accounting is on.
+     *
+     * @return boolean
+     */
+    public boolean isEnabled() {
+        return sketch != null;
+    }
+
+    @Override
+    public int getCapacity() {
+        Sketch current = sketch;
+        return current == null ? 0 : current.capacity;
+    }
+
+    /**
+     * The noisiest call sites tracked.
+     *
+     * @param limit int most call sites returned
+     * @return {@link List} of {@link CallSite}s, most events first
+     */
+    public List<CallSite> getTopCallSites(int limit) {
+        Sketch current = sketch;
+        return current == null ? new ArrayList<>() : current.top(limit);
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder table = new StringBuilder(String.format("%10s %8s %12s %14s  %s%n", "events", "error", "bytes",
+                "render(us)", "call site"));
+        for (CallSite callSite : getTopCallSites(Integer.MAX_VALUE)) {
+            table.append(String.format("%10d %8d %12d %14.2f  %s%n", callSite.getEvents(), callSite.getError(),
+                    callSite.getBytes(), callSite.getRenderNanos() / NANOS_PER_MICRO, callSite.describe()));
+        }
+        return table.toString();
+    }
+
+    @Override
+    public void reset() {
+        Sketch current = sketch;
+        if (current != null) {
+            current.clear();
+        }
+    }
+
+    /**
+     * Accounts a written event to its call site.
+     *
+     * @param logger {@link StructLogger} the event was written by
+     * @param event {@link LogEvent} written
+     */
+    void record(StructLogger logger, LogEvent event) {
+        Sketch current = sketch;
+        if (current != null && logger != reportLogger) {
+            current.record(current.byLogger ? logger.getName() : null, event.getMessage(), event.getOutputBytes(),
+                    event.getRenderNanos());
+        }
+    }
+
+    /**
+     * Logs the noisiest call sites of a sketch and starts it over.
+     *
+     * @param reported {@link Sketch}
+     */
+    private void report(Sketch reported) {
+        List<CallSite> callSites = reported.top(REPORTED_CALL_SITES);
+        reported.clear();
+        for (int i = 0; i < callSites.size(); i++) {
+            CallSite callSite = callSites.get(i);
+            LogEvent event = new LogEvent(Level.INFO, REPORT_MESSAGE).add("rank", i + 1);
+            if (callSite.getLogger() != null) {
+                event.add("logger", callSite.getLogger());
+            }
+            reportLogger.dispatch(event.add("callSite", callSite.getMessage())
+                    .add("events", callSite.getEvents())
+                    .add("eventsError", callSite.getError())
+                    .add("bytes", callSite.getBytes())
+                    .add("renderMicros", callSite.getRenderNanos() / NANOS_PER_MICRO));
+        }
+    }
+
+    /**
+     * Events, bytes and render time of a call site.
+     */
+    @Getter
+    public static final class CallSite {
+        /**
+         * Logger name, null if call sites are keyed by message only.
+         */
+        private final String logger;
+
+        /**
+         * Message of the log statement.
+         */
+        private final String message;
+
+        /**
+         * Events, overestimated by at most {@link #getError()}.
+         */
+        private long events;
+
+        /**
+         * Events the call site inherited when it was taken in.
+         */
+        private long error;
+
+        /**
+         * UTF-8 bytes handed to sinks since the call site was taken in.
+         */
+        private long bytes;
+
+        /**
+         * Nanoseconds spent rendering since the call site was taken in.
+         */
+        private long renderNanos;
+
+        private CallSite(String logger, String message) {
+            this.logger = logger;
+            this.message = message;
+        }
+
+        private CallSite copy() {
+            CallSite copy = new CallSite(logger, message);
+            copy.events = events;
+            copy.error = error;
+            copy.bytes = bytes;
+            copy.renderNanos = renderNanos;
+            return copy;
+        }
+
+        private String describe() {
+            return logger == null ? message : logger + ": " + message;
+        }
+    }
+
+    /**
+     * Space-Saving sketch of the call sites with the most events, kept as a Stream-Summary: call sites
+     * with the same number of events share a bucket and buckets are linked in increasing order, so that
+     * counting events and finding the call site to evict both cost constant time.
+     *
+     * Events are first counted in a buffer of the writing thread, so that threads do not contend for the
+     * sketch on every event, and applied to it {@link #FLUSHED_EVENTS} at a time or whenever the sketch
+     * is read.
+     */
+    private static final class Sketch {
+        private static final int FLUSHED_EVENTS = 64;
+
+        private final int capacity;
+
+        private final boolean byLogger;
+
+        private final Map<String, Node> callSites = new HashMap<>();
+
+        private final Set<Buffer> buffers = ConcurrentHashMap.newKeySet();
+
+        private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(Buffer::new);
+
+        private Bucket lowest;
+
+        Sketch(int capacity, boolean byLogger) {
+            this.capacity = capacity;
+            this.byLogger = byLogger;
+        }
+
+        void record(String logger, String message, long bytes, long renderNanos) {
+            Buffer current = buffer.get();
+            synchronized (current) {
+                if (!current.registered) {
+                    current.registered = buffers.add(current);
+                }
+                if (current.add(logger, message, bytes, renderNanos) >= FLUSHED_EVENTS) {
+                    synchronized (this) {
+                        flush(current);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Applies the events buffered by every thread, dropping the buffers left empty, e.g. those of
+         * threads that are gone, until their threads count events again.
+         */
+        private void flushAll() {
+            for (Buffer buffered : buffers) {
+                synchronized (buffered) {
+                    synchronized (this) {
+                        flush(buffered);
+                    }
+                    buffered.registered = false;
+                    buffers.remove(buffered);
+                }
+            }
+        }
+
+        private void flush(Buffer buffered) {
+            for (Pending pending : buffered.pending.values()) {
+                apply(pending);
+            }
+            buffered.pending.clear();
+            buffered.events = 0;
+        }
+
+        private void apply(Pending pending) {
+            Node node = callSites.get(pending.key);
+            if (node == null) {
+                CallSite callSite = new CallSite(pending.logger, pending.message);
+                if (callSites.size() == capacity) {
+                    // the least frequent call site makes way, its count is the most the new one may have missed
+                    node = lowest.first;
+                    callSites.remove(node.key);
+                    callSite.events = node.callSite.events;
+                    callSite.error = node.callSite.events;
+                } else {
+                    if (lowest == null || lowest.events != 0) {
+                        link(null, new Bucket(0));
+                    }
+                    node = new Node();
+                    add(node, lowest);
+                }
+                node.key = pending.key;
+                node.callSite = callSite;
+                callSites.put(pending.key, node);
+            }
+            node.callSite.bytes += pending.bytes;
+            node.callSite.renderNanos += pending.renderNanos;
+            increment(node, pending.events);
+        }
+
+        /**
+         * Moves a call site up to the bucket of its new number of events.
+         */
+        private void increment(Node node, long events) {
+            Bucket from = node.bucket;
+            long target = node.callSite.events + events;
+            node.callSite.events = target;
+            Bucket at = from;
+            while (at.next != null && at.next.events <= target) {
+                at = at.next;
+            }
+            if (at == from && from.first == node && node.next == null) {
+                // alone in its bucket and passing no other, the bucket moves along with it
+                from.events = target;
+                return;
+            }
+            remove(node);
+            if (at.events == target) {
+                add(node, at);
+            } else {
+                Bucket to = new Bucket(target);
+                link(at, to);
+                add(node, to);
+            }
+        }
+
+        private void link(Bucket after, Bucket bucket) {
+            Bucket next = after == null ? lowest : after.next;
+            bucket.previous = after;
+            bucket.next = next;
+            if (next != null) {
+                next.previous = bucket;
+            }
+            if (after == null) {
+                lowest = bucket;
+            } else {
+                after.next = bucket;
+            }
+        }
+
+        private static void add(Node node, Bucket bucket) {
+            node.bucket = bucket;
+            node.previous = null;
+            node.next = bucket.first;
+            if (bucket.first != null) {
+                bucket.first.previous = node;
+            }
+            bucket.first = node;
+        }
+
+        private void remove(Node node) {
+            Bucket bucket = node.bucket;
+            if (node.previous == null) {
+                bucket.first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next != null) {
+                node.next.previous = node.previous;
+            }
+            if (bucket.first == null) {
+                if (bucket.previous == null) {
+                    lowest = bucket.next;
+                } else {
+                    bucket.previous.next = bucket.next;
+                }
+                if (bucket.next != null) {
+                    bucket.next.previous = bucket.previous;
+                }
+            }
+        }
+
+        List<CallSite> top(int limit) {
+            flushAll();
+            List<CallSite> top = new ArrayList<>(callSites.size());
+            synchronized (this) {
+                callSites.values().forEach(node -> top.add(node.callSite.copy()));
+            }
+            top.sort(Comparator.comparingLong(CallSite::getEvents).reversed());
+            return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+        }
+
+        void clear() {
+            flushAll();
+            synchronized (this) {
+                callSites.clear();
+                lowest = null;
+            }
+        }
+    }
+
+    /**
+     * Call sites with the same number of events.
+     */
+    private static final class Bucket {
+        private long events;
+
+        private Bucket previous;
+
+        private Bucket next;
+
+        private Node first;
+
+        Bucket(long events) {
+            this.events = events;
+        }
+    }
+
+    /**
+     * A call site tracked in a {@link Bucket}.
+     */
+    private static final class Node {
+        private String key;
+
+        private CallSite callSite;
+
+        private Bucket bucket;
+
+        private Node previous;
+
+        private Node next;
+    }
+
+    /**
+     * Events of a thread not yet applied to the sketch, in the order their call sites were first seen.
+     */
+    private static final class Buffer {
+        private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+        private int events;
+
+        private boolean registered;
+
+        int add(String logger, String message, long bytes, long renderNanos) {
+            String key = logger == null ? message : logger + '\n' + message;
+            Pending counted = pending.get(key);
+            if (counted == null) {
+                counted = new Pending(key, logger, message);
+                pending.put(key, counted);
+            }
+            counted.events++;
+            counted.bytes += bytes;
+            counted.renderNanos += renderNanos;
+            return ++events;
+        }
+    }
+
+    /**
+     * Events, bytes and render time of a call site buffered by a thread.
+     */
+    private static final class Pending {
+        private final String key;
+
+        private final String logger;
+
+        private final String message;
+
+        private long events;
+
+        private long bytes;
+
+        private long renderNanos;
+
+        Pending(String key, String logger, String message) {
+            this.key = key;
+            this.logger = logger;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,794 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.event.Level;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.renderers.YAMLRenderer;
+import io.github.kwahome.sopa.samplers.EveryNthSampler;
+import io.github.kwahome.sopa.samplers.FirstPerIntervalSampler;
+import io.github.kwahome.sopa.samplers.KeySampler;
+import io.github.kwahome.sopa.samplers.LevelSampler;
+import io.github.kwahome.sopa.samplers.RateSampler;
+import io.github.kwahome.sopa.sinks.OutputStreamSink;
+import io.github.kwahome.sopa.sinks.Slf4jSink;
+import io.github.kwahome.sopa.sinks.TCPSink;
+
+/**
+ * Configuration read from a local properties or YAML file.
+ *
+ * YAML documents are flattened into the same dot separated keys as properties files, sequences
+ * becoming comma separated values. Unknown properties are rejected rather than ignored:
+ *
+ * <pre>
+ *      renderer = json | keyvalue | yaml | fully qualified LogRenderer class name
+ *      separator = ;
+ *      level = info
+ *      context.environment = production
+ *      sampling.rate = 0.1                 keep 1 in 10 events at random
+ *      sampling.key = traceId              ...or all or none of the events of a trace
+ *      sampling.everyNth = 10              or keep 1 in 10 events of each message
+ *      sampling.first = 100                always keeping the first 100 events
+ *      sampling.interval = 1000            of every 1000 milliseconds
+ *      sampling.level = info               sampling events up to info only
+ *      dedup.window = 1000                 collapsing identical events within 1000 milliseconds
+ *      dedup.keys = errorCode,host         identical by message and the values of these keys
+ *      dedup.maxEntries = 4096
+ *      dedup.enabled = false               turning off deduplication set in code or for a parent logger
+ *      rateLimit.eventsPerSecond = 100     logging at most 100 events per second per logger
+ *      rateLimit.key = tenantId            ...or per value of this key
+ *      rateLimit.level.error = 1000        with a limit of its own for error events, 0 for none
+ *      rateLimit.burst = 200
+ *      rateLimit.maxBuckets = 10000
+ *      rateLimit.reportInterval = 10000    logging suppressed counts every 10000 milliseconds
+ *      rateLimit.enabled = false           turning off rate limiting set in code or for a parent logger
+ *      debug.rules = tenantId in {acme, globex}; traceId=4bf92f35
+ *                                          logging debug events of loggers with a matching bound context
+ *      debug.level = trace                 ...and trace events too
+ *      debug.emitLevel = info              written at info so that the slf4j backend lets them through
+ *      debug.enabled = false               turning off debug rules set in code or for a parent logger
+ *      redact.keys = password,authorization
+ *                                          masking the values of keys containing these names
+ *      redact.emails = true                ...and email addresses,
+ *      redact.cardNumbers = true           card numbers
+ *      redact.tokenPrefixes = Bearer ,sk_live_
+ *                                          and tokens following these prefixes in any value
+ *      redact.mask = ****
+ *      redact.enabled = false              turning off redaction set in code or for a parent logger
+ *      flightRecorder.capacity = 256       keeping the last 256 events below the level per thread
+ *      flightRecorder.level = debug        down to debug, logging them when an error follows
+ *      flightRecorder.emitLevel = info
+ *      flightRecorder.maxAge = 60000       unless older than 60000 milliseconds
+ *      flightRecorder.enabled = false      turning off the flight recorder set in code or for a parent logger
+ *      mdc.keys = requestId,traceId        logging these slf4j MDC entries, all of them if no keys are given
+ *      mdc.enabled = false                 turning off MDC bridging set in code or for a parent logger
+ *      exceptions.maxFrames = 20           logging exceptions as fields with at most 20 stack frames
+ *      exceptions.maxCauses = 5            ...and 5 causes
+ *      exceptions.deduplicate = true       logging the causes and frames of an errorFingerprint only once
+ *      exceptions.window = 60000           ...every 60000 milliseconds
+ *      exceptions.maxFingerprints = 1024   remembering up to 1024 fingerprints
+ *      exceptions.enabled = false          passing exceptions to slf4j even if encoded for a parent logger
+ *      aggregate.rules = durationMs by route,status; responseBytes
+ *                                          aggregating these fields into metrics
+ *      aggregate.interval = 60000          ...logged every 60000 milliseconds
+ *      aggregate.maxGroups = 1000          keeping up to 1000 groups of key values per rule
+ *      aggregate.enabled = false           turning off aggregation set in code or for a parent logger
+ *      fields.cardinalityThreshold = 10000 tracking the cardinality and bytes of every key, flagging keys
+ *                                          with more than 10000 distinct values
+ *      fields.valueBytesThreshold = 4096   ...or values longer than 4096 bytes
+ *      fields.precision = 11               estimating cardinality with 2^11 registers per key
+ *      fields.maxKeys = 256                tracking up to 256 keys separately
+ *      fields.enabled = false              turning off field analysis set in code or for a parent logger
+ *      sink.type = slf4j | stdout | stderr | tcp
+ *      sink.host = localhost
+ *      sink.port = 5170
+ *      sink.framing = newline | length_prefixed
+ *      sinks.audit.renderer = json
+ *      sinks.audit.type = tcp
+ *      logger.com.acme.billing.renderer = json
+ *      logger.com.acme.billing.level = warn
+ *      logger.com.acme.billing.separator = ;
+ *      logger.com.acme.billing.sampling.rate = 0.5
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+final class ConfigFile {
+    private static final String RENDERER = "renderer";
+    private static final String SEPARATOR = "separator";
+    private static final String LEVEL = "level";
+    private static final String CONTEXT = "context.";
+    private static final String SINK = "sink.";
+    private static final String SINKS = "sinks.";
+    private static final String LOGGER = "logger.";
+    private static final String SAMPLING = "sampling.";
+    private static final String DEDUP = "dedup.";
+    private static final String RATE_LIMIT = "rateLimit.";
+    private static final String DEBUG = "debug.";
+    private static final String REDACT = "redact.";
+    private static final String FLIGHT_RECORDER = "flightRecorder.";
+    private static final String MDC = "mdc.";
+    private static final String EXCEPTIONS = "exceptions.";
+    private static final String AGGREGATE = "aggregate.";
+    private static final String FIELDS = "fields.";
+    private static final List<String> NESTED_SECTIONS = Arrays.asList(SAMPLING, DEDUP, RATE_LIMIT, DEBUG, REDACT,
+            FLIGHT_RECORDER, MDC, EXCEPTIONS, AGGREGATE, FIELDS);
+    private static final long DEFAULT_SAMPLING_INTERVAL_MILLIS = 1000;
+    private static final String TYPE = "type";
+    private static final Pattern LEADING_SPACES = Pattern.compile("^\\s+");
+    private static final Set<String> WHITESPACE_SIGNIFICANT = new HashSet<>(
+            Arrays.asList(SEPARATOR, "tokenPrefixes"));
+    private static final Set<String> TOP_LEVEL_PROPERTIES = new HashSet<>(Arrays.asList(RENDERER, SEPARATOR, LEVEL));
+    private static final List<String> TOP_LEVEL_SECTIONS = Stream.concat(
+            Stream.of(CONTEXT, SINK, SINKS, LOGGER), NESTED_SECTIONS.stream()).collect(Collectors.toList());
+
+    private static final Set<String> DEDUP_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "window", "keys", "maxEntries"));
+    private static final Set<String> RATE_LIMIT_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "eventsPerSecond", "burst", "key", "maxBuckets", "reportInterval"));
+    private static final Set<String> DEBUG_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "rules", LEVEL, "emitLevel"));
+    private static final Set<String> REDACT_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "keys", "emails", "cardNumbers", "tokenPrefixes", "mask"));
+    private static final Set<String> FLIGHT_RECORDER_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "capacity", LEVEL, "emitLevel", "maxAge"));
+    private static final Set<String> MDC_PROPERTIES = new HashSet<>(Arrays.asList("enabled", "keys"));
+    private static final Set<String> EXCEPTIONS_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "maxFrames", "maxCauses", "deduplicate", "window", "maxFingerprints"));
+    private static final Set<String> AGGREGATE_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "rules", "interval", "maxGroups"));
+    private static final Set<String> FIELDS_PROPERTIES = new HashSet<>(
+            Arrays.asList("enabled", "precision", "maxKeys", "cardinalityThreshold", "valueBytesThreshold"));
+    private static final Set<String> SAMPLING_PROPERTIES = new HashSet<>(
+            Arrays.asList("rate", "key", "everyNth", "first", "interval", LEVEL));
+
+    private final SortedMap<String, String> properties;
+
+    private ConfigFile(SortedMap<String, String> properties) {
+        this.properties = Collections.unmodifiableSortedMap(properties);
+    }
+
+    /**
+     * Reads a properties file, or a YAML file if its name ends in `.yml` or `.yaml`.
+     *
+     * @param path {@link Path} of the file
+     * @return {@link ConfigFile}
+     * @throws IOException if the file cannot be read
+     */
+    static ConfigFile read(Path path) throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        SortedMap<String, String> properties = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (fileName.endsWith(".yml") || fileName.endsWith(".yaml")) {
+                // safe constructor, the file must not be able to instantiate arbitrary types
+                Object document = new Yaml(new SafeConstructor()).load(reader);
+                if (document instanceof Map) {
+                    flatten("", (Map<?, ?>) document, properties);
+                } else if (document != null) {
+                    throw new IllegalArgumentException(String.format("`%s` is not a YAML mapping.", path));
+                }
+            } else {
+                Properties loaded = new Properties();
+                loaded.load(reader);
+                loaded.stringPropertyNames().forEach(key -> properties.put(key, value(key, loaded.getProperty(key))));
+            }
+        }
+        return new ConfigFile(properties);
+    }
+
+    private static void flatten(String prefix, Map<?, ?> map, SortedMap<String, String> properties) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = prefix + entry.getKey();
+            if (entry.getValue() instanceof Map) {
+                flatten(key + ".", (Map<?, ?>) entry.getValue(), properties);
+            } else if (entry.getValue() instanceof List) {
+                // sequences e.g. `keys: [password, ssn]` are read like comma separated values
+                StringJoiner values = new StringJoiner(",");
+                for (Object value : (List<?>) entry.getValue()) {
+                    if (value instanceof Map || value instanceof List) {
+                        throw new IllegalArgumentException(String.format("`%s` must be a list of values.", key));
+                    }
+                    values.add(String.valueOf(value));
+                }
+                properties.put(key, value(key, values.toString()));
+            } else if (entry.getValue() != null) {
+                properties.put(key, value(key, entry.getValue().toString()));
+            }
+        }
+    }
+
+    /**
+     * Trims a value unless its whitespace is significant, as for a separator or the trailing space
+     * of a token prefix like `Bearer `.
+     */
+    private static String value(String key, String value) {
+        String property = key.substring(key.lastIndexOf('.') + 1);
+        return WHITESPACE_SIGNIFICANT.contains(property) ? value : value.trim();
+    }
+
+    /**
+     * Rejects keys outside of the known properties and sections, so that a typo like `levle` is
+     * not silently ignored. The properties within sections are validated as they are applied.
+     */
+    private void validate() {
+        for (String key : properties.keySet()) {
+            if (!TOP_LEVEL_PROPERTIES.contains(key) && TOP_LEVEL_SECTIONS.stream().noneMatch(key::startsWith)) {
+                throw new IllegalArgumentException(String.format("unknown property `%s`.", key));
+            }
+        }
+    }
+
+    SortedMap<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Applies this file's settings on top of a base configuration. The result only depends on the
+     * base and the file, so the same file always yields the same configuration.
+     *
+     * @param base {@link ConfigTree} configuration the file is applied to
+     * @param sinkProvider {@link Function} returning the sink for the properties of a sink section
+     * @return {@link ConfigTree}
+     * @throws IllegalArgumentException if a value is not valid
+     */
+    ConfigTree applyTo(ConfigTree base, Function<SortedMap<String, String>, LogSink> sinkProvider) {
+        validate();
+        ConfigTree tree = base;
+        if (properties.containsKey(SEPARATOR)) {
+            tree = tree.withLogEntriesSeparator(properties.get(SEPARATOR));
+        }
+        LoggerConfig.LoggerConfigBuilder root = tree.getRoot().toBuilder();
+        if (properties.containsKey(RENDERER)) {
+            root.logRenderer(renderer(properties.get(RENDERER)));
+        }
+        if (properties.containsKey(LEVEL)) {
+            root.level(level(properties.get(LEVEL)));
+        }
+        SortedMap<String, String> context = section(properties, CONTEXT);
+        if (!context.isEmpty()) {
+            root.contextSupplier(Optional.of(new GenericLoggableObject(context.entrySet().stream()
+                    .flatMap(entry -> Stream.of(entry.getKey(), entry.getValue()))
+                    .toArray())));
+        }
+        for (String nested : NESTED_SECTIONS) {
+            applySection(root, nested, section(properties, nested));
+        }
+        SortedMap<String, String> sink = section(properties, SINK);
+        if (!sink.isEmpty()) {
+            root.logSink(sinkProvider.apply(sink));
+        }
+        tree = tree.withRoot(root.build());
+        for (String id : ids(section(properties, SINKS))) {
+            SortedMap<String, String> additional = section(properties, SINKS + id + ".");
+            tree = tree.withAdditionalLogSink(
+                    renderer(additional.getOrDefault(RENDERER, "keyvalue")), sinkProvider.apply(additional));
+        }
+        return applyLoggerConfigs(tree);
+    }
+
+    private ConfigTree applyLoggerConfigs(ConfigTree base) {
+        Map<String, LoggerConfig.LoggerConfigBuilder> loggers = new TreeMap<>();
+        Map<String, Map<String, SortedMap<String, String>>> nestedSections = new TreeMap<>();
+        for (Map.Entry<String, String> entry : section(properties, LOGGER).entrySet()) {
+            if (collectNested(entry, nestedSections)) {
+                continue;
+            }
+            // logger names contain dots themselves, the property is the last segment
+            int lastSeparator = entry.getKey().lastIndexOf('.');
+            if (lastSeparator <= 0) {
+                throw new IllegalArgumentException(String.format("invalid logger property `%s%s`.",
+                        LOGGER, entry.getKey()));
+            }
+            String loggerName = entry.getKey().substring(0, lastSeparator);
+            String property = entry.getKey().substring(lastSeparator + 1);
+            LoggerConfig.LoggerConfigBuilder logger = loggers.computeIfAbsent(loggerName,
+                    name -> loggerConfig(base, name));
+            if (RENDERER.equals(property)) {
+                logger.logRenderer(renderer(entry.getValue()));
+            } else if (SEPARATOR.equals(property)) {
+                logger.logRenderer(new KeyValueRenderer(entry.getValue()));
+            } else if (LEVEL.equals(property)) {
+                logger.level(level(entry.getValue()));
+            } else {
+                throw new IllegalArgumentException(String.format("unknown logger property `%s%s`.",
+                        LOGGER, entry.getKey()));
+            }
+        }
+        nestedSections.forEach((loggerName, sections) -> sections.forEach((nested, section) ->
+                applySection(loggers.computeIfAbsent(loggerName, name -> loggerConfig(base, name)), nested, section)));
+        ConfigTree tree = base;
+        for (Map.Entry<String, LoggerConfig.LoggerConfigBuilder> logger : loggers.entrySet()) {
+            tree = tree.withLoggerConfig(logger.getKey(), logger.getValue().build());
+        }
+        return tree;
+    }
+
+    /**
+     * Collects a logger property belonging to a nested section e.g. `com.acme.sampling.rate`.
+     *
+     * Sections only match whole name segments and the innermost one wins, so that loggers whose
+     * names merely start with a section name e.g. `com.acme.debugging` or whose packages are named
+     * like one e.g. `com.acme.sampling.Worker` keep their own properties.
+     *
+     * @return true if the property belongs to a nested section
+     */
+    private static boolean collectNested(Map.Entry<String, String> entry,
+                                         Map<String, Map<String, SortedMap<String, String>>> nestedSections) {
+        String key = entry.getKey();
+        String section = null;
+        int index = -1;
+        for (String nested : NESTED_SECTIONS) {
+            // the trailing dot of the section name already ends the segment, the leading one starts it
+            int candidate = key.lastIndexOf("." + nested);
+            if (candidate > index) {
+                section = nested;
+                index = candidate;
+            }
+        }
+        if (index <= 0) {
+            return false;
+        }
+        nestedSections.computeIfAbsent(key.substring(0, index), name -> new TreeMap<>())
+                .computeIfAbsent(section, name -> new TreeMap<>())
+                .put(key.substring(index + section.length() + 1), entry.getValue());
+        return true;
+    }
+
+    private static void applySection(LoggerConfig.LoggerConfigBuilder loggerConfig, String nested,
+                                     SortedMap<String, String> section) {
+        if (section.isEmpty()) {
+            return;
+        }
+        if (SAMPLING.equals(nested)) {
+            loggerConfig.sampler(sampler(section));
+        } else if (DEDUP.equals(nested)) {
+            loggerConfig.deduplicator(deduplicator(section));
+        } else if (RATE_LIMIT.equals(nested)) {
+            loggerConfig.rateLimiter(rateLimiter(section));
+        } else if (DEBUG.equals(nested)) {
+            loggerConfig.debugRules(debugRules(section));
+        } else if (REDACT.equals(nested)) {
+            loggerConfig.redactor(redactor(section));
+        } else if (FLIGHT_RECORDER.equals(nested)) {
+            loggerConfig.flightRecorder(flightRecorder(section));
+        } else if (MDC.equals(nested)) {
+            loggerConfig.mdcBridge(mdcBridge(section));
+        } else if (EXCEPTIONS.equals(nested)) {
+            loggerConfig.exceptionEncoder(exceptionEncoder(section));
+        } else if (AGGREGATE.equals(nested)) {
+            loggerConfig.aggregator(aggregator(section));
+        } else if (FIELDS.equals(nested)) {
+            loggerConfig.fieldAnalyzer(fieldAnalyzer(section));
+        }
+    }
+
+    private static LoggerConfig.LoggerConfigBuilder loggerConfig(ConfigTree base, String loggerName) {
+        LoggerConfig loggerConfig = base.getLoggerConfigs().get(loggerName);
+        return loggerConfig == null ? LoggerConfig.builder() : loggerConfig.toBuilder();
+    }
+
+    /**
+     * Creates the sampler described by the properties of a sampling section.
+     *
+     * @param sampling {@link SortedMap} properties of the sampling section
+     * @return {@link LogSampler}
+     */
+    private static LogSampler sampler(SortedMap<String, String> sampling) {
+        for (String property : sampling.keySet()) {
+            if (!SAMPLING_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown sampling property `%s`.", property));
+            }
+        }
+        LogSampler sampler = (level, message, values) -> LogSampler.DROP;
+        if (sampling.containsKey("everyNth")) {
+            if (sampling.containsKey("rate")) {
+                throw new IllegalArgumentException("sampling `rate` and `everyNth` are mutually exclusive.");
+            }
+            sampler = new EveryNthSampler(Integer.parseInt(sampling.get("everyNth")));
+        } else if (sampling.containsKey("rate")) {
+            double rate = Double.parseDouble(sampling.get("rate"));
+            sampler = sampling.containsKey("key") ? new KeySampler(sampling.get("key"), rate) : new RateSampler(rate);
+        } else if (!sampling.containsKey("first")) {
+            throw new IllegalArgumentException("sampling requires one of `rate`, `everyNth` or `first`.");
+        }
+        if (sampling.containsKey("first")) {
+            long interval = sampling.containsKey("interval")
+                    ? Long.parseLong(sampling.get("interval")) : DEFAULT_SAMPLING_INTERVAL_MILLIS;
+            sampler = new FirstPerIntervalSampler(Integer.parseInt(sampling.get("first")), interval,
+                    TimeUnit.MILLISECONDS, sampler);
+        }
+        if (sampling.containsKey(LEVEL)) {
+            sampler = new LevelSampler(level(sampling.get(LEVEL)), sampler);
+        }
+        return sampler;
+    }
+
+    /**
+     * Creates the deduplicator described by the properties of a dedup section.
+     *
+     * @param dedup {@link SortedMap} properties of the dedup section
+     * @return {@link Optional} deduplicator, empty if turned off
+     */
+    private static Optional<Deduplicator> deduplicator(SortedMap<String, String> dedup) {
+        for (String property : dedup.keySet()) {
+            if (!DEDUP_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown dedup property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(dedup.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        Deduplicator.DeduplicatorBuilder deduplicator = Deduplicator.builder()
+                .windowMillis(Long.parseLong(dedup.getOrDefault("window", "0")))
+                .maxEntries(Integer.parseInt(dedup.getOrDefault("maxEntries", "0")));
+        for (String key : dedup.getOrDefault("keys", "").split(",")) {
+            if (!key.trim().isEmpty()) {
+                deduplicator.key(key.trim());
+            }
+        }
+        return Optional.of(deduplicator.build());
+    }
+
+    /**
+     * Creates the rate limiter described by the properties of a rateLimit section.
+     *
+     * @param rateLimit {@link SortedMap} properties of the rateLimit section
+     * @return {@link Optional} rate limiter, empty if turned off
+     */
+    private static Optional<RateLimiter> rateLimiter(SortedMap<String, String> rateLimit) {
+        RateLimiter.RateLimiterBuilder rateLimiter = RateLimiter.builder();
+        for (Map.Entry<String, String> property : rateLimit.entrySet()) {
+            if (property.getKey().startsWith(LEVEL + ".")) {
+                rateLimiter.levelLimit(level(property.getKey().substring(LEVEL.length() + 1)),
+                        Long.parseLong(property.getValue()));
+            } else if (!RATE_LIMIT_PROPERTIES.contains(property.getKey())) {
+                throw new IllegalArgumentException(String.format("unknown rateLimit property `%s`.",
+                        property.getKey()));
+            }
+        }
+        if (!Boolean.parseBoolean(rateLimit.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        return Optional.of(rateLimiter
+                .eventsPerSecond(Long.parseLong(rateLimit.getOrDefault("eventsPerSecond", "0")))
+                .burst(Long.parseLong(rateLimit.getOrDefault("burst", "0")))
+                .key(rateLimit.get("key"))
+                .maxBuckets(Integer.parseInt(rateLimit.getOrDefault("maxBuckets", "0")))
+                .reportIntervalMillis(Long.parseLong(rateLimit.getOrDefault("reportInterval", "0")))
+                .build());
+    }
+
+    /**
+     * Creates the debug rules described by the properties of a debug section.
+     *
+     * @param debug {@link SortedMap} properties of the debug section, rules are separated by `;`
+     * @return {@link Optional} debug rules, empty if turned off
+     */
+    private static Optional<DebugRules> debugRules(SortedMap<String, String> debug) {
+        for (String property : debug.keySet()) {
+            if (!DEBUG_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown debug property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(debug.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        DebugRules.DebugRulesBuilder debugRules = DebugRules.builder()
+                .level(debug.containsKey(LEVEL) ? level(debug.get(LEVEL)) : null)
+                .emitLevel(debug.containsKey("emitLevel") ? level(debug.get("emitLevel")) : null);
+        for (String rule : required(debug, "rules", DEBUG).split(";")) {
+            if (!rule.trim().isEmpty()) {
+                debugRules.rule(rule);
+            }
+        }
+        return Optional.of(debugRules.build());
+    }
+
+    /**
+     * Creates the redactor described by the properties of a redact section.
+     *
+     * @param redact {@link SortedMap} properties of the redact section
+     * @return {@link Optional} redactor, empty if turned off
+     */
+    private static Optional<Redactor> redactor(SortedMap<String, String> redact) {
+        for (String property : redact.keySet()) {
+            if (!REDACT_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown redact property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(redact.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        Redactor.RedactorBuilder redactor = Redactor.builder()
+                .emails(Boolean.parseBoolean(redact.get("emails")))
+                .cardNumbers(Boolean.parseBoolean(redact.get("cardNumbers")))
+                .mask(redact.get("mask"));
+        for (String key : redact.getOrDefault("keys", "").split(",")) {
+            if (!key.trim().isEmpty()) {
+                redactor.key(key.trim());
+            }
+        }
+        // only leading spaces are trimmed, trailing ones as in `Bearer ` are part of the prefix
+        for (String tokenPrefix : redact.getOrDefault("tokenPrefixes", "").split(",")) {
+            if (!tokenPrefix.trim().isEmpty()) {
+                redactor.tokenPrefix(LEADING_SPACES.matcher(tokenPrefix).replaceFirst(""));
+            }
+        }
+        return Optional.of(redactor.build());
+    }
+
+    /**
+     * Creates the flight recorder described by the properties of a flightRecorder section.
+     *
+     * @param flightRecorder {@link SortedMap} properties of the flightRecorder section
+     * @return {@link Optional} flight recorder, empty if turned off
+     */
+    private static Optional<FlightRecorder> flightRecorder(SortedMap<String, String> flightRecorder) {
+        for (String property : flightRecorder.keySet()) {
+            if (!FLIGHT_RECORDER_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown flightRecorder property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(flightRecorder.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        return Optional.of(FlightRecorder.builder()
+                .capacity(Integer.parseInt(flightRecorder.getOrDefault("capacity", "0")))
+                .level(flightRecorder.containsKey(LEVEL) ? level(flightRecorder.get(LEVEL)) : null)
+                .emitLevel(flightRecorder.containsKey("emitLevel") ? level(flightRecorder.get("emitLevel")) : null)
+                .maxAgeMillis(Long.parseLong(flightRecorder.getOrDefault("maxAge", "0")))
+                .build());
+    }
+
+    /**
+     * Creates the MDC bridge described by the properties of an mdc section.
+     *
+     * @param mdc {@link SortedMap} properties of the mdc section
+     * @return {@link Optional} MDC bridge, empty if turned off
+     */
+    private static Optional<MDCBridge> mdcBridge(SortedMap<String, String> mdc) {
+        for (String property : mdc.keySet()) {
+            if (!MDC_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown mdc property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(mdc.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        MDCBridge.MDCBridgeBuilder mdcBridge = MDCBridge.builder();
+        for (String key : mdc.getOrDefault("keys", "").split(",")) {
+            if (!key.trim().isEmpty()) {
+                mdcBridge.key(key.trim());
+            }
+        }
+        return Optional.of(mdcBridge.build());
+    }
+
+    /**
+     * Creates the exception encoder described by the properties of an exceptions section.
+     *
+     * @param exceptions {@link SortedMap} properties of the exceptions section
+     * @return {@link Optional} exception encoder, empty if turned off
+     */
+    private static Optional<ExceptionEncoder> exceptionEncoder(SortedMap<String, String> exceptions) {
+        for (String property : exceptions.keySet()) {
+            if (!EXCEPTIONS_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown exceptions property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(exceptions.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        return Optional.of(ExceptionEncoder.builder()
+                .maxFrames(Integer.parseInt(exceptions.getOrDefault("maxFrames", "0")))
+                .maxCauses(Integer.parseInt(exceptions.getOrDefault("maxCauses", "0")))
+                .deduplicate(Boolean.parseBoolean(exceptions.get("deduplicate")))
+                .windowMillis(Long.parseLong(exceptions.getOrDefault("window", "0")))
+                .maxFingerprints(Integer.parseInt(exceptions.getOrDefault("maxFingerprints", "0")))
+                .build());
+    }
+
+    /**
+     * Creates the aggregator described by the properties of an aggregate section.
+     *
+     * @param aggregate {@link SortedMap} properties of the aggregate section, rules are separated by `;`
+     * @return {@link Optional} aggregator, empty if turned off
+     */
+    private static Optional<Aggregator> aggregator(SortedMap<String, String> aggregate) {
+        for (String property : aggregate.keySet()) {
+            if (!AGGREGATE_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown aggregate property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(aggregate.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        Aggregator.AggregatorBuilder aggregator = Aggregator.builder()
+                .reportIntervalMillis(Long.parseLong(aggregate.getOrDefault("interval", "0")))
+                .maxGroups(Integer.parseInt(aggregate.getOrDefault("maxGroups", "0")));
+        for (String rule : required(aggregate, "rules", AGGREGATE).split(";")) {
+            if (!rule.trim().isEmpty()) {
+                aggregator.rule(rule);
+            }
+        }
+        return Optional.of(aggregator.build());
+    }
+
+    /**
+     * Creates the field analyzer described by the properties of a fields section.
+     *
+     * @param fields {@link SortedMap} properties of the fields section
+     * @return {@link Optional} field analyzer, empty if turned off
+     */
+    private static Optional<FieldAnalyzer> fieldAnalyzer(SortedMap<String, String> fields) {
+        for (String property : fields.keySet()) {
+            if (!FIELDS_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(String.format("unknown fields property `%s`.", property));
+            }
+        }
+        if (!Boolean.parseBoolean(fields.getOrDefault("enabled", "true"))) {
+            return Optional.empty();
+        }
+        return Optional.of(FieldAnalyzer.builder()
+                .precision(Integer.parseInt(fields.getOrDefault("precision", "0")))
+                .maxKeys(Integer.parseInt(fields.getOrDefault("maxKeys", "0")))
+                .cardinalityThreshold(Long.parseLong(fields.getOrDefault("cardinalityThreshold", "0")))
+                .valueBytesThreshold(Integer.parseInt(fields.getOrDefault("valueBytesThreshold", "0")))
+                .build());
+    }
+
+    /**
+     * Creates the sink described by the properties of a sink section.
+     *
+     * @param sink {@link SortedMap} properties of the sink section
+     * @return {@link LogSink}
+     */
+    static LogSink createSink(SortedMap<String, String> sink) {
+        String type = sink.getOrDefault(TYPE, "slf4j").toLowerCase(Locale.ROOT);
+        switch (type) {
+            case "slf4j":
+                return Slf4jSink.getInstance();
+            case "stdout":
+                return new OutputStreamSink(System.out);
+            case "stderr":
+                return new OutputStreamSink(System.err);
+            case "tcp":
+                return TCPSink.builder()
+                        .host(sink.getOrDefault("host", "localhost"))
+                        .port(Integer.parseInt(required(sink, "port", SINK)))
+                        .framing(TCPSink.Framing.valueOf(
+                                sink.getOrDefault("framing", "newline").toUpperCase(Locale.ROOT)))
+                        .bufferCapacity(Integer.parseInt(sink.getOrDefault("bufferCapacity", "0")))
+                        .offHeap(Boolean.parseBoolean(sink.getOrDefault("offHeap", "false")))
+                        .build();
+            default:
+                throw new IllegalArgumentException(String.format("unknown sink type `%s`.", type));
+        }
+    }
+
+    private static LogRenderer<?> renderer(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "keyvalue":
+            case "key_value":
+                return KeyValueRenderer.getInstance();
+            case "json":
+                return JSONRenderer.getInstance();
+            case "yaml":
+                return YAMLRenderer.getInstance();
+            default:
+                return customRenderer(value);
+        }
+    }
+
+    /**
+     * Loads a custom {@link LogRenderer} by class name, via its static getInstance() if it has one
+     * like the bundled renderers or its no-args constructor otherwise.
+     *
+     * @param className {@link String}
+     * @return {@link LogRenderer}
+     */
+    private static LogRenderer<?> customRenderer(String className) {
+        try {
+            Class<?> rendererClass = Class.forName(className);
+            if (!LogRenderer.class.isAssignableFrom(rendererClass)) {
+                throw new IllegalArgumentException(String.format("`%s` is not a LogRenderer.", className));
+            }
+            try {
+                Method getInstance = rendererClass.getMethod("getInstance");
+                if (Modifier.isStatic(getInstance.getModifiers())) {
+                    return (LogRenderer<?>) getInstance.invoke(null);
+                }
+            } catch (NoSuchMethodException ex) {
+                // fall back to the no-args constructor
+            }
+            return (LogRenderer<?>) rendererClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalArgumentException(String.format("unable to load renderer `%s`.", className), ex);
+        }
+    }
+
+    private static Level level(String value) {
+        return Level.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static String required(Map<String, String> section, String key, String sectionName) {
+        String value = section.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("missing property `%s%s`.", sectionName, key));
+        }
+        return value;
+    }
+
+    /**
+     * Properties under a prefix, with the prefix removed.
+     */
+    private static SortedMap<String, String> section(SortedMap<String, String> properties, String prefix) {
+        SortedMap<String, String> section = new TreeMap<>();
+        // the character after '.' bounds the sub map to keys starting with the prefix
+        properties.subMap(prefix, prefix.substring(0, prefix.length() - 1) + '/')
+                .forEach((key, value) -> section.put(key.substring(prefix.length()), value));
+        return section;
+    }
+
+    private static Set<String> ids(SortedMap<String, String> section) {
+        Set<String> ids = new LinkedHashSet<>();
+        section.keySet().forEach(key -> ids.add(key.substring(0, Math.max(key.indexOf('.'), 0))));
+        ids.remove("");
+        return ids;
+    }
+}
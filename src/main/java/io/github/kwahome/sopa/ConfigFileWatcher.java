@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.kwahome.sopa.interfaces.LogSink;
+import lombok.NonNull;
+
+/**
+ * Loads sopa configuration from a local properties or YAML file and re-applies it whenever the
+ * file changes, e.g. to switch the level or renderer during an incident without a restart.
+ *
+ * <pre>
+ *      ConfigFileWatcher watcher = ConfigFileWatcher.watch(Paths.get("/etc/myapp/sopa.yml"));
+ * </pre>
+ *
+ * Every (re)load is applied to the configuration in place when watching started and published as a
+ * single snapshot via {@link StructLoggerConfig}, thus in-flight log calls see either the old or the
+ * new configuration and never a mix. Settings removed from the file revert to that base
+ * configuration while programmatic changes made after watching started are replaced on the next reload.
+ *
+ * A file that fails to load is reported and the previous configuration is kept. Sinks created
+ * from the file are reused across reloads while their settings are unchanged and closed once no
+ * longer configured.
+ *
+ * See {@link ConfigFile} for the supported settings.
+ *
+ * @author Kelvin Wahome
+ */
+public final class ConfigFileWatcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    private static final long QUIET_PERIOD_MILLIS = 100;
+
+    /**
+     * Sinks created by {@link #load(Path)}, reused by the next load while their settings are unchanged.
+     */
+    private static Map<SortedMap<String, String>, LogSink> loadedSinks = new HashMap<>();
+
+    private final Path file;
+
+    private final ConfigTree base;
+
+    private final WatchService watchService;
+
+    private Map<SortedMap<String, String>, LogSink> sinks = new HashMap<>();
+
+    private ConfigFile current;
+
+    private ConfigFileWatcher(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.base = StructLoggerConfig.getConfigTree();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // registered before the first load so that nothing is applied, nor any sink opened, if it fails
+        try {
+            // watch the directory as editors and config management tools often replace the file
+            this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            reload();
+        } catch (IOException | RuntimeException ex) {
+            watchService.close();
+            throw ex;
+        }
+        Thread watcherThread = new Thread(this::watchLoop, "sopa-config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Applies the configuration file once, without watching it. Sinks opened by a previous load
+     * are reused if their settings are unchanged and closed otherwise.
+     *
+     * @param file {@link Path} of a properties file or a `.yml`/`.yaml` file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file contains invalid settings
+     */
+    public static void load(@NonNull Path file) throws IOException {
+        ConfigFile configFile = ConfigFile.read(file);
+        synchronized (ConfigFileWatcher.class) {
+            loadedSinks = apply(configFile, null, loadedSinks);
+        }
+    }
+
+    /**
+     * Applies the configuration file and keeps re-applying it on every change from a background thread.
+     *
+     * @param file {@link Path} of a properties file or a `.yml`/`.yaml` file
+     * @return {@link ConfigFileWatcher} to close to stop watching
+     * @throws IOException if the file cannot be read or watched
+     * @throws IllegalArgumentException if the file contains invalid settings
+     */
+    public static ConfigFileWatcher watch(@NonNull Path file) throws IOException {
+        return new ConfigFileWatcher(file);
+    }
+
+    /**
+     * Stops watching; the configuration last applied stays in place.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                boolean changed = isFileChanged(watchService.take());
+                // a file written in place fires several events, reload once it has been quiet for a while
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isFileChanged(key);
+                }
+                if (changed) {
+                    reloadQuietly();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ex) {
+            // closed, stop watching
+        }
+    }
+
+    private boolean isFileChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | RuntimeException ex) {
+            // e.g. a half written file, the next modification event triggers another attempt
+            LOGGER.warn(String.format("%s unable to reload configuration from `%s`: %s, keeping the previous one.",
+                    StructLoggerConfig.getSopaLoggerTag(), file, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Reads the file and, if it changed, publishes the resulting configuration in one update.
+     */
+    private synchronized void reload() throws IOException {
+        ConfigFile configFile = ConfigFile.read(file);
+        if (current != null && current.getProperties().equals(configFile.getProperties())) {
+            return;
+        }
+        sinks = apply(configFile, base, sinks);
+        current = configFile;
+    }
+
+    /**
+     * Publishes the configuration of a file, reusing the previous sinks whose settings are unchanged
+     * and closing those it replaces, or the new ones if it fails.
+     *
+     * @param configFile {@link ConfigFile}
+     * @param base {@link ConfigTree} the file is applied to, the current configuration if null
+     * @param previousSinks {@link Map} sinks created by the previous application, by settings
+     * @return {@link Map} sinks in use now, by settings
+     */
+    private static Map<SortedMap<String, String>, LogSink> apply(ConfigFile configFile, ConfigTree base,
+                                                               Map<SortedMap<String, String>, LogSink> previousSinks) {
+        Map<SortedMap<String, String>, LogSink> newSinks = new HashMap<>();
+        try {
+            StructLoggerConfig.update(tree -> configFile.applyTo(base != null ? base : tree,
+                    spec -> newSinks.computeIfAbsent(spec, key -> previousSinks.containsKey(key)
+                            ? previousSinks.get(key) : ConfigFile.createSink(key))));
+        } catch (RuntimeException ex) {
+            closeUnused(newSinks, previousSinks);
+            throw ex;
+        }
+        closeUnused(previousSinks, newSinks);
+        return newSinks;
+    }
+
+    /**
+     * Closes the sinks that are not in use any more.
+     */
+    private static void closeUnused(Map<SortedMap<String, String>, LogSink> candidates,
+                                    Map<SortedMap<String, String>, LogSink> inUse) {
+        candidates.forEach((spec, sink) -> {
+            if (!inUse.containsValue(sink) && sink instanceof Closeable) {
+                closeQuietly((Closeable) sink);
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            LOGGER.warn(String.format("%s unable to close replaced sink: %s",
+                    StructLoggerConfig.getSopaLoggerTag(), ex.getMessage()));
+        }
+    }
+}
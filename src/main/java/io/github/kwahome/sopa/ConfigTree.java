@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.sinks.Slf4jSink;
+
+/**
+ * Immutable snapshot of the whole sopa configuration: the global defaults, the per logger name
+ * {@link LoggerConfig} overrides and the additional sinks.
+ *
+ * Every change produces a new tree which is published as a whole, so a reader only ever sees
+ * a consistent configuration.
+ *
+ * @author Kelvin Wahome
+ */
+final class ConfigTree {
+    private static final String NAME_SEPARATOR = ".";
+
+    private final LoggerConfig root;
+
+    private final Map<String, LoggerConfig> loggerConfigs;
+
+    private final Map<LogRenderer<Object>, List<LogSink>> additionalLogSinks;
+
+    private final String logEntriesSeparator;
+
+    private ConfigTree(LoggerConfig root, Map<String, LoggerConfig> loggerConfigs,
+                       Map<LogRenderer<Object>, List<LogSink>> additionalLogSinks, String logEntriesSeparator) {
+        this.root = root;
+        this.loggerConfigs = Collections.unmodifiableMap(loggerConfigs);
+        this.additionalLogSinks = Collections.unmodifiableMap(additionalLogSinks);
+        this.logEntriesSeparator = logEntriesSeparator;
+    }
+
+    /**
+     * The out of the box configuration.
+     *
+     * @return {@link ConfigTree}
+     */
+    static ConfigTree defaults() {
+        LoggerConfig root = LoggerConfig.builder()
+                .logRenderer(KeyValueRenderer.getInstance())
+                .logSink(Slf4jSink.getInstance())
+                // default value formatter returns a toString(), regardless of object type unless null
+                .valueRenderer((value) -> value == null ? "null" : value.toString())
+                .contextSupplier(Optional.empty())
+                .level(Level.TRACE)
+                .sampler(LogSampler.KEEP_ALL)
+                .deduplicator(Optional.empty())
+                .rateLimiter(Optional.empty())
+                .debugRules(Optional.empty())
+                .redactor(Optional.empty())
+                .flightRecorder(Optional.empty())
+                .mdcBridge(Optional.empty())
+                .exceptionEncoder(Optional.empty())
+                .aggregator(Optional.empty())
+                .fieldAnalyzer(Optional.empty())
+                .build();
+        // default char string to appear between log params
+        return new ConfigTree(root, new LinkedHashMap<>(), new LinkedHashMap<>(), ",");
+    }
+
+    LoggerConfig getRoot() {
+        return root;
+    }
+
+    Map<String, LoggerConfig> getLoggerConfigs() {
+        return loggerConfigs;
+    }
+
+    Map<LogRenderer<Object>, List<LogSink>> getAdditionalLogSinks() {
+        return additionalLogSinks;
+    }
+
+    String getLogEntriesSeparator() {
+        return logEntriesSeparator;
+    }
+
+    ConfigTree withRoot(LoggerConfig newRoot) {
+        return new ConfigTree(newRoot, loggerConfigs, additionalLogSinks, logEntriesSeparator);
+    }
+
+    ConfigTree withLoggerConfig(String loggerName, LoggerConfig loggerConfig) {
+        Map<String, LoggerConfig> configs = new LinkedHashMap<>(loggerConfigs);
+        if (loggerConfig == null) {
+            configs.remove(loggerName);
+        } else {
+            configs.put(loggerName, loggerConfig);
+        }
+        return new ConfigTree(root, configs, additionalLogSinks, logEntriesSeparator);
+    }
+
+    ConfigTree withAdditionalLogSink(LogRenderer<?> logRenderer, LogSink logSink) {
+        LogRenderer<Object> renderer = objectRenderer(logRenderer);
+        Map<LogRenderer<Object>, List<LogSink>> sinks = new LinkedHashMap<>(additionalLogSinks);
+        List<LogSink> rendererSinks = new ArrayList<>(sinks.getOrDefault(renderer, Collections.emptyList()));
+        rendererSinks.add(logSink);
+        sinks.put(renderer, Collections.unmodifiableList(rendererSinks));
+        return new ConfigTree(root, loggerConfigs, sinks, logEntriesSeparator);
+    }
+
+    ConfigTree withoutAdditionalLogSinks() {
+        return new ConfigTree(root, loggerConfigs, new LinkedHashMap<>(), logEntriesSeparator);
+    }
+
+    ConfigTree withLogEntriesSeparator(String separator) {
+        return new ConfigTree(root, loggerConfigs, additionalLogSinks, separator);
+    }
+
+    /**
+     * Resolves the effective settings of a logger by walking up its name hierarchy, taking each
+     * property from the most specific {@link LoggerConfig} that sets it.
+     *
+     * @param loggerName {@link String} logger name
+     * @return {@link LoggerSettings}
+     */
+    LoggerSettings resolve(String loggerName) {
+        List<LoggerConfig> chain = new ArrayList<>();
+        String name = loggerName;
+        while (name != null) {
+            LoggerConfig loggerConfig = loggerConfigs.get(name);
+            if (loggerConfig != null) {
+                chain.add(loggerConfig);
+            }
+            int lastSeparator = name.lastIndexOf(NAME_SEPARATOR);
+            name = lastSeparator > 0 ? name.substring(0, lastSeparator) : null;
+        }
+        chain.add(root);
+        LogRenderer<Object> logRenderer = objectRenderer(first(chain, LoggerConfig::getLogRenderer));
+        LogSink logSink = first(chain, LoggerConfig::getLogSink);
+        Function<Object, String> valueRenderer = first(chain, LoggerConfig::getValueRenderer);
+        Optional<LoggableObject> contextSupplier = first(chain, LoggerConfig::getContextSupplier);
+        Level level = first(chain, LoggerConfig::getLevel);
+        LogSampler sampler = first(chain, LoggerConfig::getSampler);
+        Optional<Deduplicator> deduplicator = first(chain, LoggerConfig::getDeduplicator);
+        Optional<RateLimiter> rateLimiter = first(chain, LoggerConfig::getRateLimiter);
+        Optional<DebugRules> debugRules = first(chain, LoggerConfig::getDebugRules);
+        Optional<Redactor> redactor = first(chain, LoggerConfig::getRedactor);
+        Optional<FlightRecorder> flightRecorder = first(chain, LoggerConfig::getFlightRecorder);
+        Optional<MDCBridge> mdcBridge = first(chain, LoggerConfig::getMdcBridge);
+        Optional<ExceptionEncoder> exceptionEncoder = first(chain, LoggerConfig::getExceptionEncoder);
+        Optional<Aggregator> aggregator = first(chain, LoggerConfig::getAggregator);
+        Optional<FieldAnalyzer> fieldAnalyzer = first(chain, LoggerConfig::getFieldAnalyzer);
+        return new LoggerSettings(buildLogOutputs(logRenderer, logSink), valueRenderer, contextSupplier, level,
+                sampler, deduplicator.orElse(null), rateLimiter.orElse(null), debugRules.orElse(null),
+                redactor.orElse(null), flightRecorder.orElse(null), mdcBridge.orElse(null),
+                exceptionEncoder.orElse(null), aggregator.orElse(null), fieldAnalyzer.orElse(null));
+    }
+
+    private static <T> T first(List<LoggerConfig> chain, Function<LoggerConfig, T> property) {
+        for (LoggerConfig loggerConfig : chain) {
+            T value = property.apply(loggerConfig);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Groups the logger's renderer and sink together with the additional sinks by renderer.
+     *
+     * @param logRenderer {@link LogRenderer}
+     * @param logSink {@link LogSink}
+     * @return {@link LogOutput}[]
+     */
+    private LogOutput[] buildLogOutputs(LogRenderer<Object> logRenderer, LogSink logSink) {
+        Map<LogRenderer<Object>, List<LogSink>> grouped = new LinkedHashMap<>();
+        grouped.computeIfAbsent(logRenderer, key -> new ArrayList<>()).add(logSink);
+        additionalLogSinks.forEach((renderer, sinks) ->
+                grouped.computeIfAbsent(renderer, key -> new ArrayList<>()).addAll(sinks));
+        LogOutput[] logOutputs = new LogOutput[grouped.size()];
+        int i = 0;
+        for (Map.Entry<LogRenderer<Object>, List<LogSink>> entry : grouped.entrySet()) {
+            logOutputs[i++] = new LogOutput(entry.getKey(), entry.getValue());
+        }
+        return logOutputs;
+    }
+
+    /**
+     * A renderer's type parameter is its own accumulator, which only ever comes from its own
+     * start() when the event is rendered, so any renderer can be driven as a renderer of objects.
+     *
+     * @param logRenderer {@link LogRenderer}
+     * @return {@link LogRenderer}
+     */
+    @SuppressWarnings("unchecked")
+    private static LogRenderer<Object> objectRenderer(LogRenderer<?> logRenderer) {
+        return (LogRenderer<Object>) logRenderer;
+    }
+}
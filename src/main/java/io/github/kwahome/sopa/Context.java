@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+import io.github.kwahome.sopa.utils.Helpers;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Context scoped to the current thread rather than to a {@link StructLogger} instance, logged with
+ * every event of every logger on the thread for as long as the scope is open.
+ *
+ * <pre>
+ *      try (Context.Scope ignored = Context.push("orderId", orderId, "tenantId", tenantId)) {
+ *          ...
+ *      }
+ * </pre>
+ *
+ * The context is a stack of immutable frames, each holding the key-value pairs of one push and a
+ * reference to the frame below it, so pushing and popping are O(1) and allocate nothing beyond the
+ * frame: no maps are rebuilt. Loggers read the stack while capturing an event, the innermost value
+ * of a key hiding the values pushed under it earlier, and add it after the instance bound context.
+ *
+ * Scopes must be closed on the thread that opened them and in the reverse order of opening, which
+ * try-with-resources guarantees. Closing a scope that is not the innermost one does nothing. Work
+ * handed to other threads carries the context along when wrapped with {@link ContextPropagation}.
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class Context {
+    private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Pushes key-value pairs onto the context of the current thread.
+     *
+     * @param key {@link String} key
+     * @param value {@link Object} value
+     * @return {@link Scope} popping the pairs once closed
+     */
+    public static Scope push(@NonNull String key, Object value) {
+        return push(new Object[]{key, value});
+    }
+
+    /**
+     * Pushes key-value pairs onto the context of the current thread.
+     *
+     * @param keyValues {@link Object}[] keys and values at alternate indices, not copied
+     * @return {@link Scope} popping the pairs once closed
+     */
+    public static Scope push(@NonNull Object...keyValues) {
+        Frame frame = new Frame(keyValues, CURRENT.get());
+        CURRENT.set(frame);
+        return frame;
+    }
+
+    /**
+     * Innermost frame of the current thread's context.
+     *
+     * @return {@link Frame} or null if nothing is pushed
+     */
+    static Frame current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes a captured frame the innermost one of the current thread's context, e.g. on a worker
+     * thread running a task submitted elsewhere.
+     *
+     * @param frame {@link Frame} captured with {@link #current()}, may be null
+     * @return {@link Frame} innermost frame in place before, to be passed to {@link #restore(Frame)}
+     */
+    static Frame attach(Frame frame) {
+        Frame previous = CURRENT.get();
+        CURRENT.set(frame);
+        return previous;
+    }
+
+    /**
+     * Restores the innermost frame in place before {@link #attach(Frame)}.
+     *
+     * @param previous {@link Frame} returned by {@link #attach(Frame)}
+     */
+    static void restore(Frame previous) {
+        CURRENT.set(previous);
+    }
+
+    /**
+     * Looks up the innermost value of a key in the current thread's context.
+     *
+     * @param key {@link String} key
+     * @return {@link Object} value or null if the key is not found
+     */
+    public static Object get(@NonNull String key) {
+        for (Frame frame = CURRENT.get(); frame != null; frame = frame.parent) {
+            Object value = Helpers.findValue(key, frame.keyValues);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pops the context pushed on opening once closed.
+     */
+    public interface Scope extends AutoCloseable {
+        /**
+         * Restores the context in place before the scope was opened.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Key-value pairs of one push, immutable once pushed.
+     */
+    static final class Frame implements Scope, LoggableObject {
+        private final Object[] keyValues;
+
+        private final Frame parent;
+
+        private Frame(Object[] keyValues, Frame parent) {
+            this.keyValues = keyValues;
+            this.parent = parent;
+        }
+
+        /**
+         * Frame below this one.
+         *
+         * @return {@link Frame} or null if this is the outermost one
+         */
+        Frame getParent() {
+            return parent;
+        }
+
+        /**
+         * Whether a key is hidden by a frame between this one, inclusive, and the passed one.
+         *
+         * @param outer {@link Frame} the key was pushed in
+         * @param key {@link Object} key
+         * @return boolean
+         */
+        boolean hides(Frame outer, Object key) {
+            for (Frame frame = this; frame != outer; frame = frame.parent) {
+                for (int i = 0; i < frame.keyValues.length; i = i + 2) {
+                    if (key.equals(frame.keyValues[i])) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Object[] loggableObject() {
+            return keyValues;
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent != null) {
+                    CURRENT.set(parent);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Carries the thread scoped {@link Context} over to the threads work is handed to.
+ *
+ * Wrapping a task captures a reference to the innermost, immutable, frame of the submitting thread's
+ * context; nothing is copied. Running it makes that frame the worker thread's context and restores the
+ * worker's own once the task is done, so the overhead is a couple of thread local reference writes per
+ * task. Wrapped executors wrap every task submitted to them at submission.
+ *
+ * <pre>
+ *      ExecutorService executor = ContextPropagation.wrap(Executors.newFixedThreadPool(8));
+ *      try (Context.Scope ignored = Context.push("orderId", orderId)) {
+ *          executor.submit(() -&gt; LOGGER.info("reserving stock"));           // logged with orderId
+ *          ContextPropagation.supplyAsync(() -&gt; pricing.quote(order), executor)
+ *                  .thenApplyAsync(quote -&gt; charge(quote), executor);        // so is every stage
+ *      }
+ * </pre>
+ *
+ * Dependent {@link CompletableFuture} stages run on the thread completing the stage they depend on, with
+ * its context, or on the executor they are given: async stages should be given a wrapped executor rather
+ * than default to the common pool. Subtasks forked within a {@link ForkJoinTask} should be wrapped with
+ * {@link #wrap(ForkJoinTask)} before being forked.
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+public class ContextPropagation {
+    /**
+     * Wraps a task to run with the context of the calling thread.
+     *
+     * @param task {@link Runnable}
+     * @return {@link Runnable}
+     */
+    public static Runnable wrap(@NonNull Runnable task) {
+        Context.Frame captured = Context.current();
+        return () -> {
+            Context.Frame previous = Context.attach(captured);
+            try {
+                task.run();
+            } finally {
+                Context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task to run with the context of the calling thread.
+     *
+     * @param task {@link Callable}
+     * @param <T> result type
+     * @return {@link Callable}
+     */
+    public static <T> Callable<T> wrap(@NonNull Callable<T> task) {
+        Context.Frame captured = Context.current();
+        return () -> {
+            Context.Frame previous = Context.attach(captured);
+            try {
+                return task.call();
+            } finally {
+                Context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a supplier to run with the context of the calling thread.
+     *
+     * @param supplier {@link Supplier}
+     * @param <T> result type
+     * @return {@link Supplier}
+     */
+    public static <T> Supplier<T> wrapSupplier(@NonNull Supplier<T> supplier) {
+        Context.Frame captured = Context.current();
+        return () -> {
+            Context.Frame previous = Context.attach(captured);
+            try {
+                return supplier.get();
+            } finally {
+                Context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a function to run with the context of the calling thread.
+     *
+     * @param function {@link Function}
+     * @param <T> argument type
+     * @param <R> result type
+     * @return {@link Function}
+     */
+    public static <T, R> Function<T, R> wrapFunction(@NonNull Function<T, R> function) {
+        Context.Frame captured = Context.current();
+        return argument -> {
+            Context.Frame previous = Context.attach(captured);
+            try {
+                return function.apply(argument);
+            } finally {
+                Context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a fork/join task to run with the context of the calling thread.
+     *
+     * @param task {@link ForkJoinTask}
+     * @param <T> result type
+     * @return {@link ForkJoinTask} to be forked or invoked instead of the task
+     */
+    public static <T> ForkJoinTask<T> wrap(@NonNull ForkJoinTask<T> task) {
+        return ForkJoinTask.adapt(wrap((Callable<T>) task::invoke));
+    }
+
+    /**
+     * Wraps an executor so that tasks run with the context of the thread submitting them.
+     *
+     * @param executor {@link Executor}
+     * @return {@link Executor}
+     */
+    public static Executor wrap(@NonNull Executor executor) {
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * Wraps an executor service so that tasks run with the context of the thread submitting them.
+     *
+     * @param executorService {@link ExecutorService}
+     * @return {@link ExecutorService}
+     */
+    public static ExecutorService wrap(@NonNull ExecutorService executorService) {
+        return executorService instanceof ContextExecutorService
+                ? executorService : new ContextExecutorService(executorService);
+    }
+
+    /**
+     * {@link CompletableFuture#supplyAsync(Supplier)} run with the context of the calling thread.
+     *
+     * @param supplier {@link Supplier}
+     * @param <T> result type
+     * @return {@link CompletableFuture}
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return supplyAsync(supplier, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * {@link CompletableFuture#supplyAsync(Supplier, Executor)} run with the context of the calling thread.
+     *
+     * @param supplier {@link Supplier}
+     * @param executor {@link Executor}
+     * @param <T> result type
+     * @return {@link CompletableFuture}
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(wrapSupplier(supplier), executor);
+    }
+
+    /**
+     * {@link CompletableFuture#runAsync(Runnable)} run with the context of the calling thread.
+     *
+     * @param task {@link Runnable}
+     * @return {@link CompletableFuture}
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return runAsync(task, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * {@link CompletableFuture#runAsync(Runnable, Executor)} run with the context of the calling thread.
+     *
+     * @param task {@link Runnable}
+     * @param executor {@link Executor}
+     * @return {@link CompletableFuture}
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrap(task), executor);
+    }
+
+    private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrapped.add(wrap(task));
+        }
+        return wrapped;
+    }
+
+    /**
+     * {@link ExecutorService} wrapping every task submitted to it.
+     */
+    private static final class ContextExecutorService implements ExecutorService {
+        private final ExecutorService delegate;
+
+        ContextExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrap(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.event.Level;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+/**
+ * Rules turning on debug logging for the loggers whose bound context matches them, e.g. a single
+ * tenant or request, without lowering the level of the slf4j backend for everyone else.
+ *
+ * Each rule is either `key=value` or `key in {value1, value2}` and a logger matches if any of the
+ * key-value pairs in its instance bound context matches any rule. Events of matching loggers below
+ * the configured levels are logged at {@link #getEmitLevel()}, INFO by default, so that the slf4j
+ * backend lets them through, with a `debugLevel` field holding the level they were logged at.
+ *
+ * The pairs of all rules are hashed into a 64 bit bloom filter up front so that most bound pairs are
+ * ruled out with a couple of bit operations, and loggers cache whether their bound context matches
+ * until either the context or the rules change. A debug call on a non matching logger thus costs about
+ * as much as the `isDebugEnabled()` check it replaces.
+ *
+ * <pre>
+ *      StructLoggerConfig.setDebugRules(DebugRules.builder()
+ *              .rule("tenantId in {acme, globex}")
+ *              .rule("traceId=4bf92f3577b34da6")
+ *              .level(Level.TRACE)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class DebugRules {
+    static final String DEBUG_LEVEL = "debugLevel";
+
+    private static final Pattern EQUALS_RULE = Pattern.compile("^\\s*([^\\s=]+)\\s*==?\\s*(.*?)\\s*$");
+
+    private static final Pattern IN_RULE = Pattern.compile("^\\s*(\\S+)\\s+in\\s*\\{(.*)\\}\\s*$");
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final Map<String, Set<String>> values = new HashMap<>();
+
+    private final long bloom;
+
+    /**
+     * Most verbose level logged for matching loggers, DEBUG by default.
+     */
+    @Getter
+    private final Level level;
+
+    /**
+     * Level events of matching loggers are written at if they would otherwise not be logged.
+     */
+    @Getter
+    private final Level emitLevel;
+
+    /**
+     * Constructor
+     *
+     * @param rules {@link List} rules, each `key=value` or `key in {value1, value2}`
+     * @param level {@link Level} most verbose level logged for matching loggers, DEBUG by default
+     * @param emitLevel {@link Level} level matching events are written at, INFO by default
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    @Builder
+    public DebugRules(@Singular List<String> rules, Level level, Level emitLevel) {
+        this.level = level != null ? level : Level.DEBUG;
+        this.emitLevel = emitLevel != null ? emitLevel : Level.INFO;
+        long filter = 0;
+        for (String rule : rules) {
+            Matcher in = IN_RULE.matcher(rule);
+            Matcher equals = EQUALS_RULE.matcher(rule);
+            if (in.matches()) {
+                for (String value : in.group(2).split(",")) {
+                    filter |= add(in.group(1), value.trim());
+                }
+            } else if (equals.matches() && !equals.group(2).isEmpty()) {
+                filter |= add(equals.group(1), equals.group(2));
+            } else {
+                throw new IllegalArgumentException(String.format("invalid debug rule `%s`.", rule));
+            }
+        }
+        this.bloom = filter;
+    }
+
+    private long add(String key, String value) {
+        values.computeIfAbsent(key, ignored -> new HashSet<>()).add(value);
+        return mask(key, value);
+    }
+
+    /**
+     * Rules for the pairs of each key.
+     *
+     * @return {@link Map} of keys to the values matching them
+     */
+    public Map<String, Set<String>> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Whether events at the passed level are logged for matching loggers.
+     *
+     * @param eventLevel {@link Level} of the event
+     * @return boolean
+     */
+    boolean enables(Level eventLevel) {
+        return eventLevel.toInt() >= level.toInt();
+    }
+
+    /**
+     * Whether any of the passed key-value pairs matches a rule.
+     *
+     * @param context {@link Object}[] key-value pairs at alternate indices
+     * @return boolean
+     */
+    boolean matches(Object[] context) {
+        for (int i = 0; i + 1 < context.length; i += 2) {
+            if (context[i] instanceof String && context[i + 1] != null) {
+                String key = (String) context[i];
+                String value = context[i + 1].toString();
+                long mask = mask(key, value);
+                if ((bloom & mask) == mask && values.getOrDefault(key, Collections.emptySet()).contains(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bloom filter bits of a pair: three of the 64 bits picked by a mixed hash of key and value.
+     */
+    private static long mask(String key, String value) {
+        long hash = (key.hashCode() * 31L + value.hashCode()) * GOLDEN_GAMMA;
+        hash ^= hash >>> 32;
+        return (1L << hash) | (1L << (hash >>> 6)) | (1L << (hash >>> 12));
+    }
+}
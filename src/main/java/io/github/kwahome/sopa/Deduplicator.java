@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import lombok.Builder;
+import lombok.Singular;
+
+/**
+ * Collapses bursts of identical log events into the first occurrence followed by a summary.
+ *
+ * Events are fingerprinted with a cheap 64 bit hash of the logger name, level, message and the
+ * values of the configured keys, looked up before the event is captured so that duplicates cost
+ * neither capturing nor rendering. Within a window the first occurrence of a fingerprint is logged
+ * and later ones are only counted; once the window is over a copy of the first occurrence is
+ * logged with a `repeatCount` field holding the number of duplicates dropped, also from a background
+ * thread if the event does not occur again.
+ *
+ * Fingerprints are held in a bounded table split into independently locked stripes, evicting the
+ * oldest fingerprint of a full stripe, so memory stays capped however many distinct events are seen.
+ *
+ * <pre>
+ *      StructLoggerConfig.setDeduplicator(Deduplicator.builder()
+ *              .windowMillis(1000)
+ *              .key("errorCode")
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class Deduplicator {
+    static final String REPEAT_COUNT = "repeatCount";
+
+    private static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final int STRIPES = 16;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long windowNanos;
+
+    private final String[] keys;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Constructor
+     *
+     * @param windowMillis long length of the window duplicates are counted in, 1000 by default
+     * @param keys {@link List} keys whose values are part of the fingerprint besides the message
+     * @param maxEntries int maximum number of fingerprints held, 4096 by default
+     */
+    @Builder
+    public Deduplicator(long windowMillis, @Singular List<String> keys, int maxEntries) {
+        long window = windowMillis > 0 ? windowMillis : DEFAULT_WINDOW_MILLIS;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        this.keys = keys.toArray(new String[0]);
+        int stripeCapacity = Math.max(1, (maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        BackgroundTasks.scheduleWeakly(this, window, Deduplicator::flushExpired);
+    }
+
+    /**
+     * Tracks an occurrence of an event, logging the summary of an earlier window of the same event
+     * if it is over.
+     *
+     * @param logger {@link StructLogger} logging the event
+     * @param level {@link Level} of the event
+     * @param message {@link String} message of the event
+     * @param values {@link Function} looking up the values of keys in the event
+     * @return {@link Entry} to record the captured event with if this is the first occurrence of
+     *         the window, null if it is a duplicate to drop
+     */
+    Entry track(StructLogger logger, Level level, String message, Function<String, Object> values) {
+        long fingerprint = fingerprint(logger.getName(), level, message, values);
+        long now = System.nanoTime();
+        Stripe stripe = stripes[(int) (fingerprint >>> 60)];
+        Entry expired;
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.get(fingerprint);
+            if (entry != null && now - entry.windowStart < windowNanos) {
+                entry.repeats++;
+                return null;
+            }
+            expired = entry != null ? entry : stripe.evictEldestIfFull();
+            entry = new Entry(logger, now);
+            stripe.put(fingerprint, entry);
+        }
+        if (expired != null) {
+            expired.logSummary();
+        }
+        return entry;
+    }
+
+    private long fingerprint(String loggerName, Level level, String message, Function<String, Object> values) {
+        long hash = mix(loggerName.hashCode(), level.ordinal());
+        hash = mix(hash, message.hashCode());
+        for (String key : keys) {
+            Object value = values.apply(key);
+            hash = mix(hash, value == null ? 0 : value.toString().hashCode());
+        }
+        // spread the bits so that the top bits select the stripe evenly
+        hash ^= hash >>> 31;
+        hash *= GOLDEN_GAMMA;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * GOLDEN_GAMMA;
+    }
+
+    /**
+     * Logs the summaries of the windows that are over, so that a burst is summarised even if the
+     * event does not occur again.
+     */
+    void flushExpired() {
+        long now = System.nanoTime();
+        List<Entry> expired = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Entry> entries = stripe.iterator();
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (now - entry.windowStart >= windowNanos) {
+                        entries.remove();
+                        expired.add(entry);
+                    }
+                }
+            }
+        }
+        expired.forEach(Entry::logSummary);
+    }
+
+    /**
+     * Fingerprints of a stripe, oldest first.
+     */
+    private static final class Stripe {
+        private final int capacity;
+
+        private final LinkedHashMap<Long, Entry> entries;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(capacity * 2);
+        }
+
+        Entry get(long fingerprint) {
+            return entries.get(fingerprint);
+        }
+
+        void put(long fingerprint, Entry entry) {
+            // re-insert to move a renewed fingerprint to the end of the eviction order
+            entries.remove(fingerprint);
+            entries.put(fingerprint, entry);
+        }
+
+        Iterator<Entry> iterator() {
+            return entries.values().iterator();
+        }
+
+        Entry evictEldestIfFull() {
+            if (entries.size() < capacity) {
+                return null;
+            }
+            Iterator<Entry> iterator = iterator();
+            Entry eldest = iterator.next();
+            iterator.remove();
+            return eldest;
+        }
+    }
+
+    /**
+     * A window of an event: its first occurrence and the number of duplicates dropped since.
+     */
+    static final class Entry {
+        private final StructLogger logger;
+
+        private final long windowStart;
+
+        private volatile LogEvent event;
+
+        // guarded by the stripe lock
+        private int repeats;
+
+        Entry(StructLogger logger, long windowStart) {
+            this.logger = logger;
+            this.windowStart = windowStart;
+        }
+
+        void setEvent(LogEvent event) {
+            this.event = event;
+        }
+
+        private void logSummary() {
+            // only called once the entry has been removed from its stripe under the stripe lock,
+            // thus repeats is final by now and visible to this thread
+            LogEvent firstEvent = event;
+            if (repeats > 0 && firstEvent != null) {
+                logger.dispatch(firstEvent.copy().add(REPEAT_COUNT, repeats));
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Encodes logged exceptions into structured fields instead of handing them to the slf4j backend,
+ * which prints their stack traces over many unstructured lines.
+ *
+ * An exception is logged as:
+ *
+ * <pre>
+ *      exceptionClass        class name of the exception
+ *      exceptionMessage      its message, if any
+ *      exceptionCauses       `class: message` of each cause, outermost first, up to {@link #getMaxCauses()}
+ *      exceptionFrames       its stack frames, innermost first, up to {@link #getMaxFrames()} followed by
+ *                            `... n more` when there are more
+ *      exceptionCauseFrames  the stack frames of its causes and suppressed exceptions as
+ *                            {@link Throwable#printStackTrace()} prints them: a `Caused by: class: message` or
+ *                            `Suppressed: class: message` line each followed by its frames, up to
+ *                            {@link #getMaxFrames()} and leaving out those in common with the enclosing exception
+ * </pre>
+ *
+ * alongside the `errorMessage` of the root cause and an `errorFingerprint`, a hash of the exception
+ * class and its frames, and of the class and top frames of each cause, that stays the same for every
+ * exception thrown from the same place for the same cause. Causes and
+ * frames are lists which renderers write as arrays where the format has them. Rendered frames are
+ * cached since the same frames show up in exception after exception, and a cause chain looping back
+ * onto itself is cut at the first repeat.
+ *
+ * During an outage the same exception can be logged tens of thousands of times. With
+ * {@link #isDeduplicate()} the causes and frames are only logged the first time a fingerprint is seen,
+ * or the first time in every {@link #getWindowMillis()} if set, and later occurrences carry the
+ * `errorFingerprint` to look the trace up by and an `errorCount` holding the number of occurrences so
+ * far in the window. Seen fingerprints are kept in a bounded cache, least recently seen evicted first.
+ *
+ * <pre>
+ *      StructLoggerConfig.setExceptionEncoder(ExceptionEncoder.builder()
+ *              .maxFrames(20)
+ *              .maxCauses(5)
+ *              .deduplicate(true)
+ *              .windowMillis(60_000)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class ExceptionEncoder {
+    static final String EXCEPTION_CLASS = "exceptionClass";
+
+    static final String EXCEPTION_MESSAGE = "exceptionMessage";
+
+    static final String EXCEPTION_CAUSES = "exceptionCauses";
+
+    static final String EXCEPTION_FRAMES = "exceptionFrames";
+
+    static final String EXCEPTION_CAUSE_FRAMES = "exceptionCauseFrames";
+
+    private static final String CAUSED_BY = "Caused by: ";
+
+    private static final String SUPPRESSED = "Suppressed: ";
+
+    static final String ERROR_FINGERPRINT = "errorFingerprint";
+
+    static final String ERROR_COUNT = "errorCount";
+
+    private static final int DEFAULT_MAX_FRAMES = 32;
+
+    private static final int DEFAULT_MAX_CAUSES = 8;
+
+    private static final int MAX_CACHED_FRAMES = 4096;
+
+    private static final int DEFAULT_MAX_FINGERPRINTS = 1024;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int FINGERPRINTED_CAUSE_FRAMES = 5;
+
+    /**
+     * Most stack frames logged per exception.
+     */
+    @Getter
+    private final int maxFrames;
+
+    /**
+     * Most causes logged per exception, suppressed exceptions counting towards it in the cause frames.
+     */
+    @Getter
+    private final int maxCauses;
+
+    /**
+     * Whether causes and frames are only logged for the first occurrence of a fingerprint.
+     */
+    @Getter
+    private final boolean deduplicate;
+
+    /**
+     * Milliseconds after which the causes and frames of a fingerprint are logged again, 0 for never.
+     */
+    @Getter
+    private final long windowMillis;
+
+    private final Map<StackTraceElement, String> renderedFrames = new ConcurrentHashMap<>();
+
+    private final Map<Long, Occurrences> fingerprints;
+
+    /**
+     * Constructor
+     *
+     * @param maxFrames int most stack frames logged per exception, 32 by default
+     * @param maxCauses int most causes logged per exception, 8 by default
+     * @param deduplicate boolean whether causes and frames are only logged for the first occurrence of a fingerprint
+     * @param windowMillis long milliseconds after which they are logged again, 0 for never
+     * @param maxFingerprints int most fingerprints remembered, 1024 by default
+     */
+    @Builder
+    public ExceptionEncoder(int maxFrames, int maxCauses, boolean deduplicate, long windowMillis, int maxFingerprints) {
+        this.maxFrames = maxFrames > 0 ? maxFrames : DEFAULT_MAX_FRAMES;
+        this.maxCauses = maxCauses > 0 ? maxCauses : DEFAULT_MAX_CAUSES;
+        this.deduplicate = deduplicate;
+        this.windowMillis = windowMillis;
+        int capacity = maxFingerprints > 0 ? maxFingerprints : DEFAULT_MAX_FINGERPRINTS;
+        this.fingerprints = Collections.synchronizedMap(new LinkedHashMap<Long, Occurrences>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Occurrences> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Adds the fields of an exception to an event.
+     *
+     * @param throwable {@link Throwable}
+     * @param event {@link LogEvent}
+     * @param redactor {@link Redactor} masking the messages, may be null
+     */
+    void encode(Throwable throwable, LogEvent event, Redactor redactor) {
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        long fingerprint = fingerprint(throwable, stackTrace);
+        event.add(EXCEPTION_CLASS, throwable.getClass().getName());
+        if (throwable.getMessage() != null) {
+            event.add(EXCEPTION_MESSAGE, redactor == null ? throwable.getMessage()
+                    : redactor.redact(EXCEPTION_MESSAGE, throwable.getMessage()));
+        }
+        event.add(ERROR_FINGERPRINT, String.format("%016x", fingerprint));
+        long count = deduplicate ? occurrence(fingerprint) : 1;
+        if (count > 1) {
+            event.add(ERROR_COUNT, count);
+            return;
+        }
+        List<String> causes = causes(throwable);
+        if (!causes.isEmpty()) {
+            event.add(EXCEPTION_CAUSES, redactor == null ? causes
+                    : causes.stream().map(redactor::redactValue).collect(Collectors.toList()));
+        }
+        event.add(EXCEPTION_FRAMES, frames(stackTrace));
+        List<String> causeFrames = causeFrames(throwable, stackTrace, redactor);
+        if (!causeFrames.isEmpty()) {
+            event.add(EXCEPTION_CAUSE_FRAMES, causeFrames);
+        }
+    }
+
+    /**
+     * Hashes the class and stack frames of an exception, and the class and top frames of each of its
+     * causes so that a wrapper thrown from one place for different failures, e.g. a service exception
+     * wrapping both timeouts and constraint violations, does not share one fingerprint.
+     *
+     * @param throwable {@link Throwable}
+     * @param stackTrace {@link StackTraceElement}[] its frames
+     * @return long fingerprint, the same for exceptions of the class thrown from the same place for the same cause
+     */
+    static long fingerprint(Throwable throwable, StackTraceElement[] stackTrace) {
+        long hash = mix(0xcbf29ce484222325L, throwable.getClass().getName().hashCode());
+        for (StackTraceElement frame : stackTrace) {
+            hash = mix(hash, frame.hashCode());
+        }
+        // bounded rather than tracking the causes seen, which also stops at a chain looping back onto itself
+        Throwable cause = throwable.getCause();
+        for (int i = 0; cause != null && cause != throwable && i < DEFAULT_MAX_CAUSES; i++) {
+            hash = mix(hash, cause.getClass().getName().hashCode());
+            StackTraceElement[] causeTrace = cause.getStackTrace();
+            for (int j = 0; j < Math.min(causeTrace.length, FINGERPRINTED_CAUSE_FRAMES); j++) {
+                hash = mix(hash, causeTrace[j].hashCode());
+            }
+            cause = cause.getCause();
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ (value & 0xffffffffL)) * FNV_PRIME;
+    }
+
+    /**
+     * Counts an occurrence of a fingerprint.
+     *
+     * @param fingerprint long
+     * @return long number of occurrences in the current window, 1 if its trace is to be logged
+     */
+    private long occurrence(long fingerprint) {
+        long now = System.currentTimeMillis();
+        Occurrences occurrences = fingerprints.get(fingerprint);
+        if (occurrences == null) {
+            occurrences = new Occurrences(now);
+            Occurrences existing = fingerprints.putIfAbsent(fingerprint, occurrences);
+            if (existing == null) {
+                return 1;
+            }
+            occurrences = existing;
+        }
+        return occurrences.next(now, windowMillis);
+    }
+
+    /**
+     * Describes the causes of an exception.
+     *
+     * @param throwable {@link Throwable}
+     * @return {@link List} of `class: message` of each cause, outermost first
+     */
+    List<String> causes(Throwable throwable) {
+        if (throwable.getCause() == null) {
+            return Collections.emptyList();
+        }
+        List<String> causes = new ArrayList<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(throwable);
+        for (Throwable cause = throwable.getCause(); cause != null; cause = cause.getCause()) {
+            if (!seen.add(cause)) {
+                causes.add("[circular reference: " + describe(cause) + "]");
+                break;
+            }
+            if (causes.size() == maxCauses) {
+                causes.add("...");
+                break;
+            }
+            causes.add(describe(cause));
+        }
+        return Collections.unmodifiableList(causes);
+    }
+
+    /**
+     * Renders the stack frames of the causes and suppressed exceptions of an exception.
+     *
+     * @param throwable {@link Throwable}
+     * @param stackTrace {@link StackTraceElement}[] its frames
+     * @param redactor {@link Redactor} masking the messages, may be null
+     * @return {@link List} of a `Caused by: ` or `Suppressed: ` line per exception followed by its frames
+     */
+    List<String> causeFrames(Throwable throwable, StackTraceElement[] stackTrace, Redactor redactor) {
+        if (throwable.getCause() == null && throwable.getSuppressed().length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> lines = new ArrayList<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(throwable);
+        addEnclosed(throwable, stackTrace, lines, seen, redactor, maxCauses);
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Adds the suppressed exceptions and the cause of an exception, each followed by its own.
+     *
+     * @return int how many more exceptions may be added, negative once the limit was reached
+     */
+    private int addEnclosed(Throwable throwable, StackTraceElement[] stackTrace, List<String> lines,
+                            Set<Throwable> seen, Redactor redactor, int remaining) {
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            remaining = addTrace(SUPPRESSED, suppressed, stackTrace, lines, seen, redactor, remaining);
+        }
+        if (throwable.getCause() != null) {
+            remaining = addTrace(CAUSED_BY, throwable.getCause(), stackTrace, lines, seen, redactor, remaining);
+        }
+        return remaining;
+    }
+
+    private int addTrace(String caption, Throwable throwable, StackTraceElement[] enclosing, List<String> lines,
+                         Set<Throwable> seen, Redactor redactor, int remaining) {
+        if (remaining <= 0) {
+            if (remaining == 0) {
+                lines.add("...");
+            }
+            return -1;
+        }
+        String description = redactor == null ? describe(throwable) : redactor.redactValue(describe(throwable));
+        if (!seen.add(throwable)) {
+            lines.add(caption + "[circular reference: " + description + "]");
+            return remaining;
+        }
+        lines.add(caption + description);
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        int own = stackTrace.length;
+        for (int i = enclosing.length - 1; own > 0 && i >= 0 && stackTrace[own - 1].equals(enclosing[i]); i--) {
+            own--;
+        }
+        int logged = Math.min(own, maxFrames);
+        for (int i = 0; i < logged; i++) {
+            lines.add(render(stackTrace[i]));
+        }
+        if (stackTrace.length > logged) {
+            lines.add("... " + (stackTrace.length - logged) + " more");
+        }
+        return addEnclosed(throwable, stackTrace, lines, seen, redactor, remaining - 1);
+    }
+
+    /**
+     * Renders the stack frames of an exception.
+     *
+     * @param throwable {@link Throwable}
+     * @return {@link List} of frames, innermost first
+     */
+    List<String> frames(Throwable throwable) {
+        return frames(throwable.getStackTrace());
+    }
+
+    private List<String> frames(StackTraceElement[] stackTrace) {
+        int logged = Math.min(stackTrace.length, maxFrames);
+        List<String> frames = new ArrayList<>(logged + 1);
+        for (int i = 0; i < logged; i++) {
+            frames.add(render(stackTrace[i]));
+        }
+        if (stackTrace.length > logged) {
+            frames.add("... " + (stackTrace.length - logged) + " more");
+        }
+        return Collections.unmodifiableList(frames);
+    }
+
+    private String render(StackTraceElement frame) {
+        String rendered = renderedFrames.get(frame);
+        if (rendered == null) {
+            rendered = frame.toString();
+            // bounded, frames beyond the limit are rendered every time
+            if (renderedFrames.size() < MAX_CACHED_FRAMES) {
+                renderedFrames.putIfAbsent(frame, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    private static String describe(Throwable throwable) {
+        String message = throwable.getMessage();
+        return message == null ? throwable.getClass().getName() : throwable.getClass().getName() + ": " + message;
+    }
+
+    /**
+     * Occurrences of a fingerprint in its current window.
+     */
+    private static final class Occurrences {
+        private long windowStart;
+
+        private long count = 1;
+
+        Occurrences(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        synchronized long next(long now, long windowMillis) {
+            if (windowMillis > 0 && now - windowStart >= windowMillis) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Tracks the cardinality and byte cost of each logged key, to find the fields quietly blowing up
+ * indexing costs without analysing the logs offline.
+ *
+ * Every key-value pair added to an event is counted against its key: the number of occurrences, the
+ * UTF-8 bytes of the key and its rendered, redacted, value, and the number of distinct values, estimated
+ * with a HyperLogLog sketch of 2^{@link #getPrecision()} one byte registers per key, about
+ * 1.04/sqrt(2^precision) off, e.g. 2.3% in 2KB at the default precision of 11. Values are hashed from
+ * their cached {@link String#hashCode()}, so the estimate loses accuracy beyond a few hundred million
+ * distinct values. Keys are held in a bounded map; once it is full, new keys are counted together under
+ * `&lt;other&gt;`.
+ *
+ * A key is flagged, with an internal warning logged once, the first time its estimated cardinality
+ * crosses {@link #getCardinalityThreshold()} or one of its values is longer than
+ * {@link #getValueBytesThreshold()} bytes. {@link #getReport()} lists the keys, most bytes first.
+ *
+ * <pre>
+ *      StructLoggerConfig.setFieldAnalyzer(FieldAnalyzer.builder()
+ *              .cardinalityThreshold(10_000)
+ *              .valueBytesThreshold(4096)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class FieldAnalyzer {
+    static final String OTHER_KEYS = "<other>";
+
+    private static final int DEFAULT_PRECISION = 11;
+
+    private static final int MIN_PRECISION = 4;
+
+    private static final int MAX_PRECISION = 16;
+
+    private static final int DEFAULT_MAX_KEYS = 256;
+
+    /**
+     * Number of HyperLogLog registers per key is 2^precision.
+     */
+    @Getter
+    private final int precision;
+
+    /**
+     * Most keys tracked separately.
+     */
+    @Getter
+    private final int maxKeys;
+
+    /**
+     * Estimated number of distinct values above which a key is flagged, 0 for none.
+     */
+    @Getter
+    private final long cardinalityThreshold;
+
+    /**
+     * Bytes above which a value gets its key flagged, 0 for none.
+     */
+    @Getter
+    private final int valueBytesThreshold;
+
+    private final ConcurrentMap<String, Field> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param precision int number of registers per key is 2^precision, between 4 and 16, 11 by default
+     * @param maxKeys int most keys tracked separately, 256 by default
+     * @param cardinalityThreshold long distinct values above which a key is flagged, 0 for none
+     * @param valueBytesThreshold int bytes above which a value gets its key flagged, 0 for none
+     */
+    @Builder
+    public FieldAnalyzer(int precision, int maxKeys, long cardinalityThreshold, int valueBytesThreshold) {
+        if (precision != 0 && (precision < MIN_PRECISION || precision > MAX_PRECISION)) {
+            throw new IllegalArgumentException(String.format("precision must be between %s and %s.", MIN_PRECISION,
+                    MAX_PRECISION));
+        }
+        this.precision = precision != 0 ? precision : DEFAULT_PRECISION;
+        this.maxKeys = maxKeys > 0 ? maxKeys : DEFAULT_MAX_KEYS;
+        this.cardinalityThreshold = cardinalityThreshold;
+        this.valueBytesThreshold = valueBytesThreshold;
+    }
+
+    /**
+     * Counts a key-value pair added to an event.
+     *
+     * @param key {@link String} key
+     * @param value {@link String} rendered value, may be null
+     * @return boolean true if the key crossed a threshold for the first time
+     */
+    boolean record(String key, String value) {
+        Field field = fields.get(key);
+        if (field == null) {
+            field = fields.computeIfAbsent(fields.size() < maxKeys ? key : OTHER_KEYS, ignored -> new Field(precision));
+        }
+        String recorded = value == null ? "null" : value;
+        int valueBytes = RenderedMessage.utf8Length(recorded);
+        field.occurrences.increment();
+        field.bytes.add(RenderedMessage.utf8Length(key) + valueBytes);
+        boolean raised = field.offer(mix(recorded.hashCode()));
+        if (field.flagged.get()) {
+            return false;
+        }
+        // the estimate only grows when a register is raised
+        boolean crossed = valueBytesThreshold > 0 && valueBytes > valueBytesThreshold
+                || cardinalityThreshold > 0 && raised && field.estimate() > cardinalityThreshold;
+        return crossed && field.flagged.compareAndSet(false, true);
+    }
+
+    /**
+     * Tracked keys, most bytes first.
+     *
+     * @return {@link List} of {@link FieldStats}
+     */
+    public List<FieldStats> getReport() {
+        List<FieldStats> report = new ArrayList<>(fields.size());
+        fields.forEach((key, field) -> report.add(stats(key, field)));
+        report.sort(Comparator.comparingLong(FieldStats::getBytes).reversed());
+        return report;
+    }
+
+    /**
+     * Cardinality and byte cost of a key.
+     *
+     * @param key {@link String} key
+     * @return {@link FieldStats} of the key, of `&lt;other&gt;` if not tracked separately, or null if never logged
+     */
+    public FieldStats getStats(String key) {
+        Field field = fields.get(key);
+        if (field == null) {
+            field = fields.get(OTHER_KEYS);
+            return field == null ? null : stats(OTHER_KEYS, field);
+        }
+        return stats(key, field);
+    }
+
+    /**
+     * Forgets the keys tracked so far.
+     */
+    public void reset() {
+        fields.clear();
+    }
+
+    private static FieldStats stats(String key, Field field) {
+        return new FieldStats(key, field.occurrences.sum(), field.estimate(), field.bytes.sum(), field.flagged.get());
+    }
+
+    /**
+     * Spreads the bits of a 32 bit hash code over 64 bits, the MurmurHash3 finalizer.
+     */
+    private static long mix(int hashCode) {
+        long hash = hashCode * 0x9e3779b97f4a7c15L;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Cardinality and byte cost of a key.
+     */
+    @Getter
+    public static final class FieldStats {
+        /**
+         * Key, `&lt;other&gt;` for the keys beyond the most tracked.
+         */
+        private final String key;
+
+        /**
+         * Times the key was logged.
+         */
+        private final long occurrences;
+
+        /**
+         * Estimated number of distinct values.
+         */
+        private final long cardinality;
+
+        /**
+         * UTF-8 bytes of the key and its values over all occurrences.
+         */
+        private final long bytes;
+
+        /**
+         * Whether the key crossed a threshold.
+         */
+        private final boolean flagged;
+
+        private FieldStats(String key, long occurrences, long cardinality, long bytes, boolean flagged) {
+            this.key = key;
+            this.occurrences = occurrences;
+            this.cardinality = cardinality;
+            this.bytes = bytes;
+            this.flagged = flagged;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: occurrences=%s, cardinality=%s, bytes=%s%s", key, occurrences, cardinality,
+                    bytes, flagged ? ", flagged" : "");
+        }
+    }
+
+    /**
+     * HyperLogLog sketch and counters of a key.
+     *
+     * Registers only ever grow and most values offered after the first few thousand do not raise any, so
+     * they are read without locking and only locked to be raised. The harmonic sum of the registers and
+     * the number of zero registers are kept up to date as they are raised, making an estimate O(1).
+     */
+    private static final class Field {
+        private final int precision;
+
+        private final byte[] registers;
+
+        private final LongAdder occurrences = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private final AtomicBoolean flagged = new AtomicBoolean();
+
+        private final double alpha;
+
+        private double inverseSum;
+
+        private int zeros;
+
+        Field(int precision) {
+            this.precision = precision;
+            this.registers = new byte[1 << precision];
+            int m = registers.length;
+            this.alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+            this.inverseSum = m;
+            this.zeros = m;
+        }
+
+        boolean offer(long hash) {
+            int index = (int) (hash >>> (Long.SIZE - precision));
+            int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+            return rank > registers[index] && raise(index, rank);
+        }
+
+        private synchronized boolean raise(int index, int rank) {
+            int current = registers[index];
+            if (rank <= current) {
+                return false;
+            }
+            inverseSum += Math.scalb(1d, -rank) - Math.scalb(1d, -current);
+            if (current == 0) {
+                zeros--;
+            }
+            registers[index] = (byte) rank;
+            return true;
+        }
+
+        synchronized long estimate() {
+            int m = registers.length;
+            double estimate = alpha * m * m / inverseSum;
+            if (estimate <= 2.5 * m && zeros > 0) {
+                // linear counting is more accurate while many registers are still empty
+                estimate = m * Math.log((double) m / zeros);
+            }
+            return Math.round(estimate);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Keeps the most recent events that were not logged because of their level, e.g. DEBUG in
+ * production, in a ring buffer per thread and logs them only when an ERROR is logged on the same
+ * thread, so that errors come with the context that led up to them.
+ *
+ * Recording an event only stores references to its logger, message, params and bound and scoped context in a
+ * preallocated slot of the thread's buffer: nothing is captured, rendered or allocated until the
+ * buffer is dumped. Once full, the oldest events are overwritten so memory stays bounded per thread.
+ *
+ * Dumped events are written at {@link #getEmitLevel()}, INFO by default, ahead of the error, with a
+ * `debugLevel` field holding the level they were logged at and a `recordedAt` field holding the epoch
+ * milliseconds they were logged at. Pooled threads should call {@link #clear()} once a unit of work is
+ * done so that a later error is not preceded by the events of an unrelated one.
+ *
+ * <pre>
+ *      StructLoggerConfig.setFlightRecorder(FlightRecorder.builder()
+ *              .capacity(256)
+ *              .level(Level.DEBUG)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class FlightRecorder {
+    static final String RECORDED_AT = "recordedAt";
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Number of events kept per thread.
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * Most verbose level recorded, TRACE by default.
+     */
+    @Getter
+    private final Level level;
+
+    /**
+     * Level dumped events are written at.
+     */
+    @Getter
+    private final Level emitLevel;
+
+    private final long maxAgeMillis;
+
+    private final ThreadLocal<Ring> rings;
+
+    /**
+     * Constructor
+     *
+     * @param capacity int number of events kept per thread, 256 by default
+     * @param level {@link Level} most verbose level recorded, TRACE by default
+     * @param emitLevel {@link Level} level dumped events are written at, INFO by default
+     * @param maxAgeMillis long age beyond which recorded events are not dumped, 0 for no limit
+     */
+    @Builder
+    public FlightRecorder(int capacity, Level level, Level emitLevel, long maxAgeMillis) {
+        this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+        this.level = level != null ? level : Level.TRACE;
+        this.emitLevel = emitLevel != null ? emitLevel : Level.INFO;
+        this.maxAgeMillis = maxAgeMillis;
+        this.rings = ThreadLocal.withInitial(() -> new Ring(this.capacity));
+    }
+
+    /**
+     * Records an event that is not logged because of its level.
+     *
+     * @param logger {@link StructLogger} logging the event
+     * @param eventLevel {@link Level} of the event
+     * @param message {@link String} message of the event
+     * @param boundContext {@link LoggableObject} instance bound context at the time of the call
+     * @param scopedContext {@link Context.Frame} thread scoped context at the time of the call
+     * @param params {@link Object}[] params of the event, not copied
+     */
+    void record(StructLogger logger, Level eventLevel, String message, LoggableObject boundContext,
+                Context.Frame scopedContext, Object[] params) {
+        if (eventLevel.toInt() < level.toInt()) {
+            return;
+        }
+        Ring ring = rings.get();
+        Slot slot = ring.slots[ring.next];
+        slot.logger = logger;
+        slot.level = eventLevel;
+        slot.message = message;
+        slot.boundContext = boundContext;
+        slot.scopedContext = scopedContext;
+        slot.params = params;
+        slot.recordedAt = System.currentTimeMillis();
+        ring.next = (ring.next + 1) % capacity;
+        ring.size = Math.min(ring.size + 1, capacity);
+    }
+
+    /**
+     * Logs the events recorded on the current thread, oldest first, and empties its buffer.
+     */
+    void dump() {
+        Ring ring = rings.get();
+        long oldest = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : Long.MIN_VALUE;
+        int first = (ring.next - ring.size + capacity) % capacity;
+        for (int i = 0; i < ring.size; i++) {
+            Slot slot = ring.slots[(first + i) % capacity];
+            if (slot.recordedAt >= oldest) {
+                slot.logger.replay(slot.level, emitLevel, slot.message, slot.boundContext, slot.scopedContext,
+                        slot.params, slot.recordedAt);
+            }
+            slot.clear();
+        }
+        ring.size = 0;
+    }
+
+    /**
+     * Drops the events recorded on the current thread e.g. once a request has been handled.
+     */
+    public void clear() {
+        Ring ring = rings.get();
+        for (Slot slot : ring.slots) {
+            slot.clear();
+        }
+        ring.size = 0;
+    }
+
+    /**
+     * Events recorded on a thread.
+     */
+    private static final class Ring {
+        private final Slot[] slots;
+
+        private int next;
+
+        private int size;
+
+        Ring(int capacity) {
+            slots = new Slot[capacity];
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Slot();
+            }
+        }
+    }
+
+    /**
+     * A recorded event, reused once overwritten.
+     */
+    private static final class Slot {
+        private StructLogger logger;
+
+        private Level level;
+
+        private String message;
+
+        private LoggableObject boundContext;
+
+        private Context.Frame scopedContext;
+
+        private Object[] params;
+
+        private long recordedAt;
+
+        void clear() {
+            logger = null;
+            message = null;
+            boundContext = null;
+            scopedContext = null;
+            params = null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+
+/**
+ * A log event captured once from the params passed to a {@link StructLogger} call.
+ *
+ * Holds the message and the ordered, validated key-value pairs from the call params, the
+ * instance bound context and the global context so that the event can be rendered by any
+ * number of {@link LogRenderer}s without parsing the params again.
+ *
+ * @author Kelvin Wahome
+ */
+public final class LogEvent {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Level level;
+
+    private final String message;
+
+    private Throwable throwable;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int size;
+
+    private boolean traced;
+
+    private long renderNanos;
+
+    private long outputBytes;
+
+    /**
+     * Constructor
+     *
+     * @param level {@link Level}
+     * @param message {@link String} log message
+     */
+    public LogEvent(Level level, String message) {
+        this.level = level;
+        this.message = message;
+    }
+
+    /**
+     * Copy of the event that can be appended to without affecting this one.
+     *
+     * @return {@link LogEvent}
+     */
+    public LogEvent copy() {
+        LogEvent copy = new LogEvent(level, message);
+        copy.throwable = throwable;
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.values = Arrays.copyOf(values, values.length);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Appends a key-value pair to the event.
+     *
+     * @param key {@link String} key
+     * @param value {@link Object} value
+     * @return {@link LogEvent}
+     */
+    public LogEvent add(String key, Object value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    /**
+     * Whether a key-value pair with the key has been added.
+     *
+     * @param key {@link String} key
+     * @return boolean
+     */
+    boolean containsKey(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Feeds the event to a {@link LogRenderer} and returns the formatted log message.
+     *
+     * @param logRenderer {@link LogRenderer}
+     * @param logger {@link Logger} passed on to the renderer for internal error reporting
+     * @return {@link String}
+     */
+    public String render(LogRenderer<Object> logRenderer, Logger logger) {
+        long start = traced ? System.nanoTime() : 0;
+        Object builderObject = logRenderer.start(logger);
+        logRenderer.addMessage(logger, builderObject, message);
+        for (int i = 0; i < size; i++) {
+            logRenderer.addKeyValue(logger, builderObject, keys[i], values[i]);
+        }
+        if (!traced) {
+            return logRenderer.end(logger, builderObject);
+        }
+        StageTracer tracer = StageTracer.getInstance();
+        start = tracer.lap(StageTracer.Stage.RENDER, start);
+        String rendered = logRenderer.end(logger, builderObject);
+        tracer.lap(StageTracer.Stage.END, start);
+        return rendered;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    void setThrowable(Throwable throwable) {
+        this.throwable = throwable;
+    }
+
+    /**
+     * Whether the stages of the event are traced by the {@link StageTracer}.
+     *
+     * @return boolean
+     */
+    boolean isTraced() {
+        return traced;
+    }
+
+    void setTraced(boolean traced) {
+        this.traced = traced;
+    }
+
+    /**
+     * Nanoseconds spent rendering the event, summed over renderers, if measured.
+     *
+     * @return long
+     */
+    long getRenderNanos() {
+        return renderNanos;
+    }
+
+    void addRenderNanos(long nanos) {
+        renderNanos += nanos;
+    }
+
+    /**
+     * UTF-8 bytes of the rendered event handed to sinks, summed over sinks, if measured.
+     *
+     * @return long
+     */
+    long getOutputBytes() {
+        return outputBytes;
+    }
+
+    void addOutputBytes(long bytes) {
+        outputBytes += bytes;
+    }
+
+    /**
+     * Number of key-value pairs in the event.
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Key at the passed index.
+     *
+     * @param index int
+     * @return {@link String}
+     */
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Value at the passed index.
+     *
+     * @param index int
+     * @return {@link Object}
+     */
+    public Object getValue(int index) {
+        return values[index];
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values, e.g. latencies in nanoseconds, with log-linear
+ * buckets: every power of two is split into 8 linear sub-buckets so values are kept to within 12.5%
+ * across the whole long range in under 500 counters.
+ *
+ * Recording a value is an array index computation and a couple of atomic increments, so it can be
+ * done on every logged event. Reads are not atomic snapshots but are consistent enough for
+ * monitoring.
+ *
+ * @author Kelvin Wahome
+ */
+public final class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     *
+     * @param value long
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        counts.incrementAndGet(bucket(recorded));
+        count.increment();
+        sum.add(recorded);
+        long currentMax = max.get();
+        while (recorded > currentMax && !max.compareAndSet(currentMax, recorded)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram, e.g. to merge histograms recorded per thread
+     * without contending on one.
+     *
+     * @param other {@link LogHistogram}
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long otherCount = other.counts.get(i);
+            if (otherCount > 0) {
+                counts.addAndGet(i, otherCount);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long otherMax = other.max.get();
+        long currentMax = max.get();
+        while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Number of values recorded.
+     *
+     * @return long
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Sum of the values recorded.
+     *
+     * @return long
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Mean of the values recorded.
+     *
+     * @return double, 0 if none were recorded
+     */
+    public double getMean() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : (double) sum.sum() / recorded;
+    }
+
+    /**
+     * Largest value recorded.
+     *
+     * @return long
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Value below which a share of the recorded values fall, to within the bucket precision.
+     *
+     * @param percentile double between 0 and 100
+     * @return long, 0 if none were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
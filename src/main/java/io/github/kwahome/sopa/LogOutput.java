@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSink;
+
+/**
+ * A {@link LogRenderer} and all the {@link LogSink}s it feeds.
+ *
+ * An event is only rendered if at least one of the sinks accepts its level and the rendered
+ * message is then shared by all of them.
+ *
+ * @author Kelvin Wahome
+ */
+final class LogOutput {
+    private final LogRenderer<Object> logRenderer;
+
+    private final LogSink[] logSinks;
+
+    /**
+     * Constructor
+     *
+     * @param logRenderer {@link LogRenderer}
+     * @param logSinks {@link LogSink}s sharing the renderer
+     */
+    LogOutput(LogRenderer<Object> logRenderer, List<LogSink> logSinks) {
+        this.logRenderer = logRenderer;
+        this.logSinks = logSinks.toArray(new LogSink[0]);
+    }
+
+    /**
+     * Renders the event, if any sink accepts it, and writes it to the accepting sinks.
+     *
+     * @param logger {@link Logger} of the {@link StructLogger} emitting the event
+     * @param event {@link LogEvent}
+     */
+    void write(Logger logger, LogEvent event) {
+        Level level = event.getLevel();
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        // costs are only measured when something accounts for them
+        boolean costed = metrics.isEnabled() || CallSiteAccounting.getInstance().isEnabled();
+        RenderedMessage renderedMessage = null;
+        for (LogSink logSink : logSinks) {
+            if (logSink.isEnabled(logger, level)) {
+                if (renderedMessage == null) {
+                    renderedMessage = costed ? render(logger, event, metrics)
+                            : new RenderedMessage(event.render(logRenderer, logger));
+                }
+                if (event.isTraced()) {
+                    long start = System.nanoTime();
+                    logSink.write(logger, level, renderedMessage, event.getThrowable());
+                    StageTracer.getInstance().lap(StageTracer.Stage.SINK, start);
+                } else {
+                    logSink.write(logger, level, renderedMessage, event.getThrowable());
+                }
+                if (costed) {
+                    metrics.output(renderedMessage.getByteLength());
+                    event.addOutputBytes(renderedMessage.getByteLength());
+                }
+            }
+        }
+    }
+
+    private RenderedMessage render(Logger logger, LogEvent event, PipelineMetrics metrics) {
+        long start = System.nanoTime();
+        RenderedMessage renderedMessage = new RenderedMessage(event.render(logRenderer, logger));
+        long nanos = System.nanoTime() - start;
+        if (metrics.isEnabled()) {
+            metrics.rendered(logRenderer, nanos);
+        }
+        event.addRenderNanos(nanos);
+        return renderedMessage;
+    }
+
+    LogRenderer<Object> getLogRenderer() {
+        return logRenderer;
+    }
+
+    LogSink[] getLogSinks() {
+        return logSinks.clone();
+    }
+}
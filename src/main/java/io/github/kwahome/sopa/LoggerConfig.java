@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Immutable configuration overrides for a logger name and, like slf4j logger names, every logger
+ * below it in the dot separated hierarchy e.g. overrides set for `com.acme` apply to
+ * `com.acme.billing.InvoiceService` unless overridden again further down.
+ *
+ * Properties left unset (null) are inherited from the closest ancestor that sets them and
+ * ultimately from the global {@link StructLoggerConfig} defaults.
+ *
+ * <pre>
+ *      StructLoggerConfig.setLoggerConfig("com.acme.billing",
+ *              LoggerConfig.builder().logRenderer(JSONRenderer.getInstance()).build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class LoggerConfig {
+    private final LogRenderer<?> logRenderer;
+
+    private final LogSink logSink;
+
+    private final Function<Object, String> valueRenderer;
+
+    /**
+     * Lowest {@link Level} logged, applied on top of the slf4j backend's own level.
+     */
+    private final Level level;
+
+    private final LogSampler sampler;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited deduplicator.
+     */
+    private final Optional<Deduplicator> deduplicator;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited rate limiter.
+     */
+    private final Optional<RateLimiter> rateLimiter;
+
+    /**
+     * An empty {@link Optional} explicitly turns off inherited debug rules.
+     */
+    private final Optional<DebugRules> debugRules;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited redactor.
+     */
+    private final Optional<Redactor> redactor;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited flight recorder.
+     */
+    private final Optional<FlightRecorder> flightRecorder;
+
+    /**
+     * An empty {@link Optional} explicitly turns off inherited MDC bridging.
+     */
+    private final Optional<MDCBridge> mdcBridge;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited exception encoder.
+     */
+    private final Optional<ExceptionEncoder> exceptionEncoder;
+
+    /**
+     * An empty {@link Optional} explicitly turns off inherited aggregation.
+     */
+    private final Optional<Aggregator> aggregator;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited field analyzer.
+     */
+    private final Optional<FieldAnalyzer> fieldAnalyzer;
+
+    /**
+     * An empty {@link Optional} explicitly turns off an inherited context supplier.
+     */
+    private final Optional<LoggableObject> contextSupplier;
+}
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+
+/**
+ * Effective, immutable settings of a single {@link StructLogger} resolved from the
+ * {@link ConfigTree} once per configuration change, so that logging an event only needs to read
+ * a single field.
+ *
+ * @author Kelvin Wahome
+ */
+final class LoggerSettings {
+    private static final LoggableObject EMPTY_CONTEXT = new GenericLoggableObject();
+
+    private final LogOutput[] logOutputs;
+
+    private final Function<Object, String> valueRenderer;
+
+    private final LoggableObject contextSupplier;
+
+    private final int levelThreshold;
+
+    private final LogSampler sampler;
+
+    private final Deduplicator deduplicator;
+
+    private final RateLimiter rateLimiter;
+
+    private final DebugRules debugRules;
+
+    private final Redactor redactor;
+
+    private final FlightRecorder flightRecorder;
+
+    private final MDCBridge mdcBridge;
+
+    private final ExceptionEncoder exceptionEncoder;
+
+    private final Aggregator aggregator;
+
+    private final FieldAnalyzer fieldAnalyzer;
+
+    /**
+     * Constructor
+     *
+     * @param logOutputs {@link LogOutput}[] renderers with the sinks they feed
+     * @param valueRenderer {@link Function} value renderer
+     * @param contextSupplier {@link Optional} global context supplier
+     * @param level {@link Level} lowest level logged
+     * @param sampler {@link LogSampler}
+     * @param deduplicator {@link Deduplicator} or null if events are not deduplicated
+     * @param rateLimiter {@link RateLimiter} or null if events are not rate limited
+     * @param debugRules {@link DebugRules} or null if there are none
+     * @param redactor {@link Redactor} or null if values are not redacted
+     * @param flightRecorder {@link FlightRecorder} or null if events below the levels are dropped
+     * @param mdcBridge {@link MDCBridge} or null if the slf4j MDC is not logged
+     * @param exceptionEncoder {@link ExceptionEncoder} or null if exceptions are passed to slf4j
+     * @param aggregator {@link Aggregator} or null if no fields are aggregated
+     * @param fieldAnalyzer {@link FieldAnalyzer} or null if keys are not analyzed
+     */
+    LoggerSettings(LogOutput[] logOutputs, Function<Object, String> valueRenderer,
+                   Optional<LoggableObject> contextSupplier, Level level, LogSampler sampler,
+                   Deduplicator deduplicator, RateLimiter rateLimiter, DebugRules debugRules,
+                   Redactor redactor, FlightRecorder flightRecorder, MDCBridge mdcBridge,
+                   ExceptionEncoder exceptionEncoder, Aggregator aggregator, FieldAnalyzer fieldAnalyzer) {
+        this.logOutputs = logOutputs;
+        this.valueRenderer = valueRenderer;
+        this.contextSupplier = contextSupplier.orElse(EMPTY_CONTEXT);
+        this.levelThreshold = level.toInt();
+        this.sampler = sampler;
+        this.deduplicator = deduplicator;
+        this.rateLimiter = rateLimiter;
+        this.debugRules = debugRules;
+        this.redactor = redactor;
+        this.flightRecorder = flightRecorder;
+        this.mdcBridge = mdcBridge;
+        this.exceptionEncoder = exceptionEncoder;
+        this.aggregator = aggregator;
+        this.fieldAnalyzer = fieldAnalyzer;
+    }
+
+    LogOutput[] getLogOutputs() {
+        return logOutputs;
+    }
+
+    Function<Object, String> getValueRenderer() {
+        return valueRenderer;
+    }
+
+    /**
+     * Global context supplier or an empty {@link LoggableObject} if none is configured.
+     *
+     * @return {@link LoggableObject}
+     */
+    LoggableObject getContextSupplier() {
+        return contextSupplier;
+    }
+
+    LogSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * {@link Deduplicator} getter.
+     *
+     * @return {@link Deduplicator} or null if events are not deduplicated
+     */
+    Deduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * {@link RateLimiter} getter.
+     *
+     * @return {@link RateLimiter} or null if events are not rate limited
+     */
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * {@link DebugRules} getter.
+     *
+     * @return {@link DebugRules} or null if there are none
+     */
+    DebugRules getDebugRules() {
+        return debugRules;
+    }
+
+    /**
+     * {@link Redactor} getter.
+     *
+     * @return {@link Redactor} or null if values are not redacted
+     */
+    Redactor getRedactor() {
+        return redactor;
+    }
+
+    /**
+     * {@link FlightRecorder} getter.
+     *
+     * @return {@link FlightRecorder} or null if events below the levels are dropped
+     */
+    FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * {@link MDCBridge} getter.
+     *
+     * @return {@link MDCBridge} or null if the slf4j MDC is not logged
+     */
+    MDCBridge getMDCBridge() {
+        return mdcBridge;
+    }
+
+    /**
+     * {@link ExceptionEncoder} getter.
+     *
+     * @return {@link ExceptionEncoder} or null if exceptions are passed to slf4j
+     */
+    ExceptionEncoder getExceptionEncoder() {
+        return exceptionEncoder;
+    }
+
+    /**
+     * {@link Aggregator} getter.
+     *
+     * @return {@link Aggregator} or null if no fields are aggregated
+     */
+    Aggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * {@link FieldAnalyzer} getter.
+     *
+     * @return {@link FieldAnalyzer} or null if keys are not analyzed
+     */
+    FieldAnalyzer getFieldAnalyzer() {
+        return fieldAnalyzer;
+    }
+
+    /**
+     * Whether events at the passed level pass the configured level threshold.
+     *
+     * @param level {@link Level}
+     * @return boolean
+     */
+    boolean isEnabled(Level level) {
+        return level.toInt() >= levelThreshold;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+/**
+ * Adds the entries of the slf4j {@link MDC} to logged events.
+ *
+ * With keys configured, only those entries are read, one {@link MDC#get(String)} each, which allocates
+ * nothing. Without keys every entry is included: {@link MDC#getCopyOfContextMap()} copies the map on
+ * every call, so adapters that keep a copy-on-write map per thread, like logback's, are read through
+ * their `getPropertyMap()` accessor instead. A new map there means the MDC changed, so the entries are
+ * converted once per change and the conversion is cached per thread. Other adapters fall back to the
+ * copy.
+ *
+ * MDC entries are added after the global context and take the lowest precedence: an entry is left out
+ * when the params, bound, scoped or global context of the event already hold its key.
+ *
+ * <pre>
+ *      StructLoggerConfig.setMDCBridge(MDCBridge.builder()
+ *              .key("requestId")
+ *              .key("traceId")
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class MDCBridge {
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * Keys of the entries included, all entries if empty.
+     */
+    @Getter
+    private final List<String> keys;
+
+    private final String[] keyArray;
+
+    private final MethodHandle propertyMap;
+
+    private final ThreadLocal<Snapshot> snapshots = ThreadLocal.withInitial(Snapshot::new);
+
+    /**
+     * Constructor
+     *
+     * @param keys {@link List} keys of the entries included, all entries if none
+     */
+    @Builder
+    public MDCBridge(@Singular List<String> keys) {
+        this.keys = keys;
+        this.keyArray = keys.toArray(new String[0]);
+        this.propertyMap = keys.isEmpty() ? propertyMapAccessor(MDC.getMDCAdapter()) : null;
+    }
+
+    /**
+     * Looks up a `getPropertyMap()` accessor on the adapter returning its current, copy-on-write, map.
+     *
+     * @param adapter {@link MDCAdapter}
+     * @return {@link MethodHandle} bound to the adapter or null if it has none
+     */
+    static MethodHandle propertyMapAccessor(MDCAdapter adapter) {
+        if (adapter == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(adapter.getClass(), "getPropertyMap", MethodType.methodType(Map.class))
+                    .bindTo(adapter);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Keys of the entries included, read one by one with {@link MDC#get(String)}.
+     *
+     * @return {@link String}[] keys, empty if all entries are included
+     */
+    String[] includedKeys() {
+        return keyArray;
+    }
+
+    /**
+     * Looks up the value of an included MDC entry.
+     *
+     * @param key {@link String} key
+     * @return {@link String} value or null if the key is not found or not included
+     */
+    String get(String key) {
+        if (keyArray.length > 0) {
+            for (String included : keyArray) {
+                if (included.equals(key)) {
+                    return MDC.get(key);
+                }
+            }
+            return null;
+        }
+        return MDC.get(key);
+    }
+
+    /**
+     * All the MDC entries of the current thread.
+     *
+     * @return {@link Object}[] keys and values at alternate indices, not to be modified
+     */
+    Object[] entries() {
+        if (propertyMap == null) {
+            return toArray(MDC.getCopyOfContextMap());
+        }
+        Map<?, ?> map;
+        try {
+            map = (Map<?, ?>) propertyMap.invoke();
+        } catch (Throwable ex) {
+            return toArray(MDC.getCopyOfContextMap());
+        }
+        Snapshot snapshot = snapshots.get();
+        if (snapshot.source != map) {
+            snapshot.entries = toArray(map);
+            snapshot.source = map;
+        }
+        return snapshot.entries;
+    }
+
+    private static Object[] toArray(Map<?, ?> map) {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        Object[] entries = new Object[map.size() * 2];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            entries[i++] = String.valueOf(entry.getKey());
+            entries[i++] = entry.getValue();
+        }
+        return entries;
+    }
+
+    /**
+     * Entries converted from the map the adapter last returned on a thread.
+     */
+    private static final class Snapshot {
+        private Map<?, ?> source;
+
+        private Object[] entries = EMPTY;
+    }
+}
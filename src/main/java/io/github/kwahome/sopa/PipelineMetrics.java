@@ -0,0 +1,363 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+
+/**
+ * Metrics of the logging pipeline itself: events written per level and per logger, events dropped by
+ * sampling, deduplication and rate limiting, render latency per renderer, bytes handed to sinks and the
+ * warnings and errors the loggers log about themselves.
+ *
+ * Collection is off by default and costs a volatile read per event while off. Once enabled, counters are
+ * {@link LongAdder}s, striped across threads so that loggers on many threads do not contend on them,
+ * and latencies go to a lock-free {@link LogHistogram}. The metrics are published as MXBeans on the
+ * platform MBean server, readable from JConsole, VisualVM or any JMX exporter:
+ *
+ * <pre>
+ *      io.github.kwahome.sopa:type=PipelineMetrics
+ *      io.github.kwahome.sopa:type=RenderLatency,renderer=JSONRenderer
+ * </pre>
+ *
+ * <pre>
+ *      PipelineMetrics.getInstance().enable();
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class PipelineMetrics implements PipelineMetricsMXBean {
+    static final String DOMAIN = "io.github.kwahome.sopa";
+
+    static final String SAMPLED = "sampled";
+
+    static final String DEDUPLICATED = "deduplicated";
+
+    static final String RATE_LIMITED = "rateLimited";
+
+    static final String OTHER_LOGGERS = "<other>";
+
+    private static final int MAX_LOGGERS = 512;
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    private volatile boolean enabled;
+
+    private final LongAdder[] eventsPerLevel = newAdders(Level.values().length);
+
+    private final Map<String, LongAdder> eventsPerLogger = new ConcurrentHashMap<>();
+
+    private final LongAdder sampled = new LongAdder();
+
+    private final LongAdder deduplicated = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private final LongAdder outputBytes = new LongAdder();
+
+    private final LongAdder internalWarnings = new LongAdder();
+
+    private final LongAdder internalErrors = new LongAdder();
+
+    private final Map<Class<?>, RenderLatency> renderLatencies = new ConcurrentHashMap<>();
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Returns the metrics shared by all loggers.
+     *
+     * @return {@link PipelineMetrics}
+     */
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts collecting and registers the MXBeans, render latencies being registered as renderers are
+     * first used.
+     */
+    public synchronized void enable() {
+        if (!enabled) {
+            register(name("type=PipelineMetrics"), this);
+            renderLatencies.values().forEach(latency -> register(latency.name, latency));
+            enabled = true;
+        }
+    }
+
+    /**
+     * Stops collecting and unregisters the MXBeans, keeping the values collected so far.
+     */
+    public synchronized void disable() {
+        if (enabled) {
+            enabled = false;
+            unregister(name("type=PipelineMetrics"));
+            renderLatencies.values().forEach(latency -> unregister(latency.name));
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, Long> getEventsPerLevel() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Level level : Level.values()) {
+            counts.put(level.toString(), eventsPerLevel[level.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getEventsPerLogger() {
+        Map<String, Long> counts = new TreeMap<>();
+        eventsPerLogger.forEach((name, count) -> counts.put(name, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getDroppedEvents() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(SAMPLED, sampled.sum());
+        counts.put(DEDUPLICATED, deduplicated.sum());
+        counts.put(RATE_LIMITED, rateLimited.sum());
+        return counts;
+    }
+
+    @Override
+    public long getOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    @Override
+    public long getInternalWarnings() {
+        return internalWarnings.sum();
+    }
+
+    @Override
+    public long getInternalErrors() {
+        return internalErrors.sum();
+    }
+
+    /**
+     * Render latencies, keyed by renderer class name.
+     *
+     * @return {@link Map} of {@link RenderLatencyMXBean}
+     */
+    public Map<String, RenderLatencyMXBean> getRenderLatencies() {
+        Map<String, RenderLatencyMXBean> latencies = new TreeMap<>();
+        renderLatencies.forEach((type, latency) -> latencies.put(type.getSimpleName(), latency));
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder count : eventsPerLevel) {
+            count.reset();
+        }
+        eventsPerLogger.clear();
+        for (LongAdder count : new LongAdder[]{sampled, deduplicated, rateLimited, outputBytes, internalWarnings,
+                internalErrors}) {
+            count.reset();
+        }
+        renderLatencies.values().forEach(latency -> latency.histogram.reset());
+    }
+
+    void written(Level level, String logger) {
+        if (enabled) {
+            eventsPerLevel[level.ordinal()].increment();
+            LongAdder count = eventsPerLogger.get(logger);
+            if (count == null) {
+                // bounded, loggers created per request or per tenant must not grow the map without end
+                count = eventsPerLogger.size() < MAX_LOGGERS ? eventsPerLogger.computeIfAbsent(logger, name ->
+                        new LongAdder()) : eventsPerLogger.computeIfAbsent(OTHER_LOGGERS, name -> new LongAdder());
+            }
+            count.increment();
+        }
+    }
+
+    void sampled() {
+        if (enabled) {
+            sampled.increment();
+        }
+    }
+
+    void deduplicated() {
+        if (enabled) {
+            deduplicated.increment();
+        }
+    }
+
+    void rateLimited() {
+        if (enabled) {
+            rateLimited.increment();
+        }
+    }
+
+    /**
+     * Records a render latency, only called while enabled since the caller times the render.
+     *
+     * @param renderer {@link LogRenderer}
+     * @param nanos long
+     */
+    void rendered(LogRenderer<?> renderer, long nanos) {
+        RenderLatency latency = renderLatencies.get(renderer.getClass());
+        if (latency == null) {
+            latency = renderLatency(renderer.getClass());
+        }
+        latency.histogram.record(nanos);
+    }
+
+    void output(int bytes) {
+        if (enabled) {
+            outputBytes.add(bytes);
+        }
+    }
+
+    void warned() {
+        if (enabled) {
+            internalWarnings.increment();
+        }
+    }
+
+    void failed() {
+        if (enabled) {
+            internalErrors.increment();
+        }
+    }
+
+    private synchronized RenderLatency renderLatency(Class<?> type) {
+        RenderLatency latency = renderLatencies.get(type);
+        if (latency == null) {
+            latency = new RenderLatency(name("type=RenderLatency,renderer=" + ObjectName.quote(type.getSimpleName())));
+            renderLatencies.put(type, latency);
+            if (enabled) {
+                register(latency.name, latency);
+            }
+        }
+        return latency;
+    }
+
+    static ObjectName name(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    static void register(ObjectName name, Object mxBean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mxBean, name);
+        } catch (JMException ex) {
+            throw new IllegalStateException(String.format("%s unable to register %s.",
+                    StructLoggerConfig.getSopaLoggerTag(), name), ex);
+        }
+    }
+
+    static void unregister(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException(String.format("%s unable to unregister %s.",
+                    StructLoggerConfig.getSopaLoggerTag(), name), ex);
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Render latency of one renderer class.
+     */
+    private static final class RenderLatency implements RenderLatencyMXBean {
+        private static final double NANOS_PER_MICRO = 1000d;
+
+        private final ObjectName name;
+
+        private final LogHistogram histogram = new LogHistogram();
+
+        RenderLatency(ObjectName name) {
+            this.name = name;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return histogram.getMean() / NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return histogram.getValueAtPercentile(50) / NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return histogram.getValueAtPercentile(99) / NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return histogram.getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return histogram.getMax() / NANOS_PER_MICRO;
+        }
+    }
+}
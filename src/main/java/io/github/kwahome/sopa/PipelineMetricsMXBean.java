@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link PipelineMetrics}, registered with the platform MBean server as
+ * `io.github.kwahome.sopa:type=PipelineMetrics`.
+ *
+ * @author Kelvin Wahome
+ */
+public interface PipelineMetricsMXBean {
+    /**
+     * Whether the metrics are being collected.
+     *
+     * @return boolean
+     */
+    boolean isEnabled();
+
+    /**
+     * Events written, keyed by the level they were written at.
+     *
+     * @return {@link Map}
+     */
+    Map<String, Long> getEventsPerLevel();
+
+    /**
+     * Events written, keyed by logger name. Loggers beyond the first 512 seen are counted under `&lt;other&gt;`.
+     *
+     * @return {@link Map}
+     */
+    Map<String, Long> getEventsPerLogger();
+
+    /**
+     * Events dropped, keyed by the stage dropping them: `sampled`, `deduplicated` and `rateLimited`.
+     *
+     * @return {@link Map}
+     */
+    Map<String, Long> getDroppedEvents();
+
+    /**
+     * UTF-8 bytes of the rendered messages handed to sinks, counted once per sink written to.
+     *
+     * @return long
+     */
+    long getOutputBytes();
+
+    /**
+     * Warnings the loggers logged about their own use, e.g. invalid keys or an odd number of params.
+     *
+     * @return long
+     */
+    long getInternalWarnings();
+
+    /**
+     * Unexpected errors the loggers caught while logging.
+     *
+     * @return long
+     */
+    long getInternalErrors();
+
+    /**
+     * Clears all the counters and latencies.
+     */
+    void reset();
+}
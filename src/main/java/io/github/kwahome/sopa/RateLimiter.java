@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import lombok.Builder;
+
+/**
+ * Hard ceiling on the number of events logged per second per logger name or, if a key is set,
+ * per value of that key e.g. `tenantId`, so that one noisy logger or tenant cannot saturate a
+ * shared node's logging.
+ *
+ * Each logger or key value gets a token bucket per level, kept as a single lock-free theoretical
+ * arrival time (the generic cell rate algorithm) that is updated with one compare-and-set. Buckets
+ * are held in a bounded concurrent map; once it is full, new loggers or key values share an
+ * overflow bucket until idle buckets are dropped. Events without the key are not limited.
+ *
+ * The number of events suppressed per bucket is logged periodically in a WARN event with
+ * `suppressedLevel` and `suppressedCount` fields (plus the key and its value if set).
+ *
+ * <pre>
+ *      StructLoggerConfig.setRateLimiter(RateLimiter.builder()
+ *              .key("tenantId")
+ *              .eventsPerSecond(100)
+ *              .levelLimit(Level.ERROR, 1000L)
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class RateLimiter {
+    static final String SUPPRESSED_MESSAGE = "log events suppressed by rate limit";
+
+    static final String SUPPRESSED_LEVEL = "suppressedLevel";
+
+    static final String SUPPRESSED_COUNT = "suppressedCount";
+
+    private static final String OVERFLOW = "<overflow>";
+
+    private static final int DEFAULT_MAX_BUCKETS = 10_000;
+
+    private static final long DEFAULT_REPORT_INTERVAL_MILLIS = 10_000;
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final String key;
+
+    /**
+     * Nanoseconds between events at the rate limit, per level ordinal, 0 if not limited.
+     */
+    private final long[] emissionIntervals = new long[LEVELS.length];
+
+    /**
+     * Nanoseconds a bucket may run ahead of time i.e. its burst size, per level ordinal.
+     */
+    private final long[] tolerances = new long[LEVELS.length];
+
+    private final int maxBuckets;
+
+    private final List<ConcurrentMap<String, Bucket>> buckets = new ArrayList<>(LEVELS.length);
+
+    private final long idleNanos;
+
+    /**
+     * Constructor
+     *
+     * @param eventsPerSecond long limit of levels without a limit of their own, 0 for no limit
+     * @param levelLimits {@link Map} limits of specific levels in events per second, 0 for no limit
+     * @param burst long events a bucket may take at once after being idle, one second's worth by default
+     * @param key {@link String} key whose values are limited separately, per logger name if null
+     * @param maxBuckets int maximum number of buckets per level, 10000 by default
+     * @param reportIntervalMillis long interval suppressed counts are logged at, 10000 by default
+     */
+    @Builder
+    public RateLimiter(long eventsPerSecond, Map<Level, Long> levelLimits, long burst, String key,
+                       int maxBuckets, long reportIntervalMillis) {
+        this.key = key;
+        this.maxBuckets = maxBuckets > 0 ? maxBuckets : DEFAULT_MAX_BUCKETS;
+        for (Level level : LEVELS) {
+            long limit = levelLimits.getOrDefault(level, eventsPerSecond);
+            if (limit > 0) {
+                long interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / limit);
+                emissionIntervals[level.ordinal()] = interval;
+                tolerances[level.ordinal()] = interval * (Math.max(1, burst > 0 ? burst : limit) - 1);
+            }
+            buckets.add(new ConcurrentHashMap<>());
+        }
+        long reportInterval = reportIntervalMillis > 0 ? reportIntervalMillis : DEFAULT_REPORT_INTERVAL_MILLIS;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(reportInterval);
+        BackgroundTasks.scheduleWeakly(this, reportInterval, RateLimiter::report);
+    }
+
+    /**
+     * Takes a token for an event from its bucket.
+     *
+     * @param logger {@link StructLogger} logging the event
+     * @param level {@link Level} of the event
+     * @param values {@link Function} looking up the values of keys in the event
+     * @return boolean true if the event is within the limit, false if it is to be suppressed
+     */
+    boolean tryAcquire(StructLogger logger, Level level, Function<String, Object> values) {
+        int index = level.ordinal();
+        long interval = emissionIntervals[index];
+        if (interval == 0) {
+            return true;
+        }
+        String bucketKey = logger.getName();
+        if (key != null) {
+            Object value = values.apply(key);
+            if (value == null) {
+                return true;
+            }
+            bucketKey = logger.renderValue(value);
+        }
+        long now = System.nanoTime();
+        Bucket bucket = bucket(buckets.get(index), bucketKey, logger, now);
+        if (bucket.tryAcquire(now, interval, tolerances[index])) {
+            return true;
+        }
+        bucket.suppressed.increment();
+        return false;
+    }
+
+    private Bucket bucket(ConcurrentMap<String, Bucket> levelBuckets, String bucketKey, StructLogger logger,
+                          long now) {
+        Bucket bucket = levelBuckets.get(bucketKey);
+        if (bucket == null) {
+            String mapKey = levelBuckets.size() < maxBuckets ? bucketKey : OVERFLOW;
+            bucket = levelBuckets.computeIfAbsent(mapKey, ignored -> new Bucket(now, logger));
+        }
+        // keyed buckets are shared by loggers, report through the latest one without a volatile store per event
+        if (bucket.logger != logger) {
+            bucket.logger = logger;
+        }
+        return bucket;
+    }
+
+    /**
+     * Logs the number of events suppressed per bucket since the last report and drops idle buckets.
+     */
+    void report() {
+        long now = System.nanoTime();
+        for (Level level : LEVELS) {
+            for (Map.Entry<String, Bucket> entry : buckets.get(level.ordinal()).entrySet()) {
+                Bucket bucket = entry.getValue();
+                long suppressed = bucket.suppressed.sumThenReset();
+                if (suppressed > 0) {
+                    LogEvent event = new LogEvent(Level.WARN, SUPPRESSED_MESSAGE);
+                    if (key != null) {
+                        // the key value comes from logged events, it is masked as it was in them
+                        bucket.logger.addRedacted(event, key, entry.getKey());
+                    }
+                    bucket.logger.dispatch(event.add(SUPPRESSED_LEVEL, level.toString())
+                            .add(SUPPRESSED_COUNT, suppressed));
+                } else if (now - bucket.theoreticalArrival.get() > idleNanos) {
+                    // refilled and unused for a while, a new bucket behaves the same
+                    buckets.get(level.ordinal()).remove(entry.getKey(), bucket);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder collecting per level limits, written out rather than generated with @Singular so
+     * that the limits land in an {@link EnumMap} directly.
+     */
+    public static class RateLimiterBuilder {
+        private final Map<Level, Long> levelLimits = new EnumMap<>(Level.class);
+
+        public RateLimiterBuilder levelLimit(Level level, Long eventsPerSecond) {
+            levelLimits.put(level, eventsPerSecond);
+            return this;
+        }
+
+        public RateLimiterBuilder levelLimits(Map<? extends Level, ? extends Long> limits) {
+            levelLimits.putAll(limits);
+            return this;
+        }
+
+        public RateLimiterBuilder clearLevelLimits() {
+            levelLimits.clear();
+            return this;
+        }
+    }
+
+    /**
+     * Token bucket of a logger or key value at one level.
+     */
+    private static final class Bucket {
+        /**
+         * Time at which the bucket is full again, never further ahead of now than the tolerance.
+         */
+        private final AtomicLong theoreticalArrival;
+
+        private final LongAdder suppressed = new LongAdder();
+
+        private volatile StructLogger logger;
+
+        Bucket(long now, StructLogger logger) {
+            this.theoreticalArrival = new AtomicLong(now);
+            this.logger = logger;
+        }
+
+        boolean tryAcquire(long now, long interval, long tolerance) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long start = Math.max(current, now);
+                if (start - now > tolerance) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(current, start + interval)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
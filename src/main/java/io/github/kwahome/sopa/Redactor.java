@@ -0,0 +1,430 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.Builder;
+import lombok.Singular;
+
+/**
+ * Masks personal data and secrets in the values of log events before they leave the process.
+ *
+ * Key rules mask the whole value of keys containing any of the configured names, case insensitive,
+ * e.g. `password` masks `password` and `dbPassword`. Whether a key matches is resolved once and then
+ * cached.
+ *
+ * Value rules mask email addresses, card numbers (13 to 19 digits, optionally grouped by spaces or
+ * dashes, passing the Luhn check, even next to another number such as an expiry date) and whatever
+ * follows a token prefix such as `Bearer ` or `sk_live_` wherever they occur in a value. They are
+ * compiled into a single scanner that reads each value once: the token prefixes are matched by an
+ * Aho-Corasick automaton while email and card shapes are tracked alongside it, only runs of at least
+ * 13 digits being checked again for cards, and a masked copy is only built if something was found.
+ *
+ * <pre>
+ *      StructLoggerConfig.setRedactor(Redactor.builder()
+ *              .key("password")
+ *              .key("authorization")
+ *              .emails(true)
+ *              .cardNumbers(true)
+ *              .tokenPrefix("Bearer ")
+ *              .build());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class Redactor {
+    private static final String DEFAULT_MASK = "****";
+
+    private static final int MAX_CACHED_KEYS = 4096;
+
+    private static final int MIN_CARD_DIGITS = 13;
+
+    private static final int MAX_CARD_DIGITS = 19;
+
+    private static final int MIN_TLD_LENGTH = 2;
+
+    private final String[] keys;
+
+    private final boolean emails;
+
+    private final boolean cardNumbers;
+
+    private final TokenAutomaton tokenPrefixes;
+
+    private final String mask;
+
+    private final ConcurrentMap<String, Boolean> maskedKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param keys {@link List} names of keys whose values are masked as a whole
+     * @param emails boolean whether email addresses are masked
+     * @param cardNumbers boolean whether card numbers are masked
+     * @param tokenPrefixes {@link List} prefixes of tokens whose remainder is masked e.g. `Bearer `
+     * @param mask {@link String} replacement of masked text, `****` by default
+     */
+    @Builder
+    public Redactor(@Singular List<String> keys, boolean emails, boolean cardNumbers,
+                    @Singular List<String> tokenPrefixes, String mask) {
+        this.keys = keys.stream().map(key -> key.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        this.emails = emails;
+        this.cardNumbers = cardNumbers;
+        this.tokenPrefixes = new TokenAutomaton(tokenPrefixes);
+        this.mask = mask != null ? mask : DEFAULT_MASK;
+    }
+
+    /**
+     * Masks the value of a key as the rules require.
+     *
+     * @param key {@link String} key
+     * @param value {@link String} rendered value
+     * @return {@link String} the value itself if nothing was masked
+     */
+    String redact(String key, String value) {
+        if (value == null) {
+            return null;
+        }
+        return isMaskedKey(key) ? mask : redactValue(value);
+    }
+
+    private boolean isMaskedKey(String key) {
+        if (keys.length == 0) {
+            return false;
+        }
+        Boolean masked = maskedKeys.get(key);
+        if (masked == null) {
+            String lowerCaseKey = key.toLowerCase(Locale.ROOT);
+            masked = Arrays.stream(keys).anyMatch(lowerCaseKey::contains);
+            // keys are usually a small fixed set, stop caching if they are not
+            if (maskedKeys.size() < MAX_CACHED_KEYS) {
+                maskedKeys.put(key, masked);
+            }
+        }
+        return masked;
+    }
+
+    /**
+     * Masks the sensitive parts of a value in a single pass.
+     *
+     * @param value {@link String} value
+     * @return {@link String} the value itself if nothing was masked
+     */
+    String redactValue(String value) {
+        if (!emails && !cardNumbers && tokenPrefixes.isEmpty()) {
+            return value;
+        }
+        Scan scan = new Scan(value);
+        int i = 0;
+        while (i < value.length()) {
+            i = scan.step(i);
+        }
+        scan.endCardRun(value.length());
+        return scan.result();
+    }
+
+    private static boolean isEmailLocalChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '-';
+    }
+
+    private static boolean isTokenDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '"' || c == '\'' || c == ',' || c == ';' || c == '&'
+                || c == ')' || c == ']' || c == '}' || c == '>';
+    }
+
+    /**
+     * State of a scan of one value. Spans are masked as they are found, strictly left to right, so
+     * the masked copy is built by appending.
+     */
+    private final class Scan {
+        private final String value;
+
+        private StringBuilder masked;
+
+        private int copiedUpTo;
+
+        private int tokenState;
+
+        private int localStart = -1;
+
+        private int cardStart = -1;
+
+        private int cardEnd;
+
+        private int cardDigits;
+
+        Scan(String value) {
+            this.value = value;
+        }
+
+        /**
+         * Reads the character at the passed index.
+         *
+         * @return int index of the next character to read
+         */
+        int step(int i) {
+            char c = value.charAt(i);
+            if (c == '@' && emails && localStart >= 0) {
+                int end = emailEnd(i);
+                if (end > 0) {
+                    int start = localStart;
+                    endCardRunBefore(start);
+                    return maskSpan(start, end);
+                }
+            }
+            localStart = isEmailLocalChar(c) ? (localStart < 0 ? i : localStart) : -1;
+            if (cardNumbers) {
+                trackCard(c, i);
+            }
+            tokenState = tokenPrefixes.next(tokenState, c);
+            if (tokenPrefixes.isMatch(tokenState)) {
+                int end = i + 1;
+                while (end < value.length() && !isTokenDelimiter(value.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 1) {
+                    endCardRunBefore(i + 1);
+                    return maskSpan(i + 1, end);
+                }
+            }
+            return i + 1;
+        }
+
+        private int emailEnd(int at) {
+            int end = at + 1;
+            int lastDot = -1;
+            while (end < value.length() && isDomainChar(value.charAt(end))) {
+                if (value.charAt(end) == '.') {
+                    lastDot = end;
+                }
+                end++;
+            }
+            // strip a trailing dot ending the sentence rather than the domain
+            if (lastDot == end - 1) {
+                end--;
+                lastDot = value.lastIndexOf('.', end - 1);
+            }
+            boolean valid = lastDot > at + 1 && end - lastDot - 1 >= MIN_TLD_LENGTH;
+            return valid ? end : -1;
+        }
+
+        private void trackCard(char c, int i) {
+            if (c >= '0' && c <= '9') {
+                if (cardStart < 0) {
+                    cardStart = i;
+                }
+                cardDigits++;
+                cardEnd = i + 1;
+            } else if (cardStart >= 0 && !((c == ' ' || c == '-') && cardEnd == i)) {
+                // a single separator between digit groups keeps the run going
+                endCardRun(i);
+            }
+        }
+
+        void endCardRun(int i) {
+            if (cardStart >= 0 && cardDigits >= MIN_CARD_DIGITS) {
+                maskCards(cardStart, cardEnd);
+            }
+            resetCard();
+        }
+
+        /**
+         * Ends the card run pending before a span about to be masked, cutting it at the last digit
+         * before the span, e.g. `4111111111111111 12345@example.com` keeps its card in a run of its
+         * own rather than having the address swallow it.
+         */
+        private void endCardRunBefore(int start) {
+            if (cardStart >= 0 && cardStart < start) {
+                cardEnd = Math.min(cardEnd, start);
+                while (cardEnd > cardStart && (value.charAt(cardEnd - 1) < '0' || value.charAt(cardEnd - 1) > '9')) {
+                    cardEnd--;
+                }
+                endCardRun(start);
+            }
+        }
+
+        /**
+         * Masks the card numbers in a run of digit groups. A card may share its run with a
+         * neighbouring number e.g. `4111 1111 1111 1111 12/25` or `qty 3 4111111111111111`, so from
+         * each group on the longest window of whole groups holding 13 to 19 digits that passes the
+         * Luhn check is masked.
+         */
+        private void maskCards(int start, int end) {
+            int groupStart = start;
+            while (groupStart < end) {
+                int windowEnd = groupEnd(groupStart);
+                int digits = windowEnd - groupStart;
+                int card = -1;
+                while (digits <= MAX_CARD_DIGITS) {
+                    if (digits >= MIN_CARD_DIGITS && passesLuhn(groupStart, windowEnd)) {
+                        card = windowEnd;
+                    }
+                    if (windowEnd == end) {
+                        break;
+                    }
+                    int nextGroupEnd = groupEnd(windowEnd + 1);
+                    digits += nextGroupEnd - windowEnd - 1;
+                    windowEnd = nextGroupEnd;
+                }
+                int next = card > 0 ? card : groupEnd(groupStart);
+                if (card > 0) {
+                    maskSpan(groupStart, card);
+                }
+                // skips the single separator between groups
+                groupStart = next + 1;
+            }
+        }
+
+        private int groupEnd(int groupStart) {
+            int end = groupStart;
+            while (end < value.length() && value.charAt(end) >= '0' && value.charAt(end) <= '9') {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * Luhn check of the digits in a span, doubling every other digit from the right.
+         */
+        private boolean passesLuhn(int start, int end) {
+            int sum = 0;
+            boolean doubled = false;
+            for (int i = end - 1; i >= start; i--) {
+                char c = value.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    int digit = doubled ? (c - '0') * 2 : c - '0';
+                    sum += digit > 9 ? digit - 9 : digit;
+                    doubled = !doubled;
+                }
+            }
+            return sum % 10 == 0;
+        }
+
+        private void resetCard() {
+            cardStart = -1;
+            cardDigits = 0;
+        }
+
+        private int maskSpan(int start, int end) {
+            if (masked == null) {
+                masked = new StringBuilder(value.length());
+            }
+            masked.append(value, copiedUpTo, start).append(mask);
+            copiedUpTo = end;
+            tokenState = 0;
+            localStart = -1;
+            resetCard();
+            return end;
+        }
+
+        String result() {
+            return masked == null ? value : masked.append(value, copiedUpTo, value.length()).toString();
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over the token prefixes, with the transitions of every state precomputed
+     * for ASCII so that each character costs one array lookup.
+     */
+    private static final class TokenAutomaton {
+        private static final int ALPHABET = 128;
+
+        private final int[][] transitions;
+
+        private final boolean[] matches;
+
+        TokenAutomaton(List<String> prefixes) {
+            int maxStates = 1 + prefixes.stream().mapToInt(String::length).sum();
+            int[][] gotos = new int[maxStates][ALPHABET];
+            boolean[] terminal = new boolean[maxStates];
+            int states = 1;
+            for (String prefix : prefixes) {
+                int state = 0;
+                for (char c : prefix.toCharArray()) {
+                    if (c >= ALPHABET) {
+                        throw new IllegalArgumentException(String.format("non ASCII token prefix `%s`.", prefix));
+                    }
+                    if (gotos[state][c] == 0) {
+                        gotos[state][c] = states++;
+                    }
+                    state = gotos[state][c];
+                }
+                terminal[state] = !prefix.isEmpty();
+            }
+            this.transitions = Arrays.copyOf(gotos, states);
+            this.matches = Arrays.copyOf(terminal, states);
+            link();
+        }
+
+        /**
+         * Turns the trie into a complete automaton by following failure links breadth first.
+         */
+        private void link() {
+            int[] failure = new int[transitions.length];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < ALPHABET; c++) {
+                if (transitions[0][c] != 0) {
+                    queue.add(transitions[0][c]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                matches[state] |= matches[failure[state]];
+                for (int c = 0; c < ALPHABET; c++) {
+                    int child = transitions[state][c];
+                    if (child != 0) {
+                        failure[child] = transitions[failure[state]][c];
+                        queue.add(child);
+                    } else {
+                        transitions[state][c] = transitions[failure[state]][c];
+                    }
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return transitions.length == 1;
+        }
+
+        int next(int state, char c) {
+            return c < ALPHABET ? transitions[state][c] : 0;
+        }
+
+        boolean isMatch(int state) {
+            return matches[state];
+        }
+    }
+}
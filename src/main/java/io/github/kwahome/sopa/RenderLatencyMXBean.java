@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+/**
+ * Management interface of the render latency of one {@link io.github.kwahome.sopa.interfaces.LogRenderer},
+ * registered with the platform MBean server as `io.github.kwahome.sopa:type=RenderLatency,renderer=&lt;name&gt;`.
+ *
+ * @author Kelvin Wahome
+ */
+public interface RenderLatencyMXBean {
+    /**
+     * Events rendered.
+     *
+     * @return long
+     */
+    long getCount();
+
+    /**
+     * Mean render latency.
+     *
+     * @return double microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * Median render latency.
+     *
+     * @return double microseconds
+     */
+    double getP50Micros();
+
+    /**
+     * 99th percentile render latency.
+     *
+     * @return double microseconds
+     */
+    double getP99Micros();
+
+    /**
+     * 99.9th percentile render latency.
+     *
+     * @return double microseconds
+     */
+    double getP999Micros();
+
+    /**
+     * Highest render latency.
+     *
+     * @return double microseconds
+     */
+    double getMaxMicros();
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A log message as formatted by a {@link io.github.kwahome.sopa.interfaces.LogRenderer}, shared
+ * by every {@link io.github.kwahome.sopa.interfaces.LogSink} configured with that renderer.
+ *
+ * The UTF-8 encoding is produced at most once, on first request, and handed out as read-only
+ * views over the same bytes so that byte oriented sinks do not encode or copy it again.
+ * Instances are confined to the thread logging the event.
+ *
+ * @author Kelvin Wahome
+ */
+public final class RenderedMessage {
+    private final String text;
+
+    private ByteBuffer encoded;
+
+    private int byteLength = -1;
+
+    /**
+     * Constructor
+     *
+     * @param text {@link String} formatted log message
+     */
+    public RenderedMessage(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Returns a read-only view of the UTF-8 encoded message with its own position and limit.
+     *
+     * @return {@link ByteBuffer}
+     */
+    public ByteBuffer getBytes() {
+        if (encoded == null) {
+            encoded = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoded.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoded message, counted without encoding it if not yet encoded.
+     *
+     * @return int
+     */
+    public int getByteLength() {
+        if (encoded != null) {
+            return encoded.capacity();
+        }
+        if (byteLength < 0) {
+            byteLength = utf8Length(text);
+        }
+        return byteLength;
+    }
+
+    /**
+     * Counts the UTF-8 encoded length of a string without encoding it.
+     *
+     * @param text {@link String}
+     * @return int
+     */
+    static int utf8Length(String text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                // surrogate pairs take 4 bytes over 2 chars, other chars 3 bytes
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Traces where the time goes while logging, for when logging shows up in a profile. One in
+ * {@link #getSampleEvery()} events is traced, `System.nanoTime()` being read between its stages and
+ * the deltas recorded into a {@link LogHistogram} per {@link Stage}:
+ *
+ * <pre>
+ *      params      parsing the call params and rendering their values
+ *      context     merging the instance bound, thread scoped and global context and the MDC entries
+ *      render      feeding the event to the renderer
+ *      end         {@link io.github.kwahome.sopa.interfaces.LogRenderer#end}, serializing it
+ *      sink        writing the rendered message, e.g. the slf4j backend call
+ * </pre>
+ *
+ * Render, end and sink are recorded once per output and sink written to. Tracing is off by default
+ * and costs a volatile read per event while off. The breakdown is published as an MXBean while tracing
+ * and can be dumped as a table to pin a regression onto a stage without an external profiler.
+ *
+ * <pre>
+ *      StageTracer.getInstance().enable(100);
+ *      ...
+ *      LOGGER.info(StageTracer.getInstance().dump());
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public final class StageTracer implements StageTracerMXBean {
+    private static final StageTracer INSTANCE = new StageTracer();
+
+    private static final double NANOS_PER_MICRO = 1000d;
+
+    private final Map<Stage, LogHistogram> histograms = new EnumMap<>(Stage.class);
+
+    private volatile int sampleEvery;
+
+    /**
+     * Stages of logging an event.
+     */
+    public enum Stage {
+        PARAMS, CONTEXT, RENDER, END, SINK
+    }
+
+    private StageTracer() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LogHistogram());
+        }
+    }
+
+    /**
+     * Returns the tracer shared by all loggers.
+     *
+     * @return {@link StageTracer}
+     */
+    public static StageTracer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts tracing and registers the MXBean.
+     *
+     * @param sampleEvery int one in how many events is traced, 1 for all
+     */
+    public synchronized void enable(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+        if (this.sampleEvery == 0) {
+            PipelineMetrics.register(PipelineMetrics.name("type=StageTracer"), this);
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * Stops tracing and unregisters the MXBean, keeping the latencies traced so far.
+     */
+    public synchronized void disable() {
+        if (sampleEvery != 0) {
+            sampleEvery = 0;
+            PipelineMetrics.unregister(PipelineMetrics.name("type=StageTracer"));
+        }
+    }
+
+    /**
+     * Whether tracing is on.
+     *
+     * @return boolean
+     */
+    public boolean isEnabled() {
+        return sampleEvery != 0;
+    }
+
+    @Override
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * Latencies traced for a stage.
+     *
+     * @param stage {@link Stage}
+     * @return {@link LogHistogram} of nanoseconds
+     */
+    public LogHistogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        histograms.forEach((stage, histogram) -> counts.put(name(stage), histogram.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        return micros(LogHistogram::getMean);
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        return micros(histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder table = new StringBuilder(String.format("%-8s %10s %12s %12s %12s %12s%n", "stage", "count",
+                "mean(us)", "p50(us)", "p99(us)", "max(us)"));
+        histograms.forEach((stage, histogram) -> table.append(String.format("%-8s %10d %12.2f %12.2f %12.2f %12.2f%n",
+                name(stage), histogram.getCount(), histogram.getMean() / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MICRO, histogram.getMax() / NANOS_PER_MICRO)));
+        return table.toString();
+    }
+
+    @Override
+    public void reset() {
+        histograms.values().forEach(LogHistogram::reset);
+    }
+
+    /**
+     * Decides whether the event being logged is traced.
+     *
+     * @return boolean
+     */
+    boolean sample() {
+        int every = sampleEvery;
+        return every == 1 || every > 1 && ThreadLocalRandom.current().nextInt(every) == 0;
+    }
+
+    /**
+     * Records the time a stage took.
+     *
+     * @param stage {@link Stage}
+     * @param start long `System.nanoTime()` the stage started at
+     * @return long `System.nanoTime()` the stage ended at, for the next one to start at
+     */
+    long lap(Stage stage, long start) {
+        long now = System.nanoTime();
+        histograms.get(stage).record(now - start);
+        return now;
+    }
+
+    private Map<String, Double> micros(ToDoubleFunction<LogHistogram> statistic) {
+        Map<String, Double> micros = new LinkedHashMap<>();
+        histograms.forEach((stage, histogram) -> micros.put(name(stage),
+                statistic.applyAsDouble(histogram) / NANOS_PER_MICRO));
+        return micros;
+    }
+
+    private static String name(Stage stage) {
+        return stage.name().toLowerCase();
+    }
+}
@@ -24,19 +24,23 @@
 
 package io.github.kwahome.sopa;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.slf4j.event.Level;
 
 import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSampler;
 import io.github.kwahome.sopa.interfaces.LoggableObject;
 import io.github.kwahome.sopa.interfaces.Logger;
 import io.github.kwahome.sopa.utils.Helpers;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 
 /**
@@ -44,18 +48,46 @@ import lombok.RequiredArgsConstructor;
  *
  * @author Kelvin Wahome
  */
-@RequiredArgsConstructor
 public class StructLogger implements Logger {
+    private static final String SAMPLE_RATE = "sampleRate";
+
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
+
+    private static final StageTracer TRACER = StageTracer.getInstance();
+
+    private static final CallSiteAccounting CALL_SITES = CallSiteAccounting.getInstance();
+
     private final org.slf4j.Logger slf4jLogger;
 
     private Optional<LoggableObject> instanceBoundContext = Optional.empty();
 
+    /**
+     * Whether the bound context matches the current {@link DebugRules}, reset whenever the context changes.
+     */
+    private volatile DebugMatch debugMatch;
+
+    /**
+     * Settings resolved for this logger's name, swapped as a whole by {@link StructLoggerConfig}
+     * whenever the configuration changes.
+     */
+    private volatile LoggerSettings settings;
+
+    /**
+     * Constructor
+     *
+     * @param slf4jLogger {@link org.slf4j.Logger} to delegate to
+     */
+    public StructLogger(@NonNull org.slf4j.Logger slf4jLogger) {
+        this.slf4jLogger = slf4jLogger;
+        this.settings = StructLoggerConfig.register(this);
+    }
+
     StructLogger(String name) {
-        slf4jLogger = LoggerFactory.getLogger(name);
+        this(LoggerFactory.getLogger(name));
     }
 
     StructLogger(Class<?> source) {
-        slf4jLogger = LoggerFactory.getLogger(source);
+        this(LoggerFactory.getLogger(source));
     }
 
     /**
@@ -107,6 +139,8 @@ public class StructLogger implements Logger {
     public void debug(String message, Object... params) {
         if (slf4jLogger.isDebugEnabled()) {
             log(Level.DEBUG, message, params);
+        } else {
+            logBelowLevel(settings, Level.DEBUG, message, params);
         }
     }
 
@@ -120,6 +154,8 @@ public class StructLogger implements Logger {
     public void trace(String message, Object... params) {
         if (slf4jLogger.isTraceEnabled()) {
             log(Level.TRACE, message, params);
+        } else {
+            logBelowLevel(settings, Level.TRACE, message, params);
         }
     }
 
@@ -130,7 +166,7 @@ public class StructLogger implements Logger {
      */
     @Override
     public boolean isErrorEnabled() {
-        return slf4jLogger.isErrorEnabled();
+        return slf4jLogger.isErrorEnabled() && settings.isEnabled(Level.ERROR);
     }
 
     /**
@@ -140,7 +176,7 @@ public class StructLogger implements Logger {
      */
     @Override
     public boolean isWarnEnabled() {
-        return slf4jLogger.isWarnEnabled();
+        return slf4jLogger.isWarnEnabled() && settings.isEnabled(Level.WARN);
     }
 
     /**
@@ -150,7 +186,7 @@ public class StructLogger implements Logger {
      */
     @Override
     public boolean isInfoEnabled() {
-        return slf4jLogger.isInfoEnabled();
+        return slf4jLogger.isInfoEnabled() && settings.isEnabled(Level.INFO);
     }
 
     /**
@@ -160,7 +196,9 @@ public class StructLogger implements Logger {
      */
     @Override
     public boolean isDebugEnabled() {
-        return slf4jLogger.isDebugEnabled();
+        LoggerSettings loggerSettings = settings;
+        return slf4jLogger.isDebugEnabled() && loggerSettings.isEnabled(Level.DEBUG)
+                || isTargeted(loggerSettings, Level.DEBUG);
     }
 
     /**
@@ -170,7 +208,9 @@ public class StructLogger implements Logger {
      */
     @Override
     public boolean isTraceEnabled() {
-        return slf4jLogger.isTraceEnabled();
+        LoggerSettings loggerSettings = settings;
+        return slf4jLogger.isTraceEnabled() && loggerSettings.isEnabled(Level.TRACE)
+                || isTargeted(loggerSettings, Level.TRACE);
     }
 
     /**
@@ -182,6 +222,33 @@ public class StructLogger implements Logger {
         return slf4jLogger;
     }
 
+    /**
+     * Logger name.
+     *
+     * @return {@link String}
+     */
+    public String getName() {
+        return slf4jLogger.getName();
+    }
+
+    /**
+     * {@link LoggerSettings} setter, called by {@link StructLoggerConfig} on configuration changes.
+     *
+     * @param settings {@link LoggerSettings}
+     */
+    void setSettings(LoggerSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * {@link LoggerSettings} getter.
+     *
+     * @return {@link LoggerSettings}
+     */
+    LoggerSettings getSettings() {
+        return settings;
+    }
+
     /**
      * Returns a {@link LoggableObject} from the optional {@link #instanceBoundContext}.
      * If the {@link Optional} is empty, an empty {@link GenericLoggableObject} is returned.
@@ -203,21 +270,7 @@ public class StructLogger implements Logger {
      */
     private void setInstanceBoundContext(LoggableObject instanceBoundContext) {
         this.instanceBoundContext = Optional.of(instanceBoundContext);
-    }
-
-    /**
-     * Returns a {@link LoggableObject} from the {@link StructLoggerConfig} contextSupplier.
-     *
-     * If the optional is empty, an empty {@link GenericLoggableObject} is returned.
-     *
-     * @return {@link LoggableObject}
-     */
-    private LoggableObject getLoggableGlobalContextSupplier() {
-        LoggableObject loggableObject = new GenericLoggableObject();
-        if (StructLoggerConfig.getContextSupplier().isPresent()) {
-            loggableObject = StructLoggerConfig.getContextSupplier().get();
-        }
-        return loggableObject;
+        this.debugMatch = null;
     }
 
     /**
@@ -265,7 +318,19 @@ public class StructLogger implements Logger {
      */
     @Override
     public void unbind(Object...params) {
-        instanceBoundContext = Optional.of(new GenericLoggableObject(removeItemFromBoundContext(params)));
+        setInstanceBoundContext(new GenericLoggableObject(removeItemFromBoundContext(params)));
+    }
+
+    /**
+     * Opens a {@link WideEvent} accumulating key-value pairs, counters and timings across a unit of
+     * work and logged with this logger, bound context included, once closed.
+     *
+     * @param message {@link String} message
+     * @return {@link WideEvent}
+     */
+    @Override
+    public WideEvent wideEvent(String message) {
+        return WideEvent.open(this, message);
     }
 
     /**
@@ -279,7 +344,7 @@ public class StructLogger implements Logger {
      */
     private Object[] addParamsToBoundContext(Object...params) {
         Map<String, Object> globalLoggerContext = Helpers.objectArrayToMap(
-                getLoggableGlobalContextSupplier().loggableObject());
+                settings.getContextSupplier().loggableObject());
         Map<String, Object> stringObjectMap = Helpers.objectArrayToMap(
                 getLoggableInstanceBoundContext().loggableObject());
         boolean proceed = true;
@@ -304,14 +369,14 @@ public class StructLogger implements Logger {
                         if (!globalLoggerContext.containsKey(key)) {
                             stringObjectMap.put(key, params[i]);
                         } else {
-                            slf4jLogger.warn(
+                            internalWarning(
                                     String.format("%s key `%s` ignored because it exists in the global context with " +
                                     "value `%s` which takes precedence.", StructLoggerConfig.getSopaLoggerTag(), key,
                                     globalLoggerContext.get(key)));
                         }
                     }
                 } else {
-                    slf4jLogger.warn(String.format("%s odd number of parameters (%s) passed in. " +
+                    internalWarning(String.format("%s odd number of parameters (%s) passed in. " +
                             "The value pair for key `%s` not found thus it has been ignored.",
                             StructLoggerConfig.getSopaLoggerTag(), params.length, param));
                 }
@@ -351,7 +416,7 @@ public class StructLogger implements Logger {
                         stringObjectMap.remove(key, params[i]);
                     }
                 } else {
-                    slf4jLogger.warn(String.format("%s odd number of parameters (%s) passed in. " +
+                    internalWarning(String.format("%s odd number of parameters (%s) passed in. " +
                                     "The value pair for key `%s` not found thus it has been ignored.",
                             StructLoggerConfig.getSopaLoggerTag(), params.length, param));
                 }
@@ -363,12 +428,12 @@ public class StructLogger implements Logger {
     /**
      * Handle {@link LoggableObject} implementations
      *
-     * @param logRenderer "{@link LogRenderer <T>} implementation"
-     * @param builderObject "{@link Object} builder"
+     * @param loggerSettings "{@link LoggerSettings} the event is captured with"
+     * @param event "{@link LogEvent} being captured"
      * @param loggableObject "{@link LoggableObject}"
      */
     private void handleLoggableObject(
-            LogRenderer<Object> logRenderer, Object builderObject, @NonNull LoggableObject loggableObject) {
+            LoggerSettings loggerSettings, LogEvent event, @NonNull LoggableObject loggableObject) {
         Object[] params = loggableObject.loggableObject();
         int size = params.length;
         if (size % 2 != 0) {
@@ -380,52 +445,96 @@ public class StructLogger implements Logger {
              * at index 0.
              */
             size = size - 1;
-            slf4jLogger.warn(String.format("%s odd number of parameters (%s) returned from %s.loggableObject(). " +
+            internalWarning(String.format("%s odd number of parameters (%s) returned from %s.loggableObject(). " +
                     "The value pair for key `%s` not found thus it has been ignored.",
                     StructLoggerConfig.getSopaLoggerTag(), params.getClass().getName(), params.length, params[size]));
 
         }
         for (int i = 0; i < size; i = i + 2) {
-            handleKeyValue(logRenderer, builderObject, params[i], params[i + 1], loggableObject);
+            handleKeyValue(loggerSettings, event, params[i], params[i + 1], loggableObject);
         }
     }
 
     /**
-     * Common logic for handling/rendering a key-value pair.
+     * Common logic for handling/capturing a key-value pair.
      *
      * Returns true/false which is dependent on success or not thereof
      *
-     * @param logRenderer "LogRenderer implementation"
-     * @param builderObject "Object builder"
+     * @param loggerSettings "{@link LoggerSettings} the event is captured with"
+     * @param event "{@link LogEvent} being captured"
      * @param keyObject "key"
      * @param value "value"
      * @param loggableSourceObject "Loggable source object"
      * @return boolean
      */
-    private boolean handleKeyValue(LogRenderer<Object> logRenderer, Object builderObject, Object keyObject,
-                                   Object value, LoggableObject loggableSourceObject) {
+    private boolean handleKeyValue(LoggerSettings loggerSettings, LogEvent event, Object keyObject, Object value,
+                                   LoggableObject loggableSourceObject) {
         boolean valid = validateKey(keyObject, loggableSourceObject, true);
         if (valid) {
             String key = (String) keyObject;
-            Function<Object, String> valueRenderer = StructLoggerConfig.getValueRenderer();
-            logRenderer.addKeyValue(slf4jLogger, builderObject, key, valueRenderer.apply(value));
+            Function<Object, String> valueRenderer = loggerSettings.getValueRenderer();
+            addRedacted(loggerSettings, event, key, valueRenderer.apply(value));
         }
         return valid;
     }
 
+    /**
+     * Renders a value with the configured value renderer, as the values of params are.
+     *
+     * @param value {@link Object} value
+     * @return {@link String} rendered value
+     */
+    String renderValue(Object value) {
+        return settings.getValueRenderer().apply(value);
+    }
+
+    /**
+     * Adds a rendered value taken from logged events to an event built outside of a log call, e.g. a
+     * summary, masked by the configured {@link Redactor} if any as the logged events were.
+     *
+     * @param event {@link LogEvent}
+     * @param key {@link String} key
+     * @param value {@link String} rendered value
+     * @return {@link LogEvent}
+     */
+    LogEvent addRedacted(LogEvent event, String key, String value) {
+        Redactor redactor = settings.getRedactor();
+        return event.add(key, redactor == null ? value : redactor.redact(key, value));
+    }
+
+    /**
+     * Adds a rendered value to the event, masked by the configured {@link Redactor} if any, and counts
+     * it against its key if a {@link FieldAnalyzer} is configured.
+     *
+     * @param loggerSettings {@link LoggerSettings}
+     * @param event {@link LogEvent}
+     * @param key {@link String} key
+     * @param value {@link String} rendered value
+     */
+    private void addRedacted(LoggerSettings loggerSettings, LogEvent event, String key, String value) {
+        Redactor redactor = loggerSettings.getRedactor();
+        String added = redactor == null ? value : redactor.redact(key, value);
+        event.add(key, added);
+        FieldAnalyzer fieldAnalyzer = loggerSettings.getFieldAnalyzer();
+        if (fieldAnalyzer != null && fieldAnalyzer.record(key, added)) {
+            internalWarning(String.format("%s key `%s` crossed a field analyzer threshold: %s.",
+                    StructLoggerConfig.getSopaLoggerTag(), key, fieldAnalyzer.getStats(key)));
+        }
+    }
+
     /**
      * Handle passed in {@link Map <String, Object>} objects containing key, value loggable entries
      * to be iterated over as key-value pairs
      *
-     * @param logRenderer {@link LogRenderer <T>}
-     * @param builderObject {@link Object}
+     * @param loggerSettings {@link LoggerSettings}
+     * @param event {@link LogEvent}
      * @param map {@link Map <String, Object>}
      */
-    private void handleMap(LogRenderer<Object> logRenderer, Object builderObject, @NonNull Map<String, Object> map) {
+    private void handleMap(LoggerSettings loggerSettings, LogEvent event, @NonNull Map<String, Object> map) {
         Object[] mapKeySet = map.keySet().toArray();
         Object[] mapValues = map.values().toArray();
         for (int i = 0; i < map.size(); i++) {
-            handleKeyValue(logRenderer, builderObject, mapKeySet[i], mapValues[i], null);
+            handleKeyValue(loggerSettings, event, mapKeySet[i], mapValues[i], null);
         }
     }
 
@@ -452,19 +561,19 @@ public class StructLogger implements Logger {
                 valid = true;
             } else if (warningLog) {
                 if (loggableSourceObject == null) {
-                    slf4jLogger.warn(String.format("%s key `%s` with spaces passed in.",
+                    internalWarning(String.format("%s key `%s` with spaces passed in.",
                             StructLoggerConfig.getSopaLoggerTag(), key));
                 } else {
-                    slf4jLogger.warn(String.format("%s key `%s` with spaces passed in from %s.loggableObject()",
+                    internalWarning(String.format("%s key `%s` with spaces passed in from %s.loggableObject()",
                             StructLoggerConfig.getSopaLoggerTag(), key, loggableSourceObject.getClass().getName()));
                 }
             }
         } else if (warningLog) {
             if (loggableSourceObject == null) {
-                slf4jLogger.warn(String.format("%s key `%s` expected to be of type String but `%s` passed in.",
+                internalWarning(String.format("%s key `%s` expected to be of type String but `%s` passed in.",
                         StructLoggerConfig.getSopaLoggerTag(), keyObject, keyObject.getClass().getName()));
             } else {
-                slf4jLogger.warn(String.format(
+                internalWarning(String.format(
                         "%s key `%s` expected to be of type String but `%s` passed in from %s.loggableObject()",
                         StructLoggerConfig.getSopaLoggerTag(), keyObject, keyObject.getClass().getName(),
                         loggableSourceObject.getClass().getName()));
@@ -476,173 +585,401 @@ public class StructLogger implements Logger {
 
     /**
      * Common method to handle structured logging.
-     * It delegates logging of different levels to the {@link #slf4jLogger} logger.
+     *
+     * Events passing the level check are sampled, rate limited and deduplicated first so that dropped
+     * events cost neither capturing nor rendering. The params of kept events are captured once into a {@link LogEvent}
+     * which is then rendered at most once per distinct {@link LogRenderer} and handed to every
+     * configured sink.
      *
      * @param level "{@link Level}"
      * @param message "{@link String} message"
      * @param params "{@link Object}[] containing key-value pairs at alternate indices"
      */
     private void log(Level level, @NonNull String message, Object...params) {
+        LoggerSettings loggerSettings = settings;
+        if (loggerSettings.isEnabled(level)) {
+            FlightRecorder flightRecorder = loggerSettings.getFlightRecorder();
+            if (level == Level.ERROR && flightRecorder != null) {
+                flightRecorder.dump();
+            }
+            process(loggerSettings, level, level, message, params);
+        } else {
+            logBelowLevel(loggerSettings, level, message, params);
+        }
+    }
+
+    /**
+     * Handles an event below the configured levels: it is logged if the bound context matches the
+     * {@link DebugRules}, otherwise it is kept by the {@link FlightRecorder} in case an error follows.
+     *
+     * @param loggerSettings "{@link LoggerSettings}"
+     * @param level "{@link Level}"
+     * @param message "{@link String} message"
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
+     */
+    private void logBelowLevel(LoggerSettings loggerSettings, Level level, @NonNull String message,
+                               Object...params) {
+        if (isTargeted(loggerSettings, level)) {
+            process(loggerSettings, level, loggerSettings.getDebugRules().getEmitLevel(), message, params);
+        } else if (loggerSettings.getFlightRecorder() != null) {
+            loggerSettings.getFlightRecorder().record(this, level, message, instanceBoundContext.orElse(null),
+                    Context.current(), params);
+        }
+    }
+
+    /**
+     * Whether events at the passed level are logged regardless of the configured levels because the
+     * bound context matches the {@link DebugRules}.
+     *
+     * The match is cached until the bound context or the rules change so that this is only a couple of
+     * reads for loggers that do not match.
+     *
+     * @param loggerSettings "{@link LoggerSettings}"
+     * @param level "{@link Level}"
+     * @return boolean
+     */
+    private boolean isTargeted(LoggerSettings loggerSettings, Level level) {
+        DebugRules debugRules = loggerSettings.getDebugRules();
+        if (debugRules == null || !debugRules.enables(level)) {
+            return false;
+        }
+        DebugMatch match = debugMatch;
+        if (match == null || match.debugRules != debugRules) {
+            match = new DebugMatch(debugRules,
+                    debugRules.matches(getLoggableInstanceBoundContext().loggableObject()));
+            debugMatch = match;
+        }
+        return match.matches;
+    }
+
+    /**
+     * Runs an event that passed the level check through the pipeline.
+     *
+     * @param loggerSettings "{@link LoggerSettings}"
+     * @param level "{@link Level}" the event was logged at
+     * @param emitLevel "{@link Level}" the event is written at, differs for events logged by {@link DebugRules}
+     * @param message "{@link String} message"
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
+     */
+    private void process(LoggerSettings loggerSettings, Level level, Level emitLevel, String message,
+                         Object...params) {
         try {
-            Throwable throwable = null;
-            LogRenderer<Object> logRenderer = StructLoggerConfig.getLogRenderer();
-            Object builderObject = logRenderer.start(slf4jLogger);
-            logRenderer.addMessage(slf4jLogger, builderObject, message);
-            boolean processKeyValues = true; // set to false in case of errors thus cannot rely on the order any more
-            for (int i = 0; i < params.length; i++) {
-                Object param = params[i];
-                if (param instanceof LoggableObject) {
-                    handleLoggableObject(logRenderer, builderObject, (LoggableObject) param);
-                } else if (param instanceof Throwable) {
-                    // exceptions are not logged directly (unless they implement LoggableObject)
-                    // they will get passed separate as exceptions to the base slf4j API
-                    throwable = (Throwable) param;
-                    // also log the error explicitly as a separate key-value pair for easy parsing
-                    logRenderer.addKeyValue(
-                            slf4jLogger, builderObject, "errorMessage", getCauseErrorMessage(throwable));
-                } else if (param instanceof Map &&
-                        (i % 2 == 0 || (i % 2 != 0 && !validateKey(params[i - 1], null, false)))) {
-                    handleMap(logRenderer, builderObject, (Map<String, Object>) param);
-                } else if (processKeyValues) {
-                    // dynamic key-value pairs being passed in
-                    // process the key-value pairs only if no errors were encountered and order can is reliably correct
-                    // move on to the next field automatically and assume it's the value
-                    i++;
-                    if (i < params.length) {
-                        // error encountered in a key, stop processing other key-value pairs
-                        processKeyValues = handleKeyValue(logRenderer, builderObject, param, params[i], null);
-                    } else {
-                        slf4jLogger.warn(String.format("%s odd number of parameters (%s) passed in. " +
-                                        "The value pair for key `%s` not found thus it has been ignored.",
-                                StructLoggerConfig.getSopaLoggerTag(), params.length, param));
-                    }
-                }
+            LogSampler sampler = loggerSettings.getSampler();
+            Deduplicator deduplicator = loggerSettings.getDeduplicator();
+            RateLimiter rateLimiter = loggerSettings.getRateLimiter();
+            Aggregator aggregator = loggerSettings.getAggregator();
+            Function<String, Object> values = sampler == LogSampler.KEEP_ALL && deduplicator == null
+                    && rateLimiter == null && aggregator == null ? null : key -> findValue(loggerSettings, key, params);
+            // aggregated before anything is dropped so that the metrics stay exact
+            if (aggregator != null) {
+                aggregator.aggregate(this, values);
+            }
+            int sampleRate = sampler == LogSampler.KEEP_ALL ? LogSampler.KEEP : sampler.sample(level, message, values);
+            if (sampleRate == LogSampler.DROP) {
+                METRICS.sampled();
+                return;
+            }
+            if (rateLimiter != null && !rateLimiter.tryAcquire(this, level, values)) {
+                METRICS.rateLimited();
+                return;
+            }
+            // deduplicated after rate limiting so that a summary only ever repeats an event that was logged
+            Deduplicator.Entry occurrence = null;
+            if (deduplicator != null && (occurrence = deduplicator.track(this, level, message, values)) == null) {
+                METRICS.deduplicated();
+                return;
+            }
+            LogEvent event = capture(loggerSettings, emitLevel, message, getLoggableInstanceBoundContext(),
+                    Context.current(), params);
+            if (sampleRate != LogSampler.KEEP) {
+                event.add(SAMPLE_RATE, sampleRate);
             }
-            // add logger instance bound context
-            handleLoggableObject(logRenderer, builderObject, getLoggableInstanceBoundContext());
-            // add mandatory context, if specified
-            handleLoggableObject(logRenderer, builderObject, getLoggableGlobalContextSupplier());
-            // actual logging via slf4j
-            log(level, logRenderer.end(slf4jLogger, builderObject), throwable);
+            if (emitLevel != level) {
+                event.add(DebugRules.DEBUG_LEVEL, level.toString());
+            }
+            if (occurrence != null) {
+                occurrence.setEvent(event);
+            }
+            // actual logging via the configured sinks, slf4j by default
+            write(loggerSettings, event);
         } catch (Exception ex) {
-            slf4jLogger.error(String.format(
-                    "%s unexpected logger error `%s`.", StructLoggerConfig.getSopaLoggerTag(), ex.getMessage()), ex);
+            internalError(ex);
         }
     }
 
     /**
-     * {@link #log(Level, String, Object...)} overload that calls {@link #slf4jLogger} method
-     * handling the {@link Level} passed with a formatted structured message string and a
-     * {@link Throwable} if any
+     * Hands an already captured event, e.g. a deduplication summary, to the sinks currently
+     * configured for this logger.
      *
-     * @param level "{@link Level} level"
-     * @param structuredMessage "String message"
-     * @param err "{@link Throwable} error"
+     * @param event "{@link LogEvent}"
      */
-    private void log(Level level, String structuredMessage, Throwable err) {
-        switch (level) {
-            case ERROR:
-                logAtError(structuredMessage, err);
-                break;
-            case WARN:
-                logAtWarn(structuredMessage, err);
-                break;
-            case INFO:
-                logAtInfo(structuredMessage, err);
-                break;
-            case DEBUG:
-                logAtDebug(structuredMessage, err);
-                break;
-            case TRACE:
-                logAtTrace(structuredMessage, err);
-                break;
-            default:
-                // nothing to do
+    void dispatch(LogEvent event) {
+        try {
+            write(settings, event);
+        } catch (Exception ex) {
+            internalError(ex);
         }
     }
 
     /**
-     * Handles actual logging of ERROR {@link Level}.
+     * Writes an event to the outputs of the settings and counts it.
      *
-     * @param structuredMessage {@link String}
-     * @param err {@link Throwable}
+     * @param loggerSettings "{@link LoggerSettings}"
+     * @param event "{@link LogEvent}"
      */
-    private void logAtError(String structuredMessage, Throwable err) {
-        if (err == null) {
-            slf4jLogger.error(structuredMessage);
-        } else {
-            slf4jLogger.error(structuredMessage, err);
+    private void write(LoggerSettings loggerSettings, LogEvent event) {
+        for (LogOutput logOutput : loggerSettings.getLogOutputs()) {
+            logOutput.write(slf4jLogger, event);
         }
+        METRICS.written(event.getLevel(), slf4jLogger.getName());
+        CALL_SITES.record(this, event);
     }
 
     /**
-     * Handles actual logging of WARN {@link Level}.
+     * Warns about the use of this logger, e.g. an invalid key, through the underlying slf4j logger.
      *
-     * @param structuredMessage {@link String}
-     * @param err {@link Throwable}
+     * @param message "{@link String} warning"
      */
-    private void logAtWarn(String structuredMessage, Throwable err) {
-        if (err == null) {
-            slf4jLogger.warn(structuredMessage);
-        } else {
-            slf4jLogger.warn(structuredMessage, err);
+    private void internalWarning(String message) {
+        METRICS.warned();
+        slf4jLogger.warn(message);
+    }
+
+    /**
+     * Reports an unexpected error caught while logging through the underlying slf4j logger.
+     *
+     * @param ex "{@link Exception}"
+     */
+    private void internalError(Exception ex) {
+        METRICS.failed();
+        slf4jLogger.error(String.format(
+                "%s unexpected logger error `%s`.", StructLoggerConfig.getSopaLoggerTag(), ex.getMessage()), ex);
+    }
+
+    /**
+     * Logs an event recorded by the {@link FlightRecorder} earlier, captured only now.
+     *
+     * @param level "{@link Level}" the event was logged at
+     * @param emitLevel "{@link Level}" the event is written at
+     * @param message "{@link String} message"
+     * @param boundContext "{@link LoggableObject}" instance bound context when the event was logged, may be null
+     * @param scopedContext "{@link Context.Frame}" thread scoped context when the event was logged, may be null
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
+     * @param recordedAt long epoch milliseconds the event was logged at
+     */
+    void replay(Level level, Level emitLevel, String message, LoggableObject boundContext,
+                Context.Frame scopedContext, Object[] params, long recordedAt) {
+        try {
+            LoggerSettings loggerSettings = settings;
+            LogEvent event = capture(loggerSettings, emitLevel, message,
+                    boundContext == null ? new GenericLoggableObject() : boundContext, scopedContext, params);
+            event.add(DebugRules.DEBUG_LEVEL, level.toString()).add(FlightRecorder.RECORDED_AT, recordedAt);
+            write(loggerSettings, event);
+        } catch (Exception ex) {
+            internalError(ex);
         }
     }
 
     /**
-     * Handles actual logging of INFO {@link Level}.
+     * Captures the message, params, instance bound context, thread scoped context and global context
+     * into a {@link LogEvent} of validated key-value pairs.
      *
-     * @param structuredMessage {@link String}
-     * @param err {@link Throwable}
+     * @param loggerSettings "{@link LoggerSettings} to capture with"
+     * @param level "{@link Level}"
+     * @param message "{@link String} message"
+     * @param boundContext "{@link LoggableObject}" instance bound context
+     * @param scopedContext "{@link Context.Frame}" innermost frame of the thread scoped context, may be null
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
+     * @return {@link LogEvent}
      */
-    private void logAtInfo(String structuredMessage, Throwable err) {
-        if (err == null) {
-            slf4jLogger.info(structuredMessage);
-        } else {
-            slf4jLogger.info(structuredMessage, err);
+    private LogEvent capture(LoggerSettings loggerSettings, Level level, String message, LoggableObject boundContext,
+                             Context.Frame scopedContext, Object...params) {
+        LogEvent event = new LogEvent(level, message);
+        boolean traced = TRACER.sample();
+        long start = traced ? System.nanoTime() : 0;
+        handleParams(loggerSettings, event, params);
+        if (traced) {
+            start = TRACER.lap(StageTracer.Stage.PARAMS, start);
+        }
+        // add logger instance bound context
+        handleLoggableObject(loggerSettings, event, boundContext);
+        // add thread scoped context, innermost first
+        handleScopedContext(loggerSettings, event, scopedContext);
+        // add mandatory context, if specified
+        handleLoggableObject(loggerSettings, event, loggerSettings.getContextSupplier());
+        // add slf4j MDC entries not already present, if bridged
+        if (loggerSettings.getMDCBridge() != null) {
+            handleMDC(loggerSettings, event, loggerSettings.getMDCBridge());
         }
+        if (traced) {
+            TRACER.lap(StageTracer.Stage.CONTEXT, start);
+            event.setTraced(true);
+        }
+        return event;
     }
 
     /**
-     * Handles actual logging of DEBUG {@link Level}.
+     * Adds the call params to an event being captured.
      *
-     * @param structuredMessage {@link String}
-     * @param err {@link Throwable}
+     * @param loggerSettings "{@link LoggerSettings} to capture with"
+     * @param event "{@link LogEvent} being captured"
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
      */
-    private void logAtDebug(String structuredMessage, Throwable err) {
-        if (err == null) {
-            slf4jLogger.debug(structuredMessage);
-        } else {
-            slf4jLogger.debug(structuredMessage, err);
+    private void handleParams(LoggerSettings loggerSettings, LogEvent event, Object...params) {
+        boolean processKeyValues = true; // set to false in case of errors thus cannot rely on the order any more
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LoggableObject) {
+                handleLoggableObject(loggerSettings, event, (LoggableObject) param);
+            } else if (param instanceof Throwable) {
+                handleThrowable(loggerSettings, event, (Throwable) param);
+            } else if (param instanceof Map &&
+                    (i % 2 == 0 || (i % 2 != 0 && !validateKey(params[i - 1], null, false)))) {
+                handleMap(loggerSettings, event, (Map<String, Object>) param);
+            } else if (processKeyValues) {
+                // dynamic key-value pairs being passed in
+                // process the key-value pairs only if no errors were encountered and order can is reliably correct
+                // move on to the next field automatically and assume it's the value
+                i++;
+                if (i < params.length) {
+                    // error encountered in a key, stop processing other key-value pairs
+                    processKeyValues = handleKeyValue(loggerSettings, event, param, params[i], null);
+                } else {
+                    internalWarning(String.format("%s odd number of parameters (%s) passed in. " +
+                                    "The value pair for key `%s` not found thus it has been ignored.",
+                            StructLoggerConfig.getSopaLoggerTag(), params.length, param));
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle exceptions, which are not logged directly (unless they implement LoggableObject).
+     *
+     * They are passed separately to the base slf4j API, or encoded into structured fields if an
+     * {@link ExceptionEncoder} is configured.
+     *
+     * @param loggerSettings "{@link LoggerSettings} the event is captured with"
+     * @param event "{@link LogEvent} being captured"
+     * @param throwable "{@link Throwable}"
+     */
+    private void handleThrowable(LoggerSettings loggerSettings, LogEvent event, Throwable throwable) {
+        // also log the error explicitly as a separate key-value pair for easy parsing
+        addRedacted(loggerSettings, event, "errorMessage", getCauseErrorMessage(throwable));
+        ExceptionEncoder exceptionEncoder = loggerSettings.getExceptionEncoder();
+        if (exceptionEncoder == null) {
+            event.setThrowable(throwable);
+            return;
+        }
+        exceptionEncoder.encode(throwable, event, loggerSettings.getRedactor());
+    }
+
+    /**
+     * Handle the frames of the thread scoped {@link Context}, skipping keys hidden by a value pushed later.
+     *
+     * @param loggerSettings "{@link LoggerSettings} the event is captured with"
+     * @param event "{@link LogEvent} being captured"
+     * @param innermost "{@link Context.Frame}" innermost frame, may be null
+     */
+    private void handleScopedContext(LoggerSettings loggerSettings, LogEvent event, Context.Frame innermost) {
+        for (Context.Frame frame = innermost; frame != null; frame = frame.getParent()) {
+            Object[] params = frame.loggableObject();
+            // a key without a value is ignored
+            for (int i = 0; i + 1 < params.length; i = i + 2) {
+                if (frame == innermost || !innermost.hides(frame, params[i])) {
+                    handleKeyValue(loggerSettings, event, params[i], params[i + 1], frame);
+                }
+            }
         }
     }
 
     /**
-     * Handles actual logging of TRACE {@link Level}.
+     * Handle the entries of the slf4j {@link MDC} included by the {@link MDCBridge}, skipping keys the
+     * event already holds since MDC entries take the lowest precedence.
      *
-     * @param structuredMessage {@link String}
-     * @param err {@link Throwable}
+     * @param loggerSettings "{@link LoggerSettings} the event is captured with"
+     * @param event "{@link LogEvent} being captured"
+     * @param mdcBridge "{@link MDCBridge}"
      */
-    private void logAtTrace(String structuredMessage, Throwable err) {
-        if (err == null) {
-            slf4jLogger.trace(structuredMessage);
+    private void handleMDC(LoggerSettings loggerSettings, LogEvent event, MDCBridge mdcBridge) {
+        String[] keys = mdcBridge.includedKeys();
+        if (keys.length > 0) {
+            for (String key : keys) {
+                String value = MDC.get(key);
+                if (value != null && !event.containsKey(key)) {
+                    handleKeyValue(loggerSettings, event, key, value, null);
+                }
+            }
         } else {
-            slf4jLogger.trace(structuredMessage, err);
+            Object[] entries = mdcBridge.entries();
+            for (int i = 0; i < entries.length; i = i + 2) {
+                if (!event.containsKey((String) entries[i])) {
+                    handleKeyValue(loggerSettings, event, entries[i], entries[i + 1], null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the value of a key in the params, instance bound context, thread scoped context,
+     * global context and bridged MDC without capturing them.
+     *
+     * @param loggerSettings "{@link LoggerSettings}"
+     * @param key "{@link String} key"
+     * @param params "{@link Object}[] containing key-value pairs at alternate indices"
+     * @return {@link Object} value or null if the key is not found
+     */
+    private Object findValue(LoggerSettings loggerSettings, String key, Object[] params) {
+        Object value = Helpers.findValue(key, params);
+        if (value == null) {
+            value = Helpers.findValue(key, getLoggableInstanceBoundContext().loggableObject());
+        }
+        if (value == null) {
+            value = Context.get(key);
+        }
+        if (value == null) {
+            value = Helpers.findValue(key, loggerSettings.getContextSupplier().loggableObject());
+        }
+        if (value == null && loggerSettings.getMDCBridge() != null) {
+            value = loggerSettings.getMDCBridge().get(key);
         }
+        return value;
     }
 
     /**
-     * Recursively goes down the {@link Throwable} hierarchy to find the actual error message at the
-     * root of the stack trace.
+     * Goes down the {@link Throwable} hierarchy to find the actual error message at the root of the
+     * stack trace, stopping at the last distinct cause of a chain looping back onto itself.
      *
      * @param throwable "{@link Throwable}"
      * @return String
      */
     private String getCauseErrorMessage(Throwable throwable) {
-        if (throwable.getCause() == null) {
-            return throwable.getMessage();
-        } else {
-            return getCauseErrorMessage(throwable.getCause());
+        Throwable root = throwable;
+        Set<Throwable> seen = null;
+        while (root.getCause() != null) {
+            if (seen == null) {
+                seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                seen.add(root);
+            }
+            if (!seen.add(root.getCause())) {
+                break;
+            }
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /**
+     * Whether the bound context matched a set of {@link DebugRules}.
+     */
+    private static final class DebugMatch {
+        private final DebugRules debugRules;
+
+        private final boolean matches;
+
+        DebugMatch(DebugRules debugRules, boolean matches) {
+            this.debugRules = debugRules;
+            this.matches = matches;
         }
     }
 }
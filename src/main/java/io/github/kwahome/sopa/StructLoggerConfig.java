@@ -24,13 +24,21 @@
 
 package io.github.kwahome.sopa;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.event.Level;
 
 import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.interfaces.LogSink;
 import io.github.kwahome.sopa.interfaces.LoggableObject;
-import io.github.kwahome.sopa.renderers.KeyValueRenderer;
 import io.github.kwahome.sopa.utils.Helpers;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
@@ -40,21 +48,24 @@ import lombok.experimental.UtilityClass;
  *
  * This class exposes statics that can be accessed without need of an instance.
  *
+ * All configuration is held in a single immutable {@link ConfigTree}. Every setter publishes a new
+ * tree and re-resolves the {@link LoggerSettings} of every live {@link StructLogger}, so loggers
+ * never re-read these statics while logging and each log event sees one consistent snapshot.
+ *
  * @author Kelvin Wahome
  */
 @UtilityClass
 public class StructLoggerConfig {
     private static final String SOPA_LOGGER_TAG = "[sopa logger] :";
 
-    private static LogRenderer logRenderer = KeyValueRenderer.getInstance();
+    private static final Object LOCK = new Object();
 
-    private static Optional<LoggableObject> contextSupplier = Optional.empty();
-
-    // default value formatter returns a toString(), regardless of object type unless null
-    private static Function<Object, String> valueRenderer = (value) -> value == null ? "null" : value.toString();
+    /**
+     * Live loggers, weakly referenced so that registering does not keep them from being collected.
+     */
+    private static final Set<StructLogger> LOGGERS = Collections.newSetFromMap(new WeakHashMap<>());
 
-    // default char string to appear between log params
-    private static String logEntriesSeparator = ",";
+    private static volatile ConfigTree configTree = ConfigTree.defaults();
 
     public static String getSopaLoggerTag() {
         return SOPA_LOGGER_TAG;
@@ -63,20 +74,386 @@ public class StructLoggerConfig {
     /**
      * {@link LogRenderer} logRenderer setter method.
      *
-     * Allows override to the default logRenderer. Should be only done once during application
-     * startup from the main thread to avoid any concurrency issues
+     * Allows override to the default logRenderer. The change is applied atomically to all
+     * loggers that do not override the renderer via {@link #setLoggerConfig(String, LoggerConfig)}.
      *
      * @param logRenderer "Custom logRenderer implementing the {@link LogRenderer} interface"
      */
-    public static void setLogRenderer(LogRenderer logRenderer) {
-        StructLoggerConfig.logRenderer = logRenderer;
+    public static void setLogRenderer(@NonNull LogRenderer logRenderer) {
+        updateRoot(root -> root.logRenderer(logRenderer));
     }
 
     /**
      * logRenderer getter method.
      */
     public static LogRenderer getLogRenderer() {
-        return logRenderer;
+        return configTree.getRoot().getLogRenderer();
+    }
+
+    /**
+     * {@link LogSink} logSink setter method.
+     *
+     * Allows override to the default logSink that hands rendered log events to slf4j e.g. to ship
+     * them straight to a collector over a {@link io.github.kwahome.sopa.sinks.TCPSink}.
+     *
+     * @param logSink "Custom logSink implementing the {@link LogSink} interface"
+     */
+    public static void setLogSink(@NonNull LogSink logSink) {
+        updateRoot(root -> root.logSink(logSink));
+    }
+
+    /**
+     * logSink getter method.
+     */
+    public static LogSink getLogSink() {
+        return configTree.getRoot().getLogSink();
+    }
+
+    /**
+     * Adds a {@link LogSink} fed by the passed {@link LogRenderer} on top of the default logRenderer
+     * and logSink e.g. JSON to a local file alongside key=value lines to the console.
+     *
+     * Every log event is captured once and rendered at most once per distinct renderer; sinks
+     * sharing a renderer share the rendered message and its encoded bytes.
+     *
+     * @param logRenderer "{@link LogRenderer} formatting log events for the sink"
+     * @param logSink "{@link LogSink} to write to"
+     */
+    public static void addLogSink(@NonNull LogRenderer<?> logRenderer, @NonNull LogSink logSink) {
+        update(tree -> tree.withAdditionalLogSink(logRenderer, logSink));
+    }
+
+    /**
+     * Removes all sinks added via {@link #addLogSink(LogRenderer, LogSink)}.
+     */
+    public static void clearLogSinks() {
+        update(ConfigTree::withoutAdditionalLogSinks);
+    }
+
+    /**
+     * {@link LoggerConfig} setter method.
+     *
+     * Overrides configuration for all loggers whose name is, or is below, the passed logger name in
+     * the dot separated hierarchy e.g. `com.acme` applies to `com.acme.billing.InvoiceService`.
+     * Replaces any overrides previously set for the same logger name.
+     *
+     * @param loggerName "{@link String} logger name or name prefix"
+     * @param loggerConfig "{@link LoggerConfig} overrides"
+     */
+    public static void setLoggerConfig(@NonNull String loggerName, @NonNull LoggerConfig loggerConfig) {
+        update(tree -> tree.withLoggerConfig(loggerName, loggerConfig));
+    }
+
+    /**
+     * {@link LoggerConfig} getter method.
+     *
+     * @param loggerName "{@link String} logger name or name prefix"
+     * @return {@link Optional} overrides set for exactly this logger name
+     */
+    public static Optional<LoggerConfig> getLoggerConfig(@NonNull String loggerName) {
+        return Optional.ofNullable(configTree.getLoggerConfigs().get(loggerName));
+    }
+
+    /**
+     * Removes overrides set for the passed logger name.
+     *
+     * @param loggerName "{@link String} logger name or name prefix"
+     */
+    public static void clearLoggerConfig(@NonNull String loggerName) {
+        update(tree -> tree.withLoggerConfig(loggerName, null));
+    }
+
+    /**
+     * {@link Level} setter method.
+     *
+     * Sets the lowest level logged by all loggers without overrides of their own. This is applied on
+     * top of the slf4j backend's level, thus can only make logging less verbose than the backend allows.
+     *
+     * @param level {@link Level}
+     */
+    public static void setLevel(@NonNull Level level) {
+        updateRoot(root -> root.level(level));
+    }
+
+    /**
+     * {@link Level} getter method.
+     *
+     * @return {@link Level}
+     */
+    public static Level getLevel() {
+        return configTree.getRoot().getLevel();
+    }
+
+    /**
+     * {@link LogSampler} setter method.
+     *
+     * Sets the sampler deciding which events are kept by all loggers without overrides of their own,
+     * e.g. a {@link io.github.kwahome.sopa.samplers.KeySampler} keeping 10% of requests by traceId.
+     *
+     * @param sampler {@link LogSampler}, {@link LogSampler#KEEP_ALL} to turn off sampling
+     */
+    public static void setSampler(@NonNull LogSampler sampler) {
+        updateRoot(root -> root.sampler(sampler));
+    }
+
+    /**
+     * {@link LogSampler} getter method.
+     *
+     * @return {@link LogSampler}
+     */
+    public static LogSampler getSampler() {
+        return configTree.getRoot().getSampler();
+    }
+
+    /**
+     * {@link Deduplicator} setter method.
+     *
+     * Collapses bursts of identical events logged by all loggers without overrides of their own
+     * into the first occurrence and a summary with a `repeatCount`.
+     *
+     * @param deduplicator {@link Deduplicator}
+     */
+    public static void setDeduplicator(@NonNull Deduplicator deduplicator) {
+        updateRoot(root -> root.deduplicator(Optional.of(deduplicator)));
+    }
+
+    /**
+     * {@link Optional} deduplicator getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<Deduplicator> getDeduplicator() {
+        return configTree.getRoot().getDeduplicator();
+    }
+
+    /**
+     * Turns off deduplication.
+     */
+    public static void clearDeduplicator() {
+        updateRoot(root -> root.deduplicator(Optional.empty()));
+    }
+
+    /**
+     * {@link RateLimiter} setter method.
+     *
+     * Caps the number of events per second logged by each logger, or per value of a key, for all
+     * loggers without overrides of their own.
+     *
+     * @param rateLimiter {@link RateLimiter}
+     */
+    public static void setRateLimiter(@NonNull RateLimiter rateLimiter) {
+        updateRoot(root -> root.rateLimiter(Optional.of(rateLimiter)));
+    }
+
+    /**
+     * {@link Optional} rateLimiter getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<RateLimiter> getRateLimiter() {
+        return configTree.getRoot().getRateLimiter();
+    }
+
+    /**
+     * Turns off rate limiting.
+     */
+    public static void clearRateLimiter() {
+        updateRoot(root -> root.rateLimiter(Optional.empty()));
+    }
+
+    /**
+     * {@link DebugRules} setter method.
+     *
+     * Turns on debug logging for the loggers, without overrides of their own, whose bound context
+     * matches the rules regardless of the level of the slf4j backend. Can be changed at runtime.
+     *
+     * @param debugRules {@link DebugRules}
+     */
+    public static void setDebugRules(@NonNull DebugRules debugRules) {
+        updateRoot(root -> root.debugRules(Optional.of(debugRules)));
+    }
+
+    /**
+     * {@link Optional} debugRules getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<DebugRules> getDebugRules() {
+        return configTree.getRoot().getDebugRules();
+    }
+
+    /**
+     * Turns off debug rules.
+     */
+    public static void clearDebugRules() {
+        updateRoot(root -> root.debugRules(Optional.empty()));
+    }
+
+    /**
+     * {@link Redactor} setter method.
+     *
+     * Masks personal data and secrets in the values logged by all loggers without overrides of
+     * their own.
+     *
+     * @param redactor {@link Redactor}
+     */
+    public static void setRedactor(@NonNull Redactor redactor) {
+        updateRoot(root -> root.redactor(Optional.of(redactor)));
+    }
+
+    /**
+     * {@link Optional} redactor getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<Redactor> getRedactor() {
+        return configTree.getRoot().getRedactor();
+    }
+
+    /**
+     * Turns off redaction.
+     */
+    public static void clearRedactor() {
+        updateRoot(root -> root.redactor(Optional.empty()));
+    }
+
+    /**
+     * {@link FlightRecorder} setter method.
+     *
+     * Keeps the recent events that all loggers without overrides of their own do not log because of
+     * their level and logs them when an error is logged on the same thread.
+     *
+     * @param flightRecorder {@link FlightRecorder}
+     */
+    public static void setFlightRecorder(@NonNull FlightRecorder flightRecorder) {
+        updateRoot(root -> root.flightRecorder(Optional.of(flightRecorder)));
+    }
+
+    /**
+     * {@link Optional} flightRecorder getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<FlightRecorder> getFlightRecorder() {
+        return configTree.getRoot().getFlightRecorder();
+    }
+
+    /**
+     * Turns off the flight recorder.
+     */
+    public static void clearFlightRecorder() {
+        updateRoot(root -> root.flightRecorder(Optional.empty()));
+    }
+
+    /**
+     * {@link MDCBridge} setter method.
+     *
+     * Adds the slf4j MDC entries to the events of all loggers without overrides of their own.
+     *
+     * @param mdcBridge {@link MDCBridge}
+     */
+    public static void setMDCBridge(@NonNull MDCBridge mdcBridge) {
+        updateRoot(root -> root.mdcBridge(Optional.of(mdcBridge)));
+    }
+
+    /**
+     * {@link Optional} mdcBridge getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<MDCBridge> getMDCBridge() {
+        return configTree.getRoot().getMdcBridge();
+    }
+
+    /**
+     * Turns off MDC bridging.
+     */
+    public static void clearMDCBridge() {
+        updateRoot(root -> root.mdcBridge(Optional.empty()));
+    }
+
+    /**
+     * {@link ExceptionEncoder} setter method.
+     *
+     * Logs exceptions as structured fields for all loggers without overrides of their own instead of
+     * passing them to slf4j.
+     *
+     * @param exceptionEncoder {@link ExceptionEncoder}
+     */
+    public static void setExceptionEncoder(@NonNull ExceptionEncoder exceptionEncoder) {
+        updateRoot(root -> root.exceptionEncoder(Optional.of(exceptionEncoder)));
+    }
+
+    /**
+     * {@link Optional} exceptionEncoder getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<ExceptionEncoder> getExceptionEncoder() {
+        return configTree.getRoot().getExceptionEncoder();
+    }
+
+    /**
+     * Turns off exception encoding, exceptions are passed to slf4j again.
+     */
+    public static void clearExceptionEncoder() {
+        updateRoot(root -> root.exceptionEncoder(Optional.empty()));
+    }
+
+    /**
+     * {@link Aggregator} setter method.
+     *
+     * Aggregates fields of the events of all loggers without overrides of their own into metrics
+     * logged periodically.
+     *
+     * @param aggregator {@link Aggregator}
+     */
+    public static void setAggregator(@NonNull Aggregator aggregator) {
+        updateRoot(root -> root.aggregator(Optional.of(aggregator)));
+    }
+
+    /**
+     * {@link Optional} aggregator getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<Aggregator> getAggregator() {
+        return configTree.getRoot().getAggregator();
+    }
+
+    /**
+     * Turns off aggregation.
+     */
+    public static void clearAggregator() {
+        updateRoot(root -> root.aggregator(Optional.empty()));
+    }
+
+    /**
+     * {@link FieldAnalyzer} setter method.
+     *
+     * Tracks the cardinality and byte cost of the keys logged by all loggers without overrides of
+     * their own.
+     *
+     * @param fieldAnalyzer {@link FieldAnalyzer}
+     */
+    public static void setFieldAnalyzer(@NonNull FieldAnalyzer fieldAnalyzer) {
+        updateRoot(root -> root.fieldAnalyzer(Optional.of(fieldAnalyzer)));
+    }
+
+    /**
+     * {@link Optional} fieldAnalyzer getter method.
+     *
+     * @return {@link Optional}
+     */
+    public static Optional<FieldAnalyzer> getFieldAnalyzer() {
+        return configTree.getRoot().getFieldAnalyzer();
+    }
+
+    /**
+     * Turns off field analysis.
+     */
+    public static void clearFieldAnalyzer() {
+        updateRoot(root -> root.fieldAnalyzer(Optional.empty()));
     }
 
     /**
@@ -94,7 +471,7 @@ public class StructLoggerConfig {
      * @param contextObject "Lambda that will executed on every log entry."
      */
     public static void setContextSupplier(@NonNull LoggableObject contextObject) {
-        StructLoggerConfig.contextSupplier = Optional.of(contextObject);
+        updateRoot(root -> root.contextSupplier(Optional.of(contextObject)));
     }
 
     /**
@@ -119,14 +496,14 @@ public class StructLoggerConfig {
      * {@link Optional} contextSupplier getter method.
      */
     public static Optional<LoggableObject> getContextSupplier() {
-        return contextSupplier;
+        return configTree.getRoot().getContextSupplier();
     }
 
     /**
      * Clears the context supplier (usually for testing purposes only)
      */
     public static void clearContextSupplier() {
-        contextSupplier = Optional.empty();
+        updateRoot(root -> root.contextSupplier(Optional.empty()));
     }
 
     /**
@@ -139,7 +516,7 @@ public class StructLoggerConfig {
      * @param customValueRenderer {@link Function <Object, String>} value renderer lambda
      */
     public static void setValueRenderer(@NonNull Function<Object, String> customValueRenderer) {
-        valueRenderer = customValueRenderer;
+        updateRoot(root -> root.valueRenderer(customValueRenderer));
     }
 
     /**
@@ -148,7 +525,7 @@ public class StructLoggerConfig {
      * @return {@link Function <Object, String>}
      */
     public static Function<Object, String> getValueRenderer() {
-        return valueRenderer;
+        return configTree.getRoot().getValueRenderer();
     }
 
     /**
@@ -157,13 +534,61 @@ public class StructLoggerConfig {
      * @param logEntriesSeparator "{@link String} appearing between key=value pairs"
      */
     public static void setLogEntriesSeparator(@NonNull String logEntriesSeparator) {
-        StructLoggerConfig.logEntriesSeparator = logEntriesSeparator;
+        update(tree -> tree.withLogEntriesSeparator(logEntriesSeparator));
     }
 
     /**
      * {@link String} logEntriesSeparator getter method.
      */
     public static String getLogEntriesSeparator() {
-        return logEntriesSeparator;
+        return configTree.getLogEntriesSeparator();
+    }
+
+    /**
+     * Current configuration snapshot.
+     *
+     * @return {@link ConfigTree}
+     */
+    static ConfigTree getConfigTree() {
+        return configTree;
+    }
+
+    /**
+     * Registers a newly created logger so that it follows configuration changes and returns its
+     * current settings.
+     *
+     * @param logger {@link StructLogger}
+     * @return {@link LoggerSettings}
+     */
+    static LoggerSettings register(StructLogger logger) {
+        synchronized (LOCK) {
+            LOGGERS.add(logger);
+            return configTree.resolve(logger.getName());
+        }
+    }
+
+    /**
+     * Applies a change to the global defaults.
+     *
+     * @param change {@link UnaryOperator} applied to a builder of the current defaults
+     */
+    private static void updateRoot(UnaryOperator<LoggerConfig.LoggerConfigBuilder> change) {
+        update(tree -> tree.withRoot(change.apply(tree.getRoot().toBuilder()).build()));
+    }
+
+    /**
+     * Applies a change to the configuration tree and publishes the result to every live logger.
+     *
+     * @param change {@link UnaryOperator} producing the new tree from the current one
+     */
+    static void update(UnaryOperator<ConfigTree> change) {
+        synchronized (LOCK) {
+            ConfigTree tree = change.apply(configTree);
+            configTree = tree;
+            Map<String, LoggerSettings> resolved = new HashMap<>();
+            for (StructLogger logger : LOGGERS) {
+                logger.setSettings(resolved.computeIfAbsent(logger.getName(), tree::resolve));
+            }
+        }
     }
 }
@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LoggableObject;
+import io.github.kwahome.sopa.interfaces.Logger;
+import io.github.kwahome.sopa.utils.Helpers;
+import lombok.NonNull;
+
+/**
+ * Accumulates the key-value pairs, counters and timings of a unit of work, e.g. a request, and
+ * logs them as a single event once it is closed rather than as many events each repeating the
+ * bound context.
+ *
+ * Opened with try-with-resources, the wide event becomes the current one of the thread so that
+ * code anywhere down the call stack can add to it through {@link #current()} without it being
+ * passed around. Closing it logs one event, at INFO unless {@link #fail(Throwable)} or
+ * {@link #setLevel(Level)} were called, through the configured renderers and sinks with a
+ * `durationMs` field holding the time it was open for, and restores the wide event that was
+ * current before. Later calls to close do nothing.
+ *
+ * <pre>
+ *      try (WideEvent event = LOGGER.wideEvent("request handled")) {
+ *          event.add("route", "/orders", "method", "POST");
+ *          ...
+ *          WideEvent.current().increment("cacheMisses");
+ *          try (WideEvent.Timer ignored = WideEvent.current().time("dbMs")) {
+ *              ...
+ *          }
+ *      }
+ * </pre>
+ *
+ * Methods are synchronized so that work handed to other threads may add to the event as well.
+ *
+ * @author Kelvin Wahome
+ */
+public final class WideEvent implements AutoCloseable {
+    static final String DURATION_MS = "durationMs";
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ThreadLocal<WideEvent> CURRENT = new ThreadLocal<>();
+
+    private static final WideEvent NOOP = new WideEvent(null, "", null);
+
+    private final Logger logger;
+
+    private final String message;
+
+    private final WideEvent previous;
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+
+    private Level level = Level.INFO;
+
+    private Throwable throwable;
+
+    private boolean closed;
+
+    private WideEvent(Logger logger, String message, WideEvent previous) {
+        this.logger = logger;
+        this.message = message;
+        this.previous = previous;
+        this.closed = logger == null;
+    }
+
+    /**
+     * Opens a wide event and makes it the current one of the thread.
+     *
+     * @param logger {@link Logger} the event is logged with
+     * @param message {@link String} message of the event
+     * @return {@link WideEvent}
+     */
+    public static WideEvent open(@NonNull Logger logger, @NonNull String message) {
+        WideEvent event = new WideEvent(logger, message, CURRENT.get());
+        CURRENT.set(event);
+        return event;
+    }
+
+    /**
+     * The wide event open on the current thread.
+     *
+     * @return {@link WideEvent} or one that ignores everything added to it if none is open
+     */
+    public static WideEvent current() {
+        WideEvent event = CURRENT.get();
+        return event != null ? event : NOOP;
+    }
+
+    /**
+     * Adds key-value pairs, {@link Map}s or {@link LoggableObject}s,
+     * replacing values added earlier under the same keys.
+     *
+     * @param params {@link Object}[] params as passed to the logging methods
+     * @return {@link WideEvent} this
+     */
+    public synchronized WideEvent add(Object...params) {
+        if (!closed) {
+            addParams(params);
+        }
+        return this;
+    }
+
+    private void addParams(Object[] params) {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LoggableObject) {
+                addParams(((LoggableObject) param).loggableObject());
+            } else if (param instanceof Map) {
+                ((Map<?, ?>) param).forEach((key, value) -> fields.put(String.valueOf(key), value));
+            } else if (i + 1 < params.length) {
+                fields.put(String.valueOf(param), params[++i]);
+            }
+        }
+    }
+
+    /**
+     * Adds one to a counter.
+     *
+     * @param key {@link String} key of the counter
+     * @return {@link WideEvent} this
+     */
+    public WideEvent increment(String key) {
+        return increment(key, 1);
+    }
+
+    /**
+     * Adds to a counter, replacing a value added under the same key that is not a counter.
+     *
+     * @param key {@link String} key of the counter
+     * @param delta long amount added
+     * @return {@link WideEvent} this
+     */
+    public synchronized WideEvent increment(@NonNull String key, long delta) {
+        if (!closed) {
+            Object count = fields.get(key);
+            fields.put(key, count instanceof Long ? (Long) count + delta : delta);
+        }
+        return this;
+    }
+
+    /**
+     * Starts timing an operation, the time it takes is added to the total under the key in
+     * milliseconds once the returned {@link Timer} is closed.
+     *
+     * @param key {@link String} key of the timing
+     * @return {@link Timer}
+     */
+    public Timer time(@NonNull String key) {
+        return new Timer(this, key);
+    }
+
+    /**
+     * Adds to the total time under a key.
+     *
+     * @param key {@link String} key of the timing
+     * @param nanos long nanoseconds added
+     * @return {@link WideEvent} this
+     */
+    public synchronized WideEvent addTime(@NonNull String key, long nanos) {
+        if (!closed) {
+            timings.merge(key, nanos, Long::sum);
+        }
+        return this;
+    }
+
+    /**
+     * Marks the unit of work as failed, logging the event at ERROR along with the exception.
+     *
+     * @param failure {@link Throwable}
+     * @return {@link WideEvent} this
+     */
+    public synchronized WideEvent fail(@NonNull Throwable failure) {
+        this.throwable = failure;
+        this.level = Level.ERROR;
+        return this;
+    }
+
+    /**
+     * Sets the level the event is logged at.
+     *
+     * @param eventLevel {@link Level}
+     * @return {@link WideEvent} this
+     */
+    public synchronized WideEvent setLevel(@NonNull Level eventLevel) {
+        this.level = eventLevel;
+        return this;
+    }
+
+    /**
+     * Logs the event if it has not been logged yet.
+     */
+    @Override
+    public void close() {
+        Object[] params;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            timings.forEach((key, nanos) -> fields.put(key, nanos / NANOS_PER_MILLI));
+            fields.put(DURATION_MS, (System.nanoTime() - startNanos) / NANOS_PER_MILLI);
+            Object[] pairs = Helpers.mapToObjectArray(fields);
+            params = throwable == null ? pairs : Helpers.mergeObjectArrays(pairs, new Object[]{throwable});
+        }
+        if (CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+        log(params);
+    }
+
+    private void log(Object[] params) {
+        switch (level) {
+            case ERROR:
+                logger.error(message, params);
+                break;
+            case WARN:
+                logger.warn(message, params);
+                break;
+            case INFO:
+                logger.info(message, params);
+                break;
+            case DEBUG:
+                logger.debug(message, params);
+                break;
+            default:
+                logger.trace(message, params);
+        }
+    }
+
+    /**
+     * Times an operation within a wide event.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final WideEvent event;
+
+        private final String key;
+
+        private final long startNanos = System.nanoTime();
+
+        private Timer(WideEvent event, String key) {
+            this.event = event;
+            this.key = key;
+        }
+
+        /**
+         * Adds the time since the timer was started to the wide event.
+         */
+        @Override
+        public void close() {
+            event.addTime(key, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.interfaces;
+
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+/**
+ * Standard sampler interface.
+ *
+ * A sampler decides whether a log event is kept right after the level check, before its params
+ * are captured and rendered. Kept events that were sampled carry a `sampleRate` field with the
+ * rate they were kept at so that downstream counts can be re-weighted.
+ *
+ * @author Kelvin Wahome
+ */
+@FunctionalInterface
+public interface LogSampler {
+    /**
+     * Sample rate dropping the event.
+     */
+    int DROP = 0;
+
+    /**
+     * Sample rate keeping the event as is i.e. without a `sampleRate` field.
+     */
+    int KEEP = 1;
+
+    /**
+     * Sampler keeping every event.
+     */
+    LogSampler KEEP_ALL = (level, message, values) -> KEEP;
+
+    /**
+     * Decides whether a log event is kept.
+     *
+     * @param level {@link Level} of the log event
+     * @param message {@link String} log message i.e. the message template
+     * @param values {@link Function} looking up the value of a key in the event's params and contexts,
+     *               null if absent
+     * @return the sample rate the event is kept at i.e. N when one in N such events are kept,
+     *         {@link #KEEP} when not sampled or {@link #DROP}
+     */
+    int sample(Level level, String message, Function<String, Object> values);
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.interfaces;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.RenderedMessage;
+
+/**
+ * Standard sink interface.
+ *
+ * A sink is the final destination of a rendered log event. The slf4j logger of the
+ * {@link io.github.kwahome.sopa.StructLogger} emitting the event is passed in both as the
+ * default destination and for any internal error reporting within the sink itself.
+ *
+ * @author Kelvin Wahome
+ */
+public interface LogSink {
+    /**
+     * Writes a rendered log event to the sink.
+     *
+     * @param logger Logger instance
+     * @param level {@link Level} of the log event
+     * @param structuredMessage log message as formatted by the {@link LogRenderer}
+     * @param throwable {@link Throwable} passed in with the log event, if any
+     */
+    void write(Logger logger, Level level, String structuredMessage, Throwable throwable);
+
+    /**
+     * Writes a rendered log event that may be shared with other sinks using the same renderer.
+     *
+     * Byte oriented sinks should override this to use {@link RenderedMessage#getBytes()} rather
+     * than encoding the message themselves.
+     *
+     * @param logger Logger instance
+     * @param level {@link Level} of the log event
+     * @param renderedMessage {@link RenderedMessage} as formatted by the {@link LogRenderer}
+     * @param throwable {@link Throwable} passed in with the log event, if any
+     */
+    default void write(Logger logger, Level level, RenderedMessage renderedMessage, Throwable throwable) {
+        write(logger, level, renderedMessage.toString(), throwable);
+    }
+
+    /**
+     * Whether the sink accepts log events of the passed {@link Level}. Events are only rendered
+     * if at least one sink of a renderer accepts them.
+     *
+     * @param logger Logger instance
+     * @param level {@link Level} of the log event
+     * @return boolean
+     */
+    default boolean isEnabled(Logger logger, Level level) {
+        return true;
+    }
+}
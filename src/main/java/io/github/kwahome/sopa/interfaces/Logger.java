@@ -24,6 +24,8 @@
 
 package io.github.kwahome.sopa.interfaces;
 
+import io.github.kwahome.sopa.WideEvent;
+
 /**
  * Core standard structured logger interface
  *
@@ -126,4 +128,19 @@ public interface Logger {
      * @param params {@link Object []} params
      */
     void unbind(Object...params);
+
+    // wide events
+
+    /**
+     * Open a {@link WideEvent} logged with the {@link Logger} instance once closed.
+     *
+     * A default method so that existing implementations keep compiling, a wide event only needs
+     * the level methods to be logged.
+     *
+     * @param message {@link String} message
+     * @return {@link WideEvent}
+     */
+    default WideEvent wideEvent(String message) {
+        return WideEvent.open(this, message);
+    }
 }
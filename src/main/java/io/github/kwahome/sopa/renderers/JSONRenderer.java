@@ -25,10 +25,15 @@
 package io.github.kwahome.sopa.renderers;
 
 import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonWriter;
+import javax.json.JsonWriterFactory;
 
 import org.slf4j.Logger;
 
@@ -38,13 +43,19 @@ import io.github.kwahome.sopa.interfaces.LogRenderer;
 /**
  * Basic JSON renderer.
  *
- * Formats using Glassfish JSON library as it has minimal dependencies.
+ * Formats using Glassfish JSON library as it has minimal dependencies. Builders and writers are
+ * created from factories looked up once: the {@link Json} shortcuts look the provider up on every
+ * call, which scans the classpath and costs more than rendering the event.
  *
  * @author Kelvin Wahome
  */
 public class JSONRenderer implements LogRenderer<JsonObjectBuilder> {
     private static final JSONRenderer INSTANCE = new JSONRenderer();
 
+    private static final JsonBuilderFactory BUILDERS = Json.createBuilderFactory(Collections.emptyMap());
+
+    private static final JsonWriterFactory WRITERS = Json.createWriterFactory(Collections.emptyMap());
+
     /**
      * Returns a new {@link JSONRenderer} instance if it does not exist or the existing instance
      * ig it does
@@ -57,7 +68,7 @@ public class JSONRenderer implements LogRenderer<JsonObjectBuilder> {
 
     @Override
     public final JsonObjectBuilder start(Logger logger) {
-        return Json.createObjectBuilder();
+        return BUILDERS.createObjectBuilder();
     }
 
     @Override
@@ -87,6 +98,13 @@ public class JSONRenderer implements LogRenderer<JsonObjectBuilder> {
             jsonObjectBuilder.add(key, (long) value);
         } else if (value instanceof Double || value instanceof Float) {
             jsonObjectBuilder.add(key, (double) value);
+        } else if (value instanceof Collection) {
+            // e.g. the stack frames of encoded exceptions
+            JsonArrayBuilder jsonArrayBuilder = BUILDERS.createArrayBuilder();
+            for (Object item : (Collection<?>) value) {
+                jsonArrayBuilder.add(String.valueOf(item));
+            }
+            jsonObjectBuilder.add(key, jsonArrayBuilder);
         } else {
             jsonObjectBuilder.add(key, String.valueOf(value));
         }
@@ -96,7 +114,7 @@ public class JSONRenderer implements LogRenderer<JsonObjectBuilder> {
     @Override
     public final String end(Logger logger, JsonObjectBuilder jsonObjectBuilder) {
         StringWriter stringWriter = new StringWriter();
-        try (JsonWriter jsonWriter = Json.createWriter(stringWriter)) {
+        try (JsonWriter jsonWriter = WRITERS.createWriter(stringWriter)) {
             jsonWriter.writeObject(jsonObjectBuilder.build());
         }
         return stringWriter.toString();
@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 
 import io.github.kwahome.sopa.StructLoggerConfig;
 import io.github.kwahome.sopa.interfaces.LogRenderer;
+import lombok.NonNull;
 
 /**
  * Standard key-value pair renderer that formats log messages as:
@@ -41,6 +42,28 @@ import io.github.kwahome.sopa.interfaces.LogRenderer;
 public class KeyValueRenderer implements LogRenderer<StringBuilder> {
     private static final KeyValueRenderer INSTANCE = new KeyValueRenderer();
 
+    /**
+     * Separator used by this renderer, null to follow the global logEntriesSeparator
+     */
+    private final String logEntriesSeparator;
+
+    /**
+     * Constructor for a renderer following the global logEntriesSeparator configuration.
+     */
+    public KeyValueRenderer() {
+        this.logEntriesSeparator = null;
+    }
+
+    /**
+     * Constructor for a renderer with its own logEntriesSeparator e.g. for use by only some
+     * loggers via {@link io.github.kwahome.sopa.LoggerConfig}.
+     *
+     * @param logEntriesSeparator "{@link String} appearing between key=value pairs"
+     */
+    public KeyValueRenderer(@NonNull String logEntriesSeparator) {
+        this.logEntriesSeparator = logEntriesSeparator;
+    }
+
     /**
      * Returns a new {@link KeyValueRenderer} instance if it does not exist or the existing instance
      * ig it does
@@ -80,7 +103,9 @@ public class KeyValueRenderer implements LogRenderer<StringBuilder> {
 
     @Override
     public LogRenderer<StringBuilder> addKeyValue(Logger logger, StringBuilder stringBuilder, String key, Object val) {
-        stringBuilder.append(StructLoggerConfig.getLogEntriesSeparator()).append(" ").append(key).append("=");
+        String separator = logEntriesSeparator == null
+                ? StructLoggerConfig.getLogEntriesSeparator() : logEntriesSeparator;
+        stringBuilder.append(separator).append(" ").append(key).append("=");
         String value = String.valueOf(val);
         value = value.replace("\"", "\\\"");
         if (!value.contains(" ")) {
@@ -24,6 +24,7 @@
 
 package io.github.kwahome.sopa.renderers;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -69,7 +70,7 @@ public class YAMLRenderer implements LogRenderer<Map<String, String>> {
 
     @Override
     public final Map<String, String> start(Logger logger) {
-        return new HashMap<>(10);
+        return new Fields();
     }
 
     @Override
@@ -87,12 +88,45 @@ public class YAMLRenderer implements LogRenderer<Map<String, String>> {
             logger.warn(String.format("%s key `message` renamed to `%s` to avoid overriding default log message field.",
                     StructLoggerConfig.getSopaLoggerTag(), key));
         }
-        builderObject.put(key, String.valueOf(value));
+        if (value instanceof Collection && builderObject instanceof Fields) {
+            // collections e.g. the stack frames of encoded exceptions are written as sequences
+            ((Fields) builderObject).putSequence(key, (Collection<?>) value);
+        } else {
+            builderObject.put(key, String.valueOf(value));
+        }
         return this;
     }
 
     @Override
     public final String end(Logger logger, Map<String, String> builderObject) {
-        return YAML.get().dump(builderObject).trim();
+        Map<String, ?> fields = builderObject;
+        if (builderObject instanceof Fields && ((Fields) builderObject).sequences != null) {
+            Map<String, Object> withSequences = new HashMap<>(builderObject);
+            withSequences.putAll(((Fields) builderObject).sequences);
+            fields = withSequences;
+        }
+        return YAML.get().dump(fields).trim();
+    }
+
+    /**
+     * String fields of an event plus the collection valued ones, kept aside so that the builder
+     * stays a map of strings.
+     */
+    private static final class Fields extends HashMap<String, String> {
+        private static final long serialVersionUID = 1L;
+
+        private transient Map<String, Collection<?>> sequences;
+
+        Fields() {
+            super(10);
+        }
+
+        void putSequence(String key, Collection<?> value) {
+            if (sequences == null) {
+                sequences = new HashMap<>();
+            }
+            remove(key);
+            sequences.put(key, value);
+        }
     }
 }
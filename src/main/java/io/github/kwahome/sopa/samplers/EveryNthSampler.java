@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+
+/**
+ * Sampler keeping the first and then every Nth event of each message template.
+ *
+ * Counters are kept per message for up to {@value #MAX_TEMPLATES} distinct messages, after which
+ * messages not seen before share a single counter so that memory stays bounded even if messages
+ * are built dynamically.
+ *
+ * @author Kelvin Wahome
+ */
+public class EveryNthSampler implements LogSampler {
+    private static final int MAX_TEMPLATES = 4096;
+
+    private final int n;
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private final AtomicLong overflowCounter = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param n int keeping 1 in n events of each message
+     */
+    public EveryNthSampler(int n) {
+        this.n = (int) Samplers.checkPositive(n, "n");
+    }
+
+    @Override
+    public int sample(Level level, String message, Function<String, Object> values) {
+        AtomicLong counter = counters.get(message);
+        if (counter == null) {
+            counter = counters.size() < MAX_TEMPLATES
+                    ? counters.computeIfAbsent(message, key -> new AtomicLong()) : overflowCounter;
+        }
+        return counter.getAndIncrement() % n == 0 ? n : DROP;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import lombok.NonNull;
+
+/**
+ * Sampler always keeping the first N events of every interval and deferring to another sampler
+ * for the rest, so that low volumes are logged in full and only bursts are sampled.
+ *
+ * @author Kelvin Wahome
+ */
+public class FirstPerIntervalSampler implements LogSampler {
+    private final int first;
+
+    private final long intervalNanos;
+
+    private final LogSampler thereafter;
+
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param first int number of events always kept per interval
+     * @param interval long interval length
+     * @param unit {@link TimeUnit} of the interval
+     * @param thereafter {@link LogSampler} sampling events beyond the first of the interval
+     */
+    public FirstPerIntervalSampler(int first, long interval, @NonNull TimeUnit unit, @NonNull LogSampler thereafter) {
+        this.first = (int) Samplers.checkPositive(first, "first");
+        this.intervalNanos = unit.toNanos(Samplers.checkPositive(interval, "interval"));
+        this.thereafter = thereafter;
+    }
+
+    @Override
+    public int sample(Level level, String message, Function<String, Object> values) {
+        long now = System.nanoTime();
+        long start = intervalStart.get();
+        // only one thread wins starting the next interval, losers count against the new one
+        if (now - start >= intervalNanos && intervalStart.compareAndSet(start, now)) {
+            count.set(0);
+        }
+        if (count.get() < first && count.incrementAndGet() <= first) {
+            return KEEP;
+        }
+        return thereafter.sample(level, message, values);
+    }
+}
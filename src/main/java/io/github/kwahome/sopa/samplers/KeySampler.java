@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import lombok.NonNull;
+
+/**
+ * Sampler keeping or dropping events consistently by the value of a key e.g. `traceId`, so that
+ * all events of one request are kept or dropped together.
+ *
+ * The decision is a hash of the value's string form compared against the probability, thus the
+ * same value yields the same decision across loggers, threads and JVMs. Events without the key
+ * are kept.
+ *
+ * @author Kelvin Wahome
+ */
+public class KeySampler implements LogSampler {
+    private static final double UNIT = 0x1.0p-53;
+
+    private final String key;
+
+    private final double probability;
+
+    private final int sampleRate;
+
+    /**
+     * Constructor
+     *
+     * @param key {@link String} key whose value decides e.g. traceId
+     * @param probability double in (0, 1] each key value is kept with
+     */
+    public KeySampler(@NonNull String key, double probability) {
+        this.key = key;
+        this.probability = Samplers.checkProbability(probability);
+        this.sampleRate = Samplers.sampleRate(probability);
+    }
+
+    @Override
+    public int sample(Level level, String message, Function<String, Object> values) {
+        Object value = values.apply(key);
+        if (value == null) {
+            return KEEP;
+        }
+        return (mix(value.toString().hashCode()) >>> 11) * UNIT < probability ? sampleRate : DROP;
+    }
+
+    /**
+     * Spreads the bits of String.hashCode(), which is specified thus stable across JVMs, over a long
+     * (the murmur3 64 bit finalizer).
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import lombok.NonNull;
+
+/**
+ * Sampler only sampling events up to a level e.g. INFO, keeping every event above it.
+ *
+ * @author Kelvin Wahome
+ */
+public class LevelSampler implements LogSampler {
+    private final int maxLevel;
+
+    private final LogSampler sampler;
+
+    /**
+     * Constructor
+     *
+     * @param maxLevel {@link Level} highest level sampled
+     * @param sampler {@link LogSampler} sampling events up to maxLevel
+     */
+    public LevelSampler(@NonNull Level maxLevel, @NonNull LogSampler sampler) {
+        this.maxLevel = maxLevel.toInt();
+        this.sampler = sampler;
+    }
+
+    @Override
+    public int sample(Level level, String message, Function<String, Object> values) {
+        return level.toInt() > maxLevel ? KEEP : sampler.sample(level, message, values);
+    }
+}
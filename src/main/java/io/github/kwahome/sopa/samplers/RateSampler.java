@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+
+/**
+ * Sampler keeping each event independently with a fixed probability.
+ *
+ * @author Kelvin Wahome
+ */
+public class RateSampler implements LogSampler {
+    private final double probability;
+
+    private final int sampleRate;
+
+    /**
+     * Constructor
+     *
+     * @param probability double in (0, 1] each event is kept with e.g. 0.1 to keep 1 in 10
+     */
+    public RateSampler(double probability) {
+        this.probability = Samplers.checkProbability(probability);
+        this.sampleRate = Samplers.sampleRate(probability);
+    }
+
+    @Override
+    public int sample(Level level, String message, Function<String, Object> values) {
+        return ThreadLocalRandom.current().nextDouble() < probability ? sampleRate : DROP;
+    }
+}
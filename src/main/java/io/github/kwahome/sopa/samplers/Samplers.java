@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.samplers;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Checks and conversions shared by the bundled samplers.
+ *
+ * @author Kelvin Wahome
+ */
+@UtilityClass
+class Samplers {
+    static double checkProbability(double probability) {
+        if (!(probability > 0 && probability <= 1)) {
+            throw new IllegalArgumentException(String.format(
+                    "sampling probability must be in (0, 1] but was `%s`.", probability));
+        }
+        return probability;
+    }
+
+    static long checkPositive(long value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(String.format("%s must be positive but was `%s`.", name, value));
+        }
+        return value;
+    }
+
+    /**
+     * Sample rate i.e. N in 1 in N, of a keep probability.
+     */
+    static int sampleRate(double probability) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(1 / probability));
+    }
+}
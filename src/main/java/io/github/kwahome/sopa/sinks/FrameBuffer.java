@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.sinks;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded ring of length-delimited frames used by sinks to spill encoded log events while
+ * their destination is slow or unreachable.
+ *
+ * Every frame is stored as a 4 byte length followed by the frame payload. Storage is either
+ * on-heap or off-heap (direct) and is allocated once up front, so memory held by a sink never
+ * grows beyond the configured capacity. Frames that do not fit are rejected rather than evicting
+ * older ones, which keeps whatever is buffered in its original order.
+ *
+ * @author Kelvin Wahome
+ */
+final class FrameBuffer {
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    private final ByteBuffer ring;
+
+    private final int capacity;
+
+    private int head;
+
+    private int used;
+
+    private int frames;
+
+    /**
+     * Constructor
+     *
+     * @param capacity maximum number of bytes, frame headers included, that can be buffered
+     * @param offHeap whether to allocate the buffer outside of the java heap
+     */
+    FrameBuffer(int capacity, boolean offHeap) {
+        this.capacity = capacity;
+        this.ring = offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Appends a frame to the tail of the buffer.
+     *
+     * @param payload frame payload
+     * @return -1 if the frame did not fit, otherwise the number of frames buffered before this one
+     */
+    synchronized int offer(ByteBuffer payload) {
+        int length = payload.remaining();
+        int required = HEADER_SIZE + length;
+        if (required > capacity - used) {
+            return -1;
+        }
+        int tail = (head + used) % capacity;
+        for (int i = HEADER_SIZE - 1; i >= 0; i--) {
+            ring.put(tail, (byte) (length >>> (i * 8)));
+            tail = (tail + 1) % capacity;
+        }
+        put(tail, payload);
+        used += required;
+        return frames++;
+    }
+
+    /**
+     * Moves as many whole frames from the head of the buffer as fit into the batch, writing each
+     * one in the wire format of the passed {@link TCPSink.Framing}. The end offset of every frame
+     * written is recorded in frameEnds so that a partially sent batch can be resumed on a frame
+     * boundary.
+     *
+     * @param batch destination buffer in write mode
+     * @param framing wire framing
+     * @param frameEnds array receiving frame end offsets within the batch
+     * @return number of frames moved
+     */
+    synchronized int drainTo(ByteBuffer batch, TCPSink.Framing framing, int[] frameEnds) {
+        int moved = 0;
+        while (frames > 0 && moved < frameEnds.length) {
+            int length = readLength(head);
+            if (framing.overhead() + length > batch.remaining()) {
+                break;
+            }
+            if (framing == TCPSink.Framing.LENGTH_PREFIXED) {
+                batch.putInt(length);
+            }
+            int next = copyTo(batch, (head + HEADER_SIZE) % capacity, length);
+            if (framing == TCPSink.Framing.NEWLINE) {
+                batch.put((byte) '\n');
+            }
+            head = next;
+            used -= HEADER_SIZE + length;
+            frames--;
+            frameEnds[moved++] = batch.position();
+        }
+        if (frames == 0) {
+            head = 0;
+        }
+        return moved;
+    }
+
+    /**
+     * Number of frames currently buffered.
+     *
+     * @return int
+     */
+    synchronized int size() {
+        return frames;
+    }
+
+    /**
+     * Maximum payload size a single frame may have.
+     *
+     * @return int
+     */
+    int maxPayload() {
+        return capacity - HEADER_SIZE;
+    }
+
+    private void put(int position, ByteBuffer bytes) {
+        int length = bytes.remaining();
+        int firstChunk = Math.min(length, capacity - position);
+        ByteBuffer view = ring.duplicate();
+        view.position(position);
+        ByteBuffer source = bytes.duplicate();
+        source.limit(source.position() + firstChunk);
+        view.put(source);
+        if (firstChunk < length) {
+            source.limit(bytes.limit());
+            view.position(0);
+            view.put(source);
+        }
+    }
+
+    private int readLength(int position) {
+        int length = 0;
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            length = (length << 8) | (ring.get((position + i) % capacity) & 0xFF);
+        }
+        return length;
+    }
+
+    private int copyTo(ByteBuffer batch, int position, int length) {
+        int firstChunk = Math.min(length, capacity - position);
+        ByteBuffer view = ring.duplicate();
+        view.limit(position + firstChunk).position(position);
+        batch.put(view);
+        if (firstChunk < length) {
+            view.limit(length - firstChunk).position(0);
+            batch.put(view);
+        }
+        return (position + length) % capacity;
+    }
+}
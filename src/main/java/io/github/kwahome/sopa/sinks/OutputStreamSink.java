@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.sinks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.RenderedMessage;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import lombok.NonNull;
+
+/**
+ * Sink writing newline terminated log events to an {@link OutputStream} e.g. the console or a
+ * local file, bypassing the slf4j backend.
+ *
+ * Writes are synchronized so that lines from concurrent threads are never interleaved. The stack
+ * trace of a logged {@link Throwable} follows its event line, as slf4j backends print it.
+ *
+ * @author Kelvin Wahome
+ */
+public class OutputStreamSink implements LogSink {
+    private static final byte[] NEWLINE = new byte[]{'\n'};
+
+    private final WritableByteChannel channel;
+
+    /**
+     * Constructor
+     *
+     * @param outputStream {@link OutputStream} e.g. System.out or a FileOutputStream
+     */
+    public OutputStreamSink(@NonNull OutputStream outputStream) {
+        this.channel = Channels.newChannel(outputStream);
+    }
+
+    @Override
+    public void write(Logger logger, Level level, String structuredMessage, Throwable throwable) {
+        write(logger, ByteBuffer.wrap(structuredMessage.getBytes(StandardCharsets.UTF_8)), throwable);
+    }
+
+    @Override
+    public void write(Logger logger, Level level, RenderedMessage renderedMessage, Throwable throwable) {
+        write(logger, renderedMessage.getBytes(), throwable);
+    }
+
+    private synchronized void write(Logger logger, ByteBuffer bytes, Throwable throwable) {
+        try {
+            writeFully(bytes);
+            writeFully(ByteBuffer.wrap(NEWLINE));
+            if (throwable != null) {
+                writeFully(ByteBuffer.wrap(stackTrace(throwable).getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (IOException ex) {
+            logger.warn(String.format("%s unable to write to output stream `%s`.",
+                    StructLoggerConfig.getSopaLoggerTag(), ex.getMessage()));
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static String stackTrace(Throwable throwable) {
+        StringWriter stackTrace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(stackTrace));
+        return stackTrace.toString();
+    }
+}
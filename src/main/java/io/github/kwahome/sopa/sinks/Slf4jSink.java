@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.sinks;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSink;
+
+/**
+ * Sink that hands rendered log events over to the underlying slf4j logger.
+ *
+ * Used as the default out of the box LogSink
+ *
+ * @author Kelvin Wahome
+ */
+public class Slf4jSink implements LogSink {
+    private static final Slf4jSink INSTANCE = new Slf4jSink();
+
+    /**
+     * Returns a new {@link Slf4jSink} instance if it does not exist or the existing instance
+     * if it does
+     *
+     * @return {@link Slf4jSink}
+     */
+    public static Slf4jSink getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void write(Logger logger, Level level, String structuredMessage, Throwable throwable) {
+        switch (level) {
+            case ERROR:
+                logAtError(logger, structuredMessage, throwable);
+                break;
+            case WARN:
+                logAtWarn(logger, structuredMessage, throwable);
+                break;
+            case INFO:
+                logAtInfo(logger, structuredMessage, throwable);
+                break;
+            case DEBUG:
+                logAtDebug(logger, structuredMessage, throwable);
+                break;
+            case TRACE:
+                logAtTrace(logger, structuredMessage, throwable);
+                break;
+            default:
+                // nothing to do
+        }
+    }
+
+    @Override
+    public boolean isEnabled(Logger logger, Level level) {
+        switch (level) {
+            case ERROR:
+                return logger.isErrorEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case TRACE:
+                return logger.isTraceEnabled();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Handles actual logging of ERROR {@link Level}.
+     *
+     * @param logger {@link Logger}
+     * @param structuredMessage {@link String}
+     * @param err {@link Throwable}
+     */
+    private void logAtError(Logger logger, String structuredMessage, Throwable err) {
+        if (err == null) {
+            logger.error(structuredMessage);
+        } else {
+            logger.error(structuredMessage, err);
+        }
+    }
+
+    /**
+     * Handles actual logging of WARN {@link Level}.
+     *
+     * @param logger {@link Logger}
+     * @param structuredMessage {@link String}
+     * @param err {@link Throwable}
+     */
+    private void logAtWarn(Logger logger, String structuredMessage, Throwable err) {
+        if (err == null) {
+            logger.warn(structuredMessage);
+        } else {
+            logger.warn(structuredMessage, err);
+        }
+    }
+
+    /**
+     * Handles actual logging of INFO {@link Level}.
+     *
+     * @param logger {@link Logger}
+     * @param structuredMessage {@link String}
+     * @param err {@link Throwable}
+     */
+    private void logAtInfo(Logger logger, String structuredMessage, Throwable err) {
+        if (err == null) {
+            logger.info(structuredMessage);
+        } else {
+            logger.info(structuredMessage, err);
+        }
+    }
+
+    /**
+     * Handles actual logging of DEBUG {@link Level}.
+     *
+     * @param logger {@link Logger}
+     * @param structuredMessage {@link String}
+     * @param err {@link Throwable}
+     */
+    private void logAtDebug(Logger logger, String structuredMessage, Throwable err) {
+        if (err == null) {
+            logger.debug(structuredMessage);
+        } else {
+            logger.debug(structuredMessage, err);
+        }
+    }
+
+    /**
+     * Handles actual logging of TRACE {@link Level}.
+     *
+     * @param logger {@link Logger}
+     * @param structuredMessage {@link String}
+     * @param err {@link Throwable}
+     */
+    private void logAtTrace(Logger logger, String structuredMessage, Throwable err) {
+        if (err == null) {
+            logger.trace(structuredMessage);
+        } else {
+            logger.trace(structuredMessage, err);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa.sinks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.RenderedMessage;
+import io.github.kwahome.sopa.StructLoggerConfig;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import lombok.Builder;
+import lombok.NonNull;
+
+/**
+ * Non-blocking TCP sink streaming framed log events to a (usually node-local) collector.
+ *
+ * Callers never touch the socket: rendered events are encoded and appended to a bounded
+ * {@link FrameBuffer} spill, and a single daemon I/O thread drains the spill in batches over a
+ * NIO {@link SocketChannel}. While the collector is unreachable the thread reconnects with
+ * exponential backoff and events keep accumulating in the spill; once it is full new events are
+ * dropped and counted in {@link #getDroppedEvents()}.
+ *
+ * Events are delivered in the order they were written. A frame that was only partially sent
+ * when a connection broke is resent whole on the next connection so that the stream always
+ * starts on a frame boundary.
+ *
+ * <pre>
+ *      TCPSink.builder().host("localhost").port(5170).framing(Framing.LENGTH_PREFIXED).build();
+ * </pre>
+ *
+ * @author Kelvin Wahome
+ */
+public class TCPSink implements LogSink, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TCPSink.class);
+
+    private static final int DEFAULT_BUFFER_CAPACITY = 8 * 1024 * 1024;
+
+    private static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private static final int MAX_FRAMES_PER_BATCH = 4096;
+
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+
+    private static final long DEFAULT_MAX_BACKOFF_MILLIS = 30000;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Wire framing of the streamed log events.
+     */
+    public enum Framing {
+        /**
+         * Each event is followed by a `\n`. Suited to single line renderers only.
+         */
+        NEWLINE(1),
+        /**
+         * Each event is preceded by its length as a 4 byte big-endian integer.
+         */
+        LENGTH_PREFIXED(Integer.BYTES);
+
+        private final int overhead;
+
+        Framing(int overhead) {
+            this.overhead = overhead;
+        }
+
+        int overhead() {
+            return overhead;
+        }
+    }
+
+    private final InetSocketAddress address;
+
+    private final Framing framing;
+
+    private final FrameBuffer spill;
+
+    private final ByteBuffer batch;
+
+    private final int[] frameEnds = new int[MAX_FRAMES_PER_BATCH];
+
+    private final ByteBuffer readScratch = ByteBuffer.allocate(256);
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final Selector selector;
+
+    private final Thread ioThread;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    private volatile boolean connected;
+
+    private SocketChannel channel;
+
+    private int batchFrames;
+
+    private long backoffMillis;
+
+    private long nextConnectAttempt;
+
+    /**
+     * Constructor
+     *
+     * Zero, negative or null arguments fall back to their defaults.
+     *
+     * @param host collector host
+     * @param port collector port
+     * @param framing {@link Framing}, defaults to {@link Framing#NEWLINE}
+     * @param bufferCapacity bytes that may be spilled while the collector is unreachable
+     * @param offHeap whether to allocate the spill outside of the java heap
+     * @param batchSize maximum bytes sent in a single socket write
+     * @param initialBackoffMillis first reconnect delay, doubled on every failed attempt
+     * @param maxBackoffMillis upper bound of the reconnect delay
+     */
+    @Builder
+    public TCPSink(@NonNull String host, int port, Framing framing, int bufferCapacity, boolean offHeap,
+                   int batchSize, long initialBackoffMillis, long maxBackoffMillis) {
+        this.address = new InetSocketAddress(host, port);
+        this.framing = framing == null ? Framing.NEWLINE : framing;
+        this.spill = new FrameBuffer(bufferCapacity > 0 ? bufferCapacity : DEFAULT_BUFFER_CAPACITY, offHeap);
+        this.batch = ByteBuffer.allocateDirect(batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+        this.batch.flip();
+        this.initialBackoffMillis = initialBackoffMillis > 0 ? initialBackoffMillis : DEFAULT_INITIAL_BACKOFF_MILLIS;
+        this.maxBackoffMillis = maxBackoffMillis > 0 ? maxBackoffMillis : DEFAULT_MAX_BACKOFF_MILLIS;
+        this.backoffMillis = this.initialBackoffMillis;
+        try {
+            this.selector = Selector.open();
+        } catch (IOException ex) {
+            throw new IllegalStateException("unable to open selector", ex);
+        }
+        this.ioThread = new Thread(this::run, "sopa-tcp-sink-" + host + ":" + port);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    @Override
+    public void write(Logger logger, Level level, String structuredMessage, Throwable throwable) {
+        offer(logger, ByteBuffer.wrap(structuredMessage.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void write(Logger logger, Level level, RenderedMessage renderedMessage, Throwable throwable) {
+        offer(logger, renderedMessage.getBytes());
+    }
+
+    private void offer(Logger logger, ByteBuffer payload) {
+        if (payload.remaining() + framing.overhead() > Math.min(batch.capacity(), spill.maxPayload())) {
+            droppedEvents.incrementAndGet();
+            logger.warn(String.format("%s event of %s bytes exceeds the tcp sink batch size and has been dropped.",
+                    StructLoggerConfig.getSopaLoggerTag(), payload.remaining()));
+            return;
+        }
+        int buffered = spill.offer(payload);
+        if (buffered < 0) {
+            droppedEvents.incrementAndGet();
+        } else if (buffered == 0) {
+            // the I/O thread may be parked waiting for data
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Whether the sink currently holds an established connection to the collector.
+     *
+     * @return boolean
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Number of events dropped because the spill was full or the event too large.
+     *
+     * @return long
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Number of events waiting in the spill to be sent.
+     *
+     * @return int
+     */
+    public int getBufferedEvents() {
+        return spill.size();
+    }
+
+    /**
+     * Stops the I/O thread after making a best effort, bounded attempt to send buffered events.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(CLOSE_TIMEOUT_MILLIS + 1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long closeDeadline = Long.MAX_VALUE;
+        while (running || (connected && hasPending() && System.currentTimeMillis() < closeDeadline)) {
+            if (!running && closeDeadline == Long.MAX_VALUE) {
+                closeDeadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+            }
+            try {
+                if (channel == null && System.currentTimeMillis() >= nextConnectAttempt) {
+                    connect();
+                }
+                if (connected && !batch.hasRemaining()) {
+                    fillBatch();
+                }
+                select();
+            } catch (IOException ex) {
+                disconnect(ex);
+            } catch (RuntimeException ex) {
+                // an unexpected failure must not kill the I/O thread, reconnect and carry on with the buffer
+                LOGGER.error(String.format("%s tcp sink I/O loop failed unexpectedly.",
+                        StructLoggerConfig.getSopaLoggerTag()), ex);
+                disconnect(ex);
+            }
+        }
+        closeChannel();
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            // nothing to do
+        }
+    }
+
+    private boolean hasPending() {
+        return batch.hasRemaining() || spill.size() > 0;
+    }
+
+    private void connect() throws IOException {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        if (channel.connect(address)) {
+            onConnected();
+        } else {
+            channel.register(selector, SelectionKey.OP_CONNECT);
+        }
+    }
+
+    private void onConnected() throws IOException {
+        connected = true;
+        backoffMillis = initialBackoffMillis;
+        channel.register(selector, SelectionKey.OP_READ);
+        LOGGER.info(String.format("%s tcp sink connected to %s.", StructLoggerConfig.getSopaLoggerTag(), address));
+    }
+
+    private void fillBatch() {
+        batch.clear();
+        batchFrames = spill.drainTo(batch, framing, frameEnds);
+        batch.flip();
+    }
+
+    private void select() throws IOException {
+        if (channel != null && channel.isConnected()) {
+            int interest = SelectionKey.OP_READ | (batch.hasRemaining() ? SelectionKey.OP_WRITE : 0);
+            channel.keyFor(selector).interestOps(interest);
+        }
+        long timeout = channel == null ? Math.max(1, nextConnectAttempt - System.currentTimeMillis()) : 1000;
+        selector.select(timeout);
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isConnectable() && channel.finishConnect()) {
+                onConnected();
+            } else if (key.isReadable()) {
+                // collectors are not expected to talk back, reading only detects a closed connection
+                readScratch.clear();
+                if (channel.read(readScratch) < 0) {
+                    throw new IOException("connection closed by collector");
+                }
+            } else if (key.isWritable()) {
+                channel.write(batch);
+            }
+        }
+    }
+
+    private void disconnect(Exception cause) {
+        if (connected) {
+            LOGGER.warn(String.format("%s tcp sink lost connection to %s `%s`, buffering until it is restored.",
+                    StructLoggerConfig.getSopaLoggerTag(), address, cause.getMessage()));
+        }
+        connected = false;
+        closeChannel();
+        rewindBatch();
+        nextConnectAttempt = System.currentTimeMillis() + backoffMillis;
+        backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+    }
+
+    /**
+     * Moves the batch position back to the start of the first frame that was not completely
+     * written, so that the next connection resumes on a frame boundary.
+     */
+    private void rewindBatch() {
+        int sent = batch.position();
+        int frameStart = 0;
+        for (int i = 0; i < batchFrames && frameEnds[i] <= sent; i++) {
+            frameStart = frameEnds[i];
+        }
+        batch.position(frameStart);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // nothing to do
+            }
+            channel = null;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import io.github.kwahome.sopa.interfaces.LoggableObject;
 import lombok.experimental.UtilityClass;
 
 /**
@@ -83,6 +84,40 @@ public class Helpers {
         return objectArrayList.toArray();
     }
 
+    /**
+     * Finds the value of a key in log params without capturing them i.e. in key-value pairs at
+     * alternate indices, {@link Map}s and {@link LoggableObject}s.
+     *
+     *      findValue("key2", ["key1", "value1", "key2", "value2"]) = "value2"
+     *
+     * @param key {@link String} key
+     * @param params {@link Object}[] log params
+     * @return {@link Object} value or null if the key is not found
+     */
+    public static Object findValue(String key, Object[] params) {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LoggableObject) {
+                Object value = findValue(key, ((LoggableObject) param).loggableObject());
+                if (value != null) {
+                    return value;
+                }
+            } else if (param instanceof Map) {
+                Object value = ((Map<?, ?>) param).get(key);
+                if (value != null) {
+                    return value;
+                }
+            } else if (!(param instanceof Throwable)) {
+                // key followed by its value
+                i++;
+                if (key.equals(param) && i < params.length) {
+                    return params[i];
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Merges/concatenates several arrays into one array
      *
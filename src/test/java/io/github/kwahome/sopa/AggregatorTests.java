@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.samplers.EveryNthSampler;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing fields of logged events aggregated into metrics.
+ *
+ * @author Kelvin Wahome
+ */
+public class AggregatorTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(AggregatorTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void rulesParsedTest() {
+        Aggregator aggregator = Aggregator.builder().rule(" durationMs  by route , status ").rule("bytes").build();
+
+        Assert.assertThat(aggregator.getRules().toString(), is("[durationMs by route,status, bytes]"));
+        Assert.assertThat(aggregator.getReportIntervalMillis(), is(60_000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRuleTest() {
+        Aggregator.builder().rule("durationMs by").build();
+    }
+
+    @Test
+    public void aggregatedBeforeSamplingTest() {
+        Aggregator aggregator = Aggregator.builder().rule("durationMs by route,status").build();
+        StructLoggerConfig.setAggregator(aggregator);
+        StructLoggerConfig.setSampler(new EveryNthSampler(10));
+        for (int i = 1; i <= 100; i++) {
+            logger.info("request handled", "route", "/orders", "status", 200, "durationMs", i);
+        }
+        logger.info("request handled", "route", "/orders", "status", 500, "durationMs", 2.5);
+        logger.info("request handled", "route", "/orders", "status", 500, "durationMs", "n/a");
+        slf4jLogger.clear();
+        aggregator.report();
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        Assert.assertThat(events.size(), is(2));
+        String ok = events.get(0).getMessage().contains("\"200\"") ? events.get(0).getMessage()
+                : events.get(1).getMessage();
+        Assert.assertThat(ok.replaceAll(",\"p50.*", ""), is("{\"message\":\"log metrics\",\"metric\":\"durationMs\"," +
+                "\"route\":\"/orders\",\"status\":\"200\",\"count\":100,\"sum\":5050.0,\"mean\":50.5"));
+        Assert.assertThat(ok.replaceAll(".*\"max\":", ""), is("100.0}"));
+        Assert.assertThat(ok.replaceAll(".*\"p99\":([0-9.]+).*", "$1").matches("99\\.0|1[01][0-9]\\.[0-9]+"),
+                is(true));
+
+        // nothing logged for groups without events since the last report
+        slf4jLogger.clear();
+        aggregator.report();
+        Assert.assertThat(slf4jLogger.getLoggingEvents().isEmpty(), is(true));
+    }
+
+    @Test
+    public void groupsBoundedTest() {
+        Aggregator aggregator = Aggregator.builder().rule("durationMs by requestId").maxGroups(2).build();
+        StructLoggerConfig.setAggregator(aggregator);
+        for (int i = 0; i < 5; i++) {
+            logger.info("request handled", "requestId", i, "durationMs", 1);
+        }
+        logger.info("request handled", "durationMs", 1);
+        slf4jLogger.clear();
+        aggregator.report();
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        Assert.assertThat(events.size(), is(3));
+        Assert.assertThat(events.stream().filter(event -> event.getMessage().contains(
+                "\"requestId\":\"<overflow>\",\"count\":4")).count(), is(1L));
+    }
+
+    @Test
+    public void concurrentReportsLoseNothingTest() throws InterruptedException {
+        Aggregator aggregator = Aggregator.builder().rule("durationMs by route").build();
+        StructLoggerConfig.setAggregator(aggregator);
+        slf4jLogger.clearAll();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 2000; j++) {
+                    // routes go idle as the threads move on, so groups are retired while others record
+                    logger.info("request handled", "route", "/" + j / 100, "durationMs", 1);
+                }
+            }));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reporter = new Thread(() -> {
+            while (!done.get()) {
+                aggregator.report();
+            }
+        });
+        threads.forEach(Thread::start);
+        reporter.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reporter.join();
+        aggregator.report();
+
+        long count = slf4jLogger.getAllLoggingEvents().stream()
+                .filter(event -> event.getMessage().contains("\"log metrics\""))
+                .mapToLong(event -> Long.parseLong(event.getMessage().replaceAll(".*\"count\":([0-9]+).*", "$1")))
+                .sum();
+        Assert.assertThat(count, is(16_000L));
+    }
+
+    @Test
+    public void groupValuesRedactedTest() {
+        StructLoggerConfig.setRedactor(Redactor.builder().emails(true).build());
+        Aggregator aggregator = Aggregator.builder().rule("durationMs by user").build();
+        StructLoggerConfig.setAggregator(aggregator);
+        logger.info("request handled", "user", "jane@example.com", "durationMs", 1);
+        slf4jLogger.clear();
+        aggregator.report();
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), startsWith(
+                "{\"message\":\"log metrics\",\"metric\":\"durationMs\",\"user\":\"****\",\"count\":1,"));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+import uk.org.lidalia.slf4jtest.TestLoggerFactory;
+
+/**
+ * Testing the accounting of events and bytes per call site.
+ *
+ * @author Kelvin Wahome
+ */
+public class CallSiteAccountingTests {
+    private static final CallSiteAccounting ACCOUNTING = CallSiteAccounting.getInstance();
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(CallSiteAccountingTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        ACCOUNTING.disable();
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+        TestLoggerFactory.getTestLogger(CallSiteAccounting.class).clearAll();
+    }
+
+    @Test
+    public void noisiestCallSitesTest() {
+        ACCOUNTING.enable(10, true, 0);
+        for (int i = 0; i < 3; i++) {
+            logger.info("request handled", "requestId", i);
+        }
+        logger.warn("cache miss");
+
+        List<CallSiteAccounting.CallSite> callSites = ACCOUNTING.getTopCallSites(10);
+        Assert.assertThat(callSites.size(), is(2));
+        CallSiteAccounting.CallSite noisiest = callSites.get(0);
+        Assert.assertThat(noisiest.getLogger(), is(CallSiteAccountingTests.class.getName()));
+        Assert.assertThat(noisiest.getMessage(), is("request handled"));
+        Assert.assertThat(noisiest.getEvents(), is(3L));
+        Assert.assertThat(noisiest.getError(), is(0L));
+        Assert.assertThat(noisiest.getBytes(), is((long) slf4jLogger.getLoggingEvents().stream().limit(3)
+                .mapToInt(event -> event.getMessage().length()).sum()));
+        Assert.assertThat(noisiest.getRenderNanos() > 0, is(true));
+        String[] dump = ACCOUNTING.dump().split(System.lineSeparator());
+        Assert.assertThat(dump.length, is(3));
+        Assert.assertThat(dump[1].endsWith(CallSiteAccountingTests.class.getName() + ": request handled"), is(true));
+    }
+
+    @Test
+    public void boundedSketchTest() {
+        ACCOUNTING.enable(2, false, 0);
+        for (int i = 0; i < 10; i++) {
+            logger.info("request handled");
+        }
+        for (int i = 0; i < 5; i++) {
+            logger.info("cache miss");
+        }
+        logger.info("cache evicted");
+
+        List<CallSiteAccounting.CallSite> callSites = ACCOUNTING.getTopCallSites(10);
+        Assert.assertThat(callSites.size(), is(2));
+        Assert.assertThat(callSites.get(0).getMessage(), is("request handled"));
+        Assert.assertThat(callSites.get(0).getLogger() == null, is(true));
+        // took the place of the least frequent call site, inheriting its count as the error
+        Assert.assertThat(callSites.get(1).getMessage(), is("cache evicted"));
+        Assert.assertThat(callSites.get(1).getEvents(), is(6L));
+        Assert.assertThat(callSites.get(1).getError(), is(5L));
+    }
+
+    @Test
+    public void concurrentEventsAllCountedTest() throws InterruptedException {
+        ACCOUNTING.enable(8, false, 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    // more call sites than tracked, so call sites are evicted all along
+                    logger.info("call site " + j % 20);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // events of evicted call sites are inherited, so the tracked ones add up to every event
+        List<CallSiteAccounting.CallSite> callSites = ACCOUNTING.getTopCallSites(10);
+        Assert.assertThat(callSites.size(), is(8));
+        Assert.assertThat(callSites.stream().mapToLong(CallSiteAccounting.CallSite::getEvents).sum(), is(4000L));
+    }
+
+    @Test
+    public void reportedPeriodicallyTest() throws InterruptedException {
+        TestLogger reportLogger = TestLoggerFactory.getTestLogger(CallSiteAccounting.class);
+        ACCOUNTING.enable(10, false, 200);
+        logger.info("request handled");
+        logger.info("request handled");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reportLogger.getAllLoggingEvents().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        LoggingEvent report = reportLogger.getAllLoggingEvents().get(0);
+        Assert.assertThat(report.getMessage(), startsWith("{\"message\":\"log call site\",\"rank\":1," +
+                "\"callSite\":\"request handled\",\"events\":2,\"eventsError\":0,\"bytes\":"));
+        // started over after the report
+        Assert.assertThat(ACCOUNTING.getTopCallSites(10).isEmpty(), is(true));
+    }
+}
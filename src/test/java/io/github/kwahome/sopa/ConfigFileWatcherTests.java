@@ -0,0 +1,330 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.renderers.YAMLRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+import uk.org.lidalia.slf4jtest.TestLoggerFactory;
+
+/**
+ * Testing configuration loaded from, and reloaded on changes to, a local file.
+ *
+ * @author Kelvin Wahome
+ */
+public class ConfigFileWatcherTests {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        logger = (StructLogger) LoggerFactory.getLogger("com.acme.billing.InvoiceService");
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+        TestLoggerFactory.getTestLogger(ConfigFileWatcher.class).clearAll();
+    }
+
+    @Test
+    public void loadPropertiesTest() throws IOException {
+        Path file = write("sopa.properties", "separator=;\nlevel=info\ncontext.environment=test\n" +
+                "logger.com.acme.billing.renderer=json\n");
+        ConfigFileWatcher.load(file);
+
+        Assert.assertThat(StructLoggerConfig.getLogEntriesSeparator(), is(";"));
+        Assert.assertThat(StructLoggerConfig.getLevel(), is(Level.INFO));
+        logger.debug("message");
+        logger.info("message", "key1", "value1");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "{\"message\":\"message\",\"key1\":\"value1\",\"environment\":\"test\"}")));
+    }
+
+    @Test
+    public void loadYamlTest() throws IOException {
+        Path file = write("sopa.yml", "renderer: yaml\n" +
+                "logger:\n" +
+                "  com.acme:\n" +
+                "    separator: ';'\n" +
+                "    level: warn\n");
+        ConfigFileWatcher.load(file);
+
+        Assert.assertThat(StructLoggerConfig.getLogRenderer(), is(YAMLRenderer.getInstance()));
+        logger.info("message", "key1", "value1");
+        logger.warn("message", "key1", "value1");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.warn("message; key1=value1")));
+    }
+
+    @Test
+    public void loggerNamedLikeSectionTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties", "logger.com.acme.debugging.level=warn\n" +
+                "logger.com.acme.fieldsvc.level=error\nlogger.com.acme.sampling.Worker.dedup.window=500\n"));
+
+        ConfigTree tree = StructLoggerConfig.getConfigTree();
+        Assert.assertThat(tree.resolve("com.acme.debugging.Job").isEnabled(Level.INFO), is(false));
+        Assert.assertThat(tree.resolve("com.acme.debugging.Job").isEnabled(Level.WARN), is(true));
+        Assert.assertThat(tree.resolve("com.acme.fieldsvc.Api").isEnabled(Level.WARN), is(false));
+        Assert.assertThat(tree.resolve("com.acme.fieldsvc.Api").isEnabled(Level.ERROR), is(true));
+        Assert.assertNotNull(tree.resolve("com.acme.sampling.Worker").getDeduplicator());
+        Assert.assertThat(tree.resolve("com.acme.sampling").getDeduplicator(), is((Deduplicator) null));
+    }
+
+    @Test
+    public void loadSamplingTest() throws IOException {
+        Path file = write("sopa.properties", "sampling.everyNth=3\nsampling.level=info\n" +
+                "logger.com.acme.billing.sampling.everyNth=2\nlogger.com.acme.billing.sampling.level=info\n");
+        ConfigFileWatcher.load(file);
+
+        for (int i = 0; i < 4; i++) {
+            logger.info("message");
+            logger.warn("message");
+        }
+
+        // every other info event is kept by the billing override, warn events are not sampled
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(6));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info("message, sampleRate=2")));
+    }
+
+    @Test
+    public void loadRateLimitTest() throws IOException {
+        Path file = write("sopa.properties", "rateLimit.eventsPerSecond=1\nrateLimit.burst=3\n" +
+                "rateLimit.level.error=0\nlogger.com.acme.billing.rateLimit.eventsPerSecond=1\n" +
+                "logger.com.acme.billing.rateLimit.burst=2\n");
+        ConfigFileWatcher.load(file);
+
+        for (int i = 0; i < 4; i++) {
+            logger.info("message");
+            logger.error("message");
+        }
+
+        // the billing override replaces the root rate limiter, errors are limited by it too
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(4));
+        Assert.assertTrue(StructLoggerConfig.getRateLimiter().isPresent());
+    }
+
+    @Test
+    public void loadDebugRulesTest() throws IOException {
+        Path file = write("sopa.properties", "level=warn\n" +
+                "logger.com.acme.billing.debug.rules=tenantId in {acme, globex}; traceId=4bf92f35\n");
+        ConfigFileWatcher.load(file);
+
+        logger.info("message");
+        logger.bind("traceId", "4bf92f35");
+        logger.info("message");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info("message, traceId=4bf92f35")));
+    }
+
+    @Test
+    public void loadRedactTest() throws IOException {
+        Path file = write("sopa.properties", "redact.keys=password, secret\nredact.emails=true\n" +
+                "redact.tokenPrefixes=Bearer , sk_live_\nredact.mask=[redacted]\n");
+        ConfigFileWatcher.load(file);
+
+        logger.info("login", "clientSecret", "s3cr3t", "user", "jane@example.com", "header", "Bearer abc");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "login, clientSecret=[redacted], user=[redacted], header=\"Bearer [redacted]\"")));
+    }
+
+    @Test
+    public void loadMDCTest() throws IOException {
+        Path file = write("sopa.properties", "mdc.keys=requestId\nlogger.com.acme.billing.mdc.enabled=false\n");
+        ConfigFileWatcher.load(file);
+        StructLogger courier = (StructLogger) LoggerFactory.getLogger("com.acme.shipping.Courier");
+        TestLogger courierSlf4jLogger = (TestLogger) courier.getSlf4jLogger();
+        MDC.put("requestId", "r1");
+        try {
+            logger.info("message");
+            courier.info("message");
+        } finally {
+            MDC.clear();
+        }
+
+        // turned off for the billing loggers
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), is("message"));
+        Assert.assertThat(courierSlf4jLogger.getLoggingEvents().get(0).getMessage(), is("message, requestId=r1"));
+        Assert.assertThat(StructLoggerConfig.getMDCBridge().get().getKeys(),
+                is(Collections.singletonList("requestId")));
+        courierSlf4jLogger.clear();
+    }
+
+    @Test
+    public void loadAggregateTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties",
+                "aggregate.rules=durationMs by route, status; responseBytes\naggregate.interval=30000\n"));
+
+        Aggregator aggregator = StructLoggerConfig.getAggregator().get();
+        Assert.assertThat(aggregator.getRules(), is(Arrays.asList("durationMs by route,status", "responseBytes")));
+        Assert.assertThat(aggregator.getReportIntervalMillis(), is(30000L));
+    }
+
+    @Test
+    public void loadFieldsTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties",
+                "fields.cardinalityThreshold=10000\nfields.precision=12\n" +
+                "logger.com.acme.billing.fields.enabled=false\n"));
+
+        FieldAnalyzer analyzer = StructLoggerConfig.getFieldAnalyzer().get();
+        Assert.assertThat(analyzer.getCardinalityThreshold(), is(10000L));
+        Assert.assertThat(analyzer.getPrecision(), is(12));
+        Assert.assertThat(StructLoggerConfig.getConfigTree().resolve("com.acme.billing.Invoice").getFieldAnalyzer(),
+                is((FieldAnalyzer) null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSettingTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties", "level=loud\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPropertyTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties", "levle=info\n"));
+    }
+
+    @Test
+    public void yamlSequencesTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.yml", "redact:\n" +
+                "  keys: [password, ssn]\n" +
+                "  tokenPrefixes: ['sk_live_', 'Bearer ']\n" +
+                "mdc:\n" +
+                "  keys:\n" +
+                "    - requestId\n" +
+                "    - traceId\n"));
+
+        Redactor redactor = StructLoggerConfig.getRedactor().get();
+        Assert.assertThat(redactor.redact("ssn", "123-45-6789"), is("****"));
+        Assert.assertThat(redactor.redact("dbPassword", "secret"), is("****"));
+        Assert.assertThat(redactor.redactValue("Authorization: Bearer abc"), is("Authorization: Bearer ****"));
+        Assert.assertThat(StructLoggerConfig.getMDCBridge().get().getKeys(), is(Arrays.asList("requestId", "traceId")));
+    }
+
+    @Test
+    public void significantWhitespaceKeptTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties", "separator=; \nredact.tokenPrefixes=sk_live_, Bearer \n"));
+
+        Assert.assertThat(StructLoggerConfig.getLogEntriesSeparator(), is("; "));
+        Assert.assertThat(StructLoggerConfig.getRedactor().get().redactValue("Bearer abc"), is("Bearer ****"));
+    }
+
+    @Test
+    public void loadClosesReplacedSinksTest() throws IOException {
+        ConfigFileWatcher.load(write("sopa.properties", "sink.type=tcp\nsink.port=9\n"));
+        Assert.assertThat(isTcpSinkRunning(9), is(true));
+
+        ConfigFileWatcher.load(write("sopa.properties", "sink.type=tcp\nsink.port=9\nlevel=info\n"));
+        Assert.assertThat(isTcpSinkRunning(9), is(true));
+
+        ConfigFileWatcher.load(write("sopa.properties", "sink.type=slf4j\n"));
+        Assert.assertThat(isTcpSinkRunning(9), is(false));
+    }
+
+    private static boolean isTcpSinkRunning(int port) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("sopa-tcp-sink-localhost:" + port));
+    }
+
+    @Test
+    public void reloadOnChangeTest() throws Exception {
+        Path file = write("sopa.properties", "renderer=json\n");
+        try (ConfigFileWatcher ignored = ConfigFileWatcher.watch(file)) {
+            Assert.assertThat(StructLoggerConfig.getLogRenderer(), is(JSONRenderer.getInstance()));
+
+            write("sopa.properties", "context.environment=test\n");
+            // the renderer reverts to the one in place when watching started
+            awaitTrue(() -> StructLoggerConfig.getContextSupplier().isPresent());
+            Assert.assertThat(StructLoggerConfig.getLogRenderer(), is(KeyValueRenderer.getInstance()));
+            logger.info("message");
+            Assert.assertThat(slf4jLogger.getLoggingEvents().get(0),
+                    is(LoggingEvent.info("message, environment=test")));
+        }
+    }
+
+    @Test
+    public void invalidChangeKeepsPreviousConfigTest() throws Exception {
+        Path file = write("sopa.properties", "renderer=json\n");
+        TestLogger watcherLogger = TestLoggerFactory.getTestLogger(ConfigFileWatcher.class);
+        try (ConfigFileWatcher ignored = ConfigFileWatcher.watch(file)) {
+            write("sopa.properties", "renderer=com.acme.MissingRenderer\n");
+            awaitTrue(() -> !watcherLogger.getAllLoggingEvents().isEmpty());
+
+            Assert.assertThat(StructLoggerConfig.getLogRenderer(), is(JSONRenderer.getInstance()));
+        }
+    }
+
+    /**
+     * Replaces the file atomically like config management tools do.
+     */
+    private Path write(String fileName, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(fileName);
+        Path temporary = Files.createTempFile(folder.getRoot().toPath(), fileName, ".tmp");
+        Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+        return Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("timed out waiting for the configuration to be reloaded",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
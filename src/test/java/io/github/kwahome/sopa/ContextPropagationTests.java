@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing the thread scoped context carried over to the threads work is handed to.
+ *
+ * @author Kelvin Wahome
+ */
+public class ContextPropagationTests {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        // a single thread so that it is reused across tasks
+        executor = ContextPropagation.wrap(Executors.newSingleThreadExecutor());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void executorServiceTest() throws Exception {
+        Future<Object> future;
+        List<Future<Object>> futures;
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            future = executor.submit(() -> Context.get("orderId"));
+            futures = executor.invokeAll(Arrays.<Callable<Object>>asList(() -> Context.get("orderId")));
+        }
+
+        Assert.assertThat(future.get(), is("o1"));
+        Assert.assertThat(futures.get(0).get(), is("o1"));
+        // the worker's own context is restored once the task is done
+        Assert.assertThat(executor.submit(() -> Context.get("orderId")).get(), nullValue());
+    }
+
+    @Test
+    public void capturedAtSubmissionTest() throws Exception {
+        Runnable task;
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            task = ContextPropagation.wrap(() -> Assert.assertThat(Context.get("orderId"), is("o1")));
+        }
+        try (Context.Scope ignored = Context.push("orderId", "o2")) {
+            task.run();
+            Assert.assertThat(Context.get("orderId"), is("o2"));
+        }
+    }
+
+    @Test
+    public void completableFutureTest() throws Exception {
+        CompletableFuture<String> future;
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            future = ContextPropagation.supplyAsync(() -> (String) Context.get("orderId"), executor)
+                    .thenApplyAsync(orderId -> orderId + "/" + Context.get("orderId"), executor)
+                    .thenApplyAsync(ContextPropagation.wrapFunction(orderId -> orderId + "/" + Context.get("orderId")));
+        }
+
+        Assert.assertThat(future.get(), is("o1/o1/o1"));
+    }
+
+    @Test
+    public void forkJoinTaskTest() {
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            Assert.assertThat(ForkJoinPool.commonPool().invoke(ContextPropagation.wrap(new Depth(3))), is("o1o1o1"));
+        }
+    }
+
+    /**
+     * Forks wrapped subtasks each reading the context.
+     */
+    private static final class Depth extends RecursiveTask<String> {
+        private final int depth;
+
+        Depth(int depth) {
+            this.depth = depth;
+        }
+
+        @Override
+        protected String compute() {
+            if (depth == 1) {
+                return (String) Context.get("orderId");
+            }
+            ForkJoinTask<String> subtask = ContextPropagation.wrap(new Depth(depth - 1)).fork();
+            return Context.get("orderId") + subtask.join();
+        }
+    }
+}
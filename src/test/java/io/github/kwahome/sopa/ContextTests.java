@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jext.Level;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing context scoped to the current thread and logged by every logger on it.
+ *
+ * @author Kelvin Wahome
+ */
+public class ContextTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(ContextTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clearAll();
+        slf4jLogger.setEnabledLevelsForAllThreads(Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG, Level.TRACE);
+    }
+
+    @Test
+    public void pushedAndPoppedTest() {
+        logger.bind("component", "checkout");
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            try (Context.Scope alsoIgnored = Context.push("step", "payment", "orderId", "o2")) {
+                logger.info("charged");
+            }
+            logger.info("placed");
+        }
+        logger.info("done");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "{\"message\":\"charged\",\"component\":\"checkout\",\"step\":\"payment\",\"orderId\":\"o2\"}")));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(1), is(LoggingEvent.info(
+                "{\"message\":\"placed\",\"component\":\"checkout\",\"orderId\":\"o1\"}")));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(2), is(LoggingEvent.info(
+                "{\"message\":\"done\",\"component\":\"checkout\"}")));
+        Assert.assertThat(Context.get("orderId"), nullValue());
+    }
+
+    @Test
+    public void sharedByLoggersOnTheThreadTest() throws InterruptedException {
+        StructLogger otherLogger = (StructLogger) LoggerFactory.getLogger("com.acme.Other");
+        TestLogger otherSlf4jLogger = (TestLogger) otherLogger.getSlf4jLogger();
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            Assert.assertThat(Context.get("orderId"), is("o1"));
+            otherLogger.info("placed");
+            Thread other = new Thread(() -> logger.info("elsewhere"));
+            other.start();
+            other.join();
+        }
+
+        Assert.assertThat(otherSlf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "{\"message\":\"placed\",\"orderId\":\"o1\"}")));
+        Assert.assertThat(slf4jLogger.getAllLoggingEvents().get(0),
+                is(LoggingEvent.info("{\"message\":\"elsewhere\"}")));
+        otherSlf4jLogger.clear();
+    }
+
+    @Test
+    public void outOfOrderCloseIgnoredTest() {
+        Context.Scope outer = Context.push("orderId", "o1");
+        Context.Scope inner = Context.push("step", "payment");
+        outer.close();
+        Assert.assertThat(Context.get("step"), is("payment"));
+        inner.close();
+        outer.close();
+        Assert.assertThat(Context.get("orderId"), nullValue());
+    }
+
+    @Test
+    public void recordedWithTheFlightRecorderTest() {
+        StructLoggerConfig.setFlightRecorder(FlightRecorder.builder().build());
+        slf4jLogger.setEnabledLevels(Level.ERROR, Level.WARN, Level.INFO);
+        try (Context.Scope ignored = Context.push("orderId", "o1")) {
+            logger.debug("cache miss");
+        }
+        logger.error("request failed");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(),
+                startsWith("{\"message\":\"cache miss\",\"orderId\":\"o1\",\"debugLevel\":\"DEBUG\""));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jext.Level;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing debug logging turned on for loggers whose bound context matches runtime rules.
+ *
+ * @author Kelvin Wahome
+ */
+public class DebugRulesTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(DebugRulesTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+        slf4jLogger.setEnabledLevels(Level.ERROR, Level.WARN, Level.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+        slf4jLogger.setEnabledLevels(Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG, Level.TRACE);
+    }
+
+    @Test
+    public void matchingContextLoggedTest() {
+        StructLoggerConfig.setDebugRules(DebugRules.builder().rule("tenantId in {acme, globex}").build());
+
+        logger.bind("tenantId", "initech");
+        logger.debug("cache miss");
+        Assert.assertFalse(logger.isDebugEnabled());
+
+        logger.bind("tenantId", "globex");
+        logger.debug("cache miss");
+        logger.trace("cache miss");
+        Assert.assertTrue(logger.isDebugEnabled());
+        Assert.assertFalse(logger.isTraceEnabled());
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "{\"message\":\"cache miss\",\"tenantId\":\"globex\",\"debugLevel\":\"DEBUG\"}")));
+    }
+
+    @Test
+    public void rulesUpdatedAtRuntimeTest() {
+        logger.bind("traceId", "4bf92f35", "userId", 42);
+        logger.debug("cache miss");
+
+        StructLoggerConfig.setDebugRules(DebugRules.builder()
+                .rule("traceId=4bf92f35")
+                .level(org.slf4j.event.Level.TRACE)
+                .build());
+        logger.debug("cache miss");
+        logger.trace("cache miss");
+
+        StructLoggerConfig.setDebugRules(DebugRules.builder().rule("userId == 7").build());
+        logger.debug("cache miss");
+
+        logger.unbind("userId", 42);
+        logger.bind("userId", 7);
+        logger.debug("cache miss");
+
+        StructLoggerConfig.clearDebugRules();
+        logger.debug("cache miss");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(3));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(1), is(LoggingEvent.info(
+                "{\"message\":\"cache miss\",\"traceId\":\"4bf92f35\",\"userId\":\"42\",\"debugLevel\":\"TRACE\"}")));
+    }
+
+    @Test
+    public void configuredLevelBypassedTest() {
+        slf4jLogger.setEnabledLevels(Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG, Level.TRACE);
+        StructLoggerConfig.setLevel(org.slf4j.event.Level.WARN);
+        StructLoggerConfig.setDebugRules(DebugRules.builder().rule("tenantId=acme").build());
+
+        logger.info("request handled");
+        logger.bind("tenantId", "acme");
+        logger.info("request handled");
+
+        // written at the emit level, the level it was logged at is kept in the event
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info(
+                "{\"message\":\"request handled\",\"tenantId\":\"acme\"}")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRuleTest() {
+        DebugRules.builder().rule("tenantId").build();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing deduplication of bursts of identical log events.
+ *
+ * @author Kelvin Wahome
+ */
+public class DeduplicatorTests {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(DeduplicatorTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+        slf4jLogger.clearAll();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clearAll();
+    }
+
+    @Test
+    public void burstCollapsedIntoSummaryTest() throws InterruptedException {
+        StructLoggerConfig.setDeduplicator(Deduplicator.builder().windowMillis(100).build());
+
+        for (int i = 0; i < 100; i++) {
+            logger.error("dependency down", "dependency", "db");
+        }
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+
+        // summary logged once the window is over even though the event does not occur again
+        List<LoggingEvent> events = awaitEvents(2);
+        Assert.assertThat(events.get(0),
+                is(LoggingEvent.error("{\"message\":\"dependency down\",\"dependency\":\"db\"}")));
+        Assert.assertThat(events.get(1), is(LoggingEvent.error(
+                "{\"message\":\"dependency down\",\"dependency\":\"db\",\"repeatCount\":99}")));
+    }
+
+    @Test
+    public void fingerprintIncludesSelectedKeysTest() {
+        StructLoggerConfig.setDeduplicator(Deduplicator.builder().windowMillis(60_000).key("errorCode").build());
+
+        logger.error("request failed", "errorCode", 500, "requestId", 1);
+        logger.error("request failed", "errorCode", 500, "requestId", 2);
+        logger.error("request failed", "errorCode", 503, "requestId", 3);
+        logger.warn("request failed", "errorCode", 503, "requestId", 4);
+        logger.error("other message", "errorCode", 503, "requestId", 5);
+
+        // only the second event is a duplicate, requestId is not part of the fingerprint
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(4));
+    }
+
+    @Test
+    public void summaryLoggedBeforeNextWindowTest() throws InterruptedException {
+        StructLoggerConfig.setDeduplicator(Deduplicator.builder().windowMillis(50).build());
+
+        logger.error("dependency down");
+        logger.error("dependency down");
+        logger.error("dependency down");
+        Thread.sleep(100);
+        logger.error("dependency down");
+
+        List<LoggingEvent> events = awaitEvents(3);
+        Assert.assertThat(events.get(1),
+                is(LoggingEvent.error("{\"message\":\"dependency down\",\"repeatCount\":2}")));
+        Assert.assertThat(events.get(2), is(LoggingEvent.error("{\"message\":\"dependency down\"}")));
+    }
+
+    @Test
+    public void summaryOnlyRepeatsEventsPassingRateLimitTest() throws InterruptedException {
+        StructLoggerConfig.setDeduplicator(Deduplicator.builder().windowMillis(100).build());
+        StructLoggerConfig.setRateLimiter(RateLimiter.builder()
+                .key("tenantId")
+                .eventsPerSecond(1)
+                .burst(1)
+                .reportIntervalMillis(60_000)
+                .build());
+
+        logger.error("request failed", "tenantId", "a");
+        // tenant a is out of tokens, its event must not become the one the summary repeats
+        logger.error("dependency down", "tenantId", "a");
+        logger.error("dependency down", "tenantId", "b");
+        logger.error("dependency down", "tenantId", "b");
+        logger.error("dependency down", "tenantId", "c");
+
+        List<LoggingEvent> events = awaitEvents(3);
+        Assert.assertThat(events.get(1),
+                is(LoggingEvent.error("{\"message\":\"dependency down\",\"tenantId\":\"b\"}")));
+        Assert.assertThat(events.get(2), is(LoggingEvent.error(
+                "{\"message\":\"dependency down\",\"tenantId\":\"b\",\"repeatCount\":1}")));
+    }
+
+    @Test
+    public void turnedOffTest() {
+        StructLoggerConfig.setDeduplicator(Deduplicator.builder().build());
+        StructLoggerConfig.clearDeduplicator();
+
+        logger.error("dependency down");
+        logger.error("dependency down");
+
+        Assert.assertFalse(StructLoggerConfig.getDeduplicator().isPresent());
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(2));
+    }
+
+    /**
+     * Waits for events logged from any thread, summaries are logged from the flusher thread.
+     */
+    private List<LoggingEvent> awaitEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (slf4jLogger.getAllLoggingEvents().size() < count) {
+            Assert.assertTrue("timed out waiting for events", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertThat(slf4jLogger.getAllLoggingEvents().size(), is(count));
+        return slf4jLogger.getAllLoggingEvents();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.YAMLRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing exceptions logged as structured fields.
+ *
+ * @author Kelvin Wahome
+ */
+public class ExceptionEncoderTests {
+    private static final ExceptionEncoder ENCODER = ExceptionEncoder.builder().maxFrames(2).maxCauses(2).build();
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(ExceptionEncoderTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void framesLimitedAndCachedTest() {
+        Exception exception = new IllegalStateException("out of stock");
+        List<String> frames = ENCODER.frames(exception);
+
+        Assert.assertThat(frames.size(), is(3));
+        Assert.assertThat(frames.get(0), is(exception.getStackTrace()[0].toString()));
+        Assert.assertThat(frames.get(2), is("... " + (exception.getStackTrace().length - 2) + " more"));
+        Assert.assertThat(ENCODER.frames(new IllegalStateException()).get(1), sameInstance(frames.get(1)));
+    }
+
+    @Test
+    public void causesLimitedTest() {
+        Exception exception = new RuntimeException("a", new IllegalStateException("b",
+                new IllegalArgumentException("c", new NullPointerException())));
+
+        Assert.assertThat(ENCODER.causes(exception).toString(), is(
+                "[java.lang.IllegalStateException: b, java.lang.IllegalArgumentException: c, ...]"));
+        Assert.assertThat(ENCODER.causes(new RuntimeException()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void circularCausesTest() {
+        Exception first = new IllegalStateException("first");
+        Exception second = new IllegalArgumentException("second", first);
+        first.initCause(second);
+
+        Assert.assertThat(ENCODER.causes(first).toString(), is(
+                "[java.lang.IllegalArgumentException: second, [circular reference: java.lang.IllegalStateException: " +
+                        "first]]"));
+        // the root cause message is found without looping forever either
+        logger.error("failed", first);
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), containsString(
+                "\"errorMessage\":\"second\""));
+    }
+
+    @Test
+    public void causeFramesTest() {
+        Exception cause = new IllegalArgumentException("sku");
+        Exception exception = new IllegalStateException("out of stock", cause);
+        Exception suppressed = new IllegalStateException("rollback failed");
+        exception.addSuppressed(suppressed);
+        List<String> lines = ENCODER.causeFrames(exception, exception.getStackTrace(), null);
+
+        // a line per exception followed by the frames not in common with the enclosing one
+        Assert.assertThat(lines.get(0), is("Suppressed: java.lang.IllegalStateException: rollback failed"));
+        Assert.assertThat(lines.get(1), is(suppressed.getStackTrace()[0].toString()));
+        Assert.assertThat(lines.get(2), is("... " + (suppressed.getStackTrace().length - 1) + " more"));
+        Assert.assertThat(lines.get(3), is("Caused by: java.lang.IllegalArgumentException: sku"));
+        Assert.assertThat(lines.get(4), is(cause.getStackTrace()[0].toString()));
+        Assert.assertThat(lines.size(), is(6));
+        Assert.assertThat(ENCODER.causeFrames(cause, cause.getStackTrace(), null).isEmpty(), is(true));
+    }
+
+    @Test
+    public void causeFramesLimitedAndRedactedTest() {
+        Exception exception = new RuntimeException("a", new IllegalStateException("user jane@example.com",
+                new IllegalArgumentException("c", new NullPointerException())));
+        List<String> lines = ENCODER.causeFrames(exception, exception.getStackTrace(),
+                Redactor.builder().emails(true).build());
+
+        Assert.assertThat(lines.get(0), is("Caused by: java.lang.IllegalStateException: user ****"));
+        Assert.assertThat(lines.stream().filter(line -> line.startsWith("Caused by: ")).count(), is(2L));
+        Assert.assertThat(lines.get(lines.size() - 1), is("..."));
+    }
+
+    @Test
+    public void loggedAsFieldsTest() {
+        StructLoggerConfig.setExceptionEncoder(ENCODER);
+        logger.error("failed", new IllegalStateException("out of stock", new IllegalArgumentException("sku")));
+
+        LoggingEvent event = slf4jLogger.getLoggingEvents().get(0);
+        Assert.assertThat(event.getThrowable().isPresent(), is(false));
+        Assert.assertThat(event.getMessage(), startsWith("{\"message\":\"failed\",\"errorMessage\":\"sku\"," +
+                "\"exceptionClass\":\"java.lang.IllegalStateException\",\"exceptionMessage\":\"out of stock\"," +
+                "\"errorFingerprint\":\""));
+        Assert.assertThat(event.getMessage(), containsString(
+                "\"exceptionCauses\":[\"java.lang.IllegalArgumentException: sku\"],\"exceptionFrames\":[\"" +
+                "io.github.kwahome.sopa.ExceptionEncoderTests.loggedAsFieldsTest(ExceptionEncoderTests.java:"));
+    }
+
+    @Test
+    public void fingerprintTest() {
+        long[] fingerprints = new long[3];
+        for (int i = 0; i < fingerprints.length; i++) {
+            // thrown from the same place twice, then from elsewhere
+            Exception exception = failAt(i / 2 + 1);
+            fingerprints[i] = ExceptionEncoder.fingerprint(exception, exception.getStackTrace());
+        }
+
+        Assert.assertThat(fingerprints[0], is(fingerprints[1]));
+        Assert.assertThat(fingerprints[0] == fingerprints[2], is(false));
+    }
+
+    @Test
+    public void fingerprintFoldsCausesTest() {
+        long[] fingerprints = new long[3];
+        for (int i = 0; i < fingerprints.length; i++) {
+            // wrapped at the same place, twice for the same cause then for another
+            Exception exception = new IllegalStateException("wrapped", i < 2 ? failAt(1) : failAt(2));
+            fingerprints[i] = ExceptionEncoder.fingerprint(exception, exception.getStackTrace());
+        }
+
+        Assert.assertThat(fingerprints[0], is(fingerprints[1]));
+        Assert.assertThat(fingerprints[0] == fingerprints[2], is(false));
+    }
+
+    @Test
+    public void deduplicatedTracesTest() {
+        StructLoggerConfig.setExceptionEncoder(ExceptionEncoder.builder().deduplicate(true).build());
+        for (int i = 0; i < 3; i++) {
+            logger.error("failed", failAt(1));
+        }
+        logger.error("failed", failAt(2));
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        String fingerprint = events.get(0).getMessage().replaceAll(".*\"errorFingerprint\":\"([0-9a-f]+)\".*", "$1");
+        Assert.assertThat(fingerprint.length(), is(16));
+        Assert.assertThat(events.get(0).getMessage(), containsString("\"exceptionFrames\""));
+        Assert.assertThat(events.get(2).getMessage(), is("{\"message\":\"failed\",\"errorMessage\":\"1\"," +
+                "\"exceptionClass\":\"java.lang.IllegalStateException\",\"exceptionMessage\":\"1\"," +
+                "\"errorFingerprint\":\"" + fingerprint + "\",\"errorCount\":3}"));
+        // thrown from elsewhere
+        Assert.assertThat(events.get(3).getMessage(), containsString("\"exceptionFrames\""));
+    }
+
+    @Test
+    public void tracesLoggedAgainEveryWindowTest() throws InterruptedException {
+        StructLoggerConfig.setExceptionEncoder(ExceptionEncoder.builder().deduplicate(true).windowMillis(50).build());
+        for (int i = 0; i < 3; i++) {
+            if (i == 2) {
+                Thread.sleep(60);
+            }
+            logger.error("failed", failAt(1));
+        }
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        Assert.assertThat(events.get(1).getMessage(), containsString("\"errorCount\":2"));
+        Assert.assertThat(events.get(2).getMessage(), containsString("\"exceptionFrames\""));
+    }
+
+    @Test
+    public void renderedAsSequenceTest() {
+        StructLoggerConfig.setExceptionEncoder(ENCODER);
+        StructLoggerConfig.setLogRenderer(YAMLRenderer.getInstance());
+        logger.error("failed", new IllegalStateException("out of stock"));
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), containsString(
+                "exceptionFrames:\n- io.github.kwahome.sopa.ExceptionEncoderTests.renderedAsSequenceTest("));
+    }
+
+    private static Exception failAt(int place) {
+        if (place == 1) {
+            return new IllegalStateException("1");
+        }
+        return new IllegalStateException("2");
+    }
+
+    @Test
+    public void passedToSlf4jByDefaultTest() {
+        Exception exception = new IllegalStateException("out of stock");
+        logger.error("failed", exception);
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getThrowable().get(), sameInstance(exception));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing the cardinality and byte cost tracked per key.
+ *
+ * @author Kelvin Wahome
+ */
+public class FieldAnalyzerTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        logger = (StructLogger) LoggerFactory.getLogger(FieldAnalyzerTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void cardinalityEstimatedTest() {
+        FieldAnalyzer analyzer = FieldAnalyzer.builder().build();
+        for (int i = 0; i < 100_000; i++) {
+            analyzer.record("requestId", "r" + i);
+            analyzer.record("status", i % 3 == 0 ? "500" : "200");
+        }
+
+        FieldAnalyzer.FieldStats requestId = analyzer.getStats("requestId");
+        Assert.assertThat(requestId.getOccurrences(), is(100_000L));
+        Assert.assertThat(Math.abs(requestId.getCardinality() - 100_000) < 100_000 * 0.07, is(true));
+        Assert.assertThat(analyzer.getStats("status").getCardinality(), is(2L));
+        Assert.assertThat(analyzer.getStats("status").getBytes(), is(100_000L * ("status".length() + 3)));
+        // most bytes first
+        Assert.assertThat(analyzer.getReport().get(0).getKey(), is("requestId"));
+    }
+
+    @Test
+    public void keysBoundedTest() {
+        FieldAnalyzer analyzer = FieldAnalyzer.builder().maxKeys(2).precision(4).build();
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            analyzer.record(key, "\u00e9");
+        }
+
+        List<FieldAnalyzer.FieldStats> report = analyzer.getReport();
+        Assert.assertThat(report.size(), is(3));
+        Assert.assertThat(analyzer.getStats("d").getKey(), is(FieldAnalyzer.OTHER_KEYS));
+        Assert.assertThat(analyzer.getStats("d").getOccurrences(), is(2L));
+        Assert.assertThat(analyzer.getStats("a").getBytes(), is(3L));
+    }
+
+    @Test
+    public void flaggedOnceTest() {
+        StructLoggerConfig.setFieldAnalyzer(FieldAnalyzer.builder().cardinalityThreshold(50).valueBytesThreshold(10)
+                .build());
+        for (int i = 0; i < 200; i++) {
+            logger.info("request handled", "requestId", i, "status", 200);
+        }
+        logger.info("request handled", "userAgent", "Mozilla/5.0 (X11; Linux x86_64)");
+        logger.info("request handled", "userAgent", "Mozilla/5.0 (Macintosh)");
+
+        List<LoggingEvent> warnings = slf4jLogger.getLoggingEvents().stream()
+                .filter(event -> event.getMessage().contains("field analyzer")).collect(Collectors.toList());
+        Assert.assertThat(warnings.size(), is(2));
+        Assert.assertThat(warnings.get(0).getMessage().contains("key `requestId` crossed"), is(true));
+        Assert.assertThat(warnings.get(1).getMessage().contains("key `userAgent` crossed"), is(true));
+        FieldAnalyzer analyzer = StructLoggerConfig.getFieldAnalyzer().get();
+        Assert.assertThat(analyzer.getStats("status").isFlagged(), is(false));
+        Assert.assertThat(analyzer.getStats("requestId").isFlagged(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPrecisionTest() {
+        FieldAnalyzer.builder().precision(20).build();
+    }
+}
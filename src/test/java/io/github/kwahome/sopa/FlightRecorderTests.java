@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jext.Level;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing events below the configured levels kept in memory and logged when an error follows.
+ *
+ * @author Kelvin Wahome
+ */
+public class FlightRecorderTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(FlightRecorderTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+        slf4jLogger.setEnabledLevelsForAllThreads(Level.ERROR, Level.WARN, Level.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clearAll();
+        slf4jLogger.setEnabledLevelsForAllThreads(Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG, Level.TRACE);
+    }
+
+    @Test
+    public void dumpedOnErrorTest() {
+        StructLoggerConfig.setFlightRecorder(FlightRecorder.builder().build());
+
+        logger.bind("requestId", "r1");
+        logger.debug("cache miss", "key", "user:1");
+        logger.bind("requestId", "r2");
+        logger.trace("query", "table", "users");
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(0));
+
+        logger.error("request failed");
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        Assert.assertThat(events.size(), is(3));
+        // recorded with the context bound at the time
+        Assert.assertThat(events.get(0).getMessage(), startsWith("{\"message\":\"cache miss\",\"key\":\"user:1\"," +
+                "\"requestId\":\"r1\",\"debugLevel\":\"DEBUG\",\"recordedAt\":"));
+        Assert.assertThat(events.get(0).getLevel(), is(Level.INFO));
+        Assert.assertThat(events.get(1).getMessage(), startsWith("{\"message\":\"query\",\"table\":\"users\"," +
+                "\"requestId\":\"r2\",\"debugLevel\":\"TRACE\",\"recordedAt\":"));
+        Assert.assertThat(events.get(2),
+                is(LoggingEvent.error("{\"message\":\"request failed\",\"requestId\":\"r2\"}")));
+
+        // the buffer is emptied once dumped
+        logger.error("request failed");
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(4));
+    }
+
+    @Test
+    public void oldestEventsOverwrittenTest() {
+        StructLoggerConfig.setFlightRecorder(FlightRecorder.builder().capacity(3).build());
+
+        for (int i = 0; i < 5; i++) {
+            logger.debug("step", "step", i);
+        }
+        logger.error("request failed");
+
+        List<LoggingEvent> events = slf4jLogger.getLoggingEvents();
+        Assert.assertThat(events.size(), is(4));
+        Assert.assertThat(events.get(0).getMessage(), startsWith("{\"message\":\"step\",\"step\":\"2\""));
+        Assert.assertThat(events.get(2).getMessage(), startsWith("{\"message\":\"step\",\"step\":\"4\""));
+    }
+
+    @Test
+    public void perThreadTest() throws InterruptedException {
+        StructLoggerConfig.setFlightRecorder(FlightRecorder.builder().level(org.slf4j.event.Level.DEBUG).build());
+
+        Thread other = new Thread(() -> logger.debug("other thread"));
+        other.start();
+        other.join();
+        logger.trace("below the recorded level");
+        logger.error("request failed");
+
+        Assert.assertThat(slf4jLogger.getAllLoggingEvents().size(), is(1));
+    }
+
+    @Test
+    public void clearedTest() {
+        FlightRecorder flightRecorder = FlightRecorder.builder().build();
+        StructLoggerConfig.setFlightRecorder(flightRecorder);
+
+        logger.debug("cache miss");
+        flightRecorder.clear();
+        logger.error("request failed");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogSampler;
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.samplers.EveryNthSampler;
+import io.github.kwahome.sopa.samplers.FirstPerIntervalSampler;
+import io.github.kwahome.sopa.samplers.KeySampler;
+import io.github.kwahome.sopa.samplers.LevelSampler;
+import io.github.kwahome.sopa.samplers.RateSampler;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing sampling of log events.
+ *
+ * @author Kelvin Wahome
+ */
+public class LogSamplerTests {
+    private static final Function<String, Object> NO_VALUES = key -> null;
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        logger = (StructLogger) LoggerFactory.getLogger(LogSamplerTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void rateSamplerTest() {
+        LogSampler sampler = new RateSampler(0.1);
+        int kept = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int sampleRate = sampler.sample(Level.INFO, "message", NO_VALUES);
+            Assert.assertTrue(sampleRate == LogSampler.DROP || sampleRate == 10);
+            kept += sampleRate == LogSampler.DROP ? 0 : 1;
+        }
+        Assert.assertTrue("kept " + kept, kept > 700 && kept < 1300);
+    }
+
+    @Test
+    public void everyNthSamplerCountsPerMessageTest() {
+        LogSampler sampler = new EveryNthSampler(3);
+        int[] expected = {3, 0, 0, 3, 0, 0, 3};
+        for (int sampleRate : expected) {
+            Assert.assertThat(sampler.sample(Level.INFO, "message1", NO_VALUES), is(sampleRate));
+        }
+        Assert.assertThat(sampler.sample(Level.INFO, "message2", NO_VALUES), is(3));
+    }
+
+    @Test
+    public void firstPerIntervalSamplerTest() {
+        LogSampler sampler = new FirstPerIntervalSampler(2, 1, TimeUnit.HOURS, new EveryNthSampler(10));
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(LogSampler.KEEP));
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(LogSampler.KEEP));
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(10));
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(LogSampler.DROP));
+    }
+
+    @Test
+    public void keySamplerIsConsistentPerValueTest() {
+        LogSampler sampler = new KeySampler("traceId", 0.25);
+        int keptTraces = 0;
+        for (int trace = 0; trace < 4000; trace++) {
+            String traceId = "trace-" + trace;
+            int first = sampler.sample(Level.INFO, "message", key -> "traceId".equals(key) ? traceId : null);
+            for (int line = 0; line < 5; line++) {
+                Assert.assertThat(sampler.sample(Level.DEBUG, "other message", key -> traceId), is(first));
+            }
+            keptTraces += first == LogSampler.DROP ? 0 : 1;
+        }
+        Assert.assertTrue("kept " + keptTraces, keptTraces > 800 && keptTraces < 1200);
+        // events without the key are kept
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(LogSampler.KEEP));
+    }
+
+    @Test
+    public void levelSamplerTest() {
+        LogSampler sampler = new LevelSampler(Level.INFO, (level, message, values) -> LogSampler.DROP);
+        Assert.assertThat(sampler.sample(Level.INFO, "message", NO_VALUES), is(LogSampler.DROP));
+        Assert.assertThat(sampler.sample(Level.WARN, "message", NO_VALUES), is(LogSampler.KEEP));
+    }
+
+    @Test
+    public void sampledEventsCarrySampleRateTest() {
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        StructLoggerConfig.setSampler(new EveryNthSampler(2));
+
+        logger.info("message", "key1", "value1");
+        logger.info("message", "key1", "value2");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("{\"message\":\"message\",\"key1\":\"value1\",\"sampleRate\":2}")));
+    }
+
+    @Test
+    public void keySamplerFindsValueInBoundContextTest() {
+        StructLoggerConfig.setSampler(new KeySampler("traceId", 0.5));
+        int kept = 0;
+        for (int trace = 0; trace < 200; trace++) {
+            String traceId = "t" + trace;
+            int expected = StructLoggerConfig.getSampler().sample(Level.INFO, "message", key -> traceId);
+            logger.newBind("traceId", traceId);
+            logger.info("message");
+            logger.info("message", "key1", "value1");
+            kept += expected == LogSampler.DROP ? 0 : 2;
+            Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(kept));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.interfaces.LogRenderer;
+import io.github.kwahome.sopa.interfaces.LogSink;
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.sinks.OutputStreamSink;
+import io.github.kwahome.sopa.sinks.Slf4jSink;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing rendering once and fanning out to multiple sinks.
+ *
+ * @author Kelvin Wahome
+ */
+public class LogSinkFanOutTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.clearContextSupplier();
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        StructLoggerConfig.setLogSink(Slf4jSink.getInstance());
+        StructLoggerConfig.clearLogSinks();
+
+        logger = (StructLogger) LoggerFactory.getLogger(LogSinkFanOutTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        StructLoggerConfig.clearLogSinks();
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void fanOutToSinksWithDifferentRenderersTest() {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        StructLoggerConfig.addLogSink(JSONRenderer.getInstance(), new OutputStreamSink(file));
+
+        logger.info("Houston! We have a problem!", "key1", "value1");
+
+        LoggingEvent expectedLoggingEvent = LoggingEvent.info("Houston! We have a problem!, key1=value1");
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0), is(expectedLoggingEvent));
+        Assert.assertThat(new String(file.toByteArray(), StandardCharsets.UTF_8),
+                is("{\"message\":\"Houston! We have a problem!\",\"key1\":\"value1\"}\n"));
+    }
+
+    @Test
+    public void outputStreamSinkWritesStackTraceAfterLineTest() {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        StructLoggerConfig.addLogSink(JSONRenderer.getInstance(), new OutputStreamSink(file));
+
+        logger.error("failed", "key1", "value1", new IllegalStateException("boom"));
+
+        String written = new String(file.toByteArray(), StandardCharsets.UTF_8);
+        String[] lines = written.split("\n");
+        Assert.assertThat(lines[0], is("{\"message\":\"failed\",\"key1\":\"value1\",\"errorMessage\":\"boom\"}"));
+        Assert.assertThat(lines[1], is("java.lang.IllegalStateException: boom"));
+        Assert.assertThat(written, containsString("at io.github.kwahome.sopa.LogSinkFanOutTests"));
+    }
+
+    @Test
+    public void renderOncePerRendererTest() {
+        CountingRenderer renderer = new CountingRenderer();
+        CapturingSink sink1 = new CapturingSink(true);
+        CapturingSink sink2 = new CapturingSink(true);
+        StructLoggerConfig.addLogSink(renderer, sink1);
+        StructLoggerConfig.addLogSink(renderer, sink2);
+
+        logger.info("message", "key1", "value1", "key2", 2);
+
+        Assert.assertThat(renderer.renders.get(), is(1));
+        Assert.assertThat(sink1.received.size(), is(1));
+        Assert.assertThat(sink2.received.size(), is(1));
+        // both sinks are handed the very same rendered message and encoded bytes
+        Assert.assertThat(sink1.received.get(0), sameInstance(sink2.received.get(0)));
+        Assert.assertTrue(sink1.received.get(0).getBytes().isReadOnly());
+        Assert.assertThat(sink1.received.get(0).getBytes(), is(sink2.received.get(0).getBytes()));
+        Assert.assertThat(sink1.received.get(0).toString(), is("message, key1=value1, key2=2"));
+    }
+
+    @Test
+    public void notRenderedWhenNoSinkIsEnabledTest() {
+        CountingRenderer renderer = new CountingRenderer();
+        CapturingSink sink = new CapturingSink(false);
+        StructLoggerConfig.addLogSink(renderer, sink);
+
+        logger.info("message", "key1", "value1");
+
+        Assert.assertThat(renderer.renders.get(), is(0));
+        Assert.assertThat(sink.received.size(), is(0));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+    }
+
+    @Test
+    public void clearLogSinksTest() {
+        CapturingSink sink = new CapturingSink(true);
+        StructLoggerConfig.addLogSink(JSONRenderer.getInstance(), sink);
+        StructLoggerConfig.clearLogSinks();
+
+        logger.info("message");
+
+        Assert.assertThat(sink.received.size(), is(0));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+    }
+
+    /**
+     * {@link KeyValueRenderer} counting the log events it renders.
+     */
+    private static final class CountingRenderer implements LogRenderer<StringBuilder> {
+        private final AtomicInteger renders = new AtomicInteger();
+
+        @Override
+        public StringBuilder start(Logger logger) {
+            renders.incrementAndGet();
+            return KeyValueRenderer.getInstance().start(logger);
+        }
+
+        @Override
+        public LogRenderer<StringBuilder> addMessage(Logger logger, StringBuilder builder, String message) {
+            KeyValueRenderer.getInstance().addMessage(logger, builder, message);
+            return this;
+        }
+
+        @Override
+        public LogRenderer<StringBuilder> addKeyValue(Logger logger, StringBuilder builder, String key, Object val) {
+            KeyValueRenderer.getInstance().addKeyValue(logger, builder, key, val);
+            return this;
+        }
+
+        @Override
+        public String end(Logger logger, StringBuilder builder) {
+            return KeyValueRenderer.getInstance().end(logger, builder);
+        }
+    }
+
+    /**
+     * Sink recording the rendered messages it is handed.
+     */
+    private static final class CapturingSink implements LogSink {
+        private final boolean enabled;
+        private final List<RenderedMessage> received = new ArrayList<>();
+
+        CapturingSink(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void write(Logger logger, Level level, String structuredMessage, Throwable throwable) {
+            received.add(new RenderedMessage(structuredMessage));
+        }
+
+        @Override
+        public void write(Logger logger, Level level, RenderedMessage renderedMessage, Throwable throwable) {
+            received.add(renderedMessage);
+        }
+
+        @Override
+        public boolean isEnabled(Logger logger, Level level) {
+            return enabled;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing per logger configuration overrides.
+ *
+ * @author Kelvin Wahome
+ */
+public class LoggerConfigTests {
+    private StructLogger billingLogger;
+    private StructLogger shippingLogger;
+    private TestLogger billingSlf4jLogger;
+    private TestLogger shippingSlf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        StructLoggerConfig.clearContextSupplier();
+
+        billingLogger = (StructLogger) LoggerFactory.getLogger("com.acme.billing.InvoiceService");
+        shippingLogger = (StructLogger) LoggerFactory.getLogger("com.acme.shipping.Dispatcher");
+        billingSlf4jLogger = (TestLogger) billingLogger.getSlf4jLogger();
+        shippingSlf4jLogger = (TestLogger) shippingLogger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.clearLoggerConfig("com.acme");
+        StructLoggerConfig.clearLoggerConfig("com.acme.billing");
+        StructLoggerConfig.clearContextSupplier();
+        billingSlf4jLogger.clear();
+        shippingSlf4jLogger.clear();
+    }
+
+    @Test
+    public void overrideAppliesToLoggersBelowNameTest() {
+        StructLoggerConfig.setLoggerConfig("com.acme.billing",
+                LoggerConfig.builder().logRenderer(JSONRenderer.getInstance()).build());
+
+        billingLogger.info("message", "key1", "value1");
+        shippingLogger.info("message", "key1", "value1");
+
+        Assert.assertThat(billingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("{\"message\":\"message\",\"key1\":\"value1\"}")));
+        Assert.assertThat(shippingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("message, key1=value1")));
+    }
+
+    @Test
+    public void mostSpecificOverrideWinsPerPropertyTest() {
+        StructLoggerConfig.setLoggerConfig("com.acme", LoggerConfig.builder()
+                .logRenderer(new KeyValueRenderer(";"))
+                .valueRenderer((value) -> "<" + value + ">")
+                .build());
+        StructLoggerConfig.setLoggerConfig("com.acme.billing",
+                LoggerConfig.builder().logRenderer(JSONRenderer.getInstance()).build());
+
+        billingLogger.info("message", "key1", "value1");
+        shippingLogger.info("message", "key1", "value1");
+
+        // renderer overridden again further down, value renderer inherited from `com.acme`
+        Assert.assertThat(billingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("{\"message\":\"message\",\"key1\":\"<value1>\"}")));
+        Assert.assertThat(shippingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("message; key1=<value1>")));
+    }
+
+    @Test
+    public void contextSupplierOverrideTest() {
+        StructLoggerConfig.setContextSupplier("environment", "test");
+        StructLoggerConfig.setLoggerConfig("com.acme.billing",
+                LoggerConfig.builder().contextSupplier(Optional.empty()).build());
+
+        billingLogger.info("message");
+        shippingLogger.info("message");
+
+        Assert.assertThat(billingSlf4jLogger.getLoggingEvents().get(0), is(LoggingEvent.info("message")));
+        Assert.assertThat(shippingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("message, environment=test")));
+    }
+
+    @Test
+    public void existingLoggersFollowChangesTest() {
+        LoggerConfig loggerConfig = LoggerConfig.builder().logRenderer(JSONRenderer.getInstance()).build();
+        StructLoggerConfig.setLoggerConfig("com.acme", loggerConfig);
+        Assert.assertThat(StructLoggerConfig.getLoggerConfig("com.acme"), is(Optional.of(loggerConfig)));
+        billingLogger.info("message");
+
+        StructLoggerConfig.clearLoggerConfig("com.acme");
+        Assert.assertFalse(StructLoggerConfig.getLoggerConfig("com.acme").isPresent());
+        billingLogger.info("message");
+
+        Assert.assertThat(billingSlf4jLogger.getLoggingEvents().get(0),
+                is(LoggingEvent.info("{\"message\":\"message\"}")));
+        Assert.assertThat(billingSlf4jLogger.getLoggingEvents().get(1), is(LoggingEvent.info("message")));
+    }
+}
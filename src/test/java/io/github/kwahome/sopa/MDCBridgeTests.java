@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.slf4j.helpers.BasicMDCAdapter;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing slf4j MDC entries added to logged events.
+ *
+ * @author Kelvin Wahome
+ */
+public class MDCBridgeTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(MDCBridgeTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+        MDC.clear();
+    }
+
+    @Test
+    public void notBridgedByDefaultTest() {
+        MDC.put("requestId", "r1");
+        logger.info("message");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), is("{\"message\":\"message\"}"));
+    }
+
+    @Test
+    public void includedKeysTest() {
+        StructLoggerConfig.setMDCBridge(MDCBridge.builder().key("requestId").key("traceId").build());
+        MDC.put("requestId", "r1");
+        MDC.put("user", "jane");
+        logger.info("message");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(),
+                is("{\"message\":\"message\",\"requestId\":\"r1\"}"));
+    }
+
+    @Test
+    public void allEntriesTest() {
+        StructLoggerConfig.setMDCBridge(MDCBridge.builder().build());
+        MDC.put("requestId", "r1");
+        logger.info("message");
+        MDC.put("user", "jane");
+        logger.info("message");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(),
+                is("{\"message\":\"message\",\"requestId\":\"r1\"}"));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(1).getMessage(), containsString("\"user\":\"jane\""));
+    }
+
+    @Test
+    public void lowestPrecedenceTest() {
+        StructLoggerConfig.setMDCBridge(MDCBridge.builder().build());
+        Map<String, Object> globalContext = new HashMap<>();
+        globalContext.put("environment", "test");
+        StructLoggerConfig.setContextSupplier(globalContext);
+        MDC.put("requestId", "mdc");
+        MDC.put("environment", "mdc");
+        logger.info("message", "requestId", "r1");
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), is(
+                "{\"message\":\"message\",\"requestId\":\"r1\",\"environment\":\"test\"}"));
+    }
+
+    @Test
+    public void copyOnWriteMapAccessorTest() {
+        Assert.assertThat(MDCBridge.propertyMapAccessor(new CopyOnWriteMDCAdapter()), notNullValue());
+        Assert.assertThat(MDCBridge.propertyMapAccessor(new BasicMDCAdapter()), nullValue());
+    }
+
+    /**
+     * Adapter exposing its map like logback's does.
+     */
+    public static final class CopyOnWriteMDCAdapter extends BasicMDCAdapter {
+        public Map<String, String> getPropertyMap() {
+            return Collections.emptyMap();
+        }
+    }
+}
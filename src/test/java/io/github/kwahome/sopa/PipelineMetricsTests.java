@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import io.github.kwahome.sopa.samplers.EveryNthSampler;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing the metrics of the logging pipeline.
+ *
+ * @author Kelvin Wahome
+ */
+public class PipelineMetricsTests {
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(PipelineMetricsTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+        METRICS.reset();
+        METRICS.enable();
+    }
+
+    @After
+    public void tearDown() {
+        METRICS.disable();
+        METRICS.reset();
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clear();
+    }
+
+    @Test
+    public void histogramPrecisionTest() {
+        LogHistogram histogram = new LogHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertThat(histogram.getCount(), is(100_000L));
+        Assert.assertThat(histogram.getMax(), is(100_000L));
+        Assert.assertThat(histogram.getMean(), is(50_000.5));
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long expected = (long) (percentile * 1000);
+            long actual = histogram.getValueAtPercentile(percentile);
+            Assert.assertThat(actual >= expected, is(true));
+            Assert.assertThat(actual <= expected * 1.125, is(true));
+        }
+        Assert.assertThat(histogram.getValueAtPercentile(100), is(100_000L));
+        Assert.assertThat(LogHistogram.bucket(Long.MAX_VALUE), is(LogHistogram.bucket(Long.MAX_VALUE - 1)));
+        Assert.assertThat(LogHistogram.highestValue(LogHistogram.bucket(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+
+        histogram.reset();
+        Assert.assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void histogramsAddedTest() {
+        LogHistogram first = new LogHistogram();
+        LogHistogram second = new LogHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            (value % 2 == 0 ? first : second).record(value);
+        }
+        first.add(second);
+
+        Assert.assertThat(first.getCount(), is(1000L));
+        Assert.assertThat(first.getSum(), is(500_500L));
+        Assert.assertThat(first.getMax(), is(1000L));
+        Assert.assertThat(first.getValueAtPercentile(50) >= 500, is(true));
+        Assert.assertThat(first.getValueAtPercentile(50) <= 500 * 1.125, is(true));
+        Assert.assertThat(second.getCount(), is(500L));
+    }
+
+    @Test
+    public void eventsCountedTest() {
+        logger.info("request handled", "status", 200);
+        logger.warn("request slow", "latency", 1200);
+        logger.info("request handled", "status", 201);
+
+        Map<String, Long> perLevel = METRICS.getEventsPerLevel();
+        Assert.assertThat(perLevel.get("INFO"), is(2L));
+        Assert.assertThat(perLevel.get("WARN"), is(1L));
+        Assert.assertThat(METRICS.getEventsPerLogger().get(PipelineMetricsTests.class.getName()), is(3L));
+        long bytes = slf4jLogger.getLoggingEvents().stream().mapToLong(event -> event.getMessage().length()).sum();
+        Assert.assertThat(METRICS.getOutputBytes(), is(bytes));
+        Assert.assertThat(METRICS.getRenderLatencies().get("JSONRenderer").getCount(), is(3L));
+    }
+
+    @Test
+    public void droppedAndWarningsCountedTest() {
+        logger.info("request handled", "request id", 1);
+        logger.info("request handled", "requestId");
+        StructLoggerConfig.setSampler(new EveryNthSampler(2));
+        for (int i = 0; i < 4; i++) {
+            logger.info("request handled", "requestId", i);
+        }
+
+        Assert.assertThat(METRICS.getDroppedEvents().get(PipelineMetrics.SAMPLED), is(2L));
+        Assert.assertThat(METRICS.getInternalWarnings(), is(2L));
+        Assert.assertThat(METRICS.getInternalErrors(), is(0L));
+    }
+
+    @Test
+    public void publishedOverJMXTest() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pipeline = new ObjectName("io.github.kwahome.sopa:type=PipelineMetrics");
+        ObjectName latency = new ObjectName("io.github.kwahome.sopa:type=RenderLatency,renderer=\"JSONRenderer\"");
+        logger.info("request handled");
+
+        Assert.assertThat(server.getAttribute(pipeline, "InternalErrors"), is(0L));
+        Assert.assertThat((Long) server.getAttribute(pipeline, "OutputBytes") > 0, is(true));
+        Assert.assertThat(server.getAttribute(latency, "Count"), is(1L));
+
+        METRICS.disable();
+        Assert.assertThat(server.isRegistered(pipeline), is(false));
+        Assert.assertThat(server.isRegistered(latency), is(false));
+        logger.info("request handled");
+        Assert.assertThat(METRICS.getEventsPerLevel().get("INFO"), is(1L));
+    }
+
+    @Test
+    public void stagesTracedTest() throws Exception {
+        StageTracer tracer = StageTracer.getInstance();
+        tracer.reset();
+        tracer.enable(1);
+        try {
+            for (int i = 0; i < 10; i++) {
+                logger.info("request handled", "requestId", i);
+            }
+            Assert.assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(
+                    new ObjectName("io.github.kwahome.sopa:type=StageTracer"), "SampleEvery"), is(1));
+        } finally {
+            tracer.disable();
+        }
+        logger.info("request handled");
+
+        for (StageTracer.Stage stage : StageTracer.Stage.values()) {
+            Assert.assertThat(tracer.getHistogram(stage).getCount(), is(10L));
+        }
+        Assert.assertThat(tracer.getCounts().keySet().toString(), is("[params, context, render, end, sink]"));
+        String[] dump = tracer.dump().split(System.lineSeparator());
+        Assert.assertThat(dump.length, is(6));
+        Assert.assertThat(dump[5].matches("sink\\s+10\\s.*"), is(true));
+        tracer.reset();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.event.Level;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing rate limiting of log events per logger and per key value.
+ *
+ * @author Kelvin Wahome
+ */
+public class RateLimiterTests {
+    private static final long REPORT_INTERVAL_MILLIS = 60_000;
+
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(RateLimiterTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+        slf4jLogger.clearAll();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clearAll();
+    }
+
+    @Test
+    public void perLoggerLimitTest() {
+        RateLimiter rateLimiter = RateLimiter.builder()
+                .eventsPerSecond(1)
+                .burst(5)
+                .reportIntervalMillis(REPORT_INTERVAL_MILLIS)
+                .build();
+        StructLoggerConfig.setRateLimiter(rateLimiter);
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("request handled", "requestId", i);
+        }
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(5));
+
+        rateLimiter.report();
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(5), is(LoggingEvent.warn(
+                "{\"message\":\"log events suppressed by rate limit\",\"suppressedLevel\":\"INFO\"," +
+                        "\"suppressedCount\":95}")));
+
+        // counts are reset once reported
+        rateLimiter.report();
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(6));
+    }
+
+    @Test
+    public void perKeyLimitTest() {
+        RateLimiter rateLimiter = RateLimiter.builder()
+                .key("tenantId")
+                .eventsPerSecond(1)
+                .burst(2)
+                .reportIntervalMillis(REPORT_INTERVAL_MILLIS)
+                .build();
+        StructLoggerConfig.setRateLimiter(rateLimiter);
+
+        for (int i = 0; i < 10; i++) {
+            logger.info("request handled", "tenantId", "noisy");
+        }
+        logger.info("request handled", "tenantId", "quiet");
+        // events without the key are not limited
+        logger.info("request handled");
+        logger.info("request handled");
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(5));
+
+        rateLimiter.report();
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(5), is(LoggingEvent.warn(
+                "{\"message\":\"log events suppressed by rate limit\",\"tenantId\":\"noisy\"," +
+                        "\"suppressedLevel\":\"INFO\",\"suppressedCount\":8}")));
+    }
+
+    @Test
+    public void keyValueRedactedTest() {
+        StructLoggerConfig.setRedactor(Redactor.builder().emails(true).build());
+        RateLimiter rateLimiter = RateLimiter.builder()
+                .key("user")
+                .eventsPerSecond(1)
+                .burst(1)
+                .reportIntervalMillis(REPORT_INTERVAL_MILLIS)
+                .build();
+        StructLoggerConfig.setRateLimiter(rateLimiter);
+
+        for (int i = 0; i < 3; i++) {
+            logger.info("request handled", "user", "jane@example.com");
+        }
+        rateLimiter.report();
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(1), is(LoggingEvent.warn(
+                "{\"message\":\"log events suppressed by rate limit\",\"user\":\"****\"," +
+                        "\"suppressedLevel\":\"INFO\",\"suppressedCount\":2}")));
+    }
+
+    @Test
+    public void perLevelLimitTest() {
+        StructLoggerConfig.setRateLimiter(RateLimiter.builder()
+                .eventsPerSecond(1)
+                .levelLimit(Level.ERROR, 0L)
+                .levelLimit(Level.WARN, 2L)
+                .reportIntervalMillis(REPORT_INTERVAL_MILLIS)
+                .build());
+
+        for (int i = 0; i < 10; i++) {
+            logger.info("message");
+            logger.warn("message");
+            logger.error("message");
+        }
+
+        // 1 info event, a burst of 2 warn events and all error events
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(13));
+    }
+
+    @Test
+    public void concurrentLimitTest() throws InterruptedException {
+        StructLoggerConfig.setRateLimiter(RateLimiter.builder()
+                .eventsPerSecond(1)
+                .burst(100)
+                .reportIntervalMillis(REPORT_INTERVAL_MILLIS)
+                .build());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    logger.info("message");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // a token is only ever taken once however many threads race for it, allowing for one refill
+        int logged = slf4jLogger.getAllLoggingEvents().size();
+        Assert.assertTrue(String.valueOf(logged), logged >= 100 && logged <= 101);
+    }
+
+    @Test
+    public void turnedOffTest() {
+        StructLoggerConfig.setRateLimiter(RateLimiter.builder().eventsPerSecond(1).build());
+        StructLoggerConfig.clearRateLimiter();
+
+        logger.info("message");
+        logger.info("message");
+
+        Assert.assertFalse(StructLoggerConfig.getRateLimiter().isPresent());
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(2));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.KeyValueRenderer;
+import io.github.kwahome.sopa.sinks.Slf4jSink;
+import io.github.kwahome.sopa.sinks.TCPSink;
+
+/**
+ * Testing the {@link TCPSink} against an in-process collector.
+ *
+ * @author Kelvin Wahome
+ */
+public class TCPSinkTests {
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    private StructLogger logger;
+    private TCPSink sink;
+    private Collector collector;
+
+    @Before
+    public void setUp() throws IOException {
+        StructLoggerConfig.clearContextSupplier();
+        StructLoggerConfig.setLogRenderer(KeyValueRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(TCPSinkTests.class);
+        collector = new Collector(0, TCPSink.Framing.LENGTH_PREFIXED);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StructLoggerConfig.setLogSink(Slf4jSink.getInstance());
+        if (sink != null) {
+            sink.close();
+        }
+        collector.close();
+    }
+
+    @Test
+    public void throughputAndOrderingTest() {
+        sink = newSink(collector.port(), TCPSink.Framing.LENGTH_PREFIXED, 0);
+        StructLoggerConfig.setLogSink(sink);
+
+        int events = 50000;
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            logger.info("event", "seq", i);
+        }
+        awaitTrue(() -> collector.received().size() == events);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertInOrder(collector.received(), 0, events);
+        Assert.assertThat(sink.getDroppedEvents(), is(0L));
+        Assert.assertTrue(String.format("%s events took %sms", events, elapsedMillis), elapsedMillis < TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void newlineFramingTest() throws IOException {
+        collector.close();
+        collector = new Collector(0, TCPSink.Framing.NEWLINE);
+        sink = newSink(collector.port(), TCPSink.Framing.NEWLINE, 0);
+        StructLoggerConfig.setLogSink(sink);
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("event", "seq", i);
+        }
+        awaitTrue(() -> collector.received().size() == 100);
+        assertInOrder(collector.received(), 0, 100);
+        Assert.assertThat(collector.received().get(0), is("event, seq=0"));
+    }
+
+    @Test
+    public void reconnectsAndReplaysSpillInOrderTest() throws IOException {
+        sink = newSink(collector.port(), TCPSink.Framing.LENGTH_PREFIXED, 0);
+        StructLoggerConfig.setLogSink(sink);
+
+        for (int i = 0; i < 1000; i++) {
+            logger.info("event", "seq", i);
+        }
+        awaitTrue(() -> collector.received().size() == 1000);
+
+        // collector goes away, events spill while the sink retries in the background
+        int port = collector.port();
+        collector.close();
+        awaitTrue(() -> !sink.isConnected());
+        for (int i = 1000; i < 2000; i++) {
+            logger.info("event", "seq", i);
+        }
+        Assert.assertThat(sink.getBufferedEvents(), is(1000));
+
+        collector = new Collector(port, TCPSink.Framing.LENGTH_PREFIXED);
+        awaitTrue(() -> collector.received().size() == 1000);
+        assertInOrder(collector.received(), 1000, 2000);
+        Assert.assertThat(sink.getDroppedEvents(), is(0L));
+    }
+
+    @Test
+    public void spillIsBoundedTest() throws IOException {
+        int port = collector.port();
+        collector.close();
+        sink = newSink(port, TCPSink.Framing.LENGTH_PREFIXED, 1024);
+        StructLoggerConfig.setLogSink(sink);
+
+        for (int i = 0; i < 1000; i++) {
+            logger.info("event", "seq", i);
+        }
+        Assert.assertTrue(sink.getDroppedEvents() > 0);
+        Assert.assertThat(sink.getBufferedEvents() + sink.getDroppedEvents(), is(1000L));
+        Assert.assertTrue(sink.getBufferedEvents() * "event, seq=999".length() <= 1024);
+    }
+
+    private TCPSink newSink(int port, TCPSink.Framing framing, int bufferCapacity) {
+        return TCPSink.builder()
+                .host("localhost")
+                .port(port)
+                .framing(framing)
+                .bufferCapacity(bufferCapacity)
+                .offHeap(true)
+                .initialBackoffMillis(10)
+                .maxBackoffMillis(50)
+                .build();
+    }
+
+    private void assertInOrder(List<String> received, int from, int to) {
+        Assert.assertThat(received.size(), is(to - from));
+        for (int i = from; i < to; i++) {
+            Assert.assertThat(received.get(i - from), is("event, seq=" + i));
+        }
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("timed out waiting for condition", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Minimal collector accepting one connection at a time and recording every frame received.
+     */
+    private static final class Collector implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final TCPSink.Framing framing;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        private volatile Socket socket;
+
+        Collector(int port, TCPSink.Framing framing) throws IOException {
+            this.framing = framing;
+            this.serverSocket = new ServerSocket();
+            this.serverSocket.setReuseAddress(true);
+            this.serverSocket.bind(new InetSocketAddress("localhost", port));
+            Thread thread = new Thread(this::accept, "collector-" + port);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        List<String> received() {
+            synchronized (received) {
+                return new ArrayList<>(received);
+            }
+        }
+
+        private void accept() {
+            try {
+                while (!serverSocket.isClosed()) {
+                    socket = serverSocket.accept();
+                    read(socket.getInputStream());
+                }
+            } catch (IOException ex) {
+                // collector closed
+            }
+        }
+
+        private void read(InputStream inputStream) throws IOException {
+            DataInputStream in = new DataInputStream(inputStream);
+            if (framing == TCPSink.Framing.LENGTH_PREFIXED) {
+                while (true) {
+                    byte[] frame = new byte[in.readInt()];
+                    in.readFully(frame);
+                    received.add(new String(frame, StandardCharsets.UTF_8));
+                }
+            }
+            StringBuilder line = new StringBuilder();
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                if (b == '\n') {
+                    received.add(line.toString());
+                    line.setLength(0);
+                } else {
+                    line.append((char) b);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Kelvin Wahome
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.kwahome.sopa;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.kwahome.sopa.renderers.JSONRenderer;
+import uk.org.lidalia.slf4jext.Level;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+
+/**
+ * Testing key-value pairs, counters and timings accumulated across a unit of work into one event.
+ *
+ * @author Kelvin Wahome
+ */
+public class WideEventTests {
+    private StructLogger logger;
+    private TestLogger slf4jLogger;
+
+    @Before
+    public void setUp() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        StructLoggerConfig.setLogRenderer(JSONRenderer.getInstance());
+        logger = (StructLogger) LoggerFactory.getLogger(WideEventTests.class);
+        slf4jLogger = (TestLogger) logger.getSlf4jLogger();
+    }
+
+    @After
+    public void tearDown() {
+        StructLoggerConfig.update(tree -> ConfigTree.defaults());
+        slf4jLogger.clearAll();
+    }
+
+    @Test
+    public void loggedOnceOnCloseTest() {
+        logger.bind("requestId", "r1");
+        WideEvent event = logger.wideEvent("request handled");
+        try {
+            event.add("route", "/orders", "status", 200);
+            addFromDeepInTheCallStack();
+            event.add(Collections.singletonMap("status", 201));
+            Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(0));
+        } finally {
+            event.close();
+        }
+        event.close();
+        event.add("late", true);
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(1));
+        LoggingEvent logged = slf4jLogger.getLoggingEvents().get(0);
+        Assert.assertThat(logged.getLevel(), is(Level.INFO));
+        Assert.assertThat(logged.getMessage(), startsWith("{\"message\":\"request handled\",\"route\":\"/orders\"," +
+                "\"status\":\"201\",\"cacheMisses\":\"3\",\"durationMs\":"));
+        Assert.assertThat(logged.getMessage(), containsString("\"requestId\":\"r1\""));
+    }
+
+    @Test
+    public void timingsTest() throws InterruptedException {
+        try (WideEvent event = logger.wideEvent("request handled")) {
+            for (int i = 0; i < 2; i++) {
+                try (WideEvent.Timer ignored = event.time("dbMs")) {
+                    Thread.sleep(5);
+                }
+            }
+        }
+
+        String message = slf4jLogger.getLoggingEvents().get(0).getMessage();
+        double dbMillis = Double.parseDouble(message.replaceAll(".*\"dbMs\":\"([0-9.]+).*", "$1"));
+        double durationMillis = Double.parseDouble(message.replaceAll(".*\"durationMs\":\"([0-9.]+).*", "$1"));
+        Assert.assertTrue(dbMillis >= 10);
+        Assert.assertTrue(durationMillis >= dbMillis);
+    }
+
+    @Test
+    public void failedTest() {
+        IllegalStateException exception = new IllegalStateException("out of stock");
+        try (WideEvent event = logger.wideEvent("request handled")) {
+            event.fail(exception);
+        }
+
+        LoggingEvent logged = slf4jLogger.getLoggingEvents().get(0);
+        Assert.assertThat(logged.getLevel(), is(Level.ERROR));
+        Assert.assertThat(logged.getMessage(), containsString("\"errorMessage\":\"out of stock\""));
+    }
+
+    @Test
+    public void nestedTest() {
+        Assert.assertThat(WideEvent.current().add("ignored", true), sameInstance(WideEvent.current()));
+        try (WideEvent outer = logger.wideEvent("outer")) {
+            try (WideEvent inner = logger.wideEvent("inner")) {
+                Assert.assertThat(WideEvent.current(), sameInstance(inner));
+            }
+            Assert.assertThat(WideEvent.current(), sameInstance(outer));
+        }
+
+        Assert.assertThat(slf4jLogger.getLoggingEvents().size(), is(2));
+        Assert.assertThat(slf4jLogger.getLoggingEvents().get(0).getMessage(), startsWith("{\"message\":\"inner\""));
+    }
+
+    private static void addFromDeepInTheCallStack() {
+        WideEvent.current().increment("cacheMisses").increment("cacheMisses", 2);
+    }
+}